@@ -449,6 +449,12 @@ public class BloombergHistoricalTimeSeriesSource extends AbstractBloombergStatic
     throw new UnsupportedOperationException("Unable to retrieve historical time-series from Bloomberg using config");
   }
 
+  @Override
+  public Map<ExternalIdBundle, Pair<LocalDate, Double>> getLatestDataPoints(String dataField, Set<ExternalIdBundle> identifierSet, LocalDate identifierValidityDate, String resolutionKey,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    throw new UnsupportedOperationException("Unable to retrieve historical time-series from Bloomberg using config");
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public Map<ExternalIdBundle, HistoricalTimeSeries> getHistoricalTimeSeries(
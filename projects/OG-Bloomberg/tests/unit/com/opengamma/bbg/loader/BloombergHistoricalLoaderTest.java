@@ -422,6 +422,12 @@ public class BloombergHistoricalLoaderTest extends DbTest {
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public Map<ExternalIdBundle, Pair<LocalDate, Double>> getLatestDataPoints(String dataField, Set<ExternalIdBundle> identifierSet, LocalDate identifierValidityDate, String resolutionKey,
+        LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+      throw new UnsupportedOperationException();
+    }
+
     //-------------------------------------------------------------------------
     @Override
     public Map<ExternalIdBundle, HistoricalTimeSeries> getHistoricalTimeSeries(
@@ -498,6 +498,29 @@ public interface HistoricalTimeSeriesSource {
       Set<ExternalIdBundle> identifierSet, String dataSource, String dataProvider, String dataField,
       LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd);
 
+  /**
+   * Finds the latest data point from multiple time-series for the same field, resolved using
+   * the same resolution key.
+   * <p>
+   * This is the bulk form of {@link #getLatestDataPoint(String, ExternalIdBundle, LocalDate, String, LocalDate, boolean, LocalDate, boolean)}.
+   * Setting the start and end to the same date fetches the value on that date from each time-series
+   * in a single request.
+   * 
+   * @param dataField  the type of data required, not null
+   * @param identifierSet  a set containing an identifier bundle for each time-series required, not null
+   * @param identifierValidityDate  the date that the identifiers must be valid on, null to use all identifiers
+   * @param resolutionKey  the key to resolve the correct time-series, null to use default rules
+   * @param start  the start date, null will load the earliest date 
+   * @param includeStart  whether or not the start date is included in the result
+   * @param end  the end date, null will load the latest date
+   * @param includeEnd  whether or not the end date is included in the result
+   * @return a map of each identifier bundle to its latest data point value and date, bundles that could
+   *  not be resolved or have no data points in the range are omitted, not null
+   */
+  Map<ExternalIdBundle, Pair<LocalDate, Double>> getLatestDataPoints(
+      String dataField, Set<ExternalIdBundle> identifierSet, LocalDate identifierValidityDate, String resolutionKey,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd);
+
   //-------------------------------------------------------------------------
 
 }
@@ -36,6 +36,7 @@ import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.fudgemsg.FudgeMapWrapper;
 import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
 import com.opengamma.util.rest.AbstractDataResource;
+import com.opengamma.util.tuple.Pair;
 
 /**
  * RESTful resource for time-series.
@@ -208,6 +209,26 @@ public class DataHistoricalTimeSeriesSourceResource extends AbstractDataResource
     return responseOkFudge(FudgeMapWrapper.of(result));
   }
 
+  @SuppressWarnings("unchecked")
+  @POST
+  @Path("htsSearches/latestBulk")
+  public Response searchLatestBulk(FudgeMsgEnvelope request) {
+    FudgeMsg msg = request.getMessage();
+    FudgeDeserializer deserializationContext = new FudgeDeserializer(OpenGammaFudgeContext.getInstance());
+    Set<ExternalIdBundle> identifierSet = deserializationContext.fudgeMsgToObject(Set.class, msg.getMessage("id"));
+    String dataField = msg.getString("dataField");
+    LocalDate identifierValidityDate = deserializationContext.fieldValueToObject(LocalDate.class, msg.getByName("idValidityDate"));
+    String resolutionKey = msg.getString("resolutionKey");
+    LocalDate start = deserializationContext.fieldValueToObject(LocalDate.class, msg.getByName("start"));
+    boolean includeStart = msg.getBoolean("includeStart");
+    LocalDate end = deserializationContext.fieldValueToObject(LocalDate.class, msg.getByName("end"));
+    boolean includeEnd = msg.getBoolean("includeEnd");
+    
+    Map<ExternalIdBundle, Pair<LocalDate, Double>> result = getHistoricalTimeSeriesSource().getLatestDataPoints(
+        dataField, identifierSet, identifierValidityDate, resolutionKey, start, includeStart, end, includeEnd);
+    return responseOkFudge(FudgeMapWrapper.of(result));
+  }
+
   //-------------------------------------------------------------------------
   /**
    * For debugging purposes only.
@@ -380,4 +401,25 @@ public class DataHistoricalTimeSeriesSourceResource extends AbstractDataResource
     return msg;
   }
 
+  public static URI uriSearchLatestBulk(URI baseUri) {
+    UriBuilder bld = UriBuilder.fromUri(baseUri).path("htsSearches/latestBulk");
+    return bld.build();
+  }
+
+  public static FudgeMsg uriSearchLatestBulkData(
+      String dataField, Set<ExternalIdBundle> identifierSet, LocalDate identifierValidityDate, String resolutionKey,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    FudgeSerializer serializationContext = new FudgeSerializer(OpenGammaFudgeContext.getInstance());
+    MutableFudgeMsg msg = serializationContext.newMessage();
+    serializationContext.addToMessage(msg, "id", null, identifierSet);
+    serializationContext.addToMessage(msg, "dataField", null, dataField);
+    serializationContext.addToMessage(msg, "idValidityDate", null, identifierValidityDate);
+    serializationContext.addToMessage(msg, "resolutionKey", null, resolutionKey);
+    serializationContext.addToMessage(msg, "start", null, start);
+    serializationContext.addToMessage(msg, "includeStart", null, includeStart);
+    serializationContext.addToMessage(msg, "end", null, end);
+    serializationContext.addToMessage(msg, "includeEnd", null, includeEnd);
+    return msg;
+  }
+
 }
@@ -631,6 +631,43 @@ public class EHCachingHistoricalTimeSeriesSource implements HistoricalTimeSeries
     return result;
   }
 
+  @Override
+  public Map<ExternalIdBundle, Pair<LocalDate, Double>> getLatestDataPoints(
+      String dataField, Set<ExternalIdBundle> identifierSet, LocalDate identifierValidityDate, String resolutionKey,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    ArgumentChecker.notNull(identifierSet, "identifierSet");
+    final Map<ExternalIdBundle, Pair<LocalDate, Double>> result = new HashMap<ExternalIdBundle, Pair<LocalDate, Double>>();
+    final Set<ExternalIdBundle> remainingIds = new HashSet<ExternalIdBundle>();
+    final SubSeriesKey subseriesKey = new SubSeriesKey(start, includeStart, end, includeEnd, -1);
+    // answer what we can from series already cached by the single resolved lookups; the misses are passed to
+    // the underlying as one request and not cached as there is no time-series to cache
+    for (ExternalIdBundle identifiers : identifierSet) {
+      final HistoricalTimeSeriesKey seriesKey = new HistoricalTimeSeriesKey(resolutionKey, identifierValidityDate, identifiers, null, null, dataField);
+      HistoricalTimeSeries hts = null;
+      Element element = _dataCache.get(Pair.of(seriesKey, subseriesKey));
+      if (element != null) {
+        hts = (HistoricalTimeSeries) element.getValue();
+      } else {
+        element = _dataCache.get(seriesKey);
+        if (element != null) {
+          hts = (HistoricalTimeSeries) element.getValue();
+          if (!MISS.equals(hts)) {
+            hts = getSubSeries(hts, start, includeStart, end, includeEnd, -1);
+          }
+        }
+      }
+      if (hts == null) {
+        remainingIds.add(identifiers);
+      } else if (!MISS.equals(hts) && !hts.getTimeSeries().isEmpty()) {
+        result.put(identifiers, new ObjectsPair<LocalDate, Double>(hts.getTimeSeries().getLatestTime(), hts.getTimeSeries().getLatestValue()));
+      }
+    }
+    if (remainingIds.size() > 0) {
+      result.putAll(_underlying.getLatestDataPoints(dataField, remainingIds, identifierValidityDate, resolutionKey, start, includeStart, end, includeEnd));
+    }
+    return result;
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Attempts to retrieve the time-series with the given key from the cache.
@@ -5,6 +5,7 @@
  */
 package com.opengamma.core.historicaltimeseries.impl;
 
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -288,6 +289,23 @@ public class MockHistoricalTimeSeriesSource implements HistoricalTimeSeriesSourc
     throw new UnsupportedOperationException(getClass().getName() + " does not support getHistoricalTimeSeries for multiple time-series");
   }
 
+  @Override
+  public Map<ExternalIdBundle, Pair<LocalDate, Double>> getLatestDataPoints(
+      String dataField, Set<ExternalIdBundle> identifierSet, LocalDate identifierValidityDate, String resolutionKey,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    if (resolutionKey != null) {
+      throw new UnsupportedOperationException(getClass().getName() + " does not support resolved getLatestDataPoints");
+    }
+    final Map<ExternalIdBundle, Pair<LocalDate, Double>> result = new HashMap<ExternalIdBundle, Pair<LocalDate, Double>>();
+    for (ExternalIdBundle identifiers : identifierSet) {
+      HistoricalTimeSeries hts = getSubSeries(getAnyMatching(dataField, identifiers), start, includeStart, end, includeEnd, -1);
+      if (hts != null && hts.getTimeSeries() != null && !hts.getTimeSeries().isEmpty()) {
+        result.put(identifiers, new ObjectsPair<LocalDate, Double>(hts.getTimeSeries().getLatestTime(), hts.getTimeSeries().getLatestValue()));
+      }
+    }
+    return result;
+  }
+
   //-------------------------------------------------------------------------
   /**
    * Stores a time-series in this source.
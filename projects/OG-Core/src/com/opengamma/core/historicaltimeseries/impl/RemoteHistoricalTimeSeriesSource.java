@@ -270,6 +270,17 @@ public class RemoteHistoricalTimeSeriesSource extends AbstractRemoteClient imple
     }
   }
 
+  @SuppressWarnings("unchecked")
+  @Override
+  public Map<ExternalIdBundle, Pair<LocalDate, Double>> getLatestDataPoints(String dataField, Set<ExternalIdBundle> identifierSet, LocalDate identifierValidityDate,
+      String resolutionKey, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    ArgumentChecker.notNull(identifierSet, "identifierSet");
+    URI uri = DataHistoricalTimeSeriesSourceResource.uriSearchLatestBulk(getBaseUri());
+    FudgeMsg msg = DataHistoricalTimeSeriesSourceResource.uriSearchLatestBulkData(
+        dataField, identifierSet, identifierValidityDate, resolutionKey, start, includeStart, end, includeEnd);
+    return accessRemote(uri).post(FudgeMapWrapper.class, msg).getMap();
+  }
+
   //-------------------------------------------------------------------------
   private Pair<LocalDate, Double> extractPair(HistoricalTimeSeries historicalTimeSeries) {
     if (historicalTimeSeries == null) {
@@ -10,6 +10,8 @@ import java.io.Serializable;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.text.StrBuilder;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.core.security.Security;
 import com.opengamma.core.security.SecuritySource;
@@ -30,6 +32,8 @@ import com.opengamma.util.PublicAPI;
 public final class ComputationTargetSpecification implements Serializable {
 
   private static final long serialVersionUID = 1L;
+
+  private static final Interner<ComputationTargetSpecification> s_interner = Interners.newWeakInterner();
   
   /**
    * The type of the target.
@@ -139,6 +143,16 @@ public final class ComputationTargetSpecification implements Serializable {
     }
   }
 
+  /**
+   * Returns a canonical instance equal to this one, in the same manner as {@link String#intern}. Equality tests between
+   * interned instances succeed on identity and equal specifications share storage.
+   * 
+   * @return the canonical instance, not null
+   */
+  public ComputationTargetSpecification intern() {
+    return s_interner.intern(this);
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public boolean equals(final Object obj) {
@@ -290,6 +290,15 @@ import com.opengamma.engine.value.ValueSpecification;
     _refCount++;
   }
 
+  @Override
+  public synchronized boolean addRefIfLive() {
+    if (_refCount > 0) {
+      _refCount++;
+      return true;
+    }
+    return false;
+  }
+
   @Override
   public synchronized int release(final GraphBuildingContext context) {
     assert _refCount > 0;
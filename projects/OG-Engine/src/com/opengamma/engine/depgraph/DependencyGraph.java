@@ -9,11 +9,12 @@ import static com.opengamma.util.functional.Functional.submapByKeySet;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -22,7 +23,6 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.collect.Maps;
 import com.opengamma.core.position.PortfolioNode;
 import com.opengamma.engine.ComputationTarget;
 import com.opengamma.engine.ComputationTargetSpecification;
@@ -35,22 +35,95 @@ import com.opengamma.util.tuple.Pair;
 
 /**
  * Represents a directed graph of nodes describing how to execute a view to produce the required terminal outputs.
+ * <p>
+ * Once construction is complete a graph can be frozen. A frozen graph cannot be modified; it holds its nodes in an
+ * array in execution order with the edges between them as integer indices into that array, and drops the lookup
+ * structures that are only needed while the graph is being built.
  */
 @PublicAPI
 public class DependencyGraph {
   private static final Logger s_logger = LoggerFactory.getLogger(DependencyGraph.class);
 
-  private final String _calculationConfigurationName;
-
-  /** Includes the root node(s) */
-  private final Set<DependencyNode> _dependencyNodes = new HashSet<DependencyNode>();
-
-  private final Set<DependencyNode> _rootNodes = new HashSet<DependencyNode>();
+  private static final int[] NO_EDGES = new int[0];
 
   /**
-   * A cache of output values from this graph's nodes
+   * The compact form of a frozen graph.
    */
-  private final Set<ValueSpecification> _outputSpecifications = new HashSet<ValueSpecification>();
+  private static final class Frozen {
+
+    /** The nodes, in a valid execution order. */
+    private final DependencyNode[] _nodes;
+
+    /** Indices of the input nodes of each node, restricted to this graph. */
+    private final int[][] _inputs;
+
+    /** Indices of the dependent nodes of each node, restricted to this graph. */
+    private final int[][] _dependents;
+
+    /** Position of each node in the node array. */
+    private final Map<DependencyNode, Integer> _index;
+
+    private final List<DependencyNode> _executionOrder;
+
+    /**
+     * Creates the compact form.
+     *
+     * @param nodes the nodes, in a valid execution order
+     */
+    private Frozen(final DependencyNode[] nodes) {
+      _nodes = nodes;
+      _index = new IdentityHashMap<DependencyNode, Integer>(nodes.length);
+      for (int i = 0; i < nodes.length; i++) {
+        _index.put(nodes[i], i);
+      }
+      _inputs = new int[nodes.length][];
+      _dependents = new int[nodes.length][];
+      for (int i = 0; i < nodes.length; i++) {
+        _inputs[i] = indicesOf(nodes[i].getInputNodes());
+        _dependents[i] = indicesOf(nodes[i].getDependentNodes());
+      }
+      _executionOrder = Collections.unmodifiableList(Arrays.asList(nodes));
+    }
+
+    private int[] indicesOf(final Set<DependencyNode> nodes) {
+      if (nodes.isEmpty()) {
+        return NO_EDGES;
+      }
+      final int[] indices = new int[nodes.size()];
+      int count = 0;
+      for (DependencyNode node : nodes) {
+        final Integer index = _index.get(node);
+        if (index != null) {
+          indices[count++] = index;
+        }
+      }
+      if (count == 0) {
+        return NO_EDGES;
+      } else if (count < indices.length) {
+        return Arrays.copyOf(indices, count);
+      } else {
+        return indices;
+      }
+    }
+
+    private Set<DependencyNode> getRootNodes() {
+      final Set<DependencyNode> roots = new HashSet<DependencyNode>();
+      for (int i = 0; i < _nodes.length; i++) {
+        if (_dependents[i].length == 0) {
+          roots.add(_nodes[i]);
+        }
+      }
+      return roots;
+    }
+
+  }
+
+  private final String _calculationConfigurationName;
+
+  /** Includes the root node(s). When frozen, this is a view of the compact form's node index. */
+  private Set<DependencyNode> _dependencyNodes = new HashSet<DependencyNode>();
+
+  private Set<DependencyNode> _rootNodes = new HashSet<DependencyNode>();
 
   /**
    * A cache of terminal output values from this graph's nodes
@@ -59,17 +132,21 @@ public class DependencyGraph {
 
   private final Map<ValueSpecification, Set<ValueRequirement>> _terminalOutputs = new HashMap<ValueSpecification, Set<ValueRequirement>>();
 
-  /** A map to speed up lookups. Contents are equal to _dependencyNodes. */
-  private final Map<ComputationTargetType, Set<DependencyNode>> _computationTargetType2DependencyNode = new HashMap<ComputationTargetType, Set<DependencyNode>>();
+  /** A map to speed up lookups, built on demand. Contents are equal to _dependencyNodes. */
+  private volatile Map<ComputationTargetType, Set<DependencyNode>> _computationTargetType2DependencyNode;
 
-  /** A map to speed up lookups. Contents are equal to _dependencyNodes. */
+  /** A map to speed up lookups. The key set is the set of all output values from this graph's nodes. */
   private final Map<ValueSpecification, DependencyNode> _specification2DependencyNode = new HashMap<ValueSpecification, DependencyNode>();
 
-  private final Map<String, Map<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>>> _valueRequirement2Specifications = Maps.newHashMap(); // TODO
+  /** A map to speed up lookups, built on demand. */
+  private volatile Map<String, Map<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>>> _valueRequirement2Specifications;
 
   private final Set<Pair<ValueRequirement, ValueSpecification>> _allRequiredMarketData = new HashSet<Pair<ValueRequirement, ValueSpecification>>();
   private final Set<ComputationTarget> _allComputationTargets = new HashSet<ComputationTarget>();
 
+  /** The compact form, or null if the graph is not frozen. */
+  private volatile Frozen _frozen;
+
   /**
    * Creates a new, initially empty, dependency graph for the named configuration.
    * 
@@ -133,7 +210,7 @@ public class DependencyGraph {
    * @return the set of output values
    */
   public Set<ValueSpecification> getOutputSpecifications() {
-    return Collections.unmodifiableSet(_outputSpecifications);
+    return Collections.unmodifiableSet(_specification2DependencyNode.keySet());
   }
 
   /**
@@ -178,7 +255,7 @@ public class DependencyGraph {
    */
   public Set<ValueSpecification> getOutputSpecifications(ComputationTargetType type) {
     Set<ValueSpecification> outputValues = new HashSet<ValueSpecification>();
-    for (ValueSpecification spec : _outputSpecifications) {
+    for (ValueSpecification spec : _specification2DependencyNode.keySet()) {
       if (spec.getTargetSpecification().getType() == type) {
         outputValues.add(spec);
       }
@@ -214,7 +291,20 @@ public class DependencyGraph {
    * @return the set of nodes
    */
   public Set<DependencyNode> getDependencyNodes(ComputationTargetType type) {
-    Set<DependencyNode> nodes = _computationTargetType2DependencyNode.get(type);
+    Map<ComputationTargetType, Set<DependencyNode>> nodesByType = _computationTargetType2DependencyNode;
+    if (nodesByType == null) {
+      nodesByType = new HashMap<ComputationTargetType, Set<DependencyNode>>();
+      for (DependencyNode node : _dependencyNodes) {
+        Set<DependencyNode> nodes = nodesByType.get(node.getComputationTarget().getType());
+        if (nodes == null) {
+          nodes = new HashSet<DependencyNode>();
+          nodesByType.put(node.getComputationTarget().getType(), nodes);
+        }
+        nodes.add(node);
+      }
+      _computationTargetType2DependencyNode = nodesByType;
+    }
+    final Set<DependencyNode> nodes = nodesByType.get(type);
     if (nodes == null) {
       return Collections.emptySet();
     }
@@ -234,7 +324,7 @@ public class DependencyGraph {
 
   /**
    * Finds a node which has an output value that can satisfy the given input requirement. If there are
-   * multiple nodes producing an output which satisfies the requirement, the first one added to the graph
+   * multiple nodes producing an output which satisfies the requirement, the first one in execution order
    * is returned.
    * 
    * @param requirement requirement to search for
@@ -244,7 +334,7 @@ public class DependencyGraph {
     // REVIEW 2012-01-09 Andrew -- Nothing uses this anymore (apart from a unit test); this was used by the old
     // graph builder but not the new one. Suggest we delete it and also the valueRequirement2Specifications data
     // structure used to produce the result. 
-    final Map<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>> targets = _valueRequirement2Specifications.get(requirement.getValueName());
+    final Map<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>> targets = getValueRequirement2Specifications().get(requirement.getValueName());
     if (targets == null) {
       return null;
     }
@@ -261,6 +351,30 @@ public class DependencyGraph {
     return null;
   }
 
+  private Map<String, Map<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>>> getValueRequirement2Specifications() {
+    Map<String, Map<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>>> valueRequirement2Specifications = _valueRequirement2Specifications;
+    if (valueRequirement2Specifications == null) {
+      valueRequirement2Specifications = new HashMap<String, Map<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>>>();
+      for (DependencyNode node : getExecutionOrder()) {
+        for (ValueSpecification output : node.getOutputValues()) {
+          Map<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>> targets = valueRequirement2Specifications.get(output.getValueName());
+          if (targets == null) {
+            targets = new HashMap<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>>();
+            valueRequirement2Specifications.put(output.getValueName(), targets);
+          }
+          List<Pair<DependencyNode, ValueSpecification>> values = targets.get(output.getTargetSpecification());
+          if (values == null) {
+            values = new LinkedList<Pair<DependencyNode, ValueSpecification>>();
+            targets.put(output.getTargetSpecification(), values);
+          }
+          values.add(Pair.of(node, output));
+        }
+      }
+      _valueRequirement2Specifications = valueRequirement2Specifications;
+    }
+    return valueRequirement2Specifications;
+  }
+
   /**
    * Finds a node which has an output value of the given specification.
    * 
@@ -273,7 +387,7 @@ public class DependencyGraph {
 
   /**
    * Finds the nodes which have an output value that can satisfy the given input requirement. The nodes are
-   * returned in the order they were added to the dependency graph - see [ENG-259] for the implications of
+   * returned in execution order - see [ENG-259] for the implications of
    * handling multiple node returns.
    * 
    * @param requirement requirement to search for
@@ -282,7 +396,7 @@ public class DependencyGraph {
   public Collection<Pair<DependencyNode, ValueSpecification>> getNodesSatisfying(final ValueRequirement requirement) {
     // REVIEW 2012-01-09 Andrew -- Nothing uses this anymore; this was used by the old graph builder but not the new one. Suggest we delete it
     // and also the valueRequirement2Specifications data structure used to produce the result. 
-    final Map<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>> targets = _valueRequirement2Specifications.get(requirement.getValueName());
+    final Map<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>> targets = getValueRequirement2Specifications().get(requirement.getValueName());
     if (targets == null) {
       return null;
     }
@@ -303,6 +417,119 @@ public class DependencyGraph {
     return found;
   }
 
+  /**
+   * Tests whether the graph has been frozen.
+   * 
+   * @return true if the graph is frozen and cannot be modified
+   */
+  public boolean isFrozen() {
+    return _frozen != null;
+  }
+
+  /**
+   * Freezes the graph. The nodes are placed into an array in execution order with the edges between them held as
+   * indices into that array, and the lookup structures used during graph construction are discarded. Any attempt to
+   * modify the graph afterwards will fail unless it is first thawed. Freezing a graph that is already frozen has no
+   * effect.
+   * <p>
+   * The nodes must not be modified while the graph is frozen.
+   */
+  public void freeze() {
+    if (_frozen != null) {
+      return;
+    }
+    freeze(new Frozen(computeExecutionOrder()));
+  }
+
+  private void freeze(final Frozen frozen) {
+    _dependencyNodes = Collections.unmodifiableSet(frozen._index.keySet());
+    _rootNodes = frozen.getRootNodes();
+    _computationTargetType2DependencyNode = null;
+    _valueRequirement2Specifications = null;
+    _frozen = frozen;
+  }
+
+  /**
+   * Thaws a frozen graph so that it may be modified. Anything holding the graph that relies on its structure not
+   * changing, for example an execution plan cache, will be affected by any subsequent modifications. Thawing a graph
+   * that is not frozen has no effect.
+   */
+  public void thaw() {
+    final Frozen frozen = _frozen;
+    if (frozen == null) {
+      return;
+    }
+    _dependencyNodes = new HashSet<DependencyNode>(frozen._executionOrder);
+    _rootNodes = new HashSet<DependencyNode>(_rootNodes);
+    _frozen = null;
+  }
+
+  private void checkNotFrozen() {
+    if (_frozen != null) {
+      throw new IllegalStateException("Graph " + this + " is frozen");
+    }
+  }
+
+  private void invalidateLookups() {
+    _computationTargetType2DependencyNode = null;
+    _valueRequirement2Specifications = null;
+  }
+
+  private Frozen getFrozen() {
+    final Frozen frozen = _frozen;
+    if (frozen == null) {
+      throw new IllegalStateException("Graph " + this + " is not frozen");
+    }
+    return frozen;
+  }
+
+  /**
+   * Returns the position of a node in the execution order of a frozen graph.
+   * 
+   * @param node the node to look up, not null
+   * @return the node index, or -1 if the node is not in the graph
+   * @throws IllegalStateException if the graph is not frozen
+   */
+  public int getNodeIndex(final DependencyNode node) {
+    final Integer index = getFrozen()._index.get(node);
+    return (index != null) ? index : -1;
+  }
+
+  /**
+   * Returns the node at a given position in the execution order of a frozen graph.
+   * 
+   * @param index the node index
+   * @return the node, not null
+   * @throws IllegalStateException if the graph is not frozen
+   */
+  public DependencyNode getNode(final int index) {
+    return getFrozen()._nodes[index];
+  }
+
+  /**
+   * Returns the indices of the input nodes of a node in a frozen graph. Only inputs which are part of this graph are
+   * included; these will all be lower than the index of the node. The array returned must not be modified.
+   * 
+   * @param index the node index
+   * @return the input node indices, not null
+   * @throws IllegalStateException if the graph is not frozen
+   */
+  public int[] getInputNodeIndices(final int index) {
+    return getFrozen()._inputs[index];
+  }
+
+  /**
+   * Returns the indices of the dependent nodes of a node in a frozen graph. Only dependents which are part of this
+   * graph are included; these will all be higher than the index of the node. The array returned must not be modified.
+   * 
+   * @param index the node index
+   * @return the dependent node indices, not null
+   * @throws IllegalStateException if the graph is not frozen
+   */
+  public int[] getDependentNodeIndices(final int index) {
+    return getFrozen()._dependents[index];
+  }
+
   /**
    * Adds a node to the graph. A node will be rejected if there is already one in the graph that produces the same
    * output value - indicating a fault in the graph construction algorithm.
@@ -311,42 +538,12 @@ public class DependencyGraph {
    */
   public void addDependencyNode(DependencyNode node) {
     ArgumentChecker.notNull(node, "Node");
-
+    checkNotFrozen();
     if (!_dependencyNodes.add(node)) {
       throw new IllegalStateException("Node " + node + " already in the graph");
     }
-    _outputSpecifications.addAll(node.getOutputValues());
-    _terminalOutputValues.addAll(node.getTerminalOutputValues());
-    Pair<ValueRequirement, ValueSpecification> marketData = node.getRequiredMarketData();
-    if (marketData != null) {
-      _allRequiredMarketData.add(marketData);
-    }
-    _allComputationTargets.add(node.getComputationTarget());
-
-    for (ValueSpecification output : node.getOutputValues()) {
-      final DependencyNode previous = _specification2DependencyNode.put(output, node);
-      if (previous != null) {
-        throw new IllegalStateException("Node producing " + output + " already in the graph (previus = " + previous + ", this node = " + node + ")");
-      }
-      Map<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>> targets = _valueRequirement2Specifications.get(output.getValueName());
-      if (targets == null) {
-        targets = new HashMap<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>>();
-        _valueRequirement2Specifications.put(output.getValueName(), targets);
-      }
-      List<Pair<DependencyNode, ValueSpecification>> values = targets.get(output.getTargetSpecification());
-      if (values == null) {
-        values = new LinkedList<Pair<DependencyNode, ValueSpecification>>();
-        targets.put(output.getTargetSpecification(), values);
-      }
-      values.add(Pair.of(node, output));
-    }
-
-    Set<DependencyNode> nodesByType = _computationTargetType2DependencyNode.get(node.getComputationTarget().getType());
-    if (nodesByType == null) {
-      nodesByType = new HashSet<DependencyNode>();
-      _computationTargetType2DependencyNode.put(node.getComputationTarget().getType(), nodesByType);
-    }
-    nodesByType.add(node);
+    invalidateLookups();
+    indexNode(node);
 
     // is this node root at the moment?
     boolean isRoot = true;
@@ -367,6 +564,21 @@ public class DependencyGraph {
     }
   }
 
+  private void indexNode(final DependencyNode node) {
+    _terminalOutputValues.addAll(node.getTerminalOutputValues());
+    Pair<ValueRequirement, ValueSpecification> marketData = node.getRequiredMarketData();
+    if (marketData != null) {
+      _allRequiredMarketData.add(marketData);
+    }
+    _allComputationTargets.add(node.getComputationTarget());
+    for (ValueSpecification output : node.getOutputValues()) {
+      final DependencyNode previous = _specification2DependencyNode.put(output, node);
+      if (previous != null) {
+        throw new IllegalStateException("Node producing " + output + " already in the graph (previus = " + previous + ", this node = " + node + ")");
+      }
+    }
+  }
+
   /**
    * Removes a node from the graph.
    * 
@@ -374,11 +586,15 @@ public class DependencyGraph {
    */
   public void removeDependencyNode(final DependencyNode node) {
     ArgumentChecker.notNull(node, "node");
+    checkNotFrozen();
     if (!_dependencyNodes.remove(node)) {
       return;
     }
-    _outputSpecifications.removeAll(node.getOutputValues());
+    invalidateLookups();
     _terminalOutputValues.removeAll(node.getTerminalOutputValues());
+    for (ValueSpecification terminalOutput : node.getTerminalOutputValues()) {
+      _terminalOutputs.remove(terminalOutput);
+    }
     final Pair<ValueRequirement, ValueSpecification> marketData = node.getRequiredMarketData();
     if (marketData != null) {
       _allRequiredMarketData.remove(marketData);
@@ -386,21 +602,13 @@ public class DependencyGraph {
     // Note: a target may be shared by multiple nodes so don't remove target from _allComputationTargets - this is wrong in some cases
     for (ValueSpecification output : node.getOutputValues()) {
       _specification2DependencyNode.remove(output);
-      final Map<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>> targets = _valueRequirement2Specifications.get(output.getValueName());
-      final List<Pair<DependencyNode, ValueSpecification>> values = targets.get(output.getTargetSpecification());
-      final Iterator<Pair<DependencyNode, ValueSpecification>> valueIterator = values.iterator();
-      while (valueIterator.hasNext()) {
-        final Pair<DependencyNode, ValueSpecification> value = valueIterator.next();
-        if (node.equals(value.getFirst())) {
-          valueIterator.remove();
-        }
-      }
     }
-    final Set<DependencyNode> nodesByType = _computationTargetType2DependencyNode.get(node.getComputationTarget().getType());
-    nodesByType.remove(node);
     if (_rootNodes.remove(node)) {
       // Some children might become root as a result of removing this node
       for (DependencyNode childNode : node.getInputNodes()) {
+        if (!_dependencyNodes.contains(childNode)) {
+          continue;
+        }
         final Set<DependencyNode> dependentNodes = childNode.getDependentNodes();
         boolean isRoot = true;
         for (DependencyNode dependentNode : dependentNodes) {
@@ -416,12 +624,33 @@ public class DependencyGraph {
     }
   }
 
+  /**
+   * Removes a set of nodes from the graph, detaching them from their input nodes. The set must include every node in
+   * the graph that consumes an output of a node being removed. Any terminal outputs produced by the nodes are removed
+   * from the graph. Nodes which were only needed to supply inputs to the removed nodes are left in place; call
+   * {@link #removeUnnecessaryValues} to prune them.
+   * <p>
+   * The removed nodes must not be used afterwards in this or any other graph.
+   * 
+   * @param nodes the nodes to remove, not null
+   */
+  public void removeDependencyNodes(final Collection<DependencyNode> nodes) {
+    ArgumentChecker.notNull(nodes, "nodes");
+    for (DependencyNode node : nodes) {
+      removeDependencyNode(node);
+    }
+    for (DependencyNode node : nodes) {
+      node.clearInputs();
+    }
+  }
+
   /**
    * Marks an output as terminal, meaning that it cannot be pruned.
    * @param requirement the output requirement to mark as terminal
    * @param specification the output specification to mark as terminal
    */
   public void addTerminalOutput(ValueRequirement requirement, ValueSpecification specification) {
+    checkNotFrozen();
     // Register it with the node responsible for producing it - informs the node that the output is required
     final DependencyNode node = _specification2DependencyNode.get(specification);
     if (node == null) {
@@ -444,6 +673,7 @@ public class DependencyGraph {
    * @param specifications the outputs to mark as terminals
    */
   public void addTerminalOutputs(Map<ValueSpecification, Set<ValueRequirement>> specifications) {
+    checkNotFrozen();
     for (ValueSpecification specification : specifications.keySet()) {
       // Register it with the node responsible for producing it - informs the node that the output is required
       final DependencyNode node = _specification2DependencyNode.get(specification);
@@ -474,13 +704,14 @@ public class DependencyGraph {
    * which generate no terminal output. These nodes are also removed.
    */
   public void removeUnnecessaryValues() {
+    checkNotFrozen();
+    invalidateLookups();
     final List<DependencyNode> unnecessaryNodes = new LinkedList<DependencyNode>();
     do {
       for (DependencyNode node : _dependencyNodes) {
         Set<ValueSpecification> unnecessaryValues = node.removeUnnecessaryOutputs();
         if (!unnecessaryValues.isEmpty()) {
           s_logger.info("{}: removed {} unnecessary potential result(s)", this, unnecessaryValues.size());
-          _outputSpecifications.removeAll(unnecessaryValues);
           if (node.getOutputValues().isEmpty()) {
             unnecessaryNodes.add(node);
           }
@@ -489,28 +720,6 @@ public class DependencyGraph {
             if (removed == null) {
               throw new IllegalStateException("A value specification " + unnecessaryValue + " wasn't mapped to a node");
             }
-            final Map<ComputationTargetSpecification, List<Pair<DependencyNode, ValueSpecification>>> specifications = _valueRequirement2Specifications.get(unnecessaryValue.getValueName());
-            if (specifications == null) {
-              throw new IllegalStateException("A value specification " + unnecessaryValue + " wasn't mapped by its requirement name");
-            }
-            final List<Pair<DependencyNode, ValueSpecification>> nodes = specifications.get(unnecessaryValue.getTargetSpecification());
-            if (nodes == null) {
-              throw new IllegalStateException("A value specification " + unnecessaryValue + " wasn't mapped by its target");
-            }
-            final Iterator<Pair<DependencyNode, ValueSpecification>> itr = nodes.iterator();
-            while (itr.hasNext()) {
-              final Pair<DependencyNode, ValueSpecification> output = itr.next();
-              if (unnecessaryValue.equals(output.getValue())) {
-                itr.remove();
-                break;
-              }
-            }
-            if (nodes.isEmpty()) {
-              specifications.remove(unnecessaryValue.getTargetSpecification());
-              if (specifications.isEmpty()) {
-                _valueRequirement2Specifications.remove(unnecessaryValue.getValueName());
-              }
-            }
           }
         }
       }
@@ -522,7 +731,6 @@ public class DependencyGraph {
       _rootNodes.removeAll(unnecessaryNodes);
       for (DependencyNode node : unnecessaryNodes) {
         _allRequiredMarketData.remove(node.getRequiredMarketData());
-        _computationTargetType2DependencyNode.get(node.getComputationTarget().getType()).remove(node);
         node.clearInputs();
       }
       unnecessaryNodes.clear();
@@ -530,46 +738,76 @@ public class DependencyGraph {
   }
 
   /**
-   * Orders the nodes into a valid execution sequence suitable for a single thread executor.
+   * Orders the nodes into a valid execution sequence suitable for a single thread executor. The order of a frozen
+   * graph is calculated once, when it is frozen.
    * 
    * @return Nodes in an executable order. E.g., if there are two nodes, A and B, and A
    * depends on B, then list [B, A] is returned (and not [A, B]).
    */
   public List<DependencyNode> getExecutionOrder() {
-    ArrayList<DependencyNode> executionOrder = new ArrayList<DependencyNode>();
-    HashSet<DependencyNode> alreadyEvaluated = new HashSet<DependencyNode>();
-
-    for (DependencyNode root : getRootNodes()) {
-      getExecutionOrder(root, executionOrder, alreadyEvaluated);
+    final Frozen frozen = _frozen;
+    if (frozen != null) {
+      return frozen._executionOrder;
     }
-
-    return executionOrder;
+    return Arrays.asList(computeExecutionOrder());
   }
 
-  private void getExecutionOrder(DependencyNode currentNode, List<DependencyNode> executionOrder, Set<DependencyNode> alreadyEvaluated) {
-    if (!containsNode(currentNode)) { // this check is necessary because of sub-graphing
-      return;
+  private DependencyNode[] computeExecutionOrder() {
+    final DependencyNode[] order = new DependencyNode[_dependencyNodes.size()];
+    // Number of inputs within this graph not yet placed in the order; a node is released when this reaches zero
+    final Map<DependencyNode, Integer> pending = new IdentityHashMap<DependencyNode, Integer>();
+    int head = 0;
+    int tail = 0;
+    for (DependencyNode node : _dependencyNodes) {
+      int inputs = 0;
+      for (DependencyNode input : node.getInputNodes()) {
+        if (_dependencyNodes.contains(input)) { // this check is necessary because of sub-graphing
+          inputs++;
+        }
+      }
+      if (inputs == 0) {
+        order[tail++] = node;
+      } else {
+        pending.put(node, inputs);
+      }
     }
-
-    for (DependencyNode child : currentNode.getInputNodes()) {
-      getExecutionOrder(child, executionOrder, alreadyEvaluated);
+    while (head < tail) {
+      final DependencyNode node = order[head++];
+      for (DependencyNode dependent : node.getDependentNodes()) {
+        final Integer inputs = pending.get(dependent);
+        if (inputs != null) {
+          if (inputs == 1) {
+            pending.remove(dependent);
+            order[tail++] = dependent;
+          } else {
+            pending.put(dependent, inputs - 1);
+          }
+        }
+      }
     }
-
-    if (!alreadyEvaluated.contains(currentNode)) {
-      executionOrder.add(currentNode);
-      alreadyEvaluated.add(currentNode);
+    if (tail != order.length) {
+      throw new IllegalStateException("Graph " + this + " contains a cycle of " + pending.size() + " nodes");
     }
+    return order;
   }
 
-
-
   /**
-   * Applies a filter to the graph to create a sub-graph.
+   * Applies a filter to the graph to create a sub-graph. The sub-graph of a frozen graph is also frozen.
    * 
    * @param filter Tells whether to include node or not
    * @return A sub-graph consisting of all nodes accepted by the filter.
    */
   public DependencyGraph subGraph(DependencyNodeFilter filter) {
+    final Frozen frozen = _frozen;
+    if (frozen != null) {
+      final List<DependencyNode> subNodes = new ArrayList<DependencyNode>();
+      for (DependencyNode node : frozen._nodes) {
+        if (filter.accept(node)) {
+          subNodes.add(node);
+        }
+      }
+      return frozenSubGraph(subNodes.toArray(new DependencyNode[subNodes.size()]));
+    }
     DependencyGraph subGraph = new DependencyGraph(getCalculationConfigurationName());
     for (DependencyNode node : getDependencyNodes()) {
       if (filter.accept(node)) {
@@ -581,13 +819,28 @@ public class DependencyGraph {
   }
 
   /**
-   * Creates a sub-graph containing the given nodes.
+   * Creates a sub-graph containing the given nodes. The sub-graph of a frozen graph is also frozen.
    * 
    * @param subNodes Each node must belong to this graph - 
    * this is not checked in the method for performance reasons
    * @return Sub-graph of the given nodes
    */
   public DependencyGraph subGraph(Collection<DependencyNode> subNodes) {
+    final Frozen frozen = _frozen;
+    if (frozen != null) {
+      // Sorting the parent's indices gives the sub-graph an execution order without recalculating it
+      final int[] indices = new int[subNodes.size()];
+      int count = 0;
+      for (DependencyNode node : subNodes) {
+        indices[count++] = frozen._index.get(node);
+      }
+      Arrays.sort(indices);
+      final DependencyNode[] nodes = new DependencyNode[count];
+      for (int i = 0; i < count; i++) {
+        nodes[i] = frozen._nodes[indices[i]];
+      }
+      return frozenSubGraph(nodes);
+    }
     DependencyGraph subGraph = new DependencyGraph(getCalculationConfigurationName());
     for (DependencyNode node : subNodes) {
       subGraph.addDependencyNode(node);
@@ -596,6 +849,22 @@ public class DependencyGraph {
     return subGraph;
   }
 
+  /**
+   * Creates a frozen sub-graph from nodes taken, in order, from this frozen graph.
+   */
+  private DependencyGraph frozenSubGraph(final DependencyNode[] nodes) {
+    final DependencyGraph subGraph = new DependencyGraph(getCalculationConfigurationName());
+    for (DependencyNode node : nodes) {
+      subGraph.indexNode(node);
+    }
+    for (Map.Entry<ValueSpecification, Set<ValueRequirement>> terminalOutput : submapByKeySet(_terminalOutputs, subGraph.getOutputSpecifications()).entrySet()) {
+      subGraph._terminalOutputValues.add(terminalOutput.getKey());
+      subGraph._terminalOutputs.put(terminalOutput.getKey(), new HashSet<ValueRequirement>(terminalOutput.getValue()));
+    }
+    subGraph.freeze(new Frozen(nodes));
+    return subGraph;
+  }
+
   @Override
   public String toString() {
     return "DependencyGraph[calcConf=" + getCalculationConfigurationName() + ",size=" + getSize() + "]";
@@ -10,6 +10,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -30,7 +32,6 @@ import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
-import org.apache.commons.collections.map.HashedMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,12 +68,29 @@ public final class DependencyGraphBuilder {
   private static final boolean DEBUG_DUMP_DEPENDENCY_GRAPH = false; // DON'T CHECK IN WITH =true
   private static final boolean DEBUG_DUMP_FAILURE_INFO = false; // DON'T CHECK IN WITH =true
   private static final int MAX_CALLBACK_DEPTH = 16;
+  private static final int INITIAL_STATE_CAPACITY = 1024;
 
   @SuppressWarnings("unused")
   public static int getDefaultMaxAdditionalThreads() {
     return NO_BACKGROUND_THREADS ? 0 : (MAX_ADDITIONAL_THREADS >= 0) ? MAX_ADDITIONAL_THREADS : Runtime.getRuntime().availableProcessors();
   }
 
+  /**
+   * Returns the number of independently locked segments to use for the maps of requirements and specifications to the
+   * tasks working on them. This should be comfortably above the number of threads that will be building the graph so
+   * that updates for different keys rarely contend.
+   * 
+   * @return the concurrency level
+   */
+  private static int getStateConcurrencyLevel() {
+    final int threads = getDefaultMaxAdditionalThreads() + 1;
+    int level = 16;
+    while (level < threads * 4) {
+      level <<= 1;
+    }
+    return level;
+  }
+
   /**
    * Resolves an individual requirement by aggregating the results of any existing tasks
    * already resolving that requirement. If these missed an exploration because of a
@@ -218,16 +236,125 @@ public final class DependencyGraphBuilder {
   }
 
   /**
-   * Wrapper for a hash map implementation that exposes the underlying entry so that the actual
-   * key value can be used.
+   * Set of the tasks resolving a value requirement. Most requirements are only resolved by a small number of tasks so
+   * the set is held as an array that is copied on each update. This allows it to be read and updated by many threads
+   * without taking a lock.
    */
-  private static final class MapEx<K, V> extends HashedMap {
+  private static final class ResolveTaskSet extends AtomicReference<ResolveTask[]> {
 
     private static final long serialVersionUID = 1L;
 
-    @SuppressWarnings("unchecked")
-    public Map.Entry<K, V> getHashEntry(final K key) {
-      return getEntry(key);
+    private static final ResolveTask[] EMPTY = new ResolveTask[0];
+
+    public ResolveTaskSet() {
+      super(EMPTY);
+    }
+
+    private static int indexOf(final ResolveTask[] tasks, final ResolveTask task) {
+      final int hashCode = task.hashCode();
+      for (int i = 0; i < tasks.length; i++) {
+        if ((tasks[i].hashCode() == hashCode) && tasks[i].equals(task)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Adds the task to the set if there is not already an equal task present.
+     * 
+     * @param task the task to add
+     * @return the existing task, or null if the new task was added
+     */
+    public ResolveTask putIfAbsent(final ResolveTask task) {
+      ResolveTask[] tasks;
+      ResolveTask[] newTasks;
+      do {
+        tasks = get();
+        final int index = indexOf(tasks, task);
+        if (index >= 0) {
+          return tasks[index];
+        }
+        newTasks = Arrays.copyOf(tasks, tasks.length + 1);
+        newTasks[tasks.length] = task;
+      } while (!compareAndSet(tasks, newTasks));
+      return null;
+    }
+
+    /**
+     * Removes a task from the set.
+     * 
+     * @param task the task instance to remove
+     * @return true if the task was removed, false if it was not in the set
+     */
+    public boolean remove(final ResolveTask task) {
+      ResolveTask[] tasks;
+      ResolveTask[] newTasks;
+      do {
+        tasks = get();
+        final int index = indexOf(tasks, task);
+        if ((index < 0) || (tasks[index] != task)) {
+          return false;
+        }
+        newTasks = new ResolveTask[tasks.length - 1];
+        System.arraycopy(tasks, 0, newTasks, 0, index);
+        System.arraycopy(tasks, index + 1, newTasks, index, newTasks.length - index);
+      } while (!compareAndSet(tasks, newTasks));
+      return true;
+    }
+
+  }
+
+  /**
+   * Set of the tasks, and their value producers, that are producing a value specification. The set is held as an array
+   * of alternating task and producer elements that is copied on each update, in the same way as {@link ResolveTaskSet}.
+   */
+  private static final class ProducerSet extends AtomicReference<Object[]> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    public ProducerSet() {
+      super(EMPTY);
+    }
+
+    private static int indexOf(final Object[] entries, final ResolveTask task) {
+      final int hashCode = task.hashCode();
+      for (int i = 0; i < entries.length; i += 2) {
+        if ((entries[i].hashCode() == hashCode) && entries[i].equals(task)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    /**
+     * Removes the entry for a task from the set.
+     * 
+     * @param task the task to remove
+     * @param producer the producer the entry must have, or null to remove any entry for a task equal to the one given
+     * @return the producer from the removed entry, or null if none matched
+     */
+    public ResolvedValueProducer remove(final ResolveTask task, final ResolvedValueProducer producer) {
+      Object[] entries;
+      Object[] newEntries;
+      ResolvedValueProducer removed;
+      do {
+        entries = get();
+        final int index = indexOf(entries, task);
+        if (index < 0) {
+          return null;
+        }
+        removed = (ResolvedValueProducer) entries[index + 1];
+        if ((producer != null) && (removed != producer)) {
+          return null;
+        }
+        newEntries = new Object[entries.length - 2];
+        System.arraycopy(entries, 0, newEntries, 0, index);
+        System.arraycopy(entries, index + 2, newEntries, index, newEntries.length - index);
+      } while (!compareAndSet(entries, newEntries));
+      return removed;
     }
 
   }
@@ -247,21 +374,31 @@ public final class DependencyGraphBuilder {
     private CompiledFunctionResolver _functionResolver;
     private FunctionCompilationContext _compilationContext;
 
-    // The resolve task is ref-counted once for the map (it is being used as a set)
-    private final ConcurrentMap<ValueRequirement, Map<ResolveTask, ResolveTask>> _requirements;
+    // The resolve task is ref-counted once for the set. The sets are updated without locking so a reference must be
+    // taken with addRefIfLive as a task may be removed from a set, and released, by another thread at any time.
+    private final ConcurrentMap<ValueRequirement, ResolveTaskSet> _requirements;
 
-    // The resolve task is NOT ref-counted (it is only used for parent comparisons), but the value producer is
-    private final ConcurrentMap<ValueSpecification, MapEx<ResolveTask, ResolvedValueProducer>> _specifications;
+    // The resolve task is NOT ref-counted (it is only used for parent comparisons), but the value producer is. As with
+    // the requirements, a reference to a producer must be taken with addRefIfLive.
+    private final ConcurrentMap<ValueSpecification, ProducerSet> _specifications;
 
     // This data is per-thread
 
     private Map<ExceptionWrapper, ExceptionWrapper> _exceptions;
     private int _stackDepth;
 
+    /**
+     * Runnables scheduled by a builder thread while executing a step. These are added to the shared run queue as a
+     * batch at the end of the step. This is null for the root context, which adds runnables to the queue immediately.
+     */
+    private final List<ContextRunnable> _pendingRunnables;
+
     private GraphBuildingContext() {
       s_loggerContext.info("Created new context");
-      _requirements = new ConcurrentHashMap<ValueRequirement, Map<ResolveTask, ResolveTask>>();
-      _specifications = new ConcurrentHashMap<ValueSpecification, MapEx<ResolveTask, ResolvedValueProducer>>();
+      final int concurrencyLevel = getStateConcurrencyLevel();
+      _requirements = new ConcurrentHashMap<ValueRequirement, ResolveTaskSet>(INITIAL_STATE_CAPACITY, 0.75f, concurrencyLevel);
+      _specifications = new ConcurrentHashMap<ValueSpecification, ProducerSet>(INITIAL_STATE_CAPACITY, 0.75f, concurrencyLevel);
+      _pendingRunnables = null;
     }
 
     private GraphBuildingContext(final GraphBuildingContext copyFrom) {
@@ -272,6 +409,7 @@ public final class DependencyGraphBuilder {
       setCompilationContext(copyFrom.getCompilationContext());
       _requirements = copyFrom._requirements;
       _specifications = copyFrom._specifications;
+      _pendingRunnables = new ArrayList<ContextRunnable>();
     }
 
     // Configuration & resources
@@ -318,6 +456,24 @@ public final class DependencyGraphBuilder {
 
     // Operations
 
+    private void submit(final ContextRunnable runnable) {
+      if (_pendingRunnables != null) {
+        _pendingRunnables.add(runnable);
+      } else {
+        addToRunQueue(runnable);
+      }
+    }
+
+    /**
+     * Adds any runnables scheduled by this context to the shared run queue.
+     */
+    private void flushPendingRunnables() {
+      if ((_pendingRunnables != null) && !_pendingRunnables.isEmpty()) {
+        addToRunQueue(_pendingRunnables);
+        _pendingRunnables.clear();
+      }
+    }
+
     /**
      * Schedule the task for execution.
      * 
@@ -326,7 +482,7 @@ public final class DependencyGraphBuilder {
     public void run(final ResolveTask runnable) {
       s_loggerContext.debug("Running {}", runnable);
       runnable.addRef();
-      addToRunQueue(runnable);
+      submit(runnable);
     }
 
     /**
@@ -338,7 +494,7 @@ public final class DependencyGraphBuilder {
     public void pump(final ResolutionPump pump) {
       s_loggerContext.debug("Pumping {}", pump);
       if (++_stackDepth > MAX_CALLBACK_DEPTH) {
-        addToRunQueue(new ResolutionPump.Pump(pump));
+        submit(new ResolutionPump.Pump(pump));
       } else {
         pump.pump(this);
       }
@@ -354,7 +510,7 @@ public final class DependencyGraphBuilder {
     public void close(final ResolutionPump pump) {
       s_loggerContext.debug("Closing {}", pump);
       if (++_stackDepth > MAX_CALLBACK_DEPTH) {
-        addToRunQueue(new ResolutionPump.Close(pump));
+        submit(new ResolutionPump.Close(pump));
       } else {
         pump.close(this);
       }
@@ -432,6 +588,15 @@ public final class DependencyGraphBuilder {
             _refCount++;
           }
 
+          @Override
+          public synchronized boolean addRefIfLive() {
+            if (_refCount > 0) {
+              _refCount++;
+              return true;
+            }
+            return false;
+          }
+
           @Override
           public synchronized int release(final GraphBuildingContext context) {
             assert _refCount > 0;
@@ -462,154 +627,158 @@ public final class DependencyGraphBuilder {
       }
     }
 
-    private ResolveTask getOrCreateTaskResolving(final ValueRequirement valueRequirement, final ResolveTask parentTask) {
-      ResolveTask newTask = new ResolveTask(valueRequirement, parentTask);
-      ResolveTask task;
-      Map<ResolveTask, ResolveTask> tasks = _requirements.get(valueRequirement);
+    private ResolveTask getOrCreateTaskResolving(final ValueRequirement requirement, final ResolveTask parentTask) {
+      // Requirements held by tasks end up in the graph so share a single instance of each
+      final ValueRequirement valueRequirement = requirement.intern();
+      final ResolveTask newTask = new ResolveTask(valueRequirement, parentTask);
+      ResolveTaskSet tasks = _requirements.get(valueRequirement);
       if (tasks == null) {
-        tasks = new HashMap<ResolveTask, ResolveTask>();
-        final Map<ResolveTask, ResolveTask> existing = _requirements.putIfAbsent(valueRequirement, tasks);
+        tasks = new ResolveTaskSet();
+        final ResolveTaskSet existing = _requirements.putIfAbsent(valueRequirement, tasks);
         if (existing != null) {
           tasks = existing;
         }
       }
-      synchronized (tasks) {
-        task = tasks.get(newTask);
+      // Take the reference for the set before the task becomes visible to other threads
+      newTask.addRef();
+      do {
+        final ResolveTask task = tasks.putIfAbsent(newTask);
         if (task == null) {
-          newTask.addRef();
-          tasks.put(newTask, newTask);
-        } else {
-          task.addRef();
+          run(newTask);
+          return newTask;
         }
-      }
-      if (task != null) {
-        s_loggerResolver.debug("Using existing task {}", task);
-        newTask.release(this);
-        return task;
-      } else {
-        run(newTask);
-        return newTask;
-      }
+        if (task.addRefIfLive()) {
+          s_loggerResolver.debug("Using existing task {}", task);
+          newTask.release(this);
+          newTask.release(this);
+          return task;
+        }
+        // The existing task has been discarded by another thread; make sure it is gone and try again
+        tasks.remove(task);
+      } while (true);
     }
 
     private ResolveTask[] getTasksResolving(final ValueRequirement valueRequirement) {
-      final ResolveTask[] result;
-      final Map<ResolveTask, ResolveTask> tasks = _requirements.get(valueRequirement);
+      final ResolveTaskSet tasks = _requirements.get(valueRequirement);
       if (tasks == null) {
         return null;
       }
-      synchronized (tasks) {
-        result = new ResolveTask[tasks.size()];
-        int i = 0;
-        for (ResolveTask task : tasks.keySet()) {
-          result[i++] = task;
-          task.addRef();
+      final ResolveTask[] snapshot = tasks.get();
+      final ResolveTask[] result = new ResolveTask[snapshot.length];
+      int count = 0;
+      for (ResolveTask task : snapshot) {
+        if (task.addRefIfLive()) {
+          result[count++] = task;
         }
       }
-      return result;
+      return (count == result.length) ? result : Arrays.copyOf(result, count);
     }
 
-    @SuppressWarnings("unchecked")
     public Pair<ResolveTask[], ResolvedValueProducer[]> getTasksProducing(final ValueSpecification valueSpecification) {
-      final ResolveTask[] resultTasks;
-      final ResolvedValueProducer[] resultProducers;
-      final MapEx<ResolveTask, ResolvedValueProducer> tasks = _specifications.get(valueSpecification);
+      final ProducerSet tasks = _specifications.get(valueSpecification);
       if (tasks == null) {
         return null;
       }
-      synchronized (tasks) {
-        resultTasks = new ResolveTask[tasks.size()];
-        resultProducers = new ResolvedValueProducer[tasks.size()];
-        int i = 0;
-        for (Map.Entry<ResolveTask, ResolvedValueProducer> task : (Set<Map.Entry<ResolveTask, ResolvedValueProducer>>) tasks.entrySet()) {
+      final Object[] entries = tasks.get();
+      ResolveTask[] resultTasks = new ResolveTask[entries.length >> 1];
+      ResolvedValueProducer[] resultProducers = new ResolvedValueProducer[entries.length >> 1];
+      int count = 0;
+      for (int i = 0; i < entries.length; i += 2) {
+        final ResolvedValueProducer producer = (ResolvedValueProducer) entries[i + 1];
+        if (producer.addRefIfLive()) {
           // Don't ref-count the tasks; they're just used for parent comparisons
-          resultTasks[i] = task.getKey();
-          resultProducers[i++] = task.getValue();
-          task.getValue().addRef();
+          resultTasks[count] = (ResolveTask) entries[i];
+          resultProducers[count++] = producer;
         }
       }
+      if (count < resultTasks.length) {
+        resultTasks = Arrays.copyOf(resultTasks, count);
+        resultProducers = Arrays.copyOf(resultProducers, count);
+      }
       return Pair.of(resultTasks, resultProducers);
     }
 
     public void discardTask(final ResolveTask task) {
-      final Map<ResolveTask, ResolveTask> tasks = _requirements.get(task.getValueRequirement());
-      synchronized (tasks) {
-        if (tasks.remove(task) == null) {
-          // Wasn't in the set
-          return;
-        }
+      final ResolveTaskSet tasks = _requirements.get(task.getValueRequirement());
+      if (!tasks.remove(task)) {
+        // Wasn't in the set
+        return;
       }
+      // Another thread may still have the task in a snapshot of the set; it must not be revived
+      task.discard();
       task.release(this);
     }
 
     public ResolvedValueProducer declareTaskProducing(final ValueSpecification valueSpecification, final ResolveTask task, final ResolvedValueProducer producer) {
-      ResolvedValueProducer discard = null;
-      ResolvedValueProducer result = null;
-      MapEx<ResolveTask, ResolvedValueProducer> tasks = _specifications.get(valueSpecification);
+      ProducerSet tasks = _specifications.get(valueSpecification);
       if (tasks == null) {
-        tasks = new MapEx<ResolveTask, ResolvedValueProducer>();
-        final MapEx<ResolveTask, ResolvedValueProducer> existing = _specifications.putIfAbsent(valueSpecification, tasks);
+        tasks = new ProducerSet();
+        final ProducerSet existing = _specifications.putIfAbsent(valueSpecification, tasks);
         if (existing != null) {
           tasks = existing;
         }
       }
-      synchronized (tasks) {
-        if (!tasks.isEmpty()) {
-          final Map.Entry<ResolveTask, ResolvedValueProducer> resolveTask = tasks.getHashEntry(task);
-          if (resolveTask != null) {
-            if (resolveTask.getKey() == task) {
-              // Replace an earlier attempt from this task with the new producer
-              discard = resolveTask.getValue();
-              producer.addRef();
-              resolveTask.setValue(producer);
-              result = producer;
-            } else {
-              // An equivalent task is doing the work
-              result = resolveTask.getValue();
+      // Take the reference for the set before the producer becomes visible to other threads
+      producer.addRef();
+      do {
+        final Object[] entries = tasks.get();
+        final int index = ProducerSet.indexOf(entries, task);
+        final Object[] newEntries;
+        if (index >= 0) {
+          final ResolvedValueProducer existing = (ResolvedValueProducer) entries[index + 1];
+          if (entries[index] != task) {
+            // An equivalent task is doing the work
+            if (existing.addRefIfLive()) {
+              producer.release(this);
+              return existing;
             }
-            result.addRef();
+            // The producer has been discarded by another thread; make sure it is gone and try again
+            tasks.remove(task, existing);
+            continue;
           }
-        }
-        if (result == null) {
+          // Replace an earlier attempt from this task with the new producer
+          newEntries = entries.clone();
+          newEntries[index + 1] = producer;
+          if (tasks.compareAndSet(entries, newEntries)) {
+            existing.release(this);
+            producer.addRef();
+            return producer;
+          }
+        } else {
           // No matching tasks
-          producer.addRef();
-          tasks.put(task, producer);
-          result = producer;
-          result.addRef();
+          newEntries = Arrays.copyOf(entries, entries.length + 2);
+          newEntries[entries.length] = task;
+          newEntries[entries.length + 1] = producer;
+          if (tasks.compareAndSet(entries, newEntries)) {
+            producer.addRef();
+            return producer;
+          }
         }
-      }
-      if (discard != null) {
-        discard.release(this);
-      }
-      return result;
+      } while (true);
     }
 
     public void discardTaskProducing(final ValueSpecification valueSpecification, final ResolveTask task) {
-      final ResolvedValueProducer producer;
-      final MapEx<ResolveTask, ResolvedValueProducer> tasks = _specifications.get(valueSpecification);
-      synchronized (tasks) {
-        producer = (ResolvedValueProducer) tasks.remove(task);
-        if (producer == null) {
-          // Wasn't in the set
-          return;
-        }
+      final ProducerSet tasks = _specifications.get(valueSpecification);
+      final ResolvedValueProducer producer = tasks.remove(task, null);
+      if (producer == null) {
+        // Wasn't in the set
+        return;
       }
       producer.release(this);
     }
 
-    @SuppressWarnings("unchecked")
     private void abortLoops() {
       s_loggerBuilder.debug("Checking for active tasks to abort");
       List<ResolveTask> activeTasks = null;
-      for (MapEx<ResolveTask, ResolvedValueProducer> tasks : _specifications.values()) {
-        synchronized (tasks) {
-          for (ResolveTask task : (Set<ResolveTask>) tasks.keySet()) {
-            if (task.isActive()) {
-              if (activeTasks == null) {
-                activeTasks = new LinkedList<ResolveTask>();
-              }
-              activeTasks.add(task);
+      for (ProducerSet tasks : _specifications.values()) {
+        final Object[] entries = tasks.get();
+        for (int i = 0; i < entries.length; i += 2) {
+          final ResolveTask task = (ResolveTask) entries[i];
+          if (task.isActive()) {
+            if (activeTasks == null) {
+              activeTasks = new LinkedList<ResolveTask>();
             }
+            activeTasks.add(task);
           }
         }
       }
@@ -665,18 +834,13 @@ public final class DependencyGraphBuilder {
         return;
       }
       int count = 0;
-      for (Map.Entry<ValueRequirement, Map<ResolveTask, ResolveTask>> requirements : _requirements.entrySet()) {
-        final Map<ResolveTask, ResolveTask> entries = requirements.getValue();
-        synchronized (entries) {
-          count += entries.size();
-        }
+      for (ResolveTaskSet tasks : _requirements.values()) {
+        count += tasks.get().length;
       }
       s_loggerContext.info("Requirements cache = {} tasks for {} requirements", count, _requirements.size());
       count = 0;
-      for (MapEx<ResolveTask, ResolvedValueProducer> entries : _specifications.values()) {
-        synchronized (entries) {
-          count += entries.size();
-        }
+      for (ProducerSet tasks : _specifications.values()) {
+        count += tasks.get().length >> 1;
       }
       s_loggerContext.info("Specifications cache = {} tasks for {} specifications", count, _specifications.size());
       //final Runtime rt = Runtime.getRuntime();
@@ -827,6 +991,18 @@ public final class DependencyGraphBuilder {
     _getTerminalValuesCallback.setResolutionFailureVisitor(failureVisitor);
   }
 
+  /**
+   * Sets an aggregator to summarize resolution failures with bounded memory. When set, the synthetic exception
+   * created for each failure identifies only the requirement and not the full failure information, and any
+   * visitor set by {@link #setResolutionFailureVisitor} is not called. The aggregator may be drained to a visitor
+   * while the graph is being built.
+   * 
+   * @param failureAggregator the aggregator to use, or null to keep the full failure information in the exceptions
+   */
+  public void setResolutionFailureAggregator(final ResolutionFailureAggregator failureAggregator) {
+    _getTerminalValuesCallback.setResolutionFailureAggregator(failureAggregator);
+  }
+
   protected void checkInjectedInputs() {
     ArgumentChecker.notNullInjected(getMarketDataAvailabilityProvider(), "marketDataAvailabilityProvider");
     ArgumentChecker.notNullInjected(getFunctionResolver(), "functionResolver");
@@ -952,6 +1128,22 @@ public final class DependencyGraphBuilder {
     _scheduledSteps.incrementAndGet();
   }
 
+  /**
+   * Adds a batch of runnables, scheduled by a single step of a builder thread, to the run queue.
+   * 
+   * @param runnables the runnables to add, not null and not empty
+   */
+  protected void addToRunQueue(final Collection<ContextRunnable> runnables) {
+    s_loggerBuilder.debug("Queuing {} runnables", runnables.size());
+    final boolean dontSpawn = _runQueue.isEmpty() && (runnables.size() == 1);
+    _runQueue.addAll(runnables);
+    // As above, but a batch of more than one item means there is work for another thread
+    if (!dontSpawn) {
+      startBackgroundConstructionJob();
+    }
+    _scheduledSteps.addAndGet(runnables.size());
+  }
+
   protected boolean startBackgroundConstructionJob() {
     int activeJobs = _activeJobCount.get();
     while (activeJobs < getMaxAdditionalThreads()) {
@@ -1064,7 +1256,11 @@ public final class DependencyGraphBuilder {
     if (task == null) {
       return false;
     }
-    task.run(context);
+    try {
+      task.run(context);
+    } finally {
+      context.flushPendingRunnables();
+    }
     _completedSteps.incrementAndGet();
     return true;
   }
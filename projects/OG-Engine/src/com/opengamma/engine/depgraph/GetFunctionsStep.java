@@ -72,6 +72,15 @@ import com.opengamma.util.tuple.Pair;
       _refCount++;
     }
 
+    @Override
+    public synchronized boolean addRefIfLive() {
+      if (_refCount > 0) {
+        _refCount++;
+        return true;
+      }
+      return false;
+    }
+
     @Override
     public synchronized int release(final GraphBuildingContext context) {
       assert _refCount > 0;
@@ -54,6 +54,7 @@ import com.opengamma.util.tuple.Pair;
   private final Collection<DependencyNode> _graphNodes = new ArrayList<DependencyNode>();
   private final Map<ValueRequirement, ValueSpecification> _resolvedValues = new HashMap<ValueRequirement, ValueSpecification>();
   private ResolutionFailureVisitor<?> _failureVisitor;
+  private ResolutionFailureAggregator _failureAggregator;
 
   public GetTerminalValuesCallback(final ResolutionFailureVisitor<?> failureVisitor) {
     _failureVisitor = failureVisitor;
@@ -63,15 +64,25 @@ import com.opengamma.util.tuple.Pair;
     _failureVisitor = failureVisitor;
   }
 
+  public void setResolutionFailureAggregator(final ResolutionFailureAggregator failureAggregator) {
+    _failureAggregator = failureAggregator;
+  }
+
   @Override
   public void failed(final GraphBuildingContext context, final ValueRequirement value, final ResolutionFailure failure) {
     s_logger.error("Couldn't resolve {}", value);
     if (failure != null) {
-      if (_failureVisitor != null) {
-        failure.accept(_failureVisitor);
+      if (_failureAggregator != null) {
+        // Only the aggregator may keep the failure information; the visitor and exception would hold all of it
+        _failureAggregator.failed(failure);
+        context.exception(new UnsatisfiableDependencyGraphException(value));
+      } else {
+        if (_failureVisitor != null) {
+          failure.accept(_failureVisitor);
+        }
+        // TODO: check context settings; does the user want all of the failure information in the exceptions?
+        context.exception(new UnsatisfiableDependencyGraphException(failure));
       }
-      // TODO: check context settings; does the user want all of the failure information in the exceptions?
-      context.exception(new UnsatisfiableDependencyGraphException(failure));
     } else {
       s_logger.warn("No failure state for {}", value);
       context.exception(new UnsatisfiableDependencyGraphException(value));
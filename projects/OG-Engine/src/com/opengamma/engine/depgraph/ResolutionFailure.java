@@ -149,6 +149,21 @@ public final class ResolutionFailure implements Cloneable {
     return _valueRequirement;
   }
 
+  /**
+   * Returns the functions that were tried, without their nested failures.
+   * 
+   * @return the functions, not null
+   */
+  public synchronized Set<ParameterizedFunction> getFunctions() {
+    final Set<ParameterizedFunction> functions = new HashSet<ParameterizedFunction>();
+    for (Object event : _events) {
+      if (event instanceof ParameterizedFunction) {
+        functions.add((ParameterizedFunction) event);
+      }
+    }
+    return functions;
+  }
+
   @SuppressWarnings("unchecked")
   public synchronized <T> Collection<T> accept(final ResolutionFailureVisitor<T> visitor) {
     final LinkedList<T> result = new LinkedList<T>();
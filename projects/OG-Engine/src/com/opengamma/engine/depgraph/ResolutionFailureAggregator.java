@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.lang.ObjectUtils;
+
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.function.ParameterizedFunction;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Bounded summary of resolution failures. Failures are counted by value name, target type and the function(s) that
+ * were tried, with only the first few failure trees of each kind retained as samples. This can be used in place of
+ * gathering every failure when compiling views that might be badly misconfigured.
+ * <p>
+ * The summary can be written to a {@link ResolutionFailureVisitor} at any time, for example periodically during a
+ * long compilation, by {@link #drain} or at the end by {@link #accept}.
+ */
+public class ResolutionFailureAggregator {
+
+  /**
+   * The default number of sample failures retained for each value name, target type and function.
+   */
+  public static final int DEFAULT_MAX_SAMPLES = 3;
+
+  private static final class Key {
+
+    private final String _valueName;
+    private final ComputationTargetType _targetType;
+    private final String _function;
+
+    public Key(final String valueName, final ComputationTargetType targetType, final String function) {
+      _valueName = valueName;
+      _targetType = targetType;
+      _function = function;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) o;
+      return _valueName.equals(other._valueName) && (_targetType == other._targetType) && ObjectUtils.equals(_function, other._function);
+    }
+
+    @Override
+    public int hashCode() {
+      return (_valueName.hashCode() * 31 + _targetType.hashCode()) * 31 + ObjectUtils.hashCode(_function);
+    }
+
+  }
+
+  private static final class Summary {
+
+    private final List<ResolutionFailure> _samples = new LinkedList<ResolutionFailure>();
+    private int _count;
+    private boolean _drained;
+
+    public synchronized boolean add(final ResolutionFailure failure, final int maxSamples) {
+      if (_drained) {
+        return false;
+      }
+      _count++;
+      if (_samples.size() < maxSamples) {
+        _samples.add(failure);
+      }
+      return true;
+    }
+
+  }
+
+  private final int _maxSamples;
+  private final ConcurrentMap<Key, Summary> _summaries = new ConcurrentHashMap<Key, Summary>();
+  private final AtomicInteger _failureCount = new AtomicInteger();
+
+  public ResolutionFailureAggregator() {
+    this(DEFAULT_MAX_SAMPLES);
+  }
+
+  public ResolutionFailureAggregator(final int maxSamples) {
+    ArgumentChecker.notNegative(maxSamples, "maxSamples");
+    _maxSamples = maxSamples;
+  }
+
+  public int getMaxSamples() {
+    return _maxSamples;
+  }
+
+  /**
+   * Returns the number of failures recorded since construction. Failures are still counted after they have been
+   * drained.
+   *
+   * @return the number of failures
+   */
+  public int getFailureCount() {
+    return _failureCount.get();
+  }
+
+  /**
+   * Records a resolution failure. A failure in which more than one function was tried is counted against each of them.
+   *
+   * @param failure the failure to record, not null
+   */
+  public void failed(final ResolutionFailure failure) {
+    ArgumentChecker.notNull(failure, "failure");
+    _failureCount.incrementAndGet();
+    final String valueName = failure.getValueRequirement().getValueName();
+    final ComputationTargetType targetType = failure.getValueRequirement().getTargetSpecification().getType();
+    final Set<ParameterizedFunction> functions = failure.getFunctions();
+    if (functions.isEmpty()) {
+      add(new Key(valueName, targetType, null), failure);
+    } else {
+      for (ParameterizedFunction function : functions) {
+        add(new Key(valueName, targetType, function.getFunction().getFunctionDefinition().getUniqueId()), failure);
+      }
+    }
+  }
+
+  private void add(final Key key, final ResolutionFailure failure) {
+    do {
+      Summary summary = _summaries.get(key);
+      if (summary == null) {
+        summary = new Summary();
+        final Summary existing = _summaries.putIfAbsent(key, summary);
+        if (existing != null) {
+          summary = existing;
+        }
+      }
+      if (summary.add(failure, _maxSamples)) {
+        return;
+      }
+      // Summary has just been drained; a new one will be created
+      _summaries.remove(key, summary);
+    } while (true);
+  }
+
+  private static <T> T accept(final Key key, final Summary summary, final ResolutionFailureVisitor<T> visitor) {
+    final int count;
+    final Collection<ResolutionFailure> samples;
+    synchronized (summary) {
+      count = summary._count;
+      samples = new ArrayList<ResolutionFailure>(summary._samples);
+    }
+    return visitor.visitFailureSummary(key._valueName, key._targetType, key._function, count, samples);
+  }
+
+  /**
+   * Writes the failures recorded so far to a visitor. The visitor receives a single summary call for each value name,
+   * target type and function.
+   *
+   * @param <T> the return type of the visitor
+   * @param visitor the visitor to write to, not null
+   * @return the values returned by the visitor
+   */
+  public <T> Collection<T> accept(final ResolutionFailureVisitor<T> visitor) {
+    ArgumentChecker.notNull(visitor, "visitor");
+    final List<T> result = new LinkedList<T>();
+    for (Key key : _summaries.keySet()) {
+      final Summary summary = _summaries.get(key);
+      if (summary != null) {
+        result.add(accept(key, summary, visitor));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Writes the failures recorded so far to a visitor and then discards them, releasing the sample failures. Any
+   * failures recorded during or after the call will be written by the next call.
+   *
+   * @param <T> the return type of the visitor
+   * @param visitor the visitor to write to, not null
+   * @return the values returned by the visitor
+   */
+  public <T> Collection<T> drain(final ResolutionFailureVisitor<T> visitor) {
+    ArgumentChecker.notNull(visitor, "visitor");
+    final List<T> result = new LinkedList<T>();
+    for (Key key : _summaries.keySet()) {
+      final Summary summary = _summaries.remove(key);
+      if (summary != null) {
+        synchronized (summary) {
+          summary._drained = true;
+        }
+        result.add(accept(key, summary, visitor));
+      }
+    }
+    return result;
+  }
+
+}
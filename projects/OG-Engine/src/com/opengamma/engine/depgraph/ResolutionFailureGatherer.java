@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import com.opengamma.engine.ComputationTargetType;
 import com.opengamma.engine.function.ParameterizedFunction;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
@@ -108,6 +109,12 @@ public class ResolutionFailureGatherer<T> extends ResolutionFailureVisitor<T> {
     return result(getUnderlying().visitGetRequirementsFailed(valueRequirement, function, desiredOutput));
   }
 
+  @Override
+  protected T visitFailureSummary(final String valueName, final ComputationTargetType targetType, final String function, final int count,
+      final Collection<ResolutionFailure> samples) {
+    return result(getUnderlying().visitFailureSummary(valueName, targetType, function, count, samples));
+  }
+
   @Override
   protected T visitLateResolutionFailure(final ValueRequirement valueRequirement, final ParameterizedFunction function, final ValueSpecification desiredOutput,
       final Map<ValueSpecification, ValueRequirement> requirements) {
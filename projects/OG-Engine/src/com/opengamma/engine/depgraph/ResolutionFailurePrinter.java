@@ -6,10 +6,12 @@
 package com.opengamma.engine.depgraph;
 
 import java.io.PrintStream;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
 
 import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.ComputationTargetType;
 import com.opengamma.engine.function.ParameterizedFunction;
 import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.value.ValueRequirement;
@@ -209,6 +211,20 @@ public class ResolutionFailurePrinter extends ResolutionFailureVisitor<Void> {
     return null;
   }
 
+  @Override
+  protected synchronized Void visitFailureSummary(final String valueName, final ComputationTargetType targetType, final String function, final int count,
+      final Collection<ResolutionFailure> samples) {
+    if (function != null) {
+      println(count + " failures to resolve " + valueName + " on " + targetType + " using " + function + ". Examples:");
+    } else {
+      println(count + " failures to resolve " + valueName + " on " + targetType + ". Examples:");
+    }
+    for (ResolutionFailure sample : samples) {
+      sample.accept(indent());
+    }
+    return null;
+  }
+
   @Override
   protected synchronized Void visitLateResolutionFailure(final ValueRequirement valueRequirement, final ParameterizedFunction function, final ValueSpecification desiredOutput,
       final Map<ValueSpecification, ValueRequirement> requirements) {
@@ -5,6 +5,7 @@
  */
 package com.opengamma.engine.depgraph;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -12,6 +13,7 @@ import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.opengamma.engine.ComputationTargetType;
 import com.opengamma.engine.function.ParameterizedFunction;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
@@ -112,6 +114,26 @@ public abstract class ResolutionFailureVisitor<T> {
     return null;
   }
 
+  /**
+   * Receives a summary of failures from a {@link ResolutionFailureAggregator}. The default implementation logs the
+   * count and then visits each of the sample failures.
+   * 
+   * @param valueName the value name of the failed requirements, not null
+   * @param targetType the target type of the failed requirements, not null
+   * @param function the unique identifier of the function tried, null if no function could be applied
+   * @param count the number of failures
+   * @param samples up to the sample limit of the failures, not null
+   * @return the result
+   */
+  protected synchronized T visitFailureSummary(final String valueName, final ComputationTargetType targetType, final String function, final int count,
+      final Collection<ResolutionFailure> samples) {
+    s_logger.info("{} failures to resolve {} on {} using {}", new Object[] {count, valueName, targetType, function });
+    for (ResolutionFailure sample : samples) {
+      sample.accept(this);
+    }
+    return null;
+  }
+
   protected synchronized T visitLateResolutionFailure(final ValueRequirement valueRequirement, final ParameterizedFunction function, final ValueSpecification desiredOutput,
       final Map<ValueSpecification, ValueRequirement> requirements) {
     s_logger.info("Provisional result {} not in function output after late resolution", desiredOutput);
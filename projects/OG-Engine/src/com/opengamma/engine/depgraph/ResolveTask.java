@@ -14,6 +14,7 @@ import org.apache.commons.lang.ObjectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Sets;
 import com.opengamma.engine.ComputationTarget;
 import com.opengamma.engine.depgraph.DependencyGraphBuilder.GraphBuildingContext;
 import com.opengamma.engine.function.ParameterizedFunction;
@@ -70,7 +71,12 @@ import com.opengamma.engine.value.ValueSpecification;
 
     protected ResolvedValue createResult(final ValueSpecification valueSpecification, final ParameterizedFunction parameterizedFunction, final Set<ValueSpecification> functionInputs,
         final Set<ValueSpecification> functionOutputs) {
-      return new ResolvedValue(valueSpecification, parameterizedFunction, getComputationTarget(), functionInputs, functionOutputs);
+      // Resolved values are used to build the graph nodes so share a single instance of each specification
+      final Set<ValueSpecification> outputs = Sets.newHashSetWithExpectedSize(functionOutputs.size());
+      for (ValueSpecification output : functionOutputs) {
+        outputs.add(output.intern());
+      }
+      return new ResolvedValue(valueSpecification.intern(), parameterizedFunction, getComputationTarget(), functionInputs, outputs);
     }
 
     protected boolean pushResult(final GraphBuildingContext context, final ValueSpecification valueSpecification, final ParameterizedFunction parameterizedFunction,
@@ -155,6 +161,12 @@ import com.opengamma.engine.value.ValueSpecification;
    */
   private ComputationTarget _target;
 
+  /**
+   * Flag to mark the task as discarded, either removed from the builder's cache or with its state discarded. A
+   * discarded task must not be revived from a stale view of the cache. Guarded by the task's monitor.
+   */
+  private boolean _discarded;
+
   public ResolveTask(final ValueRequirement valueRequirement, final ResolveTask parent) {
     super(valueRequirement);
     _parent = parent;
@@ -299,6 +311,22 @@ import com.opengamma.engine.value.ValueSpecification;
     return sb.toString();
   }
 
+  /**
+   * Marks the task as discarded so that no further references can be taken by {@link #addRefIfLive}. This must be
+   * called before the reference held from the builder's cache is released.
+   */
+  public synchronized void discard() {
+    _discarded = true;
+  }
+
+  @Override
+  public synchronized boolean addRefIfLive() {
+    if (_discarded) {
+      return false;
+    }
+    return super.addRefIfLive();
+  }
+
   @Override
   public int release(final GraphBuildingContext context) {
     final int count = super.release(context);
@@ -315,6 +343,7 @@ import com.opengamma.engine.value.ValueSpecification;
         final State state = getState();
         if (!state.isActive()) {
           s_logger.debug("Discarding state for unfinished {}", this);
+          discard();
           state.onDiscard(context);
           _state = null;
         }
@@ -34,6 +34,14 @@ import com.opengamma.engine.depgraph.DependencyGraphBuilder.GraphBuildingContext
    */
   void addRef();
 
+  /**
+   * Increment the reference count on the object if it has not already reached zero. This is used when the object has
+   * been found in a structure shared between threads from which it may be concurrently removed and released.
+   * 
+   * @return true if the reference count was incremented, false if the object has already been released
+   */
+  boolean addRefIfLive();
+
   /**
    * Decrement the reference count on the object. An implementation may perform cleanup actions on the count reaching zero.
    * 
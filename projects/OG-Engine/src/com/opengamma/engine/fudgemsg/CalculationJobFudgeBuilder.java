@@ -7,6 +7,9 @@ package com.opengamma.engine.fudgemsg;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.Validate;
 import org.fudgemsg.FudgeField;
@@ -17,6 +20,10 @@ import org.fudgemsg.mapping.FudgeBuilderFor;
 import org.fudgemsg.mapping.FudgeDeserializer;
 import org.fudgemsg.mapping.FudgeSerializer;
 
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.function.FunctionParameters;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.view.cache.CacheSelectHint;
 import com.opengamma.engine.view.calcnode.CalculationJob;
 import com.opengamma.engine.view.calcnode.CalculationJobItem;
@@ -24,12 +31,54 @@ import com.opengamma.engine.view.calcnode.CalculationJobSpecification;
 
 /**
  * Fudge message builder for {@code CalculationJob}.
+ * <p>
+ * A job marked for compact encoding has function identifiers, function parameters and desired value names written once
+ * per message and referenced from each item by index. Desired values on the item's own target omit the target
+ * specification, and the inputs are only ever written as identifiers.
  */
 @FudgeBuilderFor(CalculationJob.class)
 public class CalculationJobFudgeBuilder implements FudgeBuilder<CalculationJob> {
   private static final String REQUIRED_FIELD_NAME = "requiredJobId";
   private static final String FUNCTION_INITIALIZATION_IDENTIFIER_FIELD_NAME = "functionInitId";
   private static final String ITEM_FIELD_NAME = "calculationJobItem";
+  private static final String COMPACT_FIELD_NAME = "compact";
+  private static final String TRACED_FIELD_NAME = "traced";
+  private static final String FUNCTION_FIELD_NAME = "function";
+  private static final String PARAMETERS_FIELD_NAME = "parameters";
+  private static final String VALUE_NAME_FIELD_NAME = "valueName";
+  private static final int ITEM_TARGET_ORDINAL = 1;
+  private static final int ITEM_FUNCTION_ORDINAL = 2;
+  private static final int ITEM_PARAMETERS_ORDINAL = 3;
+  private static final int ITEM_INPUT_ORDINAL = 4;
+  private static final int ITEM_VALUE_NAME_ORDINAL = 5;
+  private static final int ITEM_VALUE_CONSTRAINED_ORDINAL = 6;
+  private static final int ITEM_VALUE_REQUIREMENT_ORDINAL = 7;
+  private static final int VALUE_NAME_ORDINAL = 1;
+  private static final int VALUE_CONSTRAINTS_ORDINAL = 2;
+
+  /**
+   * Assigns indices to values in the order they are first seen.
+   */
+  private static final class Dictionary<T> {
+
+    private final Map<T, Integer> _indices = new HashMap<T, Integer>();
+    private final List<T> _values = new ArrayList<T>();
+
+    public int getIndex(final T value) {
+      Integer index = _indices.get(value);
+      if (index == null) {
+        index = _values.size();
+        _indices.put(value, index);
+        _values.add(value);
+      }
+      return index;
+    }
+
+    public List<T> getValues() {
+      return _values;
+    }
+
+  }
 
   @Override
   public MutableFudgeMsg buildMessage(FudgeSerializer serializer, CalculationJob object) {
@@ -40,8 +89,16 @@ public class CalculationJobFudgeBuilder implements FudgeBuilder<CalculationJob>
         msg.add(REQUIRED_FIELD_NAME, required);
       }
     }
-    for (CalculationJobItem item : object.getJobItems()) {
-      serializer.addToMessage(msg, ITEM_FIELD_NAME, null, item);
+    if (object.isCompactEncoding()) {
+      msg.add(COMPACT_FIELD_NAME, Boolean.TRUE);
+      buildCompactItems(serializer, msg, object.getJobItems());
+    } else {
+      for (CalculationJobItem item : object.getJobItems()) {
+        serializer.addToMessage(msg, ITEM_FIELD_NAME, null, item);
+      }
+    }
+    if (object.isTraced()) {
+      msg.add(TRACED_FIELD_NAME, Boolean.TRUE);
     }
     MutableFudgeMsg cacheSelectHintMsg = serializer.objectToFudgeMsg(object.getCacheSelectHint());
     for (FudgeField fudgeField : cacheSelectHintMsg.getAllFields()) {
@@ -63,14 +120,115 @@ public class CalculationJobFudgeBuilder implements FudgeBuilder<CalculationJob>
         requiredJobIds.add(((Number) field.getValue()).longValue());
       }
     }
-    fields = message.getAllByName(ITEM_FIELD_NAME);
-    final ArrayList<CalculationJobItem> jobItems = new ArrayList<CalculationJobItem>(fields.size());
-    for (FudgeField field : fields) {
-      CalculationJobItem jobItem = deserializer.fudgeMsgToObject(CalculationJobItem.class, (FudgeMsg) field.getValue());
-      jobItems.add(jobItem);
+    final boolean compact = message.hasField(COMPACT_FIELD_NAME);
+    final List<CalculationJobItem> jobItems;
+    if (compact) {
+      jobItems = buildCompactItems(deserializer, message);
+    } else {
+      fields = message.getAllByName(ITEM_FIELD_NAME);
+      jobItems = new ArrayList<CalculationJobItem>(fields.size());
+      for (FudgeField field : fields) {
+        CalculationJobItem jobItem = deserializer.fudgeMsgToObject(CalculationJobItem.class, (FudgeMsg) field.getValue());
+        jobItems.add(jobItem);
+      }
     }
     CacheSelectHint cacheSelectFilter = deserializer.fudgeMsgToObject(CacheSelectHint.class, message);
-    return new CalculationJob(jobSpec, functionInitializationIdentifier, requiredJobIds, jobItems, cacheSelectFilter);
+    final CalculationJob job = new CalculationJob(jobSpec, functionInitializationIdentifier, requiredJobIds, jobItems, cacheSelectFilter);
+    job.setCompactEncoding(compact);
+    job.setTraced(message.hasField(TRACED_FIELD_NAME));
+    return job;
+  }
+
+  private static void buildCompactItems(final FudgeSerializer serializer, final MutableFudgeMsg msg, final List<CalculationJobItem> items) {
+    final Dictionary<String> functions = new Dictionary<String>();
+    final Dictionary<FunctionParameters> parameters = new Dictionary<FunctionParameters>();
+    final Dictionary<String> valueNames = new Dictionary<String>();
+    final List<MutableFudgeMsg> itemMsgs = new ArrayList<MutableFudgeMsg>(items.size());
+    for (CalculationJobItem item : items) {
+      final MutableFudgeMsg itemMsg = serializer.newMessage();
+      final ComputationTargetSpecification target = item.getComputationTargetSpecification();
+      serializer.addToMessage(itemMsg, null, ITEM_TARGET_ORDINAL, target);
+      itemMsg.add(null, ITEM_FUNCTION_ORDINAL, functions.getIndex(item.getFunctionUniqueIdentifier()));
+      itemMsg.add(null, ITEM_PARAMETERS_ORDINAL, parameters.getIndex(item.getFunctionParameters()));
+      itemMsg.add(null, ITEM_INPUT_ORDINAL, item.getInputIdentifiers());
+      for (ValueRequirement desiredValue : item.getDesiredValues()) {
+        if (target.equals(desiredValue.getTargetSpecification())) {
+          final int valueName = valueNames.getIndex(desiredValue.getValueName());
+          if (ValueProperties.none().equals(desiredValue.getConstraints())) {
+            itemMsg.add(null, ITEM_VALUE_NAME_ORDINAL, valueName);
+          } else {
+            final MutableFudgeMsg valueMsg = serializer.newMessage();
+            valueMsg.add(null, VALUE_NAME_ORDINAL, valueName);
+            serializer.addToMessage(valueMsg, null, VALUE_CONSTRAINTS_ORDINAL, desiredValue.getConstraints());
+            itemMsg.add(null, ITEM_VALUE_CONSTRAINED_ORDINAL, valueMsg);
+          }
+        } else {
+          serializer.addToMessage(itemMsg, null, ITEM_VALUE_REQUIREMENT_ORDINAL, desiredValue);
+        }
+      }
+      itemMsgs.add(itemMsg);
+    }
+    for (String function : functions.getValues()) {
+      msg.add(FUNCTION_FIELD_NAME, function);
+    }
+    for (FunctionParameters parameter : parameters.getValues()) {
+      serializer.addToMessageWithClassHeaders(msg, PARAMETERS_FIELD_NAME, null, parameter);
+    }
+    for (String valueName : valueNames.getValues()) {
+      msg.add(VALUE_NAME_FIELD_NAME, valueName);
+    }
+    for (MutableFudgeMsg itemMsg : itemMsgs) {
+      msg.add(ITEM_FIELD_NAME, itemMsg);
+    }
+  }
+
+  private static List<CalculationJobItem> buildCompactItems(final FudgeDeserializer deserializer, final FudgeMsg message) {
+    final List<String> functions = new ArrayList<String>();
+    for (FudgeField field : message.getAllByName(FUNCTION_FIELD_NAME)) {
+      functions.add((String) field.getValue());
+    }
+    final List<FunctionParameters> parameters = new ArrayList<FunctionParameters>();
+    for (FudgeField field : message.getAllByName(PARAMETERS_FIELD_NAME)) {
+      parameters.add(deserializer.fieldValueToObject(FunctionParameters.class, field));
+    }
+    final List<String> valueNames = new ArrayList<String>();
+    for (FudgeField field : message.getAllByName(VALUE_NAME_FIELD_NAME)) {
+      valueNames.add((String) field.getValue());
+    }
+    final Collection<FudgeField> fields = message.getAllByName(ITEM_FIELD_NAME);
+    final List<CalculationJobItem> jobItems = new ArrayList<CalculationJobItem>(fields.size());
+    for (FudgeField field : fields) {
+      final FudgeMsg itemMsg = (FudgeMsg) field.getValue();
+      final ComputationTargetSpecification target = deserializer.fieldValueToObject(ComputationTargetSpecification.class, itemMsg.getByOrdinal(ITEM_TARGET_ORDINAL));
+      final String function = functions.get(itemMsg.getInt(ITEM_FUNCTION_ORDINAL));
+      final FunctionParameters parameter = parameters.get(itemMsg.getInt(ITEM_PARAMETERS_ORDINAL));
+      final long[] inputs = (long[]) itemMsg.getByOrdinal(ITEM_INPUT_ORDINAL).getValue();
+      final List<ValueRequirement> desiredValues = new ArrayList<ValueRequirement>();
+      for (FudgeField itemField : itemMsg) {
+        final Short ordinal = itemField.getOrdinal();
+        if (ordinal == null) {
+          continue;
+        }
+        switch (ordinal) {
+          case ITEM_VALUE_NAME_ORDINAL:
+            desiredValues.add(new ValueRequirement(valueNames.get(((Number) itemField.getValue()).intValue()), target));
+            break;
+          case ITEM_VALUE_CONSTRAINED_ORDINAL: {
+            final FudgeMsg valueMsg = (FudgeMsg) itemField.getValue();
+            final ValueProperties constraints = deserializer.fieldValueToObject(ValueProperties.class, valueMsg.getByOrdinal(VALUE_CONSTRAINTS_ORDINAL));
+            desiredValues.add(new ValueRequirement(valueNames.get(valueMsg.getInt(VALUE_NAME_ORDINAL)), target, constraints));
+            break;
+          }
+          case ITEM_VALUE_REQUIREMENT_ORDINAL:
+            desiredValues.add(deserializer.fieldValueToObject(ValueRequirement.class, itemField));
+            break;
+          default:
+            break;
+        }
+      }
+      jobItems.add(CalculationJobItem.create(function, parameter, target, inputs, desiredValues));
+    }
+    return jobItems;
   }
 
 }
@@ -19,23 +19,67 @@ import org.fudgemsg.mapping.FudgeSerializer;
 import com.opengamma.engine.view.calcnode.CalculationJobResult;
 import com.opengamma.engine.view.calcnode.CalculationJobResultItem;
 import com.opengamma.engine.view.calcnode.CalculationJobSpecification;
+import com.opengamma.engine.view.calcnode.CalculationJobTrace;
+import com.opengamma.engine.view.calcnode.InvocationResult;
 
 /**
  * Fudge message builder for {@code CalculationJob}.
+ * <p>
+ * A result marked for compact encoding omits the job item from each result item, relying on the receiver to restore
+ * them from the job it sent, and writes missing inputs as identifiers.
  */
 @FudgeBuilderFor(CalculationJobResult.class)
 public class CalculationJobResultFudgeBuilder implements FudgeBuilder<CalculationJobResult> {
   private static final String DURATION_FIELD_NAME = "duration";
   private static final String ITEMS_FIELD_NAME = "resultItems";
   private static final String COMPUTE_NODE_ID_FIELD_NAME = "computeNodeId";
+  private static final String COMPACT_FIELD_NAME = "compact";
+  private static final String TRACE_FIELD_NAME = "trace";
+  private static final String TRACE_STARTED_FIELD_NAME = "started";
+  private static final String TRACE_FINISHED_FIELD_NAME = "finished";
+  private static final String TRACE_ITEMS_FIELD_NAME = "items";
+  private static final int ITEM_RESULT_ORDINAL = 1;
+  private static final int ITEM_EXCEPTION_CLASS_ORDINAL = 2;
+  private static final int ITEM_EXCEPTION_MSG_ORDINAL = 3;
+  private static final int ITEM_STACK_TRACE_ORDINAL = 4;
+  private static final int ITEM_MISSING_INPUTS_ORDINAL = 5;
 
   @Override
   public MutableFudgeMsg buildMessage(FudgeSerializer serializer, CalculationJobResult object) {
     MutableFudgeMsg msg = serializer.objectToFudgeMsg(object.getSpecification());
     msg.add(DURATION_FIELD_NAME, object.getDuration());
     msg.add(COMPUTE_NODE_ID_FIELD_NAME, object.getComputeNodeId());
-    for (CalculationJobResultItem item : object.getResultItems()) {
-      serializer.addToMessage(msg, ITEMS_FIELD_NAME, null, item);
+    if (object.isCompactEncoding()) {
+      msg.add(COMPACT_FIELD_NAME, Boolean.TRUE);
+      for (CalculationJobResultItem item : object.getResultItems()) {
+        final MutableFudgeMsg itemMsg = serializer.newMessage();
+        itemMsg.add(null, ITEM_RESULT_ORDINAL, item.getResult().name());
+        if (item.getExceptionClass() != null) {
+          itemMsg.add(null, ITEM_EXCEPTION_CLASS_ORDINAL, item.getExceptionClass());
+        }
+        if (item.getExceptionMsg() != null) {
+          itemMsg.add(null, ITEM_EXCEPTION_MSG_ORDINAL, item.getExceptionMsg());
+        }
+        if (item.getStackTrace() != null) {
+          itemMsg.add(null, ITEM_STACK_TRACE_ORDINAL, item.getStackTrace());
+        }
+        if (item.getMissingInputIdentifiers() != null) {
+          itemMsg.add(null, ITEM_MISSING_INPUTS_ORDINAL, item.getMissingInputIdentifiers());
+        }
+        msg.add(ITEMS_FIELD_NAME, itemMsg);
+      }
+    } else {
+      for (CalculationJobResultItem item : object.getResultItems()) {
+        serializer.addToMessage(msg, ITEMS_FIELD_NAME, null, item);
+      }
+    }
+    final CalculationJobTrace trace = object.getTrace();
+    if (trace != null) {
+      final MutableFudgeMsg traceMsg = serializer.newMessage();
+      traceMsg.add(TRACE_STARTED_FIELD_NAME, trace.getStarted());
+      traceMsg.add(TRACE_FINISHED_FIELD_NAME, trace.getFinished());
+      traceMsg.add(TRACE_ITEMS_FIELD_NAME, trace.getItemTimes());
+      msg.add(TRACE_FIELD_NAME, traceMsg);
     }
     return msg;
   }
@@ -45,12 +89,28 @@ public class CalculationJobResultFudgeBuilder implements FudgeBuilder<Calculatio
     CalculationJobSpecification jobSpec = deserializer.fudgeMsgToObject(CalculationJobSpecification.class, msg);
     long duration = msg.getLong(DURATION_FIELD_NAME);
     String nodeId = msg.getString(COMPUTE_NODE_ID_FIELD_NAME);
+    final boolean compact = msg.hasField(COMPACT_FIELD_NAME);
     List<CalculationJobResultItem> jobItems = new ArrayList<CalculationJobResultItem>();
     for (FudgeField field : msg.getAllByName(ITEMS_FIELD_NAME)) {
-      CalculationJobResultItem jobItem = deserializer.fudgeMsgToObject(CalculationJobResultItem.class, (FudgeMsg) field.getValue());
+      final FudgeMsg itemMsg = (FudgeMsg) field.getValue();
+      CalculationJobResultItem jobItem;
+      if (compact) {
+        final FudgeField missingInputs = itemMsg.getByOrdinal(ITEM_MISSING_INPUTS_ORDINAL);
+        jobItem = CalculationJobResultItem.create(InvocationResult.valueOf(itemMsg.getString(ITEM_RESULT_ORDINAL)), itemMsg.getString(ITEM_EXCEPTION_CLASS_ORDINAL),
+            itemMsg.getString(ITEM_EXCEPTION_MSG_ORDINAL), itemMsg.getString(ITEM_STACK_TRACE_ORDINAL), (missingInputs != null) ? (long[]) missingInputs.getValue() : null);
+      } else {
+        jobItem = deserializer.fudgeMsgToObject(CalculationJobResultItem.class, itemMsg);
+      }
       jobItems.add(jobItem);
     }
-    return new CalculationJobResult(jobSpec, duration, jobItems, nodeId);
+    final CalculationJobResult result = new CalculationJobResult(jobSpec, duration, jobItems, nodeId);
+    result.setCompactEncoding(compact);
+    final FudgeMsg traceMsg = msg.getMessage(TRACE_FIELD_NAME);
+    if (traceMsg != null) {
+      result.setTrace(new CalculationJobTrace(traceMsg.getLong(TRACE_STARTED_FIELD_NAME), traceMsg.getLong(TRACE_FINISHED_FIELD_NAME),
+          traceMsg.getValue(long[].class, TRACE_ITEMS_FIELD_NAME)));
+    }
+    return result;
   }
 
 }
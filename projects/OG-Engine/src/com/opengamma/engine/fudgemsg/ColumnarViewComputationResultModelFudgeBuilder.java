@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.fudgemsg;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.time.Duration;
+import javax.time.Instant;
+
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeBuilder;
+import org.fudgemsg.mapping.FudgeBuilderFor;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ColumnarViewComputationResultModel;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+
+/**
+ * Fudge message builder for {@link ColumnarViewComputationResultModel}. The double values of each column are written
+ * as a single primitive array rather than as individual {@link ComputedValue} messages.
+ */
+@FudgeBuilderFor(ColumnarViewComputationResultModel.class)
+public class ColumnarViewComputationResultModelFudgeBuilder implements FudgeBuilder<ColumnarViewComputationResultModel> {
+
+  private static final String FIELD_VIEWPROCESSID = "viewProcessId";
+  private static final String FIELD_VIEWCYCLEID = "viewCycleId";
+  private static final String FIELD_VALUATION_TIME = "valuationTime";
+  private static final String FIELD_CALCULATION_TIME = "calculationTime";
+  private static final String FIELD_CALCULATION_DURATION = "calculationDuration";
+  private static final String FIELD_VERSION_CORRECTION = "versionCorrection";
+  private static final String FIELD_TARGET = "target";
+  private static final String FIELD_COLUMN = "column";
+  private static final String FIELD_CALCULATION_CONFIGURATION = "calcConfig";
+  private static final String FIELD_VALUE_NAME = "valueName";
+  private static final String FIELD_PROPERTIES = "properties";
+  private static final String FIELD_DOUBLE_ROWS = "doubleRows";
+  private static final String FIELD_DOUBLES = "doubles";
+  private static final String FIELD_OBJECT_ROWS = "objectRows";
+  private static final String FIELD_OBJECT = "object";
+  private static final String FIELD_LIVEDATA = "liveData";
+  private static final String FIELD_SPECIFICATION_MAPPING = "specMapping";
+  private static final String FIELD_SPECIFICATION = "specification";
+  private static final String FIELD_REQUIREMENT = "requirement";
+
+  @Override
+  public MutableFudgeMsg buildMessage(FudgeSerializer serializer, ColumnarViewComputationResultModel resultModel) {
+    final MutableFudgeMsg message = serializer.newMessage();
+    message.add(FIELD_VIEWPROCESSID, resultModel.getViewProcessId());
+    message.add(FIELD_VIEWCYCLEID, resultModel.getViewCycleId());
+    message.add(FIELD_VALUATION_TIME, resultModel.getValuationTime());
+    message.add(FIELD_CALCULATION_TIME, resultModel.getCalculationTime());
+    serializer.addToMessage(message, FIELD_CALCULATION_DURATION, null, resultModel.getCalculationDuration());
+    serializer.addToMessage(message, FIELD_VERSION_CORRECTION, null, resultModel.getVersionCorrection());
+    for (ComputationTargetSpecification target : resultModel.getTargets()) {
+      serializer.addToMessage(message, FIELD_TARGET, null, target);
+    }
+    for (ColumnarViewComputationResultModel.Column column : resultModel.getColumns()) {
+      message.add(FIELD_COLUMN, buildColumnMessage(serializer, column));
+    }
+    final MutableFudgeMsg liveDataMsg = serializer.newMessage();
+    for (ComputedValue value : resultModel.getAllMarketData()) {
+      serializer.addToMessage(liveDataMsg, null, 1, value);
+    }
+    message.add(FIELD_LIVEDATA, liveDataMsg);
+    for (Map.Entry<ValueSpecification, Set<ValueRequirement>> specMappingEntry : resultModel.getRequirementToSpecificationMapping().entrySet()) {
+      final MutableFudgeMsg mappingMsg = serializer.newMessage();
+      serializer.addToMessage(mappingMsg, FIELD_SPECIFICATION, null, specMappingEntry.getKey());
+      for (ValueRequirement requirement : specMappingEntry.getValue()) {
+        serializer.addToMessage(mappingMsg, FIELD_REQUIREMENT, null, requirement);
+      }
+      serializer.addToMessage(message, FIELD_SPECIFICATION_MAPPING, null, mappingMsg);
+    }
+    return message;
+  }
+
+  private static MutableFudgeMsg buildColumnMessage(final FudgeSerializer serializer, final ColumnarViewComputationResultModel.Column column) {
+    final MutableFudgeMsg message = serializer.newMessage();
+    message.add(FIELD_CALCULATION_CONFIGURATION, column.getCalculationConfiguration());
+    message.add(FIELD_VALUE_NAME, column.getValueName());
+    serializer.addToMessage(message, FIELD_PROPERTIES, null, column.getProperties());
+    final int count = column.getValueCount();
+    int[] doubleRows = new int[count];
+    final double[] doubles = new double[count];
+    int doubleCount = 0;
+    int[] objectRows = new int[count];
+    int objectCount = 0;
+    for (int row = column.nextRow(0); row >= 0; row = column.nextRow(row + 1)) {
+      if (column.isDouble(row)) {
+        doubleRows[doubleCount] = row;
+        doubles[doubleCount++] = column.getDouble(row);
+      } else {
+        objectRows[objectCount++] = row;
+        serializer.addToMessageWithClassHeaders(message, FIELD_OBJECT, null, column.getValue(row));
+      }
+    }
+    if (doubleCount > 0) {
+      if (doubleCount < count) {
+        final int[] rows = new int[doubleCount];
+        System.arraycopy(doubleRows, 0, rows, 0, doubleCount);
+        doubleRows = rows;
+        final double[] values = new double[doubleCount];
+        System.arraycopy(doubles, 0, values, 0, doubleCount);
+        message.add(FIELD_DOUBLES, values);
+      } else {
+        message.add(FIELD_DOUBLES, doubles);
+      }
+      message.add(FIELD_DOUBLE_ROWS, doubleRows);
+    }
+    if (objectCount > 0) {
+      if (objectCount < count) {
+        final int[] rows = new int[objectCount];
+        System.arraycopy(objectRows, 0, rows, 0, objectCount);
+        objectRows = rows;
+      }
+      message.add(FIELD_OBJECT_ROWS, objectRows);
+    }
+    return message;
+  }
+
+  @Override
+  public ColumnarViewComputationResultModel buildObject(FudgeDeserializer deserializer, FudgeMsg message) {
+    final ColumnarViewComputationResultModel resultModel = new ColumnarViewComputationResultModel();
+    resultModel.setViewProcessId(message.getValue(UniqueId.class, FIELD_VIEWPROCESSID));
+    resultModel.setViewCycleId(message.getValue(UniqueId.class, FIELD_VIEWCYCLEID));
+    resultModel.setValuationTime(message.getFieldValue(Instant.class, message.getByName(FIELD_VALUATION_TIME)));
+    resultModel.setCalculationTime(message.getFieldValue(Instant.class, message.getByName(FIELD_CALCULATION_TIME)));
+    final FudgeField durationField = message.getByName(FIELD_CALCULATION_DURATION);
+    if (durationField != null) {
+      resultModel.setCalculationDuration(deserializer.fieldValueToObject(Duration.class, durationField));
+    }
+    final FudgeField versionCorrectionField = message.getByName(FIELD_VERSION_CORRECTION);
+    if (versionCorrectionField != null) {
+      resultModel.setVersionCorrection(deserializer.fieldValueToObject(VersionCorrection.class, versionCorrectionField));
+    }
+    for (FudgeField field : message.getAllByName(FIELD_TARGET)) {
+      resultModel.addTarget(deserializer.fieldValueToObject(ComputationTargetSpecification.class, field));
+    }
+    for (FudgeField field : message.getAllByName(FIELD_COLUMN)) {
+      buildColumn(deserializer, (FudgeMsg) field.getValue(), resultModel);
+    }
+    final FudgeField liveDataField = message.getByName(FIELD_LIVEDATA);
+    if (liveDataField != null) {
+      for (FudgeField field : message.getFieldValue(FudgeMsg.class, liveDataField)) {
+        resultModel.addMarketData(deserializer.fieldValueToObject(ComputedValue.class, field));
+      }
+    }
+    for (FudgeField specMappingField : message.getAllByName(FIELD_SPECIFICATION_MAPPING)) {
+      final FudgeMsg mappingMsg = (FudgeMsg) specMappingField.getValue();
+      final ValueSpecification specification = deserializer.fieldValueToObject(ValueSpecification.class, mappingMsg.getByName(FIELD_SPECIFICATION));
+      final Set<ValueRequirement> requirements = new HashSet<ValueRequirement>();
+      for (FudgeField requirementField : mappingMsg.getAllByName(FIELD_REQUIREMENT)) {
+        requirements.add(deserializer.fieldValueToObject(ValueRequirement.class, requirementField));
+      }
+      resultModel.addRequirements(requirements, specification);
+    }
+    return resultModel;
+  }
+
+  private static void buildColumn(final FudgeDeserializer deserializer, final FudgeMsg message, final ColumnarViewComputationResultModel resultModel) {
+    final String calcConfig = message.getString(FIELD_CALCULATION_CONFIGURATION);
+    final String valueName = message.getString(FIELD_VALUE_NAME);
+    final ValueProperties properties = deserializer.fieldValueToObject(ValueProperties.class, message.getByName(FIELD_PROPERTIES));
+    final ColumnarViewComputationResultModel.Column column = resultModel.addColumn(calcConfig, valueName, properties);
+    final int[] doubleRows = message.getValue(int[].class, FIELD_DOUBLE_ROWS);
+    if (doubleRows != null) {
+      final double[] doubles = message.getValue(double[].class, FIELD_DOUBLES);
+      for (int i = 0; i < doubleRows.length; i++) {
+        resultModel.setDouble(column, doubleRows[i], doubles[i]);
+      }
+    }
+    final int[] objectRows = message.getValue(int[].class, FIELD_OBJECT_ROWS);
+    if (objectRows != null) {
+      final List<FudgeField> objects = message.getAllByName(FIELD_OBJECT);
+      final Iterator<FudgeField> itr = objects.iterator();
+      for (int i = 0; i < objectRows.length; i++) {
+        resultModel.setValue(column, objectRows[i], deserializer.fieldValueToObject(itr.next()));
+      }
+    }
+  }
+
+}
@@ -33,10 +33,13 @@ public class ExecutionOptionsFudgeBuilder implements FudgeBuilder<ExecutionOptio
   private static final String AWAIT_MARKET_DATA_FIELD = "awaitMarketData";
   private static final String TRIGGER_CYCLE_ON_LIVE_DATA_CHANGED_FIELD = "liveDataTriggerEnabled";
   private static final String TRIGGER_CYCLE_ON_TIME_ELAPSED_FIELD = "timeElapsedTriggerEnabled";
+  private static final String PARTIAL_DELTA_CYCLES_FIELD = "partialDeltaCycles";
+  private static final String COLUMNAR_RESULTS_FIELD = "columnarResults";
   private static final String RUN_AS_FAST_AS_POSSIBLE_FIELD = "runAsFastAsPossible";
   private static final String COMPILE_ONLY_FIELD = "compileOnly";
   private static final String WAIT_FOR_INITIAL_TRIGGER_FIELD = "waitForInitialTrigger";
   private static final String MAX_SUCCESSIVE_DELTA_CYCLES_FIELD = "maxSuccessiveDeltaCycles";
+  private static final String MAX_CONCURRENT_CYCLES_FIELD = "maxConcurrentCycles";
   private static final String DEFAULT_EXECUTION_OPTIONS_FIELD = "defaultExecutionOptions";
   private static final String VERSION_CORRECTION_FIELD = "versionCorrection";
   private static final String BATCH_FIELD = "batch";
@@ -48,6 +51,8 @@ public class ExecutionOptionsFudgeBuilder implements FudgeBuilder<ExecutionOptio
     msg.add(AWAIT_MARKET_DATA_FIELD, object.getFlags().contains(ViewExecutionFlags.AWAIT_MARKET_DATA));
     msg.add(TRIGGER_CYCLE_ON_LIVE_DATA_CHANGED_FIELD, object.getFlags().contains(ViewExecutionFlags.TRIGGER_CYCLE_ON_MARKET_DATA_CHANGED));
     msg.add(TRIGGER_CYCLE_ON_TIME_ELAPSED_FIELD, object.getFlags().contains(ViewExecutionFlags.TRIGGER_CYCLE_ON_TIME_ELAPSED));
+    msg.add(PARTIAL_DELTA_CYCLES_FIELD, object.getFlags().contains(ViewExecutionFlags.PARTIAL_DELTA_CYCLES));
+    msg.add(COLUMNAR_RESULTS_FIELD, object.getFlags().contains(ViewExecutionFlags.COLUMNAR_RESULTS));
     msg.add(RUN_AS_FAST_AS_POSSIBLE_FIELD, object.getFlags().contains(ViewExecutionFlags.RUN_AS_FAST_AS_POSSIBLE));
     msg.add(COMPILE_ONLY_FIELD, object.getFlags().contains(ViewExecutionFlags.COMPILE_ONLY));
     msg.add(WAIT_FOR_INITIAL_TRIGGER_FIELD, object.getFlags().contains(ViewExecutionFlags.WAIT_FOR_INITIAL_TRIGGER));
@@ -55,6 +60,9 @@ public class ExecutionOptionsFudgeBuilder implements FudgeBuilder<ExecutionOptio
     if (object.getMaxSuccessiveDeltaCycles() != null) {
       msg.add(MAX_SUCCESSIVE_DELTA_CYCLES_FIELD, object.getMaxSuccessiveDeltaCycles());
     }
+    if (object.getMaxConcurrentCycles() != null) {
+      msg.add(MAX_CONCURRENT_CYCLES_FIELD, object.getMaxConcurrentCycles());
+    }
     serializer.addToMessage(msg, DEFAULT_EXECUTION_OPTIONS_FIELD, null, object.getDefaultExecutionOptions());
     serializer.addToMessage(msg, VERSION_CORRECTION_FIELD, null, object.getVersionCorrection());
     return msg;
@@ -73,6 +81,12 @@ public class ExecutionOptionsFudgeBuilder implements FudgeBuilder<ExecutionOptio
     if (BooleanUtils.isTrue(message.getBoolean(TRIGGER_CYCLE_ON_TIME_ELAPSED_FIELD))) {
       flags.add(ViewExecutionFlags.TRIGGER_CYCLE_ON_TIME_ELAPSED);
     }
+    if (BooleanUtils.isTrue(message.getBoolean(PARTIAL_DELTA_CYCLES_FIELD))) {
+      flags.add(ViewExecutionFlags.PARTIAL_DELTA_CYCLES);
+    }
+    if (BooleanUtils.isTrue(message.getBoolean(COLUMNAR_RESULTS_FIELD))) {
+      flags.add(ViewExecutionFlags.COLUMNAR_RESULTS);
+    }
     if (BooleanUtils.isTrue(message.getBoolean(RUN_AS_FAST_AS_POSSIBLE_FIELD))) {
       flags.add(ViewExecutionFlags.RUN_AS_FAST_AS_POSSIBLE);
     }
@@ -89,6 +103,10 @@ public class ExecutionOptionsFudgeBuilder implements FudgeBuilder<ExecutionOptio
     if (message.hasField(MAX_SUCCESSIVE_DELTA_CYCLES_FIELD)) {
       maxSuccessiveDeltaCycles = message.getInt(MAX_SUCCESSIVE_DELTA_CYCLES_FIELD);
     }
+    Integer maxConcurrentCycles = null;
+    if (message.hasField(MAX_CONCURRENT_CYCLES_FIELD)) {
+      maxConcurrentCycles = message.getInt(MAX_CONCURRENT_CYCLES_FIELD);
+    }
 
     FudgeField defaultExecutionOptionsField = message.getByName(DEFAULT_EXECUTION_OPTIONS_FIELD);
     ViewCycleExecutionOptions defaultExecutionOptions = defaultExecutionOptionsField != null ?
@@ -97,7 +115,7 @@ public class ExecutionOptionsFudgeBuilder implements FudgeBuilder<ExecutionOptio
     FudgeField versionCorrectionField = message.getByName(VERSION_CORRECTION_FIELD);
     VersionCorrection versionCorrection = deserializer.fieldValueToObject(VersionCorrection.class, versionCorrectionField);
 
-    return new ExecutionOptions(executionSequence, flags, maxSuccessiveDeltaCycles, defaultExecutionOptions, versionCorrection);
+    return new ExecutionOptions(executionSequence, flags, maxSuccessiveDeltaCycles, defaultExecutionOptions, versionCorrection, maxConcurrentCycles);
   }
 
 }
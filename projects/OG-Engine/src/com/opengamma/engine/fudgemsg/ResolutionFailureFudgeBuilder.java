@@ -17,6 +17,7 @@ import org.fudgemsg.mapping.FudgeBuilderFor;
 import org.fudgemsg.mapping.FudgeDeserializer;
 import org.fudgemsg.mapping.FudgeSerializer;
 
+import com.opengamma.engine.ComputationTargetType;
 import com.opengamma.engine.depgraph.ResolutionFailure;
 import com.opengamma.engine.depgraph.ResolutionFailureVisitor;
 import com.opengamma.engine.function.ParameterizedFunction;
@@ -38,6 +39,10 @@ public class ResolutionFailureFudgeBuilder implements FudgeBuilder<ResolutionFai
   private static final String UNSATISFIED_KEY = "Unsatisfied";
   private static final String ADDITIONAL_REQUIREMENT_KEY = "AdditionalRequirement";
   private static final String VALUE_SPECIFICATION_KEY = "ValueSpecification";
+  private static final String VALUE_NAME_KEY = "ValueName";
+  private static final String TARGET_TYPE_KEY = "TargetType";
+  private static final String COUNT_KEY = "Count";
+  private static final String SAMPLE_KEY = "Sample";
 
   /**
    * Visitor that produces Fudge messages from {@link ResolutionFailure} objects.
@@ -160,6 +165,24 @@ public class ResolutionFailureFudgeBuilder implements FudgeBuilder<ResolutionFai
       return msg;
     }
 
+    @Override
+    protected MutableFudgeMsg visitFailureSummary(final String valueName, final ComputationTargetType targetType, final String function, final int count,
+        final Collection<ResolutionFailure> samples) {
+      final MutableFudgeMsg msg = _serializer.newMessage();
+      msg.add(VALUE_NAME_KEY, null, valueName);
+      msg.add(TARGET_TYPE_KEY, null, targetType.name());
+      if (function != null) {
+        msg.add(FUNCTION_KEY, null, function);
+      }
+      msg.add(COUNT_KEY, null, count);
+      for (ResolutionFailure sample : samples) {
+        for (MutableFudgeMsg submessage : sample.accept(this)) {
+          msg.add(SAMPLE_KEY, null, submessage);
+        }
+      }
+      return msg;
+    }
+
   }
 
   /**
@@ -230,6 +253,12 @@ public class ResolutionFailureFudgeBuilder implements FudgeBuilder<ResolutionFai
       return getUnderlying().visitLateResolutionFailure(valueRequirement, function, desiredOutput, requirements);
     }
 
+    @Override
+    protected MutableFudgeMsg visitFailureSummary(final String valueName, final ComputationTargetType targetType, final String function, final int count,
+        final Collection<ResolutionFailure> samples) {
+      return getUnderlying().visitFailureSummary(valueName, targetType, function, count, samples);
+    }
+
   }
 
   @Override
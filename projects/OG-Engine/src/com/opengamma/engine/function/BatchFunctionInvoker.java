@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.function;
+
+import java.util.List;
+import java.util.Set;
+
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.util.PublicSPI;
+
+/**
+ * Optional extension to {@link FunctionInvoker} for functions that can be invoked on a number of targets at once.
+ * When a job contains several items for the same function, with the same parameters and no dependencies between them,
+ * a calculation node will make a single call to {@link #execute(FunctionExecutionContext, List, List, List)} instead
+ * of invoking the function once per item. This allows a function to amortize costs such as building market data
+ * bundles from shared inputs.
+ * <p>
+ * A calculation node may still call the single target form of {@link #execute} at any time, for example for an
+ * isolated item or to isolate a failure after the batch form has thrown an exception.
+ */
+@PublicSPI
+public interface BatchFunctionInvoker extends FunctionInvoker {
+
+  /**
+   * Executes on a number of targets, producing the values desired for each. The lists are all the same size, with
+   * corresponding elements describing a single invocation.
+   * <p>
+   * An exception thrown will cause the node to re-invoke each target individually with the single target form of
+   * {@link #execute} so that the failure can be attributed to the correct item.
+   *
+   * @param executionContext The execution-time configuration for this invocation.
+   * @param inputs The inputs for each target, pre-packaged as they would be for a single invocation.
+   * @param targets The targets on which calculation should be performed.
+   * @param desiredValues The only values that should be computed for each target.
+   * @return The values computed for each target, in the same order as the targets. An element may be null to indicate
+   *         that the invocation failed for that target alone.
+   */
+  List<Set<ComputedValue>> execute(
+      FunctionExecutionContext executionContext,
+      List<FunctionInputs> inputs,
+      List<ComputationTarget> targets,
+      List<Set<ValueRequirement>> desiredValues);
+
+}
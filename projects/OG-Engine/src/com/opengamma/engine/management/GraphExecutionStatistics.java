@@ -5,7 +5,11 @@
  */
 package com.opengamma.engine.management;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
@@ -13,6 +17,8 @@ import javax.management.ObjectName;
 import net.sf.ehcache.CacheException;
 
 import com.opengamma.engine.view.ViewProcess;
+import com.opengamma.engine.view.cache.ViewComputationCacheStatistics;
+import com.opengamma.engine.view.cache.ViewComputationCacheStatistics.ValueStatistics;
 import com.opengamma.engine.view.calc.stats.TotallingGraphStatisticsGathererProvider;
 import com.opengamma.engine.view.calc.stats.TotallingGraphStatisticsGathererProvider.Statistics;
 import com.opengamma.id.UniqueId;
@@ -147,6 +153,18 @@ public class GraphExecutionStatistics implements GraphExecutionStatisticsMBean {
     return graphExecutionStatistics != null ? graphExecutionStatistics.getProcessedJobDataCost() : null;
   }
 
+  @Override
+  public Long getSharedNodes() {
+    com.opengamma.engine.view.calc.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
+    return graphExecutionStatistics != null ? graphExecutionStatistics.getSharedNodes() : null;
+  }
+
+  @Override
+  public Long getSkippedNodes() {
+    com.opengamma.engine.view.calc.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
+    return graphExecutionStatistics != null ? graphExecutionStatistics.getSkippedNodes() : null;
+  }
+
   @Override
   public String getLastProcessedTime() {
     com.opengamma.engine.view.calc.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
@@ -159,6 +177,65 @@ public class GraphExecutionStatistics implements GraphExecutionStatisticsMBean {
     return graphExecutionStatistics != null ? graphExecutionStatistics.getLastExecutedTime().toString() : null;
   }
 
+  @Override
+  public Long getCachePrivateBytes() {
+    com.opengamma.engine.view.calc.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
+    return graphExecutionStatistics != null ? graphExecutionStatistics.getCacheStatistics().getPrivateBytes() : null;
+  }
+
+  @Override
+  public Long getCacheSharedBytes() {
+    com.opengamma.engine.view.calc.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
+    return graphExecutionStatistics != null ? graphExecutionStatistics.getCacheStatistics().getSharedBytes() : null;
+  }
+
+  @Override
+  public Long getCacheRemoteFetches() {
+    com.opengamma.engine.view.calc.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
+    return graphExecutionStatistics != null ? graphExecutionStatistics.getCacheStatistics().getRemoteFetches() : null;
+  }
+
+  @Override
+  public Double getCacheHitRatio() {
+    com.opengamma.engine.view.calc.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
+    return graphExecutionStatistics != null ? graphExecutionStatistics.getCacheStatistics().getCacheHitRatio() : null;
+  }
+
+  @Override
+  public Integer getMaxWriteBehindQueueDepth() {
+    com.opengamma.engine.view.calc.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
+    return graphExecutionStatistics != null ? graphExecutionStatistics.getCacheStatistics().getMaxWriteBehindQueueDepth() : null;
+  }
+
+  /**
+   * Returns a line for each value name, largest total data volume first.
+   * 
+   * @return the value statistics, or null if there are no statistics for the calculation configuration
+   */
+  @Override
+  public String[] getCacheValueStatistics() {
+    com.opengamma.engine.view.calc.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
+    if (graphExecutionStatistics == null) {
+      return null;
+    }
+    final ViewComputationCacheStatistics cacheStatistics = graphExecutionStatistics.getCacheStatistics();
+    final List<Map.Entry<String, ValueStatistics>> values = new ArrayList<Map.Entry<String, ValueStatistics>>(cacheStatistics.getValueStatistics().entrySet());
+    Collections.sort(values, new Comparator<Map.Entry<String, ValueStatistics>>() {
+      @Override
+      public int compare(final Map.Entry<String, ValueStatistics> o1, final Map.Entry<String, ValueStatistics> o2) {
+        final long bytes1 = o1.getValue().getPrivateBytes() + o1.getValue().getSharedBytes();
+        final long bytes2 = o2.getValue().getPrivateBytes() + o2.getValue().getSharedBytes();
+        return (bytes1 > bytes2) ? -1 : ((bytes1 < bytes2) ? 1 : 0);
+      }
+    });
+    final String[] result = new String[values.size()];
+    int i = 0;
+    for (Map.Entry<String, ValueStatistics> value : values) {
+      result[i++] = value.getKey() + ": " + value.getValue();
+    }
+    return result;
+  }
+
   @Override
   public void reset() {
     com.opengamma.engine.view.calc.stats.GraphExecutionStatistics graphExecutionStatistics = getGraphExecutionStatistics();
@@ -38,10 +38,26 @@ public interface GraphExecutionStatisticsMBean {
 
   Long getProcessedJobDataCost();
 
+  Long getSharedNodes();
+
+  Long getSkippedNodes();
+
   String getLastProcessedTime();
 
   String getLastExecutedTime();
 
+  Long getCachePrivateBytes();
+
+  Long getCacheSharedBytes();
+
+  Long getCacheRemoteFetches();
+
+  Double getCacheHitRatio();
+
+  Integer getMaxWriteBehindQueueDepth();
+
+  String[] getCacheValueStatistics();
+
   void reset();
 
 }
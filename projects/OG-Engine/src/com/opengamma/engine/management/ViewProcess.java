@@ -5,13 +5,19 @@
  */
 package com.opengamma.engine.management;
 
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
 import javax.management.MalformedObjectNameException;
 import javax.management.ObjectName;
 
 import net.sf.ehcache.CacheException;
 
+import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.engine.view.ViewProcessInternal;
 import com.opengamma.engine.view.ViewProcessState;
+import com.opengamma.engine.view.calc.CycleExecutionTracer;
 import com.opengamma.id.UniqueId;
 import com.opengamma.util.ArgumentChecker;
 
@@ -88,6 +94,35 @@ public class ViewProcess implements ViewProcessMBean {
   public void resume() {
     _viewProcess.resume();
   }
+
+  @Override
+  public boolean isCycleTracing() {
+    return _viewProcess.isCycleTracing();
+  }
+
+  @Override
+  public void setCycleTracing(final boolean cycleTracing) {
+    _viewProcess.setCycleTracing(cycleTracing);
+  }
+
+  @Override
+  public String writeLatestCycleTrace(final String fileName) {
+    final CycleExecutionTracer tracer = _viewProcess.getLatestCycleTrace();
+    if (tracer == null) {
+      return "No traced cycle has completed";
+    }
+    try {
+      final Writer writer = new FileWriter(fileName);
+      try {
+        tracer.writeChromeTrace(writer);
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      throw new OpenGammaRuntimeException("Couldn't write trace to " + fileName, e);
+    }
+    return "Wrote trace of cycle " + tracer.getCycleId() + " to " + fileName;
+  }
   
   /**
    * Gets the objectName field.
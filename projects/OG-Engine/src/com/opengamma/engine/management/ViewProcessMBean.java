@@ -57,5 +57,27 @@ public interface ViewProcessMBean {
    * Resumes operations on the view suspended by {@link #suspend}.
    */
   void resume();
+
+  /**
+   * Gets whether cycles of the view process record the execution of their calculation jobs.
+   * 
+   * @return true if cycles are being traced
+   */
+  boolean isCycleTracing();
+
+  /**
+   * Sets whether subsequent cycles of the view process record the execution of their calculation jobs.
+   * 
+   * @param cycleTracing true to trace cycles
+   */
+  void setCycleTracing(boolean cycleTracing);
+
+  /**
+   * Writes the execution trace of the most recently completed traced cycle to a file in the Chrome trace event format.
+   * 
+   * @param fileName the file to write to
+   * @return a description of the trace written
+   */
+  String writeLatestCycleTrace(String fileName);
   
 }
@@ -6,10 +6,9 @@
 package com.opengamma.engine.marketdata;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,15 +25,21 @@ import com.opengamma.id.ExternalIdBundle;
 import com.opengamma.id.UniqueId;
 import com.opengamma.livedata.UserPrincipal;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.PersistentHashMap;
 
 /**
  * An implementation of {@link MarketDataProvider} which maintains an LKV cache of externally-provided values.
+ * <p>
+ * The values are held in a persistent map, and each update replaces the current version. Taking a snapshot just
+ * references the current version so is constant-time however many values there are, and never blocks the thread
+ * providing updates.
  */
 public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider implements MarketDataInjector, MarketDataAvailabilityProvider {
   
   private static final Logger s_logger = LoggerFactory.getLogger(InMemoryLKVMarketDataProvider.class);
   
-  private final Map<ValueRequirement, Object> _lastKnownValues = new ConcurrentHashMap<ValueRequirement, Object>();
+  private final AtomicReference<PersistentHashMap<ValueRequirement, Object>> _lastKnownValues =
+      new AtomicReference<PersistentHashMap<ValueRequirement, Object>>(PersistentHashMap.<ValueRequirement, Object>of());
   private final SecuritySource _securitySource;
   private final MarketDataPermissionProvider _permissionProvider;
 
@@ -102,13 +107,16 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
   //-------------------------------------------------------------------------
   @Override
   public MarketDataAvailability getAvailability(ValueRequirement requirement) {
-    return _lastKnownValues.containsKey(requirement) ? MarketDataAvailability.AVAILABLE : MarketDataAvailability.NOT_AVAILABLE;
+    return _lastKnownValues.get().containsKey(requirement) ? MarketDataAvailability.AVAILABLE : MarketDataAvailability.NOT_AVAILABLE;
   }
 
   //-------------------------------------------------------------------------
   @Override
   public void addValue(ValueRequirement requirement, Object value) {
-    _lastKnownValues.put(requirement, value);
+    PersistentHashMap<ValueRequirement, Object> values;
+    do {
+      values = _lastKnownValues.get();
+    } while (!_lastKnownValues.compareAndSet(values, values.with(requirement, value)));
     valueChanged(requirement);
   }
   
@@ -120,7 +128,10 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
 
   @Override
   public void removeValue(final ValueRequirement valueRequirement) {
-    _lastKnownValues.remove(valueRequirement);
+    PersistentHashMap<ValueRequirement, Object> values;
+    do {
+      values = _lastKnownValues.get();
+    } while (!_lastKnownValues.compareAndSet(values, values.without(valueRequirement)));
     valueChanged(valueRequirement);
   }
   
@@ -132,16 +143,17 @@ public class InMemoryLKVMarketDataProvider extends AbstractMarketDataProvider im
   
   //-------------------------------------------------------------------------
   public Set<ValueRequirement> getAllValueKeys() {
-    return Collections.unmodifiableSet(_lastKnownValues.keySet());
+    return Collections.unmodifiableSet(_lastKnownValues.get().keySet());
   }
 
   public Object getCurrentValue(ValueRequirement valueRequirement) {
-    return _lastKnownValues.get(valueRequirement);
+    return _lastKnownValues.get().get(valueRequirement);
   }
   
   //-------------------------------------------------------------------------
   /*package*/ Map<ValueRequirement, Object> doSnapshot() {
-    return new HashMap<ValueRequirement, Object>(_lastKnownValues);
+    // The current version will never change, so no copy is needed
+    return _lastKnownValues.get();
   }
   
   private ValueRequirement resolveRequirement(ExternalId identifier, String valueName) {
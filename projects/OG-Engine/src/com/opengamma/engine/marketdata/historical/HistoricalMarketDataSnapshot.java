@@ -5,10 +5,19 @@
  */
 package com.opengamma.engine.marketdata.historical;
 
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
 import javax.time.Instant;
 import javax.time.calendar.LocalDate;
 
-import com.opengamma.id.UniqueId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -18,10 +27,16 @@ import com.opengamma.engine.marketdata.AbstractMarketDataSnapshot;
 import com.opengamma.engine.marketdata.MarketDataSnapshot;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.UniqueId;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
 
 /**
  * A {@link MarketDataSnapshot} backed by historical data.
+ * <p>
+ * The values required by a cycle are fetched when the snapshot is initialized, one request for each value name, and
+ * held for the {@link #query} calls that follow. Requirements not supplied to {@link #init(Set, long, TimeUnit)} are
+ * fetched individually.
  */
 public class HistoricalMarketDataSnapshot extends AbstractMarketDataSnapshot {
 
@@ -31,6 +46,10 @@ public class HistoricalMarketDataSnapshot extends AbstractMarketDataSnapshot {
   private final Instant _snapshotInstant;
   private final LocalDate _snapshotDate;
   private final String _timeSeriesFieldResolverKey;
+  /**
+   * The values fetched by {@link #init(Set, long, TimeUnit)}. Requirements that were fetched but have no value are held as NaN.
+   */
+  private volatile Object2DoubleMap<ValueRequirement> _values;
   
   /**
    * Creates a market data snapshot based on historical time-series data.
@@ -64,8 +83,66 @@ public class HistoricalMarketDataSnapshot extends AbstractMarketDataSnapshot {
     return getSnapshotTimeIndication();
   }
   
+  @Override
+  public void init(Set<ValueRequirement> valuesRequired, long timeout, TimeUnit unit) {
+    final Map<String, Map<ExternalIdBundle, List<ValueRequirement>>> requirementsByField = new HashMap<String, Map<ExternalIdBundle, List<ValueRequirement>>>();
+    for (ValueRequirement requirement : valuesRequired) {
+      Map<ExternalIdBundle, List<ValueRequirement>> requirements = requirementsByField.get(requirement.getValueName());
+      if (requirements == null) {
+        requirements = new HashMap<ExternalIdBundle, List<ValueRequirement>>();
+        requirementsByField.put(requirement.getValueName(), requirements);
+      }
+      final ExternalIdBundle identifiers = ExternalIdBundle.of(requirement.getTargetSpecification().getIdentifier());
+      List<ValueRequirement> bundleRequirements = requirements.get(identifiers);
+      if (bundleRequirements == null) {
+        bundleRequirements = new ArrayList<ValueRequirement>(1);
+        requirements.put(identifiers, bundleRequirements);
+      }
+      bundleRequirements.add(requirement);
+    }
+    final Object2DoubleMap<ValueRequirement> values = new Object2DoubleOpenHashMap<ValueRequirement>(valuesRequired.size());
+    for (Map.Entry<String, Map<ExternalIdBundle, List<ValueRequirement>>> field : requirementsByField.entrySet()) {
+      final Map<ExternalIdBundle, Pair<LocalDate, Double>> dataPoints;
+      try {
+        dataPoints = getTimeSeriesSource().getLatestDataPoints(
+            field.getKey(),
+            field.getValue().keySet(),
+            _snapshotDate,
+            _timeSeriesFieldResolverKey,
+            _snapshotDate,
+            true,
+            _snapshotDate,
+            true);
+      } catch (RuntimeException e) {
+        // Leave these to be fetched individually by query
+        s_logger.warn("Couldn't fetch {} values for {} in bulk: {}", new Object[] {field.getKey(), _snapshotDate, e.getMessage() });
+        continue;
+      }
+      for (Map.Entry<ExternalIdBundle, List<ValueRequirement>> requirements : field.getValue().entrySet()) {
+        final Pair<LocalDate, Double> dataPoint = dataPoints.get(requirements.getKey());
+        final double value;
+        if (dataPoint != null) {
+          value = dataPoint.getSecond();
+        } else {
+          s_logger.info("No time-series for {}, {}", requirements.getKey(), field.getKey());
+          value = Double.NaN;
+        }
+        for (ValueRequirement requirement : requirements.getValue()) {
+          values.put(requirement, value);
+        }
+      }
+    }
+    s_logger.debug("Fetched {} values in {} requests", values.size(), requirementsByField.size());
+    _values = values;
+  }
+
   @Override
   public Object query(ValueRequirement requirement) {
+    final Object2DoubleMap<ValueRequirement> values = _values;
+    if ((values != null) && values.containsKey(requirement)) {
+      final double value = values.getDouble(requirement);
+      return Double.isNaN(value) ? null : value;
+    }
     String valueName = requirement.getValueName();
     ExternalIdBundle identifiers = ExternalIdBundle.of(requirement.getTargetSpecification().getIdentifier());
     HistoricalTimeSeries hts = getTimeSeriesSource().getHistoricalTimeSeries(
@@ -21,6 +21,8 @@ import java.util.regex.Pattern;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.collect.Sets;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.PublicAPI;
@@ -40,6 +42,8 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
    */
   private static final long serialVersionUID = 1L;
 
+  private static final Interner<ValueProperties> s_interner = Interners.newWeakInterner();
+
   /**
    * Builder pattern for constructing {@link ValueProperties} objects.
    */
@@ -235,12 +239,12 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
             _properties.put(optionalProperty, Collections.<String>emptySet());
           }
         }
-        return new ValuePropertiesImpl(getSmallMap(_properties), getUnmodifiableSet(_optional));
+        return new ValuePropertiesImpl(getSmallMap(_properties), getUnmodifiableSet(_optional)).intern();
       } else {
         if (_properties.isEmpty()) {
           return EMPTY;
         }
-        return new ValuePropertiesImpl(getSmallMap(_properties), Collections.<String>emptySet());
+        return new ValuePropertiesImpl(getSmallMap(_properties), Collections.<String>emptySet()).intern();
       }
     }
     
@@ -251,7 +255,7 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
         case 1:
           return Collections.singleton(values.iterator().next());
         default:
-          return Collections.unmodifiableSet((values instanceof Set) ? (Set<String>) values : new HashSet<String>(values));
+          return Collections.unmodifiableSet(new HashSet<String>(values));
       }
     }
     
@@ -1307,6 +1311,16 @@ public abstract class ValueProperties implements Serializable, Comparable<ValueP
    */
   public abstract Builder copy();
 
+  /**
+   * Returns a canonical instance equal to this one, in the same manner as {@link String#intern}. Property sets
+   * produced by {@link Builder#get} are already interned.
+   * 
+   * @return the canonical instance, not null
+   */
+  public ValueProperties intern() {
+    return s_interner.intern(this);
+  }
+
   /**
    * Gets an immutable set of the defined property names.
    * 
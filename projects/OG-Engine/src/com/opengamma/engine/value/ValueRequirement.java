@@ -11,6 +11,8 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang.text.StrBuilder;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.opengamma.core.position.Position;
 import com.opengamma.core.security.Security;
 import com.opengamma.engine.ComputationTargetSpecification;
@@ -39,6 +41,8 @@ public final class ValueRequirement implements Serializable {
    * Default serial version ID
    */
   private static final long serialVersionUID = 1L;
+
+  private static final Interner<ValueRequirement> s_interner = Interners.newWeakInterner();
   /**
    * The name of the value being requested.
    */
@@ -226,6 +230,22 @@ public final class ValueRequirement implements Serializable {
     return true;
   }
 
+  /**
+   * Returns a canonical instance equal to this one, in the same manner as {@link String#intern}. The target
+   * specification and constraints of the canonical instance are also interned.
+   * 
+   * @return the canonical instance, not null
+   */
+  public ValueRequirement intern() {
+    final ComputationTargetSpecification targetSpecification = _targetSpecification.intern();
+    final ValueProperties constraints = _constraints.intern();
+    if ((targetSpecification == _targetSpecification) && (constraints == _constraints)) {
+      return s_interner.intern(this);
+    } else {
+      return s_interner.intern(new ValueRequirement(_valueName, targetSpecification, constraints));
+    }
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public boolean equals(Object obj) {
@@ -11,6 +11,8 @@ import java.util.Set;
 import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.text.StrBuilder;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.ComputationTargetType;
 import com.opengamma.id.UniqueId;
@@ -35,6 +37,8 @@ import com.opengamma.util.PublicAPI;
 public class ValueSpecification implements Serializable {
 
   private static final long serialVersionUID = 1L;
+
+  private static final Interner<ValueSpecification> s_interner = Interners.newWeakInterner();
   
   /**
    * The name of the value being requested.
@@ -310,6 +314,22 @@ public class ValueSpecification implements Serializable {
     }
   }
 
+  /**
+   * Returns a canonical instance equal to this one, in the same manner as {@link String#intern}. The target
+   * specification and properties of the canonical instance are also interned.
+   * 
+   * @return the canonical instance, not null
+   */
+  public ValueSpecification intern() {
+    final ComputationTargetSpecification targetSpecification = _targetSpecification.intern();
+    final ValueProperties properties = _properties.intern();
+    if ((targetSpecification == _targetSpecification) && (properties == _properties)) {
+      return s_interner.intern(this);
+    } else {
+      return s_interner.intern(new ValueSpecification(_valueName, targetSpecification, properties));
+    }
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public boolean equals(Object obj) {
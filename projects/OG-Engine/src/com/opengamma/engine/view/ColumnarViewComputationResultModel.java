@@ -0,0 +1,559 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.time.Duration;
+import javax.time.Instant;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
+import com.opengamma.util.tuple.Triple;
+
+/**
+ * Implementation of {@link ViewComputationResultModel} that stores the values in columns rather than as individual
+ * {@link ComputedValue} objects.
+ * <p>
+ * Each target is given a row number, and each combination of calculation configuration, value name and value
+ * properties is a column. {@link Double} values are held in a primitive array within the column; any other values are
+ * held in a parallel object array. Both arrays are only allocated when the column is given a value that needs them,
+ * and are only as long as the highest row number written to them, so sparsely populated columns stay small. The {@link ComputedValue} and
+ * {@link ValueSpecification} instances returned by the {@link ViewResultModel} methods are created on demand, so code
+ * processing large results should use {@link #getTargets} and {@link #getColumns} directly.
+ */
+public class ColumnarViewComputationResultModel implements ViewComputationResultModel, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The values of one output across all of the targets.
+   */
+  public static final class Column implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String _calculationConfiguration;
+    private final String _valueName;
+    private final ValueProperties _properties;
+    private final BitSet _present = new BitSet();
+    private double[] _doubles;
+    private Object[] _objects;
+
+    private Column(final String calculationConfiguration, final String valueName, final ValueProperties properties) {
+      _calculationConfiguration = calculationConfiguration;
+      _valueName = valueName;
+      _properties = properties;
+    }
+
+    public String getCalculationConfiguration() {
+      return _calculationConfiguration;
+    }
+
+    public String getValueName() {
+      return _valueName;
+    }
+
+    public ValueProperties getProperties() {
+      return _properties;
+    }
+
+    /**
+     * Tests whether the column has a value for a row.
+     *
+     * @param row  the row number
+     * @return true if there is a value
+     */
+    public boolean isPresent(final int row) {
+      return _present.get(row);
+    }
+
+    /**
+     * Returns the next row with a value, starting from the given row.
+     *
+     * @param row  the row to start from
+     * @return the row number, or -1 if there are no more values
+     */
+    public int nextRow(final int row) {
+      return _present.nextSetBit(row);
+    }
+
+    /**
+     * Tests whether the value for a row is held as a primitive double.
+     *
+     * @param row  the row number of a present value
+     * @return true if the value is a double, false if it is an object
+     */
+    public boolean isDouble(final int row) {
+      return (_objects == null) || (row >= _objects.length) || (_objects[row] == null);
+    }
+
+    /**
+     * Returns a value held as a primitive double.
+     *
+     * @param row  the row number of a present value for which {@link #isDouble} is true
+     * @return the value
+     */
+    public double getDouble(final int row) {
+      return _doubles[row];
+    }
+
+    /**
+     * Returns the value for a row.
+     *
+     * @param row  the row number
+     * @return the value, null if there is none
+     */
+    public Object getValue(final int row) {
+      if (!isPresent(row)) {
+        return null;
+      }
+      return isDouble(row) ? (Object) _doubles[row] : _objects[row];
+    }
+
+    /**
+     * Returns the number of values in the column.
+     *
+     * @return the number of values
+     */
+    public int getValueCount() {
+      return _present.cardinality();
+    }
+
+    public ValueSpecification getSpecification(final ComputationTargetSpecification target) {
+      return new ValueSpecification(_valueName, target, _properties);
+    }
+
+    private static int grow(final int length, final int row) {
+      return Math.max(row + 1, length + (length >> 1));
+    }
+
+    private void setDouble(final int row, final double value) {
+      if (_doubles == null) {
+        _doubles = new double[row + 1];
+      } else if (row >= _doubles.length) {
+        final double[] doubles = new double[grow(_doubles.length, row)];
+        System.arraycopy(_doubles, 0, doubles, 0, _doubles.length);
+        _doubles = doubles;
+      }
+      _doubles[row] = value;
+      if ((_objects != null) && (row < _objects.length)) {
+        _objects[row] = null;
+      }
+      _present.set(row);
+    }
+
+    private void setValue(final int row, final Object value) {
+      if (value instanceof Double) {
+        setDouble(row, (Double) value);
+      } else {
+        if (_objects == null) {
+          _objects = new Object[row + 1];
+        } else if (row >= _objects.length) {
+          final Object[] objects = new Object[grow(_objects.length, row)];
+          System.arraycopy(_objects, 0, objects, 0, _objects.length);
+          _objects = objects;
+        }
+        _objects[row] = value;
+        _present.set(row);
+      }
+    }
+
+  }
+
+  private UniqueId _viewProcessId;
+  private UniqueId _viewCycleId;
+  private Instant _valuationTime;
+  private Instant _calculationTime;
+  private Duration _calculationDuration;
+  private VersionCorrection _versionCorrection;
+  private final List<ComputationTargetSpecification> _targets = new ArrayList<ComputationTargetSpecification>();
+  private final Map<ComputationTargetSpecification, Integer> _targetRows = new HashMap<ComputationTargetSpecification, Integer>();
+  private final List<Column> _columns = new ArrayList<Column>();
+  private final Map<Triple<String, String, ValueProperties>, Column> _columnIndex = new HashMap<Triple<String, String, ValueProperties>, Column>();
+  private final Map<String, List<Column>> _columnsByConfiguration = new LinkedHashMap<String, List<Column>>();
+  private final Map<ValueSpecification, ComputedValue> _allMarketData = new HashMap<ValueSpecification, ComputedValue>();
+  private final Map<ValueSpecification, Set<ValueRequirement>> _specToRequirementsMap = new HashMap<ValueSpecification, Set<ValueRequirement>>();
+
+  /**
+   * Creates a columnar copy of another result model.
+   *
+   * @param resultModel  the result model to copy, not null
+   * @return the copy, not null
+   */
+  public static ColumnarViewComputationResultModel of(final ViewComputationResultModel resultModel) {
+    ArgumentChecker.notNull(resultModel, "resultModel");
+    final ColumnarViewComputationResultModel copy = new ColumnarViewComputationResultModel();
+    copy.setViewProcessId(resultModel.getViewProcessId());
+    copy.setViewCycleId(resultModel.getViewCycleId());
+    copy.setValuationTime(resultModel.getValuationTime());
+    copy.setCalculationTime(resultModel.getCalculationTime());
+    copy.setCalculationDuration(resultModel.getCalculationDuration());
+    copy.setVersionCorrection(resultModel.getVersionCorrection());
+    for (ViewResultEntry entry : resultModel.getAllResults()) {
+      copy.addValue(entry.getCalculationConfiguration(), entry.getComputedValue());
+    }
+    for (ComputedValue marketData : resultModel.getAllMarketData()) {
+      copy.addMarketData(marketData);
+    }
+    copy.addRequirements(resultModel.getRequirementToSpecificationMapping());
+    return copy;
+  }
+
+  @Override
+  public UniqueId getViewProcessId() {
+    return _viewProcessId;
+  }
+
+  public void setViewProcessId(UniqueId viewProcessId) {
+    _viewProcessId = viewProcessId;
+  }
+
+  @Override
+  public UniqueId getViewCycleId() {
+    return _viewCycleId;
+  }
+
+  public void setViewCycleId(UniqueId viewCycleId) {
+    _viewCycleId = viewCycleId;
+  }
+
+  @Override
+  public Instant getValuationTime() {
+    return _valuationTime;
+  }
+
+  public void setValuationTime(Instant valuationTime) {
+    _valuationTime = valuationTime;
+  }
+
+  @Override
+  public Instant getCalculationTime() {
+    return _calculationTime;
+  }
+
+  public void setCalculationTime(Instant calculationTime) {
+    _calculationTime = calculationTime;
+  }
+
+  @Override
+  public Duration getCalculationDuration() {
+    return _calculationDuration;
+  }
+
+  public void setCalculationDuration(Duration calculationDuration) {
+    _calculationDuration = calculationDuration;
+  }
+
+  @Override
+  public VersionCorrection getVersionCorrection() {
+    return _versionCorrection;
+  }
+
+  public void setVersionCorrection(VersionCorrection versionCorrection) {
+    _versionCorrection = versionCorrection;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Returns the row number assigned to a target, adding a row if it does not have one.
+   *
+   * @param target  the target, not null
+   * @return the row number
+   */
+  public int addTarget(final ComputationTargetSpecification target) {
+    ArgumentChecker.notNull(target, "target");
+    Integer row = _targetRows.get(target);
+    if (row == null) {
+      row = _targets.size();
+      _targets.add(target);
+      _targetRows.put(target, row);
+    }
+    return row;
+  }
+
+  /**
+   * Returns the column for an output, adding an empty one if it does not exist.
+   *
+   * @param calcConfigurationName  the calculation configuration name, not null
+   * @param valueName  the value name, not null
+   * @param properties  the value properties, not null
+   * @return the column, not null
+   */
+  public Column addColumn(final String calcConfigurationName, final String valueName, final ValueProperties properties) {
+    ArgumentChecker.notNull(calcConfigurationName, "calcConfigurationName");
+    ArgumentChecker.notNull(valueName, "valueName");
+    ArgumentChecker.notNull(properties, "properties");
+    final Triple<String, String, ValueProperties> key = Triple.of(calcConfigurationName, valueName, properties);
+    Column column = _columnIndex.get(key);
+    if (column == null) {
+      column = new Column(calcConfigurationName, valueName, properties);
+      _columnIndex.put(key, column);
+      _columns.add(column);
+      List<Column> columns = _columnsByConfiguration.get(calcConfigurationName);
+      if (columns == null) {
+        columns = new ArrayList<Column>();
+        _columnsByConfiguration.put(calcConfigurationName, columns);
+      }
+      columns.add(column);
+    }
+    return column;
+  }
+
+  /**
+   * Sets the value of a cell, replacing any previous value.
+   *
+   * @param column  the column, not null
+   * @param row  the row number of the target
+   * @param value  the value, not null
+   */
+  public void setValue(final Column column, final int row, final Object value) {
+    ArgumentChecker.notNull(value, "value");
+    checkRow(row);
+    column.setValue(row, value);
+  }
+
+  /**
+   * Sets the value of a cell to a primitive double, replacing any previous value.
+   *
+   * @param column  the column, not null
+   * @param row  the row number of the target
+   * @param value  the value
+   */
+  public void setDouble(final Column column, final int row, final double value) {
+    checkRow(row);
+    column.setDouble(row, value);
+  }
+
+  private void checkRow(final int row) {
+    if ((row < 0) || (row >= _targets.size())) {
+      throw new IndexOutOfBoundsException("Row " + row + " out of range");
+    }
+  }
+
+  public void addValue(final String calcConfigurationName, final ComputedValue value) {
+    final ValueSpecification specification = value.getSpecification();
+    final Column column = addColumn(calcConfigurationName, specification.getValueName(), specification.getProperties());
+    column.setValue(addTarget(specification.getTargetSpecification()), value.getValue());
+  }
+
+  /**
+   * Returns the targets, indexed by row number.
+   *
+   * @return the targets, not null
+   */
+  public List<ComputationTargetSpecification> getTargets() {
+    return Collections.unmodifiableList(_targets);
+  }
+
+  /**
+   * Returns the row number of a target.
+   *
+   * @param target  the target, not null
+   * @return the row number, or -1 if the target has no row
+   */
+  public int getRow(final ComputationTargetSpecification target) {
+    final Integer row = _targetRows.get(target);
+    return (row != null) ? row : -1;
+  }
+
+  /**
+   * Returns all of the columns.
+   *
+   * @return the columns, not null
+   */
+  public List<Column> getColumns() {
+    return Collections.unmodifiableList(_columns);
+  }
+
+  /**
+   * Returns the column for an output.
+   *
+   * @param calcConfigurationName  the calculation configuration name, not null
+   * @param valueName  the value name, not null
+   * @param properties  the value properties, not null
+   * @return the column, or null if there is none
+   */
+  public Column getColumn(final String calcConfigurationName, final String valueName, final ValueProperties properties) {
+    return _columnIndex.get(Triple.of(calcConfigurationName, valueName, properties));
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Adds a market data value, replacing any previous item with the same value specification.
+   *
+   * @param marketData  the market data value, not null
+   */
+  public void addMarketData(ComputedValue marketData) {
+    _allMarketData.put(marketData.getSpecification(), marketData);
+  }
+
+  @Override
+  public Set<ComputedValue> getAllMarketData() {
+    return new HashSet<ComputedValue>(_allMarketData.values());
+  }
+
+  public ColumnarViewComputationResultModel addRequirements(Set<ValueRequirement> newRequirements, ValueSpecification specification) {
+    Set<ValueRequirement> requirements = _specToRequirementsMap.get(specification);
+    if (requirements == null) {
+      requirements = new HashSet<ValueRequirement>();
+      _specToRequirementsMap.put(specification, requirements);
+    }
+    requirements.addAll(newRequirements);
+    return this;
+  }
+
+  public ColumnarViewComputationResultModel addRequirements(Map<ValueSpecification, Set<ValueRequirement>> specifications) {
+    for (Map.Entry<ValueSpecification, Set<ValueRequirement>> specification : specifications.entrySet()) {
+      addRequirements(specification.getValue(), specification.getKey());
+    }
+    return this;
+  }
+
+  @Override
+  public Map<ValueSpecification, Set<ValueRequirement>> getRequirementToSpecificationMapping() {
+    return Collections.unmodifiableMap(_specToRequirementsMap);
+  }
+
+  //-------------------------------------------------------------------------
+  @Override
+  public Set<ComputationTargetSpecification> getAllTargets() {
+    return Collections.unmodifiableSet(_targetRows.keySet());
+  }
+
+  @Override
+  public Collection<String> getCalculationConfigurationNames() {
+    return Collections.unmodifiableSet(_columnsByConfiguration.keySet());
+  }
+
+  @Override
+  public ViewCalculationResultModel getCalculationResult(final String calcConfigurationName) {
+    final List<Column> columns = _columnsByConfiguration.get(calcConfigurationName);
+    if (columns == null) {
+      return null;
+    }
+    return new ViewCalculationResultModel() {
+
+      @Override
+      public Collection<ComputationTargetSpecification> getAllTargets() {
+        final BitSet rows = new BitSet();
+        for (Column column : columns) {
+          rows.or(column._present);
+        }
+        final List<ComputationTargetSpecification> targets = new ArrayList<ComputationTargetSpecification>(rows.cardinality());
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+          targets.add(_targets.get(row));
+        }
+        return targets;
+      }
+
+      @Override
+      public Map<Pair<String, ValueProperties>, ComputedValue> getValues(final ComputationTargetSpecification target) {
+        final int row = getRow(target);
+        if (row < 0) {
+          return null;
+        }
+        Map<Pair<String, ValueProperties>, ComputedValue> values = null;
+        for (Column column : columns) {
+          if (column.isPresent(row)) {
+            if (values == null) {
+              values = new HashMap<Pair<String, ValueProperties>, ComputedValue>();
+            }
+            values.put(Pair.of(column.getValueName(), column.getProperties()), new ComputedValue(column.getSpecification(target), column.getValue(row)));
+          }
+        }
+        return values;
+      }
+
+      @Override
+      public Collection<ComputedValue> getAllValues(final ComputationTargetSpecification target) {
+        final Map<Pair<String, ValueProperties>, ComputedValue> values = getValues(target);
+        return (values != null) ? values.values() : null;
+      }
+
+    };
+  }
+
+  @Override
+  public ViewTargetResultModel getTargetResult(final ComputationTargetSpecification targetSpecification) {
+    final int row = getRow(targetSpecification);
+    if (row < 0) {
+      return null;
+    }
+    return new ViewTargetResultModel() {
+
+      @Override
+      public Collection<String> getCalculationConfigurationNames() {
+        final List<String> names = new ArrayList<String>(_columnsByConfiguration.size());
+        for (Map.Entry<String, List<Column>> configuration : _columnsByConfiguration.entrySet()) {
+          for (Column column : configuration.getValue()) {
+            if (column.isPresent(row)) {
+              names.add(configuration.getKey());
+              break;
+            }
+          }
+        }
+        return names;
+      }
+
+      @Override
+      public Collection<ComputedValue> getAllValues(final String calcConfigurationName) {
+        final List<Column> columns = _columnsByConfiguration.get(calcConfigurationName);
+        if (columns == null) {
+          return null;
+        }
+        final List<ComputedValue> values = new ArrayList<ComputedValue>();
+        for (Column column : columns) {
+          if (column.isPresent(row)) {
+            values.add(new ComputedValue(column.getSpecification(targetSpecification), column.getValue(row)));
+          }
+        }
+        return values;
+      }
+
+    };
+  }
+
+  @Override
+  public List<ViewResultEntry> getAllResults() {
+    final List<ViewResultEntry> results = new ArrayList<ViewResultEntry>();
+    for (Column column : _columns) {
+      for (int row = column.nextRow(0); row >= 0; row = column.nextRow(row + 1)) {
+        results.add(new ViewResultEntry(column.getCalculationConfiguration(), new ComputedValue(column.getSpecification(_targets.get(row)), column.getValue(row))));
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public Set<String> getAllOutputValueNames() {
+    final Set<String> outputValueNames = new HashSet<String>();
+    for (Column column : _columns) {
+      if (column.nextRow(0) >= 0) {
+        outputValueNames.add(column.getValueName());
+      }
+    }
+    return outputValueNames;
+  }
+
+}
@@ -59,6 +59,24 @@ public class DeltaDefinition {
     // Finally, fall back onto the most basic check
     return !ObjectUtils.equals(previousValue, newValue);
   }
+
+  /**
+   * Tests whether the difference between two double values with the same specification is a delta. This gives the same
+   * result as {@link #isDelta(ComputedValue, ComputedValue)} but avoids boxing the values where possible.
+   * 
+   * @param previousValue  the previous value
+   * @param newValue  the new value
+   * @return true if the difference is a delta
+   */
+  public boolean isDelta(double previousValue, double newValue) {
+    if (getNumberComparer() instanceof NumberDeltaComparer) {
+      return ((NumberDeltaComparer) getNumberComparer()).isDelta(previousValue, newValue);
+    }
+    if (getNumberComparer() != null) {
+      return getNumberComparer().isDelta(previousValue, newValue);
+    }
+    return Double.doubleToLongBits(previousValue) != Double.doubleToLongBits(newValue);
+  }
   
   @Override
   public int hashCode() {
@@ -44,8 +44,19 @@ public class NumberDeltaComparer implements DeltaComparer<Number> {
       return true;
     }
     
-    long previousCompare = (long) (previousValue.doubleValue() * _multiplier);
-    long newCompare = (long) (newValue.doubleValue() * _multiplier);
+    return isDelta(previousValue.doubleValue(), newValue.doubleValue());
+  }
+
+  /**
+   * Tests whether two primitive values differ, without boxing them.
+   * 
+   * @param previousValue  the previous value
+   * @param newValue  the new value
+   * @return true if the values differ within the configured decimal places
+   */
+  public boolean isDelta(double previousValue, double newValue) {
+    long previousCompare = (long) (previousValue * _multiplier);
+    long newCompare = (long) (newValue * _multiplier);
     return previousCompare != newCompare;
   }
   
@@ -18,9 +18,11 @@ import com.opengamma.engine.marketdata.resolver.MarketDataProviderResolver;
 import com.opengamma.engine.marketdata.resolver.MarketDataProviderResolverWithOverride;
 import com.opengamma.engine.view.cache.ViewComputationCacheSource;
 import com.opengamma.engine.view.calc.DependencyGraphExecutorFactory;
+import com.opengamma.engine.view.calc.SharedComputationRegistry;
 import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGathererProvider;
 import com.opengamma.engine.view.calcnode.JobDispatcher;
 import com.opengamma.engine.view.calcnode.ViewProcessorQueryReceiver;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionCache;
 import com.opengamma.engine.view.compilation.ViewCompilationServices;
 import com.opengamma.engine.view.permission.ViewPermissionProvider;
 import com.opengamma.util.ArgumentChecker;
@@ -45,6 +47,9 @@ public class ViewProcessContext {
   private final MarketDataInjector _liveDataOverrideInjector;
   private final MarketDataProviderResolver _marketDataProviderResolver;
   private final OverrideOperationCompiler _overrideOperationCompiler;
+  private final CompiledViewDefinitionCache _compiledViewDefinitionCache;
+  private final SharedComputationRegistry _sharedComputationRegistry;
+  private volatile boolean _parallelCompilation;
 
   public ViewProcessContext(
       ViewDefinitionRepository viewDefinitionRepository,
@@ -61,6 +66,28 @@ public class ViewProcessContext {
       DependencyGraphExecutorFactory<?> dependencyGraphExecutorFactory,
       GraphExecutorStatisticsGathererProvider graphExecutorStatisticsProvider,
       OverrideOperationCompiler overrideOperationCompiler) {
+    this(viewDefinitionRepository, viewPermissionProvider, marketDataProviderResolver, functionCompilationService, functionResolver, positionSource, securitySource,
+        computationTargetResolver, computationCacheSource, computationJobDispatcher, viewProcessorQueryReceiver, dependencyGraphExecutorFactory, graphExecutorStatisticsProvider,
+        overrideOperationCompiler, null, null);
+  }
+
+  public ViewProcessContext(
+      ViewDefinitionRepository viewDefinitionRepository,
+      ViewPermissionProvider viewPermissionProvider,
+      MarketDataProviderResolver marketDataProviderResolver,
+      CompiledFunctionService functionCompilationService,
+      FunctionResolver functionResolver,
+      PositionSource positionSource,
+      SecuritySource securitySource,
+      CachingComputationTargetResolver computationTargetResolver,
+      ViewComputationCacheSource computationCacheSource,
+      JobDispatcher computationJobDispatcher,
+      ViewProcessorQueryReceiver viewProcessorQueryReceiver,
+      DependencyGraphExecutorFactory<?> dependencyGraphExecutorFactory,
+      GraphExecutorStatisticsGathererProvider graphExecutorStatisticsProvider,
+      OverrideOperationCompiler overrideOperationCompiler,
+      CompiledViewDefinitionCache compiledViewDefinitionCache,
+      SharedComputationRegistry sharedComputationRegistry) {
     ArgumentChecker.notNull(viewDefinitionRepository, "viewDefinitionRepository");
     ArgumentChecker.notNull(viewPermissionProvider, "viewPermissionProvider");
     ArgumentChecker.notNull(marketDataProviderResolver, "marketDataSnapshotProviderResolver");
@@ -93,6 +120,8 @@ public class ViewProcessContext {
     _dependencyGraphExecutorFactory = dependencyGraphExecutorFactory;
     _graphExecutorStatisticsGathererProvider = graphExecutorStatisticsProvider;
     _overrideOperationCompiler = overrideOperationCompiler;
+    _compiledViewDefinitionCache = compiledViewDefinitionCache;
+    _sharedComputationRegistry = sharedComputationRegistry;
   }
 
   // -------------------------------------------------------------------------
@@ -217,6 +246,42 @@ public class ViewProcessContext {
     return _overrideOperationCompiler;
   }
 
+  /**
+   * Gets the cache of compiled view definitions shared by view processes.
+   * 
+   * @return the cache, null if compilations are not shared
+   */
+  public CompiledViewDefinitionCache getCompiledViewDefinitionCache() {
+    return _compiledViewDefinitionCache;
+  }
+
+  /**
+   * Gets the registry through which view processes share the results of identical calculations.
+   * 
+   * @return the registry, null if calculations are not shared
+   */
+  public SharedComputationRegistry getSharedComputationRegistry() {
+    return _sharedComputationRegistry;
+  }
+
+  /**
+   * Gets whether view definitions are compiled with the graphs for each calculation configuration built concurrently.
+   * 
+   * @return true to build the graphs concurrently, false to build them sequentially
+   */
+  public boolean isParallelCompilation() {
+    return _parallelCompilation;
+  }
+
+  /**
+   * Sets whether view definitions are compiled with the graphs for each calculation configuration built concurrently.
+   * 
+   * @param parallelCompilation true to build the graphs concurrently, false to build them sequentially
+   */
+  public void setParallelCompilation(final boolean parallelCompilation) {
+    _parallelCompilation = parallelCompilation;
+  }
+
   // -------------------------------------------------------------------------
   /**
    * Uses this context to form a {@code ViewCompliationServices} instance.
@@ -225,8 +290,11 @@ public class ViewProcessContext {
    * @return the services, not null
    */
   public ViewCompilationServices asCompilationServices(MarketDataAvailabilityProvider marketDataAvailabilityProvider) {
-    return new ViewCompilationServices(marketDataAvailabilityProvider, getFunctionResolver(), getFunctionCompilationService().getFunctionCompilationContext(), getComputationTargetResolver(),
-        getFunctionCompilationService().getExecutorService(), getSecuritySource(), getPositionSource());
+    final ViewCompilationServices services = new ViewCompilationServices(marketDataAvailabilityProvider, getFunctionResolver(),
+        getFunctionCompilationService().getFunctionCompilationContext(), getComputationTargetResolver(), getFunctionCompilationService().getExecutorService(), getSecuritySource(),
+        getPositionSource());
+    services.setParallelCompilation(isParallelCompilation());
+    return services;
   }
 
 }
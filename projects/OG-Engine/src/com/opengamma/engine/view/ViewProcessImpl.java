@@ -9,6 +9,7 @@ import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.engine.marketdata.MarketDataInjector;
 import com.opengamma.engine.marketdata.MarketDataPermissionProvider;
 import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.view.calc.CycleExecutionTracer;
 import com.opengamma.engine.view.calc.ViewCycleMetadata;
 import com.opengamma.engine.view.calc.EngineResourceManagerInternal;
 import com.opengamma.engine.view.calc.SingleComputationCycle;
@@ -74,6 +75,9 @@ public class ViewProcessImpl implements ViewProcessInternal, Lifecycle {
       new AtomicReference<Pair<CompiledViewDefinitionWithGraphsImpl, MarketDataPermissionProvider>>();
   private final AtomicReference<ViewComputationResultModel> _latestResult = new AtomicReference<ViewComputationResultModel>();
 
+  private volatile boolean _cycleTracing;
+  private volatile CycleExecutionTracer _latestCycleTrace;
+
   private ExecutorService _calcJobResultExecutorService = Executors.newSingleThreadExecutor();
 
 
@@ -241,6 +245,12 @@ public class ViewProcessImpl implements ViewProcessInternal, Lifecycle {
   public void cycleCompleted(ViewCycle cycle) {
     // Caller MUST NOT hold the semaphore
     s_logger.debug("View cycle {} completed on view process {}", cycle.getUniqueId(), getUniqueId());
+    if (cycle instanceof SingleComputationCycle) {
+      final CycleExecutionTracer tracer = ((SingleComputationCycle) cycle).getTracer();
+      if (tracer != null) {
+        _latestCycleTrace = tracer;
+      }
+    }
     lock();
     try {
       cycleCompletedCore(cycle);
@@ -392,6 +402,21 @@ public class ViewProcessImpl implements ViewProcessInternal, Lifecycle {
     _state = state;
   }
 
+  @Override
+  public void setCycleTracing(final boolean cycleTracing) {
+    _cycleTracing = cycleTracing;
+  }
+
+  @Override
+  public boolean isCycleTracing() {
+    return _cycleTracing;
+  }
+
+  @Override
+  public CycleExecutionTracer getLatestCycleTrace() {
+    return _latestCycleTrace;
+  }
+
   /**
    * Sets the current view computation job.
    * <p>
@@ -5,6 +5,8 @@
  */
 package com.opengamma.engine.view;
 
+import com.opengamma.engine.view.calc.CycleExecutionTracer;
+
 /**
  * Exposes engine-level access to a view process.
  */
@@ -20,5 +22,26 @@ public interface ViewProcessInternal extends ViewProcess {
    * Resumes operations on the view process, following a call to {@link #suspend}.
    */
   void resume();
+
+  /**
+   * Sets whether subsequent cycles of the view process record the execution of their calculation jobs.
+   * 
+   * @param cycleTracing true to trace cycles, false otherwise
+   */
+  void setCycleTracing(boolean cycleTracing);
+
+  /**
+   * Gets whether cycles of the view process record the execution of their calculation jobs.
+   * 
+   * @return true if cycles are being traced, false otherwise
+   */
+  boolean isCycleTracing();
+
+  /**
+   * Gets the execution trace of the most recently completed traced cycle.
+   * 
+   * @return the trace, or null if no traced cycle has completed
+   */
+  CycleExecutionTracer getLatestCycleTrace();
   
 }
@@ -22,11 +22,13 @@ import com.opengamma.engine.marketdata.OverrideOperationCompiler;
 import com.opengamma.engine.marketdata.resolver.MarketDataProviderResolver;
 import com.opengamma.engine.view.cache.ViewComputationCacheSource;
 import com.opengamma.engine.view.calc.DependencyGraphExecutorFactory;
+import com.opengamma.engine.view.calc.SharedComputationRegistry;
 import com.opengamma.engine.view.calc.ViewResultListenerFactory;
 import com.opengamma.engine.view.calc.stats.DiscardingGraphStatisticsGathererProvider;
 import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGathererProvider;
 import com.opengamma.engine.view.calcnode.JobDispatcher;
 import com.opengamma.engine.view.calcnode.ViewProcessorQueryReceiver;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionCache;
 import com.opengamma.engine.view.permission.ViewPermissionProvider;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.SingletonFactoryBean;
@@ -56,6 +58,9 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
   private ViewPermissionProvider _viewPermissionProvider;
   private OverrideOperationCompiler _overrideOperationCompiler = new DummyOverrideOperationCompiler();
   private ViewResultListenerFactory _batchViewClientFactory;
+  private CompiledViewDefinitionCache _compiledViewDefinitionCache;
+  private SharedComputationRegistry _sharedComputationRegistry;
+  private boolean _parallelCompilation;
 
   //-------------------------------------------------------------------------
   public String getName() {
@@ -186,6 +191,30 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
     _overrideOperationCompiler = overrideOperationCompiler;
   }
 
+  public CompiledViewDefinitionCache getCompiledViewDefinitionCache() {
+    return _compiledViewDefinitionCache;
+  }
+
+  public void setCompiledViewDefinitionCache(final CompiledViewDefinitionCache compiledViewDefinitionCache) {
+    _compiledViewDefinitionCache = compiledViewDefinitionCache;
+  }
+
+  public SharedComputationRegistry getSharedComputationRegistry() {
+    return _sharedComputationRegistry;
+  }
+
+  public void setSharedComputationRegistry(final SharedComputationRegistry sharedComputationRegistry) {
+    _sharedComputationRegistry = sharedComputationRegistry;
+  }
+
+  public boolean isParallelCompilation() {
+    return _parallelCompilation;
+  }
+
+  public void setParallelCompilation(final boolean parallelCompilation) {
+    _parallelCompilation = parallelCompilation;
+  }
+
   //-------------------------------------------------------------------------
   protected void checkInjectedInputs() {
     s_logger.debug("Checking injected inputs.");
@@ -211,7 +240,7 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
   @Override
   public ViewProcessor createObject() {
     checkInjectedInputs();
-    return new ViewProcessorImpl(
+    final ViewProcessorImpl viewProcessor = new ViewProcessorImpl(
         getName(),
         getViewDefinitionRepository(),
         getNamedMarketDataSpecificationRepository(),
@@ -229,6 +258,10 @@ public class ViewProcessorFactoryBean extends SingletonFactoryBean<ViewProcessor
         getViewPermissionProvider(),
         getOverrideOperationCompiler(),
         getViewResultListenerFactory());
+    viewProcessor.setCompiledViewDefinitionCache(getCompiledViewDefinitionCache());
+    viewProcessor.setSharedComputationRegistry(getSharedComputationRegistry());
+    viewProcessor.setParallelCompilation(isParallelCompilation());
+    return viewProcessor;
   }
 
   public void setViewResultListenerFactory(ViewResultListenerFactory viewResultListenerFactory) {
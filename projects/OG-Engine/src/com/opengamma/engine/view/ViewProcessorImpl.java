@@ -11,7 +11,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
@@ -39,6 +38,7 @@ import com.opengamma.engine.view.cache.ViewComputationCacheSource;
 import com.opengamma.engine.view.calc.DependencyGraphExecutorFactory;
 import com.opengamma.engine.view.calc.EngineResourceManagerImpl;
 import com.opengamma.engine.view.calc.EngineResourceManagerInternal;
+import com.opengamma.engine.view.calc.SharedComputationRegistry;
 import com.opengamma.engine.view.calc.SingleComputationCycle;
 import com.opengamma.engine.view.calc.ViewResultListenerFactory;
 import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGathererProvider;
@@ -46,6 +46,8 @@ import com.opengamma.engine.view.calcnode.JobDispatcher;
 import com.opengamma.engine.view.calcnode.ViewProcessorQueryReceiver;
 import com.opengamma.engine.view.client.ViewClient;
 import com.opengamma.engine.view.client.ViewClientImpl;
+import com.opengamma.engine.view.client.merging.SchedulingWheel;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionCache;
 import com.opengamma.engine.view.event.ViewProcessorEventListenerRegistry;
 import com.opengamma.engine.view.execution.ViewExecutionFlags;
 import com.opengamma.engine.view.execution.ViewExecutionOptions;
@@ -73,7 +75,7 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
   private final AtomicLong _processIdSource = new AtomicLong();
   private final AtomicLong _clientIdSource = new AtomicLong();
   private final ReentrantLock _lifecycleLock = new ReentrantLock();
-  private final Timer _clientResultTimer = new Timer("Shared ViewClient result timer");
+  private final SchedulingWheel _clientResultWheel = new SchedulingWheel("Shared ViewClient result wheel");
 
   private final EngineResourceManagerInternal<SingleComputationCycle> _cycleManager = new EngineResourceManagerImpl<SingleComputationCycle>();
 
@@ -97,6 +99,9 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
   private final ViewPermissionProvider _viewPermissionProvider;
   private final OverrideOperationCompiler _overrideOperationCompiler;
   private final ViewResultListenerFactory _viewResultListenerFactory;
+  private CompiledViewDefinitionCache _compiledViewDefinitionCache;
+  private SharedComputationRegistry _sharedComputationRegistry;
+  private boolean _parallelCompilation;
 
   // State
   /**
@@ -468,7 +473,7 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
     ArgumentChecker.notNull(clientUser, "clientUser");
     String idValue = generateIdValue(_clientIdSource);
     UniqueId clientId = UniqueId.of(CLIENT_SCHEME, idValue);
-    ViewClientImpl client = new ViewClientImpl(clientId, this, clientUser, _clientResultTimer);
+    ViewClientImpl client = new ViewClientImpl(clientId, this, clientUser, _clientResultWheel);
     _allClientsById.put(clientId, client);
     _viewProcessorEventListenerRegistry.notifyViewClientAdded(clientId);
     return client;
@@ -502,6 +507,64 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
     _viewProcessorEventListenerRegistry.notifyViewClientRemoved(clientId);
   }
   
+  //-------------------------------------------------------------------------
+  /**
+   * Gets the cache of compiled view definitions shared by the view processes.
+   * 
+   * @return the cache, null if each view process compiles its own view definition
+   */
+  public CompiledViewDefinitionCache getCompiledViewDefinitionCache() {
+    return _compiledViewDefinitionCache;
+  }
+
+  /**
+   * Sets the cache of compiled view definitions shared by the view processes. This only affects view processes created
+   * after it is set.
+   * 
+   * @param compiledViewDefinitionCache the cache, null for each view process to compile its own view definition
+   */
+  public void setCompiledViewDefinitionCache(final CompiledViewDefinitionCache compiledViewDefinitionCache) {
+    _compiledViewDefinitionCache = compiledViewDefinitionCache;
+  }
+
+  /**
+   * Gets the registry through which the view processes share the results of identical calculations.
+   * 
+   * @return the registry, null if each view process performs all of its own calculations
+   */
+  public SharedComputationRegistry getSharedComputationRegistry() {
+    return _sharedComputationRegistry;
+  }
+
+  /**
+   * Sets the registry through which the view processes share the results of identical calculations. This only affects
+   * view processes created after it is set.
+   * 
+   * @param sharedComputationRegistry the registry, null for each view process to perform all of its own calculations
+   */
+  public void setSharedComputationRegistry(final SharedComputationRegistry sharedComputationRegistry) {
+    _sharedComputationRegistry = sharedComputationRegistry;
+  }
+
+  /**
+   * Gets whether view definitions are compiled with the graphs for each calculation configuration built concurrently.
+   * 
+   * @return true to build the graphs concurrently, false to build them sequentially
+   */
+  public boolean isParallelCompilation() {
+    return _parallelCompilation;
+  }
+
+  /**
+   * Sets whether view definitions are compiled with the graphs for each calculation configuration built concurrently.
+   * This only affects view processes created after it is set.
+   * 
+   * @param parallelCompilation true to build the graphs concurrently, false to build them sequentially
+   */
+  public void setParallelCompilation(final boolean parallelCompilation) {
+    _parallelCompilation = parallelCompilation;
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public CompiledFunctionService getFunctionCompilationService() {
@@ -546,7 +609,7 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
   }
   
   private ViewProcessContext createViewProcessContext() {
-    return new ViewProcessContext(
+    final ViewProcessContext context = new ViewProcessContext(
         _viewDefinitionRepository,
         _viewPermissionProvider,
         _marketDataProviderFactoryResolver,
@@ -560,7 +623,11 @@ public class ViewProcessorImpl implements ViewProcessorInternal {
         _viewProcessorQueryReceiver,
         _dependencyGraphExecutorFactory,
         _graphExecutionStatistics,
-        _overrideOperationCompiler);
+        _overrideOperationCompiler,
+        _compiledViewDefinitionCache,
+        _sharedComputationRegistry);
+    context.setParallelCompilation(isParallelCompilation());
+    return context;
   }
 
   private String generateIdValue(AtomicLong source) {
@@ -16,6 +16,7 @@ public class BerkeleyDBViewComputationCacheSourceFactoryBean extends SingletonFa
   
   private BerkeleyDBIdentifierMapFactoryBean _identifierMapFactory = new BerkeleyDBIdentifierMapFactoryBean();
   private BerkeleyDBBinaryDataStoreFactoryFactoryBean _dataStoreFactoryFactory = new BerkeleyDBBinaryDataStoreFactoryFactoryBean();
+  private boolean _collectStatistics;
 
   public void setIdentifierMapFactory(final BerkeleyDBIdentifierMapFactoryBean identifierMapFactory) {
     _identifierMapFactory = identifierMapFactory;
@@ -73,9 +74,20 @@ public class BerkeleyDBViewComputationCacheSourceFactoryBean extends SingletonFa
     return getDataStoreFactoryFactory().getDataStoreFolder();
   }
 
+  public void setCollectStatistics(final boolean collectStatistics) {
+    _collectStatistics = collectStatistics;
+  }
+
+  public boolean isCollectStatistics() {
+    return _collectStatistics;
+  }
+
   @Override
   protected BerkeleyDBViewComputationCacheSource createObject() {
-    return new BerkeleyDBViewComputationCacheSource(getIdentifierMapFactory().createObject(), getDataStoreFactoryFactory().createDataStoreEnvironment(), getFudgeContext());
+    final BerkeleyDBViewComputationCacheSource source = new BerkeleyDBViewComputationCacheSource(getIdentifierMapFactory().createObject(),
+        getDataStoreFactoryFactory().createDataStoreEnvironment(), getFudgeContext());
+    source.setCollectStatistics(isCollectStatistics());
+    return source;
   }
 
 }
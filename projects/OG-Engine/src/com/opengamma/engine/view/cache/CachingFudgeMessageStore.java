@@ -32,6 +32,7 @@ public class CachingFudgeMessageStore implements FudgeMessageStore {
   private final FudgeMessageStore _underlying;
   private final CacheManager _cacheManager;
   private final Cache _cache;
+  private volatile ViewComputationCacheStatistics _statistics;
 
   public CachingFudgeMessageStore(final FudgeMessageStore underlying, final CacheManager cacheManager,
       final ViewComputationCacheKey cacheKey, final int maxCachedElements) {
@@ -54,6 +55,19 @@ public class CachingFudgeMessageStore implements FudgeMessageStore {
     return _cache;
   }
 
+  /**
+   * Sets the statistics to record cache hits and misses to.
+   * 
+   * @param statistics the statistics, or null to not record them
+   */
+  public void setStatistics(final ViewComputationCacheStatistics statistics) {
+    _statistics = statistics;
+  }
+
+  public ViewComputationCacheStatistics getStatistics() {
+    return _statistics;
+  }
+
   @Override
   public void delete() {
     s_logger.info("Delete on {}", this);
@@ -64,9 +78,16 @@ public class CachingFudgeMessageStore implements FudgeMessageStore {
   @Override
   public FudgeMsg get(long identifier) {
     final Element cacheElement = getCache().get(identifier);
+    final ViewComputationCacheStatistics statistics = getStatistics();
     if (cacheElement != null) {
+      if (statistics != null) {
+        statistics.recordCacheHits(1);
+      }
       return (FudgeMsg) cacheElement.getObjectValue();
     }
+    if (statistics != null) {
+      statistics.recordCacheMisses(1);
+    }
     final FudgeMsg data = getUnderlying().get(identifier);
     getCache().put(new Element(identifier, data));
     return data;
@@ -78,6 +99,18 @@ public class CachingFudgeMessageStore implements FudgeMessageStore {
     getCache().put(new Element(identifier, data));
   }
 
+  /**
+   * Adds values obtained from elsewhere, for example as part of a prefetch response, to the cache without writing them
+   * to the underlying store.
+   * 
+   * @param data the values to cache, not null
+   */
+  public void cacheValues(final Map<Long, FudgeMsg> data) {
+    for (Map.Entry<Long, FudgeMsg> element : data.entrySet()) {
+      getCache().put(new Element(element.getKey(), element.getValue()));
+    }
+  }
+
   @Override
   public String toString() {
     return "CachingFudgeMessageStore[" + getCache().getName() + "]";
@@ -95,6 +128,11 @@ public class CachingFudgeMessageStore implements FudgeMessageStore {
         missing.add(identifier);
       }
     }
+    final ViewComputationCacheStatistics statistics = getStatistics();
+    if (statistics != null) {
+      statistics.recordCacheHits(result.size());
+      statistics.recordCacheMisses(missing.size());
+    }
     if (missing.isEmpty()) {
       return result;
     }
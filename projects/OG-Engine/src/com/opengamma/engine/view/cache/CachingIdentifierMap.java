@@ -92,6 +92,18 @@ public class CachingIdentifierMap implements IdentifierMap {
     return identifiers;
   }
 
+  /**
+   * Adds mappings obtained from elsewhere, for example as part of a prefetch response, to the cache.
+   * 
+   * @param identifiers the specification to identifier mappings, not null
+   */
+  public void cacheIdentifiers(final Map<ValueSpecification, Long> identifiers) {
+    for (Map.Entry<ValueSpecification, Long> identifier : identifiers.entrySet()) {
+      _specificationToIdentifier.put(identifier.getKey(), identifier.getValue());
+      _identifierToSpecification.put(identifier.getValue(), identifier.getKey());
+    }
+  }
+
   @Override
   public ValueSpecification getValueSpecification(long identifier) {
     ValueSpecification spec = _identifierToSpecification.get(identifier);
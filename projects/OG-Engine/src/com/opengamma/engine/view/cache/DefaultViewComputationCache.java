@@ -74,12 +74,32 @@ public class DefaultViewComputationCache implements ViewComputationCache,
    */
   private final Map<Class<?>, Integer> _valueSizeByClassCache;
   
-  private void cacheValueSize(final ValueSpecification specification, FudgeMsg data, Object value) {
-    if (value != null && _valueSizeByClassCache.containsKey(value.getClass())) {
-      return;
+  private int cacheValueSize(final ValueSpecification specification, FudgeMsg data, Object value) {
+    if (value != null) {
+      final Integer classSize = _valueSizeByClassCache.get(value.getClass());
+      if (classSize != null) {
+        return classSize;
+      }
     }
     int calculateMessageSize = FudgeSize.calculateMessageSize(data);
     getValueSizeCache().put(specification, calculateMessageSize);
+    return calculateMessageSize;
+  }
+
+  /**
+   * Data volumes for this cache, or null if they are not being collected.
+   */
+  private volatile ViewComputationCacheStatistics _statistics;
+
+  private void recordWrite(final ViewComputationCacheStatistics statistics, final ValueSpecification specification, final int size, final boolean isPrivate) {
+    if (statistics == null) {
+      return;
+    }
+    if (isPrivate) {
+      statistics.recordPrivateWrite(specification.getValueName(), size);
+    } else {
+      statistics.recordSharedWrite(specification.getValueName(), size);
+    }
   }
 
   protected DefaultViewComputationCache(final IdentifierMap identifierMap, final FudgeMessageStore dataStore,
@@ -143,6 +163,25 @@ public class DefaultViewComputationCache implements ViewComputationCache,
     return _sharedDataStore;
   }
 
+  /**
+   * Sets the statistics to record the data volumes written to, and read from, this cache. Statistics are not collected
+   * unless this is called.
+   * 
+   * @param statistics the statistics, or null to not record them
+   */
+  public void setStatistics(final ViewComputationCacheStatistics statistics) {
+    _statistics = statistics;
+  }
+
+  /**
+   * Gets the data volumes written to, and read from, this cache.
+   * 
+   * @return the statistics, or null if they are not being collected
+   */
+  public ViewComputationCacheStatistics getStatistics() {
+    return _statistics;
+  }
+
   /**
    * Gets the fudgeContext field.
    * @return the fudgeContext
@@ -155,9 +194,13 @@ public class DefaultViewComputationCache implements ViewComputationCache,
   public Object getValue(final ValueSpecification specification) {
     ArgumentChecker.notNull(specification, "Specification");
     final long identifier = getIdentifierMap().getIdentifier(specification);
+    final ViewComputationCacheStatistics statistics = _statistics;
     FudgeMsg data = getPrivateDataStore().get(identifier);
     if (data == null) {
       data = getSharedDataStore().get(identifier);
+      if (statistics != null) {
+        statistics.recordSharedRead(specification.getValueName());
+      }
     }
     if (data == null) {
       final MissingValueLoader loader = getMissingValueLoader();
@@ -168,6 +211,9 @@ public class DefaultViewComputationCache implements ViewComputationCache,
       if (data == null) {
         return null;
       }
+      if (statistics != null) {
+        statistics.recordRemoteFetch(specification.getValueName());
+      }
     }
     final FudgeDeserializer deserializer = new FudgeDeserializer(getFudgeContext());
     Object obj = deserializeValue(deserializer, data);
@@ -179,8 +225,16 @@ public class DefaultViewComputationCache implements ViewComputationCache,
   public Object getValue(final ValueSpecification specification, final CacheSelectHint filter) {
     ArgumentChecker.notNull(specification, "Specification");
     final long identifier = getIdentifierMap().getIdentifier(specification);
-    FudgeMsg data = (filter.isPrivateValue(specification) ? getPrivateDataStore() : getSharedDataStore())
-        .get(identifier);
+    final FudgeMsg data;
+    if (filter.isPrivateValue(specification)) {
+      data = getPrivateDataStore().get(identifier);
+    } else {
+      data = getSharedDataStore().get(identifier);
+      final ViewComputationCacheStatistics statistics = _statistics;
+      if (statistics != null) {
+        statistics.recordSharedRead(specification.getValueName());
+      }
+    }
     if (data == null) {
       return null;
     }
@@ -215,6 +269,12 @@ public class DefaultViewComputationCache implements ViewComputationCache,
       }
     }
     rawValues = getSharedDataStore().get(identifierValues);
+    final ViewComputationCacheStatistics statistics = _statistics;
+    if (statistics != null) {
+      for (ValueSpecification specification : identifiers.keySet()) {
+        statistics.recordSharedRead(specification.getValueName());
+      }
+    }
     if (!rawValues.isEmpty()) {
       final Iterator<Map.Entry<ValueSpecification, Long>> identifierIterator = identifiers.entrySet().iterator();
       while (identifierIterator.hasNext()) {
@@ -240,6 +300,9 @@ public class DefaultViewComputationCache implements ViewComputationCache,
           final Map.Entry<ValueSpecification, Long> identifier = identifierIterator.next();
           final FudgeMsg data = rawValues.get(identifier.getValue());
           if (data != null) {
+            if (statistics != null) {
+              statistics.recordRemoteFetch(identifier.getKey().getValueName());
+            }
             Object value = deserializeValue(deserializer, data);
             cacheValueSize(identifier.getKey(), data, value);
             returnValues.add(Pair.of(identifier.getKey(), value));
@@ -258,6 +321,7 @@ public class DefaultViewComputationCache implements ViewComputationCache,
     final Collection<Pair<ValueSpecification, Object>> returnValues = new ArrayList<Pair<ValueSpecification, Object>>(specifications.size());
     List<Long> privateIdentifiers = null;
     List<Long> sharedIdentifiers = null;
+    final ViewComputationCacheStatistics statistics = _statistics;
     for (ValueSpecification specification : specifications) {
       if (filter.isPrivateValue(specification)) {
         if (privateIdentifiers == null) {
@@ -269,6 +333,9 @@ public class DefaultViewComputationCache implements ViewComputationCache,
           sharedIdentifiers = new ArrayList<Long>(specifications.size());
         }
         sharedIdentifiers.add(identifiers.get(specification));
+        if (statistics != null) {
+          statistics.recordSharedRead(specification.getValueName());
+        }
       }
     }
     final Map<Long, FudgeMsg> rawValues = new HashMap<Long, FudgeMsg>();
@@ -303,13 +370,22 @@ public class DefaultViewComputationCache implements ViewComputationCache,
     return returnValues;
   }
 
+  /**
+   * Tests whether writes to a store should be reported as private. If the private and shared stores are the same, writes
+   * are reported as shared.
+   */
+  private boolean isPrivateDataStore(final FudgeMessageStore dataStore) {
+    return (dataStore == getPrivateDataStore()) && (dataStore != getSharedDataStore());
+  }
+
   protected void putValue(final ComputedValue value, final FudgeMessageStore dataStore) {
     ArgumentChecker.notNull(value, "value");
     final long identifier = getIdentifierMap().getIdentifier(value.getSpecification());
     final FudgeSerializer serializer = new FudgeSerializer(getFudgeContext());
     Object obj = value.getValue();
     final FudgeMsg data = serializeValue(serializer, obj);
-    cacheValueSize(value.getSpecification(), data, value.getValue());
+    final int size = cacheValueSize(value.getSpecification(), data, value.getValue());
+    recordWrite(_statistics, value.getSpecification(), size, isPrivateDataStore(dataStore));
     dataStore.put(identifier, data);
   }
 
@@ -337,10 +413,13 @@ public class DefaultViewComputationCache implements ViewComputationCache,
     final Map<ValueSpecification, Long> identifiers = getIdentifierMap().getIdentifiers(specifications);
     final Map<Long, FudgeMsg> data = new HashMap<Long, FudgeMsg>();
     final FudgeSerializer serializer = new FudgeSerializer(getFudgeContext());
+    final boolean isPrivate = isPrivateDataStore(dataStore);
+    final ViewComputationCacheStatistics statistics = _statistics;
     for (ComputedValue value : values) {
       Object obj = value.getValue();
       final FudgeMsg valueData = serializeValue(serializer, obj);
-      cacheValueSize(value.getSpecification(), valueData, value.getValue());
+      final int size = cacheValueSize(value.getSpecification(), valueData, value.getValue());
+      recordWrite(statistics, value.getSpecification(), size, isPrivate);
       data.put(identifiers.get(value.getSpecification()), valueData);
     }
     dataStore.put(data);
@@ -356,6 +435,54 @@ public class DefaultViewComputationCache implements ViewComputationCache,
     putValues(values, getSharedDataStore());
   }
 
+  /**
+   * Writes values held by another cache to the shared data store of this cache without deserializing them. The
+   * encoded messages are passed directly between the stores so a heap based binary store will reference the same
+   * underlying arrays as the source rather than a copy. This is intended for carrying the values of unchanged nodes
+   * forward from one cycle to the next.
+   * <p>
+   * Only values in the local stores of the source are considered; the missing value loader is not used.
+   * 
+   * @param source the cache holding the values, not null
+   * @param specifications the values to share, not null
+   * @return the specifications of the values that were found and shared, not null
+   */
+  public Collection<ValueSpecification> shareValues(final DefaultViewComputationCache source, final Collection<ValueSpecification> specifications) {
+    ArgumentChecker.notNull(source, "source");
+    ArgumentChecker.notNull(specifications, "specifications");
+    final Map<ValueSpecification, Long> identifiers = source.getIdentifierMap().getIdentifiers(specifications);
+    final Map<Long, FudgeMsg> rawValues = new HashMap<Long, FudgeMsg>(source.getSharedDataStore().get(identifiers.values()));
+    if ((rawValues.size() < identifiers.size()) && (source.getPrivateDataStore() != source.getSharedDataStore())) {
+      final List<Long> privateIdentifiers = new ArrayList<Long>(identifiers.size() - rawValues.size());
+      for (Long identifier : identifiers.values()) {
+        if (!rawValues.containsKey(identifier)) {
+          privateIdentifiers.add(identifier);
+        }
+      }
+      rawValues.putAll(source.getPrivateDataStore().get(privateIdentifiers));
+    }
+    final Collection<ValueSpecification> shared = new ArrayList<ValueSpecification>(rawValues.size());
+    if (source.getIdentifierMap() == getIdentifierMap()) {
+      for (Map.Entry<ValueSpecification, Long> identifier : identifiers.entrySet()) {
+        if (rawValues.containsKey(identifier.getValue())) {
+          shared.add(identifier.getKey());
+        }
+      }
+      getSharedDataStore().put(rawValues);
+    } else {
+      final Map<Long, FudgeMsg> data = new HashMap<Long, FudgeMsg>();
+      for (Map.Entry<ValueSpecification, Long> identifier : identifiers.entrySet()) {
+        final FudgeMsg message = rawValues.get(identifier.getValue());
+        if (message != null) {
+          shared.add(identifier.getKey());
+          data.put(getIdentifierMap().getIdentifier(identifier.getKey()), message);
+        }
+      }
+      getSharedDataStore().put(data);
+    }
+    return shared;
+  }
+
   @Override
   public void putValues(final Collection<ComputedValue> values, final CacheSelectHint filter) {
     ArgumentChecker.notNull(values, "values");
@@ -367,11 +494,14 @@ public class DefaultViewComputationCache implements ViewComputationCache,
     final FudgeSerializer serializer = new FudgeSerializer(getFudgeContext());
     Map<Long, FudgeMsg> privateData = null;
     Map<Long, FudgeMsg> sharedData = null;
+    final ViewComputationCacheStatistics statistics = _statistics;
     for (ComputedValue value : values) {
       Object obj = value.getValue();
       final FudgeMsg valueData = serializeValue(serializer, obj);
-      cacheValueSize(value.getSpecification(), valueData, value.getValue());
-      if (filter.isPrivateValue(value.getSpecification())) {
+      final int size = cacheValueSize(value.getSpecification(), valueData, value.getValue());
+      final boolean isPrivate = filter.isPrivateValue(value.getSpecification());
+      recordWrite(statistics, value.getSpecification(), size, isPrivate);
+      if (isPrivate) {
         if (privateData == null) {
           privateData = new HashMap<Long, FudgeMsg>();
         }
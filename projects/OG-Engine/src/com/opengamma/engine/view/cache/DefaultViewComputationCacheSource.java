@@ -6,6 +6,7 @@
 package com.opengamma.engine.view.cache;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -49,6 +50,60 @@ public class DefaultViewComputationCacheSource implements ViewComputationCacheSo
 
   }
 
+  /**
+   * Callback to receive notification of values written to a shared data store, either locally or on behalf of a
+   * remote client.
+   */
+  public interface SharedValuesWrittenCallback {
+
+    void onSharedValuesWritten(ViewComputationCacheKey cache, Map<Long, FudgeMsg> values);
+
+  }
+
+  /**
+   * Passes values written to a shared data store to a {@link SharedValuesWrittenCallback}.
+   */
+  private static final class NotifyingFudgeMessageStore implements FudgeMessageStore {
+
+    private final FudgeMessageStore _underlying;
+    private final ViewComputationCacheKey _key;
+    private final SharedValuesWrittenCallback _callback;
+
+    public NotifyingFudgeMessageStore(final FudgeMessageStore underlying, final ViewComputationCacheKey key, final SharedValuesWrittenCallback callback) {
+      _underlying = underlying;
+      _key = key;
+      _callback = callback;
+    }
+
+    @Override
+    public FudgeMsg get(final long identifier) {
+      return _underlying.get(identifier);
+    }
+
+    @Override
+    public Map<Long, FudgeMsg> get(final Collection<Long> identifiers) {
+      return _underlying.get(identifiers);
+    }
+
+    @Override
+    public void put(final long identifier, final FudgeMsg data) {
+      _underlying.put(identifier, data);
+      _callback.onSharedValuesWritten(_key, Collections.singletonMap(identifier, data));
+    }
+
+    @Override
+    public void put(final Map<Long, FudgeMsg> data) {
+      _underlying.put(data);
+      _callback.onSharedValuesWritten(_key, data);
+    }
+
+    @Override
+    public void delete() {
+      _underlying.delete();
+    }
+
+  }
+
   private final IdentifierMap _identifierMap;
   private final FudgeContext _fudgeContext;
 
@@ -60,6 +115,8 @@ public class DefaultViewComputationCacheSource implements ViewComputationCacheSo
 
   private ReleaseCachesCallback _releaseCachesCallback;
   private MissingValueLoader _missingValueLoader;
+  private SharedValuesWrittenCallback _sharedValuesWrittenCallback;
+  private boolean _collectStatistics;
 
   protected DefaultViewComputationCacheSource(final IdentifierMap identifierMap, final FudgeContext fudgeContext,
       final FudgeMessageStoreFactory dataStoreFactory) {
@@ -137,7 +194,16 @@ public class DefaultViewComputationCacheSource implements ViewComputationCacheSo
         final FudgeMessageStore privateDataStore = _privateDataStoreFactory.createMessageStore(key);
         final FudgeMessageStore sharedDataStore = (_privateDataStoreFactory == _sharedDataStoreFactory) ? privateDataStore
             : _sharedDataStoreFactory.createMessageStore(key);
-        cache = createViewComputationCache(getIdentifierMap(), privateDataStore, sharedDataStore, getFudgeContext());
+        final SharedValuesWrittenCallback callback = getSharedValuesWrittenCallback();
+        cache = createViewComputationCache(getIdentifierMap(), privateDataStore, (callback != null) ? new NotifyingFudgeMessageStore(sharedDataStore, key, callback)
+            : sharedDataStore, getFudgeContext());
+        if (isCollectStatistics()) {
+          final ViewComputationCacheStatistics statistics = new ViewComputationCacheStatistics();
+          cache.setStatistics(statistics);
+          if (sharedDataStore instanceof CachingFudgeMessageStore) {
+            ((CachingFudgeMessageStore) sharedDataStore).setStatistics(statistics);
+          }
+        }
         _cachesByKey.put(key, cache);
         List<ViewComputationCacheKey> caches = _activeCachesByCycle.get(key.getViewCycleId());
         if (caches == null) {
@@ -209,6 +275,21 @@ public class DefaultViewComputationCacheSource implements ViewComputationCacheSo
     }
   }
 
+  /**
+   * Sets whether the caches created by this source record the volumes of data written to and read from them, for
+   * reporting through {@link com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer}. This adds work
+   * to every cache operation so is off by default. This only affects caches created after the call.
+   * 
+   * @param collectStatistics true to collect statistics, false otherwise
+   */
+  public void setCollectStatistics(final boolean collectStatistics) {
+    _collectStatistics = collectStatistics;
+  }
+
+  public boolean isCollectStatistics() {
+    return _collectStatistics;
+  }
+
   public void setReleaseCachesCallback(final ReleaseCachesCallback releaseCachesCallback) {
     _releaseCachesCallback = releaseCachesCallback;
   }
@@ -225,4 +306,18 @@ public class DefaultViewComputationCacheSource implements ViewComputationCacheSo
     return _missingValueLoader;
   }
 
+  /**
+   * Sets the callback to notify of values written to the shared data stores. This only affects caches created after
+   * the call.
+   * 
+   * @param sharedValuesWrittenCallback the callback, or null for none
+   */
+  public void setSharedValuesWrittenCallback(final SharedValuesWrittenCallback sharedValuesWrittenCallback) {
+    _sharedValuesWrittenCallback = sharedValuesWrittenCallback;
+  }
+
+  public SharedValuesWrittenCallback getSharedValuesWrittenCallback() {
+    return _sharedValuesWrittenCallback;
+  }
+
 }
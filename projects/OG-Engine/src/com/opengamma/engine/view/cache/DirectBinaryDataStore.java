@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link BinaryDataStore} which holds its data in direct buffers outside of the Java heap. Values are appended to
+ * slabs obtained from the {@link DirectBinaryDataStoreFactory} and located through a primitive map from identifier to
+ * slab position, so the only heap allocation for a value is the array returned when it is read. The store is intended
+ * for the lifetime of a single cycle; all of its slabs are released to the factory at once when it is deleted.
+ * <p>
+ * Replacing an existing value does not reclaim the space used by the previous value.
+ */
+public class DirectBinaryDataStore extends AbstractBinaryDataStore {
+
+  private static final int LENGTH_BYTES = 4;
+  private static final long NOT_FOUND = -1L;
+
+  private final DirectBinaryDataStoreFactory _factory;
+  private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+  private final Long2LongOpenHashMap _index = new Long2LongOpenHashMap();
+  private final List<ByteBuffer> _slabs = new ArrayList<ByteBuffer>();
+  private ByteBuffer _currentSlab;
+  private int _currentSlabIndex;
+
+  public DirectBinaryDataStore(final DirectBinaryDataStoreFactory factory) {
+    _factory = factory;
+    _index.defaultReturnValue(NOT_FOUND);
+  }
+
+  private static long location(final int slab, final int offset) {
+    return ((long) slab << 32) | offset;
+  }
+
+  private byte[] getImpl(final long identifier) {
+    final long location = _index.get(identifier);
+    if (location == NOT_FOUND) {
+      return null;
+    }
+    final ByteBuffer slab = _slabs.get((int) (location >>> 32)).duplicate();
+    slab.position((int) location);
+    final byte[] data = new byte[slab.getInt()];
+    slab.get(data);
+    return data;
+  }
+
+  private void putImpl(final long identifier, final byte[] data) {
+    final int required = data.length + LENGTH_BYTES;
+    final ByteBuffer slab;
+    final int slabIndex;
+    if ((_currentSlab != null) && (_currentSlab.remaining() >= required)) {
+      slab = _currentSlab;
+      slabIndex = _currentSlabIndex;
+    } else if (required > _factory.getSlabSize()) {
+      // Too big for a standard slab; give it a buffer of its own
+      slab = ByteBuffer.allocateDirect(required);
+      slabIndex = _slabs.size();
+      _slabs.add(slab);
+    } else {
+      slab = _factory.allocateSlab();
+      slabIndex = _slabs.size();
+      _slabs.add(slab);
+      _currentSlab = slab;
+      _currentSlabIndex = slabIndex;
+    }
+    final int offset = slab.position();
+    slab.putInt(data.length);
+    slab.put(data);
+    _index.put(identifier, location(slabIndex, offset));
+  }
+
+  @Override
+  public byte[] get(final long identifier) {
+    _lock.readLock().lock();
+    try {
+      return getImpl(identifier);
+    } finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public Map<Long, byte[]> get(final Collection<Long> identifiers) {
+    final Map<Long, byte[]> result = new HashMap<Long, byte[]>();
+    _lock.readLock().lock();
+    try {
+      for (Long identifier : identifiers) {
+        final byte[] data = getImpl(identifier);
+        if (data != null) {
+          result.put(identifier, data);
+        }
+      }
+    } finally {
+      _lock.readLock().unlock();
+    }
+    return result;
+  }
+
+  @Override
+  public void put(final long identifier, final byte[] data) {
+    _lock.writeLock().lock();
+    try {
+      putImpl(identifier, data);
+    } finally {
+      _lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void put(final Map<Long, byte[]> data) {
+    _lock.writeLock().lock();
+    try {
+      for (Map.Entry<Long, byte[]> entry : data.entrySet()) {
+        putImpl(entry.getKey(), entry.getValue());
+      }
+    } finally {
+      _lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void delete() {
+    _lock.writeLock().lock();
+    try {
+      for (ByteBuffer slab : _slabs) {
+        _factory.releaseSlab(slab);
+      }
+      _slabs.clear();
+      _index.clear();
+      _currentSlab = null;
+    } finally {
+      _lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the number of slabs, including any oversized buffers, currently held by the store.
+   *
+   * @return the number of slabs
+   */
+  public int getSlabCount() {
+    _lock.readLock().lock();
+    try {
+      return _slabs.size();
+    } finally {
+      _lock.readLock().unlock();
+    }
+  }
+
+}
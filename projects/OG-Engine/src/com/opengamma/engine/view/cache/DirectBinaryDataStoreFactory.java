@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Creates {@link DirectBinaryDataStore} instances which hold their data outside of the Java heap. Slabs released by
+ * a store when its cache is deleted are pooled for use by subsequent cycles rather than being returned to the
+ * operating system.
+ */
+public class DirectBinaryDataStoreFactory implements BinaryDataStoreFactory {
+
+  /**
+   * The default size of each slab, 1Mb.
+   */
+  public static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+  /**
+   * The default maximum number of free slabs to retain.
+   */
+  public static final int DEFAULT_MAX_POOLED_SLABS = 256;
+
+  private final int _slabSize;
+  private final int _maxPooledSlabs;
+  private final Queue<ByteBuffer> _pool = new ConcurrentLinkedQueue<ByteBuffer>();
+  private final AtomicInteger _pooledSlabs = new AtomicInteger();
+
+  public DirectBinaryDataStoreFactory() {
+    this(DEFAULT_SLAB_SIZE, DEFAULT_MAX_POOLED_SLABS);
+  }
+
+  public DirectBinaryDataStoreFactory(final int slabSize, final int maxPooledSlabs) {
+    ArgumentChecker.isTrue(slabSize > 0, "slabSize");
+    ArgumentChecker.isTrue(maxPooledSlabs >= 0, "maxPooledSlabs");
+    _slabSize = slabSize;
+    _maxPooledSlabs = maxPooledSlabs;
+  }
+
+  public int getSlabSize() {
+    return _slabSize;
+  }
+
+  public int getMaxPooledSlabs() {
+    return _maxPooledSlabs;
+  }
+
+  /**
+   * Returns the number of free slabs currently held for re-use.
+   *
+   * @return the number of pooled slabs
+   */
+  public int getPooledSlabCount() {
+    return _pooledSlabs.get();
+  }
+
+  @Override
+  public BinaryDataStore createDataStore(final ViewComputationCacheKey cacheKey) {
+    return new DirectBinaryDataStore(this);
+  }
+
+  /**
+   * Returns an empty slab, either from the pool or newly allocated.
+   *
+   * @return the slab, not null
+   */
+  /* package */ByteBuffer allocateSlab() {
+    final ByteBuffer slab = _pool.poll();
+    if (slab != null) {
+      _pooledSlabs.decrementAndGet();
+      slab.clear();
+      return slab;
+    }
+    return ByteBuffer.allocateDirect(getSlabSize());
+  }
+
+  /**
+   * Returns a slab to the pool. Buffers that are not of the standard slab size, or which would take the pool over its
+   * maximum size, are discarded and their memory freed when they are garbage collected.
+   *
+   * @param slab the slab to release, not null
+   */
+  /* package */void releaseSlab(final ByteBuffer slab) {
+    if (slab.capacity() != getSlabSize()) {
+      return;
+    }
+    if (_pooledSlabs.incrementAndGet() > getMaxPooledSlabs()) {
+      _pooledSlabs.decrementAndGet();
+      return;
+    }
+    _pool.add(slab);
+  }
+
+}
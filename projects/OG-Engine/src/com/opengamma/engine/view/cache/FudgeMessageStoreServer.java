@@ -9,9 +9,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
@@ -28,14 +30,18 @@ import org.fudgemsg.mapping.FudgeSerializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.cache.DefaultViewComputationCacheSource.MissingValueLoader;
 import com.opengamma.engine.view.cache.DefaultViewComputationCacheSource.ReleaseCachesCallback;
+import com.opengamma.engine.view.cache.DefaultViewComputationCacheSource.SharedValuesWrittenCallback;
 import com.opengamma.engine.view.cache.msg.CacheMessage;
 import com.opengamma.engine.view.cache.msg.CacheMessageVisitor;
 import com.opengamma.engine.view.cache.msg.DeleteRequest;
 import com.opengamma.engine.view.cache.msg.FindMessage;
 import com.opengamma.engine.view.cache.msg.GetRequest;
 import com.opengamma.engine.view.cache.msg.GetResponse;
+import com.opengamma.engine.view.cache.msg.PrefetchRequest;
+import com.opengamma.engine.view.cache.msg.PrefetchResponse;
 import com.opengamma.engine.view.cache.msg.PutRequest;
 import com.opengamma.engine.view.cache.msg.ReleaseCacheMessage;
 import com.opengamma.engine.view.cache.msg.SlaveChannelMessage;
@@ -50,7 +56,8 @@ import com.opengamma.util.ArgumentChecker;
  * Server for {@link RemoteFudgeMessageStore} clients created by a {@link RemoteFudgeMessageStoreFactory}.
  * The underlying is the shared data store component of a {@link DefaultViewComputationCache}.
  */
-public class FudgeMessageStoreServer implements FudgeConnectionReceiver, ReleaseCachesCallback, MissingValueLoader, FudgeConnectionStateListener {
+public class FudgeMessageStoreServer implements FudgeConnectionReceiver, ReleaseCachesCallback, MissingValueLoader, SharedValuesWrittenCallback,
+    FudgeConnectionStateListener {
 
   private static final Logger s_logger = LoggerFactory.getLogger(FudgeMessageStoreServer.class);
 
@@ -88,10 +95,72 @@ public class FudgeMessageStoreServer implements FudgeConnectionReceiver, Release
 
   }
 
+  /**
+   * Connections that have requested a value, via a {@link PrefetchRequest}, which was not in the shared store at the time.
+   * Once removed from the waiter map, which happens when the value is written or the last connection loses interest,
+   * the waiter is marked as such so that connections are not added to it after it has been discarded.
+   */
+  private static class PrefetchWaiter {
+
+    private final ValueSpecification _specification;
+    private final Set<FudgeConnection> _connections = new HashSet<FudgeConnection>();
+    private boolean _removed;
+
+    public PrefetchWaiter(final ValueSpecification specification) {
+      _specification = specification;
+    }
+
+    public ValueSpecification getSpecification() {
+      return _specification;
+    }
+
+    /**
+     * Adds a connection to the waiter.
+     * 
+     * @param connection the connection to add, not null
+     * @return false if the waiter has been removed, true otherwise
+     */
+    public synchronized boolean addConnection(final FudgeConnection connection) {
+      if (_removed) {
+        return false;
+      }
+      _connections.add(connection);
+      return true;
+    }
+
+    /**
+     * Removes a connection from the waiter.
+     * 
+     * @param connection the connection to remove, not null
+     * @return true if that was the last connection and the waiter must now be removed, false otherwise
+     */
+    public synchronized boolean removeConnection(final FudgeConnection connection) {
+      if (!_removed && _connections.remove(connection) && _connections.isEmpty()) {
+        _removed = true;
+        return true;
+      }
+      return false;
+    }
+
+    /**
+     * Marks the waiter as removed.
+     * 
+     * @return the connections to notify, not null
+     */
+    public synchronized Collection<FudgeConnection> remove() {
+      _removed = true;
+      return new ArrayList<FudgeConnection>(_connections);
+    }
+
+  }
+
   private final ExecutorService _executorService = Executors.newCachedThreadPool();
   private final DefaultViewComputationCacheSource _underlying;
   private final Map<FudgeConnection, Object> _connections = new ConcurrentHashMap<FudgeConnection, Object>();
-  private final Map<ViewComputationCacheKey, ValueSearch> _searching = new HashMap<ViewComputationCacheKey, ValueSearch>();
+  private final Map<ViewComputationCacheKey, ValueSearch> _searching = new ConcurrentHashMap<ViewComputationCacheKey, ValueSearch>();
+
+  private final ConcurrentMap<ViewComputationCacheKey, ConcurrentMap<Long, PrefetchWaiter>> _prefetching =
+      new ConcurrentHashMap<ViewComputationCacheKey, ConcurrentMap<Long, PrefetchWaiter>>();
 
   private long _findValueTimeout = 5000L; // 5s default timeout
 
@@ -100,6 +169,7 @@ public class FudgeMessageStoreServer implements FudgeConnectionReceiver, Release
     _underlying = underlying;
     underlying.setReleaseCachesCallback(this);
     underlying.setMissingValueLoader(this);
+    underlying.setSharedValuesWrittenCallback(this);
   }
 
   protected DefaultViewComputationCacheSource getUnderlying() {
@@ -130,12 +200,140 @@ public class FudgeMessageStoreServer implements FudgeConnectionReceiver, Release
     }
   }
 
+  /**
+   * Asynchronously sends a message to a single connection.
+   * 
+   * @param connection the connection to send to, not null
+   * @param message the message to send, not null
+   */
+  protected void send(final FudgeConnection connection, final CacheMessage message) {
+    final MutableFudgeMsg msg = getUnderlying().getFudgeContext().newMessage();
+    message.toFudgeMsg(new FudgeSerializer(getUnderlying().getFudgeContext()), msg);
+    FudgeSerializer.addClassHeader(msg, message.getClass(), CacheMessage.class);
+    _executorService.execute(new Runnable() {
+      @Override
+      public void run() {
+        connection.getFudgeMessageSender().send(msg);
+      }
+    });
+  }
+
   @Override
   public void onReleaseCaches(final UniqueId viewCycleId) {
     s_logger.debug("onReleaseCaches - {}", viewCycleId);
+    final Iterator<ViewComputationCacheKey> itr = _prefetching.keySet().iterator();
+    while (itr.hasNext()) {
+      if (viewCycleId.equals(itr.next().getViewCycleId())) {
+        itr.remove();
+      }
+    }
     broadcast(new ReleaseCacheMessage(viewCycleId));
   }
 
+  /**
+   * Registers a connection's interest in values that are not yet in the shared store.
+   * 
+   * @param key the cache key, not null
+   * @param connection the connection to send the values to when they arrive, not null
+   * @param specifications the value specifications, not null
+   * @param identifiers the value identifiers, in the same order as the specifications, not null
+   */
+  protected void addPrefetchWaiters(final ViewComputationCacheKey key, final FudgeConnection connection, final List<ValueSpecification> specifications, final List<Long> identifiers) {
+    ConcurrentMap<Long, PrefetchWaiter> waiters = _prefetching.get(key);
+    if (waiters == null) {
+      waiters = new ConcurrentHashMap<Long, PrefetchWaiter>();
+      final ConcurrentMap<Long, PrefetchWaiter> existing = _prefetching.putIfAbsent(key, waiters);
+      if (existing != null) {
+        waiters = existing;
+      }
+    }
+    final Iterator<ValueSpecification> itrSpecification = specifications.iterator();
+    for (Long identifier : identifiers) {
+      final ValueSpecification specification = itrSpecification.next();
+      do {
+        PrefetchWaiter waiter = waiters.get(identifier);
+        if (waiter == null) {
+          waiter = new PrefetchWaiter(specification);
+          final PrefetchWaiter existing = waiters.putIfAbsent(identifier, waiter);
+          if (existing != null) {
+            waiter = existing;
+          }
+        }
+        if (waiter.addConnection(connection)) {
+          break;
+        }
+        // The waiter has just been removed; a new one will be created
+        waiters.remove(identifier, waiter);
+      } while (true);
+    }
+  }
+
+  /**
+   * Removes a connection's interest in values that it has already been sent.
+   * 
+   * @param key the cache key, not null
+   * @param connection the connection, not null
+   * @param identifiers the value identifiers, not null
+   */
+  protected void removePrefetchWaiters(final ViewComputationCacheKey key, final FudgeConnection connection, final Collection<Long> identifiers) {
+    final ConcurrentMap<Long, PrefetchWaiter> waiters = _prefetching.get(key);
+    if (waiters == null) {
+      return;
+    }
+    for (Long identifier : identifiers) {
+      final PrefetchWaiter waiter = waiters.get(identifier);
+      if ((waiter != null) && waiter.removeConnection(connection)) {
+        waiters.remove(identifier, waiter);
+      }
+    }
+  }
+
+  /**
+   * Sends newly written values to any connections that have prefetched them.
+   * 
+   * @param key the cache key, not null
+   * @param values the values, keyed by identifier, not null
+   */
+  protected void notifyPrefetchWaiters(final ViewComputationCacheKey key, final Map<Long, FudgeMsg> values) {
+    final ConcurrentMap<Long, PrefetchWaiter> waiters = _prefetching.get(key);
+    if ((waiters == null) || waiters.isEmpty()) {
+      return;
+    }
+    Map<FudgeConnection, PrefetchResponse> responses = null;
+    for (Map.Entry<Long, FudgeMsg> value : values.entrySet()) {
+      final Long identifier = value.getKey();
+      final PrefetchWaiter waiter = waiters.remove(identifier);
+      if (waiter == null) {
+        continue;
+      }
+      if (responses == null) {
+        responses = new HashMap<FudgeConnection, PrefetchResponse>();
+      }
+      for (FudgeConnection connection : waiter.remove()) {
+        final PrefetchResponse response = responses.get(connection);
+        if (response == null) {
+          responses.put(connection, new PrefetchResponse(key.getViewCycleId(), key.getCalculationConfigurationName(), Collections.singleton(waiter.getSpecification()),
+              Collections.singleton(identifier), Collections.singleton(value.getValue())));
+        } else {
+          response.addSpecification(waiter.getSpecification());
+          response.addIdentifier(identifier);
+          response.addData(value.getValue());
+        }
+      }
+    }
+    if (responses != null) {
+      for (Map.Entry<FudgeConnection, PrefetchResponse> response : responses.entrySet()) {
+        s_logger.debug("Streaming {} prefetched values to {}", response.getValue().getIdentifier().size(), response.getKey());
+        send(response.getKey(), response.getValue());
+      }
+    }
+  }
+
+  @Override
+  public void onSharedValuesWritten(final ViewComputationCacheKey cache, final Map<Long, FudgeMsg> values) {
+    notifyPrefetchWaiters(cache, values);
+  }
+
   public long getFindValueTimeout() {
     return _findValueTimeout;
   }
@@ -239,7 +437,7 @@ public class FudgeMessageStoreServer implements FudgeConnectionReceiver, Release
     }
   }
 
-  protected synchronized ValueSearch getValueSearch(final ViewComputationCacheKey key) {
+  protected ValueSearch getValueSearch(final ViewComputationCacheKey key) {
     return _searching.get(key);
   }
 
@@ -303,6 +501,36 @@ public class FudgeMessageStoreServer implements FudgeConnectionReceiver, Release
       return new GetResponse(response);
     }
 
+    @Override
+    protected CacheMessage visitPrefetchRequest(final PrefetchRequest request) {
+      final ViewComputationCacheKey key = new ViewComputationCacheKey(request.getViewCycleId(), request.getCalculationConfigurationName());
+      final DefaultViewComputationCache cache = getUnderlying().findCache(key);
+      if (cache == null) {
+        s_logger.warn("Prefetch request on invalid cache - {}", request);
+        return null;
+      }
+      final List<ValueSpecification> specifications = request.getSpecification();
+      final Map<ValueSpecification, Long> identifierMap = getUnderlying().getIdentifierMap().getIdentifiers(specifications);
+      final List<Long> identifiers = new ArrayList<Long>(specifications.size());
+      for (ValueSpecification specification : specifications) {
+        identifiers.add(identifierMap.get(specification));
+      }
+      // Register before reading the store so that a value written concurrently is not missed; it may be sent twice
+      addPrefetchWaiters(key, getConnection(), specifications, identifiers);
+      final Map<Long, FudgeMsg> values = cache.getSharedDataStore().get(identifiers);
+      final List<FudgeMsg> data = new ArrayList<FudgeMsg>(identifiers.size());
+      for (Long identifier : identifiers) {
+        final FudgeMsg value = values.get(identifier);
+        data.add((value != null) ? value : FudgeContext.EMPTY_MESSAGE);
+      }
+      if (!values.isEmpty()) {
+        removePrefetchWaiters(key, getConnection(), values.keySet());
+      }
+      s_logger.debug("Prefetch of {} values, {} immediately available", identifiers.size(), values.size());
+      send(getConnection(), new PrefetchResponse(request.getViewCycleId(), request.getCalculationConfigurationName(), specifications, identifiers, data));
+      return null;
+    }
+
     @Override
     protected CacheMessage visitPutRequest(final PutRequest request) {
       final List<Long> identifiers = request.getIdentifier();
@@ -327,6 +555,7 @@ public class FudgeMessageStoreServer implements FudgeConnectionReceiver, Release
           searching.found(identifier);
         }
       }
+      // Any prefetch waiters are notified by the shared data store callback
       return null;
     }
 
@@ -365,6 +594,13 @@ public class FudgeMessageStoreServer implements FudgeConnectionReceiver, Release
 
   protected void onDroppedConnection(final FudgeConnection connection) {
     getConnections().remove(connection);
+    for (ConcurrentMap<Long, PrefetchWaiter> waiters : _prefetching.values()) {
+      for (Map.Entry<Long, PrefetchWaiter> waiter : waiters.entrySet()) {
+        if (waiter.getValue().removeConnection(connection)) {
+          waiters.remove(waiter.getKey(), waiter.getValue());
+        }
+      }
+    }
   }
 
   @Override
@@ -91,12 +91,26 @@ public class RemoteCacheClient {
 
   protected void setAsynchronousMessageReceiver(final FudgeMessageReceiver asynchronousMessageReceiver) {
     _fudgePuts.setAsynchronousMessageReceiver(asynchronousMessageReceiver);
+    if (_fudgeGets != _fudgePuts) {
+      // Prefetch responses arrive on the "get" channel
+      _fudgeGets.setAsynchronousMessageReceiver(asynchronousMessageReceiver);
+    }
   }
 
   protected <T extends CacheMessage> T sendGetMessage(final CacheMessage request, final Class<T> expectedResponse) {
     return _fudgeGets.sendMessage(request, expectedResponse);
   }
 
+  /**
+   * Sends a message on the "get" channel without waiting for a response. Any replies will be delivered to the
+   * asynchronous message receiver.
+   * 
+   * @param message the message to send, not null
+   */
+  protected void postGetMessage(final CacheMessage message) {
+    _fudgeGets.postMessage(message);
+  }
+
   protected <T extends CacheMessage> T sendPutMessage(final CacheMessage request, final Class<T> expectedResponse) {
     return _fudgePuts.sendMessage(request, expectedResponse);
   }
@@ -5,6 +5,9 @@
  */
 package com.opengamma.engine.view.cache;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -17,10 +20,14 @@ import org.fudgemsg.mapping.FudgeDeserializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.cache.msg.CacheMessage;
 import com.opengamma.engine.view.cache.msg.CacheMessageVisitor;
 import com.opengamma.engine.view.cache.msg.FindMessage;
+import com.opengamma.engine.view.cache.msg.PrefetchRequest;
+import com.opengamma.engine.view.cache.msg.PrefetchResponse;
 import com.opengamma.engine.view.cache.msg.ReleaseCacheMessage;
+import com.opengamma.id.UniqueId;
 import com.opengamma.transport.FudgeMessageReceiver;
 
 /**
@@ -30,6 +37,8 @@ public class RemoteViewComputationCacheSource extends DefaultViewComputationCach
 
   private static final Logger s_logger = LoggerFactory.getLogger(RemoteViewComputationCacheSource.class);
 
+  private final RemoteCacheClient _client;
+
   public RemoteViewComputationCacheSource(final RemoteCacheClient client,
       final FudgeMessageStoreFactory privateDataStoreFactory, final CacheManager cacheManager) {
     this(client, privateDataStoreFactory, client.getFudgeContext(), cacheManager);
@@ -53,6 +62,7 @@ public class RemoteViewComputationCacheSource extends DefaultViewComputationCach
       final CacheManager cacheManager) {
     super(createIdentifierMap(client), fudgeContext, privateDataStoreFactory, createFudgeMessageStoreFactory(client,
         cacheManager, -1));
+    _client = client;
     client.setAsynchronousMessageReceiver(this);
   }
 
@@ -61,9 +71,14 @@ public class RemoteViewComputationCacheSource extends DefaultViewComputationCach
       final CacheManager cacheManager, final int maxLocalCachedElements) {
     super(createIdentifierMap(client), fudgeContext, privateDataStoreFactory, createFudgeMessageStoreFactory(client,
         cacheManager, maxLocalCachedElements));
+    _client = client;
     client.setAsynchronousMessageReceiver(this);
   }
 
+  protected RemoteCacheClient getRemoteCacheClient() {
+    return _client;
+  }
+
   private static IdentifierMap createIdentifierMap(final RemoteCacheClient client) {
     return new CachingIdentifierMap(new RemoteIdentifierMap(client));
   }
@@ -117,6 +132,35 @@ public class RemoteViewComputationCacheSource extends DefaultViewComputationCach
       return null;
     }
 
+    @Override
+    protected CacheMessage visitPrefetchResponse(final PrefetchResponse message) {
+      final DefaultViewComputationCache cache = findCache(message.getViewCycleId(), message.getCalculationConfigurationName());
+      if (cache == null) {
+        s_logger.debug("Ignoring prefetch response for released cache {}/{}", message.getViewCycleId(), message.getCalculationConfigurationName());
+        return null;
+      }
+      final List<Long> identifiers = message.getIdentifier();
+      final Map<ValueSpecification, Long> specifications = new HashMap<ValueSpecification, Long>();
+      final Map<Long, FudgeMsg> data = new HashMap<Long, FudgeMsg>();
+      final Iterator<ValueSpecification> itrSpecification = message.getSpecification().iterator();
+      final Iterator<FudgeMsg> itrData = message.getData().iterator();
+      for (Long identifier : identifiers) {
+        specifications.put(itrSpecification.next(), identifier);
+        final FudgeMsg value = itrData.next();
+        if (!value.isEmpty()) {
+          data.put(identifier, value);
+        }
+      }
+      s_logger.debug("Received {} identifiers and {} values from prefetch", identifiers.size(), data.size());
+      if (getIdentifierMap() instanceof CachingIdentifierMap) {
+        ((CachingIdentifierMap) getIdentifierMap()).cacheIdentifiers(specifications);
+      }
+      if (!data.isEmpty() && (cache.getSharedDataStore() instanceof CachingFudgeMessageStore)) {
+        ((CachingFudgeMessageStore) cache.getSharedDataStore()).cacheValues(data);
+      }
+      return null;
+    }
+
     @Override
     protected <T extends CacheMessage> T visitUnexpectedMessage(final CacheMessage message) {
       s_logger.warn("Unexpected message {}", message);
@@ -125,6 +169,26 @@ public class RemoteViewComputationCacheSource extends DefaultViewComputationCach
 
   };
 
+  /**
+   * Requests the identifiers and shared values for the given specifications ahead of their use, for example by a job
+   * that is queued but not yet running. This does not block; identifiers and values are added to the local caches as
+   * the server streams them back. Anything that has not arrived by the time it is needed will be fetched in the
+   * normal way.
+   * 
+   * @param viewCycleId the unique identifier of the view cycle, not null
+   * @param calculationConfigurationName the name of the view calculation configuration, not null
+   * @param specifications the values to fetch, not null
+   */
+  public void prefetch(final UniqueId viewCycleId, final String calculationConfigurationName, final Collection<ValueSpecification> specifications) {
+    if (specifications.isEmpty()) {
+      return;
+    }
+    // Create the cache now so that there is somewhere to put the response
+    getCache(viewCycleId, calculationConfigurationName);
+    s_logger.debug("Prefetching {} values for {}", specifications.size(), calculationConfigurationName);
+    getRemoteCacheClient().postGetMessage(new PrefetchRequest(viewCycleId, calculationConfigurationName, specifications));
+  }
+
   // [ENG-256] Override, or register callback handler for releaseCaches so that if it is called by user code we propogate the message to the server and other clients, noting the warning about cascade
   // above
 
@@ -0,0 +1,256 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the volume of data passing through a {@link ViewComputationCache}. Each {@link DefaultViewComputationCache} holds
+ * the figures for a single cycle and calculation configuration; instances can be added together to give running totals.
+ * <p>
+ * Value sizes are the encoded Fudge message sizes as estimated by the cache.
+ */
+public class ViewComputationCacheStatistics {
+
+  /**
+   * Figures for a single value name.
+   */
+  public static final class ValueStatistics {
+
+    private final AtomicLong _privateValues = new AtomicLong();
+    private final AtomicLong _privateBytes = new AtomicLong();
+    private final AtomicLong _sharedValues = new AtomicLong();
+    private final AtomicLong _sharedBytes = new AtomicLong();
+    private final AtomicLong _sharedReads = new AtomicLong();
+    private final AtomicLong _remoteFetches = new AtomicLong();
+
+    /**
+     * Returns the number of values written to the private data store.
+     *
+     * @return the value count
+     */
+    public long getPrivateValues() {
+      return _privateValues.get();
+    }
+
+    /**
+     * Returns the number of bytes written to the private data store.
+     *
+     * @return the byte count
+     */
+    public long getPrivateBytes() {
+      return _privateBytes.get();
+    }
+
+    /**
+     * Returns the number of values written to the shared data store.
+     *
+     * @return the value count
+     */
+    public long getSharedValues() {
+      return _sharedValues.get();
+    }
+
+    /**
+     * Returns the number of bytes written to the shared data store.
+     *
+     * @return the byte count
+     */
+    public long getSharedBytes() {
+      return _sharedBytes.get();
+    }
+
+    /**
+     * Returns the number of values read from the shared data store. On a remote calculation node these are the reads
+     * which may require a round trip to the server, see {@link ViewComputationCacheStatistics#getCacheMisses}.
+     *
+     * @return the read count
+     */
+    public long getSharedReads() {
+      return _sharedReads.get();
+    }
+
+    /**
+     * Returns the number of values that were not in the shared data store and had to be fetched from the private data
+     * store of a remote node.
+     *
+     * @return the fetch count
+     */
+    public long getRemoteFetches() {
+      return _remoteFetches.get();
+    }
+
+    private void add(final ValueStatistics other) {
+      _privateValues.addAndGet(other.getPrivateValues());
+      _privateBytes.addAndGet(other.getPrivateBytes());
+      _sharedValues.addAndGet(other.getSharedValues());
+      _sharedBytes.addAndGet(other.getSharedBytes());
+      _sharedReads.addAndGet(other.getSharedReads());
+      _remoteFetches.addAndGet(other.getRemoteFetches());
+    }
+
+    @Override
+    public String toString() {
+      return "private=" + getPrivateValues() + "/" + getPrivateBytes() + "b, shared=" + getSharedValues() + "/" + getSharedBytes() + "b, sharedReads=" + getSharedReads()
+          + ", remoteFetches=" + getRemoteFetches();
+    }
+
+  }
+
+  private final ConcurrentMap<String, ValueStatistics> _values = new ConcurrentHashMap<String, ValueStatistics>();
+  private final AtomicLong _cacheHits = new AtomicLong();
+  private final AtomicLong _cacheMisses = new AtomicLong();
+  private final AtomicInteger _maxWriteBehindQueueDepth = new AtomicInteger();
+
+  private ValueStatistics getOrCreateValueStatistics(final String valueName) {
+    ValueStatistics statistics = _values.get(valueName);
+    if (statistics == null) {
+      statistics = new ValueStatistics();
+      final ValueStatistics existing = _values.putIfAbsent(valueName, statistics);
+      if (existing != null) {
+        statistics = existing;
+      }
+    }
+    return statistics;
+  }
+
+  public void recordPrivateWrite(final String valueName, final int bytes) {
+    final ValueStatistics statistics = getOrCreateValueStatistics(valueName);
+    statistics._privateValues.incrementAndGet();
+    statistics._privateBytes.addAndGet(bytes);
+  }
+
+  public void recordSharedWrite(final String valueName, final int bytes) {
+    final ValueStatistics statistics = getOrCreateValueStatistics(valueName);
+    statistics._sharedValues.incrementAndGet();
+    statistics._sharedBytes.addAndGet(bytes);
+  }
+
+  public void recordSharedRead(final String valueName) {
+    getOrCreateValueStatistics(valueName)._sharedReads.incrementAndGet();
+  }
+
+  public void recordRemoteFetch(final String valueName) {
+    getOrCreateValueStatistics(valueName)._remoteFetches.incrementAndGet();
+  }
+
+  public void recordCacheHits(final int count) {
+    _cacheHits.addAndGet(count);
+  }
+
+  public void recordCacheMisses(final int count) {
+    _cacheMisses.addAndGet(count);
+  }
+
+  public void recordWriteBehindQueueDepth(final int depth) {
+    int max = _maxWriteBehindQueueDepth.get();
+    while (depth > max) {
+      if (_maxWriteBehindQueueDepth.compareAndSet(max, depth)) {
+        return;
+      }
+      max = _maxWriteBehindQueueDepth.get();
+    }
+  }
+
+  /**
+   * Returns the figures for each value name.
+   *
+   * @return a snapshot of the value statistics, keyed by value name, not null
+   */
+  public Map<String, ValueStatistics> getValueStatistics() {
+    return new HashMap<String, ValueStatistics>(_values);
+  }
+
+  /**
+   * Returns the number of shared data store reads satisfied by a local {@link CachingFudgeMessageStore}.
+   *
+   * @return the hit count
+   */
+  public long getCacheHits() {
+    return _cacheHits.get();
+  }
+
+  /**
+   * Returns the number of shared data store reads that a local {@link CachingFudgeMessageStore} passed to its
+   * underlying, typically remote, store.
+   *
+   * @return the miss count
+   */
+  public long getCacheMisses() {
+    return _cacheMisses.get();
+  }
+
+  /**
+   * Returns the proportion of {@link CachingFudgeMessageStore} reads that were hits.
+   *
+   * @return the hit ratio, or {@code NaN} if there have been no reads
+   */
+  public double getCacheHitRatio() {
+    final long hits = getCacheHits();
+    final long total = hits + getCacheMisses();
+    return (total > 0) ? (double) hits / (double) total : Double.NaN;
+  }
+
+  /**
+   * Returns the largest number of values observed waiting in a {@link WriteBehindViewComputationCache}.
+   *
+   * @return the maximum queue depth
+   */
+  public int getMaxWriteBehindQueueDepth() {
+    return _maxWriteBehindQueueDepth.get();
+  }
+
+  public long getPrivateBytes() {
+    long bytes = 0;
+    for (ValueStatistics statistics : _values.values()) {
+      bytes += statistics.getPrivateBytes();
+    }
+    return bytes;
+  }
+
+  public long getSharedBytes() {
+    long bytes = 0;
+    for (ValueStatistics statistics : _values.values()) {
+      bytes += statistics.getSharedBytes();
+    }
+    return bytes;
+  }
+
+  public long getRemoteFetches() {
+    long fetches = 0;
+    for (ValueStatistics statistics : _values.values()) {
+      fetches += statistics.getRemoteFetches();
+    }
+    return fetches;
+  }
+
+  /**
+   * Adds the figures from another instance to this one.
+   *
+   * @param other the statistics to add, not null
+   */
+  public void add(final ViewComputationCacheStatistics other) {
+    for (Map.Entry<String, ValueStatistics> value : other._values.entrySet()) {
+      getOrCreateValueStatistics(value.getKey()).add(value.getValue());
+    }
+    _cacheHits.addAndGet(other.getCacheHits());
+    _cacheMisses.addAndGet(other.getCacheMisses());
+    recordWriteBehindQueueDepth(other.getMaxWriteBehindQueueDepth());
+  }
+
+  public void reset() {
+    _values.clear();
+    _cacheHits.set(0);
+    _cacheMisses.set(0);
+    _maxWriteBehindQueueDepth.set(0);
+  }
+
+}
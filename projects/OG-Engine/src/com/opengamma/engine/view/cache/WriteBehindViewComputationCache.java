@@ -14,6 +14,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
@@ -36,6 +37,7 @@ public class WriteBehindViewComputationCache extends DelayedViewComputationCache
   private final Map<ValueSpecification, Object> _pending = new ConcurrentHashMap<ValueSpecification, Object>();
 
   private final Queue<ComputedValue> _pendingValues = new ConcurrentLinkedQueue<ComputedValue>();
+  private final AtomicInteger _pendingValueCount = new AtomicInteger();
   private final Queue<DeferredInvocationStatistics> _pendingStatistics = new ConcurrentLinkedQueue<DeferredInvocationStatistics>();
   private final AtomicReference<Runnable> _valueWriter = new AtomicReference<Runnable>();
   private final Runnable _valueWriterRunnable = new Runnable() {
@@ -58,6 +60,7 @@ public class WriteBehindViewComputationCache extends DelayedViewComputationCache
 
     private void valueWritten(final ComputedValue value) {
       getPending().remove(value.getSpecification());
+      _pendingValueCount.decrementAndGet();
       final DeferredInvocationStatistics statistics = _pendingStatistics.peek();
       if (statistics != null) {
         final Integer bytes = estimateValueSize(value);
@@ -165,6 +168,25 @@ public class WriteBehindViewComputationCache extends DelayedViewComputationCache
     return super.getValues(specifications);
   }
 
+  private void valuesQueued(final int count) {
+    final int depth = _pendingValueCount.addAndGet(count);
+    if (getCache() instanceof DefaultViewComputationCache) {
+      final ViewComputationCacheStatistics statistics = ((DefaultViewComputationCache) getCache()).getStatistics();
+      if (statistics != null) {
+        statistics.recordWriteBehindQueueDepth(depth);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of values waiting to be written to the underlying cache.
+   * 
+   * @return the queue depth
+   */
+  public int getPendingValueCount() {
+    return _pendingValueCount.get();
+  }
+
   private void startWriterIfNotRunning() {
     if (_valueWriter.getAndSet(_valueWriterRunnable) == null) {
       s_logger.info("Starting write-behind thread for {}", WriteBehindViewComputationCache.this.hashCode());
@@ -176,6 +198,7 @@ public class WriteBehindViewComputationCache extends DelayedViewComputationCache
   public void putValue(final ComputedValue value) {
     getPending().put(value.getSpecification(), value.getValue());
     _pendingValues.add(value);
+    valuesQueued(1);
     startWriterIfNotRunning();
   }
 
@@ -185,6 +208,7 @@ public class WriteBehindViewComputationCache extends DelayedViewComputationCache
       getPending().put(value.getSpecification(), value.getValue());
     }
     _pendingValues.addAll(values);
+    valuesQueued(values.size());
     startWriterIfNotRunning();
   }
 
@@ -206,6 +230,7 @@ public class WriteBehindViewComputationCache extends DelayedViewComputationCache
       } catch (InterruptedException e) {
         s_logger.warn("Interrupted during flush");
         _pendingValues.clear();
+        _pendingValueCount.set(0);
         valueWriter.cancel(true);
       } catch (Exception e) {
         throw new OpenGammaRuntimeException("Error synchronising write-behind cache", e);
@@ -45,6 +45,14 @@ public abstract class CacheMessageVisitor {
     return visitIdentifierMapMessage(message);
   }
 
+  protected CacheMessage visitPrefetchRequest(final PrefetchRequest message) {
+    return visitBinaryDataStoreMessage(message);
+  }
+
+  protected CacheMessage visitPrefetchResponse(final PrefetchResponse message) {
+    return visitBinaryDataStoreMessage(message);
+  }
+
   protected CacheMessage visitPutRequest(final PutRequest message) {
     return visitBinaryDataStoreMessage(message);
   }
@@ -0,0 +1,193 @@
+// Automatically created - do not modify
+///CLOVER:OFF
+// CSOFF: Generated File
+package com.opengamma.engine.view.cache.msg;
+public class PrefetchRequest extends com.opengamma.engine.view.cache.msg.CacheMessage implements java.io.Serializable {
+  public CacheMessage accept (CacheMessageVisitor visitor) { return visitor.visitPrefetchRequest (this); }
+  private static final long serialVersionUID = -6278514342390714411l;
+  private com.opengamma.id.UniqueId _viewCycleId;
+  public static final String VIEW_CYCLE_ID_KEY = "viewCycleId";
+  private String _calculationConfigurationName;
+  public static final String CALCULATION_CONFIGURATION_NAME_KEY = "calculationConfigurationName";
+  private java.util.List<com.opengamma.engine.value.ValueSpecification> _specification;
+  public static final String SPECIFICATION_KEY = "specification";
+  public PrefetchRequest (com.opengamma.id.UniqueId viewCycleId, String calculationConfigurationName, java.util.Collection<? extends com.opengamma.engine.value.ValueSpecification> specification) {
+    if (viewCycleId == null) throw new NullPointerException ("'viewCycleId' cannot be null");
+    else {
+      _viewCycleId = viewCycleId;
+    }
+    if (calculationConfigurationName == null) throw new NullPointerException ("calculationConfigurationName' cannot be null");
+    _calculationConfigurationName = calculationConfigurationName;
+    if (specification == null) throw new NullPointerException ("'specification' cannot be null");
+    else {
+      final java.util.List<com.opengamma.engine.value.ValueSpecification> fudge0 = new java.util.ArrayList<com.opengamma.engine.value.ValueSpecification> (specification);
+      if (specification.size () == 0) throw new IllegalArgumentException ("'specification' cannot be an empty list");
+      for (java.util.ListIterator<com.opengamma.engine.value.ValueSpecification> fudge1 = fudge0.listIterator (); fudge1.hasNext (); ) {
+        com.opengamma.engine.value.ValueSpecification fudge2 = fudge1.next ();
+        if (fudge2 == null) throw new NullPointerException ("List element of 'specification' cannot be null");
+        fudge1.set (fudge2);
+      }
+      _specification = fudge0;
+    }
+  }
+  protected PrefetchRequest (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
+    super (deserializer, fudgeMsg);
+    org.fudgemsg.FudgeField fudgeField;
+    java.util.List<org.fudgemsg.FudgeField> fudgeFields;
+    fudgeField = fudgeMsg.getByName (VIEW_CYCLE_ID_KEY);
+    if (fudgeField == null) throw new IllegalArgumentException ("Fudge message is not a PrefetchRequest - field 'viewCycleId' is not present");
+    try {
+      _viewCycleId = com.opengamma.id.UniqueId.fromFudgeMsg (deserializer, fudgeMsg.getFieldValue (org.fudgemsg.FudgeMsg.class, fudgeField));
+    }
+    catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException ("Fudge message is not a PrefetchRequest - field 'viewCycleId' is not UniqueId message", e);
+    }
+    fudgeField = fudgeMsg.getByName (CALCULATION_CONFIGURATION_NAME_KEY);
+    if (fudgeField == null) throw new IllegalArgumentException ("Fudge message is not a PrefetchRequest - field 'calculationConfigurationName' is not present");
+    try {
+      _calculationConfigurationName = fudgeField.getValue ().toString ();
+    }
+    catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException ("Fudge message is not a PrefetchRequest - field 'calculationConfigurationName' is not string", e);
+    }
+    fudgeFields = fudgeMsg.getAllByName (SPECIFICATION_KEY);
+    if (fudgeFields.size () == 0) throw new IllegalArgumentException ("Fudge message is not a PrefetchRequest - field 'specification' is not present");
+    _specification = new java.util.ArrayList<com.opengamma.engine.value.ValueSpecification> (fudgeFields.size ());
+    for (org.fudgemsg.FudgeField fudge1 : fudgeFields) {
+      try {
+        final com.opengamma.engine.value.ValueSpecification fudge2;
+        fudge2 = deserializer.fieldValueToObject (com.opengamma.engine.value.ValueSpecification.class, fudge1);
+        _specification.add (fudge2);
+      }
+      catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException ("Fudge message is not a PrefetchRequest - field 'specification' is not ValueSpecification message", e);
+      }
+    }
+  }
+  public PrefetchRequest (Long correlationId, com.opengamma.id.UniqueId viewCycleId, String calculationConfigurationName, java.util.Collection<? extends com.opengamma.engine.value.ValueSpecification> specification) {
+    super (correlationId);
+    if (viewCycleId == null) throw new NullPointerException ("'viewCycleId' cannot be null");
+    else {
+      _viewCycleId = viewCycleId;
+    }
+    if (calculationConfigurationName == null) throw new NullPointerException ("calculationConfigurationName' cannot be null");
+    _calculationConfigurationName = calculationConfigurationName;
+    if (specification == null) throw new NullPointerException ("'specification' cannot be null");
+    else {
+      final java.util.List<com.opengamma.engine.value.ValueSpecification> fudge0 = new java.util.ArrayList<com.opengamma.engine.value.ValueSpecification> (specification);
+      if (specification.size () == 0) throw new IllegalArgumentException ("'specification' cannot be an empty list");
+      for (java.util.ListIterator<com.opengamma.engine.value.ValueSpecification> fudge1 = fudge0.listIterator (); fudge1.hasNext (); ) {
+        com.opengamma.engine.value.ValueSpecification fudge2 = fudge1.next ();
+        if (fudge2 == null) throw new NullPointerException ("List element of 'specification' cannot be null");
+        fudge1.set (fudge2);
+      }
+      _specification = fudge0;
+    }
+  }
+  protected PrefetchRequest (final PrefetchRequest source) {
+    super (source);
+    if (source == null) throw new NullPointerException ("'source' must not be null");
+    if (source._viewCycleId == null) _viewCycleId = null;
+    else {
+      _viewCycleId = source._viewCycleId;
+    }
+    _calculationConfigurationName = source._calculationConfigurationName;
+    if (source._specification == null) _specification = null;
+    else {
+      final java.util.List<com.opengamma.engine.value.ValueSpecification> fudge0 = new java.util.ArrayList<com.opengamma.engine.value.ValueSpecification> (source._specification);
+      for (java.util.ListIterator<com.opengamma.engine.value.ValueSpecification> fudge1 = fudge0.listIterator (); fudge1.hasNext (); ) {
+        com.opengamma.engine.value.ValueSpecification fudge2 = fudge1.next ();
+        fudge1.set (fudge2);
+      }
+      _specification = fudge0;
+    }
+  }
+  public PrefetchRequest clone () {
+    return new PrefetchRequest (this);
+  }
+  public org.fudgemsg.FudgeMsg toFudgeMsg (final org.fudgemsg.mapping.FudgeSerializer serializer) {
+    if (serializer == null) throw new NullPointerException ("serializer must not be null");
+    final org.fudgemsg.MutableFudgeMsg msg = serializer.newMessage ();
+    toFudgeMsg (serializer, msg);
+    return msg;
+  }
+  public void toFudgeMsg (final org.fudgemsg.mapping.FudgeSerializer serializer, final org.fudgemsg.MutableFudgeMsg msg) {
+    super.toFudgeMsg (serializer, msg);
+    if (_viewCycleId != null)  {
+      final org.fudgemsg.MutableFudgeMsg fudge1 = org.fudgemsg.mapping.FudgeSerializer.addClassHeader (serializer.newMessage (), _viewCycleId.getClass (), com.opengamma.id.UniqueId.class);
+      _viewCycleId.toFudgeMsg (serializer, fudge1);
+      msg.add (VIEW_CYCLE_ID_KEY, null, fudge1);
+    }
+    if (_calculationConfigurationName != null)  {
+      msg.add (CALCULATION_CONFIGURATION_NAME_KEY, null, _calculationConfigurationName);
+    }
+    if (_specification != null)  {
+      for (com.opengamma.engine.value.ValueSpecification fudge1 : _specification) {
+        serializer.addToMessageWithClassHeaders (msg, SPECIFICATION_KEY, null, fudge1, com.opengamma.engine.value.ValueSpecification.class);
+      }
+    }
+  }
+  public static PrefetchRequest fromFudgeMsg (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
+    final java.util.List<org.fudgemsg.FudgeField> types = fudgeMsg.getAllByOrdinal (0);
+    for (org.fudgemsg.FudgeField field : types) {
+      final String className = (String)field.getValue ();
+      if ("com.opengamma.engine.view.cache.msg.PrefetchRequest".equals (className)) break;
+      try {
+        return (com.opengamma.engine.view.cache.msg.PrefetchRequest)Class.forName (className).getDeclaredMethod ("fromFudgeMsg", org.fudgemsg.mapping.FudgeDeserializer.class, org.fudgemsg.FudgeMsg.class).invoke (null, deserializer, fudgeMsg);
+      }
+      catch (Throwable t) {
+        // no-action
+      }
+    }
+    return new PrefetchRequest (deserializer, fudgeMsg);
+  }
+  public com.opengamma.id.UniqueId getViewCycleId () {
+    return _viewCycleId;
+  }
+  public void setViewCycleId (com.opengamma.id.UniqueId viewCycleId) {
+    if (viewCycleId == null) throw new NullPointerException ("'viewCycleId' cannot be null");
+    else {
+      _viewCycleId = viewCycleId;
+    }
+  }
+  public String getCalculationConfigurationName () {
+    return _calculationConfigurationName;
+  }
+  public void setCalculationConfigurationName (String calculationConfigurationName) {
+    if (calculationConfigurationName == null) throw new NullPointerException ("calculationConfigurationName' cannot be null");
+    _calculationConfigurationName = calculationConfigurationName;
+  }
+  public java.util.List<com.opengamma.engine.value.ValueSpecification> getSpecification () {
+    return java.util.Collections.unmodifiableList (_specification);
+  }
+  public void setSpecification (com.opengamma.engine.value.ValueSpecification specification) {
+    if (specification == null) throw new NullPointerException ("'specification' cannot be null");
+    else {
+      _specification = new java.util.ArrayList<com.opengamma.engine.value.ValueSpecification> (1);
+      addSpecification (specification);
+    }
+  }
+  public void setSpecification (java.util.Collection<? extends com.opengamma.engine.value.ValueSpecification> specification) {
+    if (specification == null) throw new NullPointerException ("'specification' cannot be null");
+    else {
+      final java.util.List<com.opengamma.engine.value.ValueSpecification> fudge0 = new java.util.ArrayList<com.opengamma.engine.value.ValueSpecification> (specification);
+      if (specification.size () == 0) throw new IllegalArgumentException ("'specification' cannot be an empty list");
+      for (java.util.ListIterator<com.opengamma.engine.value.ValueSpecification> fudge1 = fudge0.listIterator (); fudge1.hasNext (); ) {
+        com.opengamma.engine.value.ValueSpecification fudge2 = fudge1.next ();
+        if (fudge2 == null) throw new NullPointerException ("List element of 'specification' cannot be null");
+        fudge1.set (fudge2);
+      }
+      _specification = fudge0;
+    }
+  }
+  public void addSpecification (com.opengamma.engine.value.ValueSpecification specification) {
+    if (specification == null) throw new NullPointerException ("'specification' cannot be null");
+    if (_specification == null) _specification = new java.util.ArrayList<com.opengamma.engine.value.ValueSpecification> ();
+    _specification.add (specification);
+  }
+  public String toString () {
+    return org.apache.commons.lang.builder.ToStringBuilder.reflectionToString(this, org.apache.commons.lang.builder.ToStringStyle.SHORT_PREFIX_STYLE);
+  }
+}
+///CLOVER:ON
+// CSON: Generated File
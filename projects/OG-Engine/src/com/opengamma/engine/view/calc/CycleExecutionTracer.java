@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.opengamma.engine.view.calcnode.CalculationJob;
+import com.opengamma.engine.view.calcnode.CalculationJobItem;
+import com.opengamma.engine.view.calcnode.CalculationJobResult;
+import com.opengamma.engine.view.calcnode.CalculationJobSpecification;
+import com.opengamma.engine.view.calcnode.CalculationJobTrace;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Records the execution of the jobs of a single computation cycle. Jobs are marked for tracing as they are dispatched
+ * so that the calculation nodes return a {@link CalculationJobTrace} with their results. The combined timings can be
+ * written in the Chrome trace event format for viewing with {@code chrome://tracing} or a flame graph tool.
+ */
+public class CycleExecutionTracer {
+
+  private static final String NODE_THREAD_PREFIX = "Node ";
+
+  /**
+   * Timings for a single job.
+   */
+  private static final class JobTrace {
+
+    private final long _dispatched;
+    private final String[] _functions;
+    private volatile long _received;
+    private volatile String _nodeId;
+    private volatile CalculationJobTrace _trace;
+
+    private JobTrace(final long dispatched, final List<CalculationJobItem> items) {
+      _dispatched = dispatched;
+      _functions = new String[items.size()];
+      for (int i = 0; i < _functions.length; i++) {
+        _functions[i] = items.get(i).getFunctionUniqueIdentifier();
+      }
+    }
+
+  }
+
+  private final UniqueId _cycleId;
+  private final ConcurrentMap<CalculationJobSpecification, JobTrace> _jobs = new ConcurrentHashMap<CalculationJobSpecification, JobTrace>();
+
+  public CycleExecutionTracer(final UniqueId cycleId) {
+    ArgumentChecker.notNull(cycleId, "cycleId");
+    _cycleId = cycleId;
+  }
+
+  public UniqueId getCycleId() {
+    return _cycleId;
+  }
+
+  /**
+   * Marks a job, and any tail jobs, for tracing and records the time at which it was dispatched.
+   *
+   * @param job the job about to be dispatched, not null
+   */
+  public void jobDispatched(final CalculationJob job) {
+    final long now = CalculationJobTrace.now();
+    job.setTraced(true);
+    _jobs.put(job.getSpecification(), new JobTrace(now, job.getJobItems()));
+    if (job.getTail() != null) {
+      for (CalculationJob tail : job.getTail()) {
+        jobDispatched(tail);
+      }
+    }
+  }
+
+  /**
+   * Records the receipt of a job result, and the trace returned by the node that executed it.
+   *
+   * @param result the job result, not null
+   */
+  public void jobCompleted(final CalculationJobResult result) {
+    final long now = CalculationJobTrace.now();
+    final JobTrace job = _jobs.get(result.getSpecification());
+    if (job != null) {
+      job._nodeId = result.getComputeNodeId();
+      job._trace = result.getTrace();
+      job._received = now;
+    }
+  }
+
+  /**
+   * Writes the trace of the jobs completed so far in the Chrome trace event format. Each calculation node appears as
+   * a thread, with an event for each job it executed containing an event for each job item. Time spent between dispatch
+   * and the start of execution appears as an asynchronous "queued" event.
+   *
+   * @param writer the writer to output to, not null
+   * @throws IOException if the writer fails
+   */
+  public void writeChromeTrace(final Writer writer) throws IOException {
+    final Map<CalculationJobSpecification, JobTrace> jobs = new HashMap<CalculationJobSpecification, JobTrace>(_jobs);
+    long origin = Long.MAX_VALUE;
+    for (JobTrace job : jobs.values()) {
+      origin = Math.min(origin, job._dispatched);
+    }
+    final Map<String, Integer> threads = new HashMap<String, Integer>();
+    final List<String> events = new ArrayList<String>();
+    events.add(metadataEvent("process_name", 0, "View cycle " + _cycleId));
+    for (Map.Entry<CalculationJobSpecification, JobTrace> entry : jobs.entrySet()) {
+      final JobTrace job = entry.getValue();
+      if (job._received == 0) {
+        continue;
+      }
+      final CalculationJobSpecification spec = entry.getKey();
+      final String name = spec.getCalcConfigName() + " job " + spec.getJobId();
+      Integer tid = threads.get(job._nodeId);
+      if (tid == null) {
+        tid = threads.size() + 1;
+        threads.put(job._nodeId, tid);
+        events.add(metadataEvent("thread_name", tid, NODE_THREAD_PREFIX + job._nodeId));
+      }
+      final CalculationJobTrace trace = job._trace;
+      if (trace == null) {
+        // Node did not return a trace; all we know is the round trip time
+        events.add(completeEvent(name, "job", tid, job._dispatched - origin, job._received - job._dispatched));
+        continue;
+      }
+      events.add(asyncEvent("queued", 'b', spec.getJobId(), job._dispatched - origin));
+      events.add(asyncEvent("queued", 'e', spec.getJobId(), trace.getStarted() - origin));
+      events.add(completeEvent(name, "job", tid, trace.getStarted() - origin, trace.getFinished() - trace.getStarted()));
+      for (int i = 0; i < trace.getItemCount(); i++) {
+        final long started = trace.getItemStarted(i);
+        if (started == 0) {
+          continue;
+        }
+        final long inputsFetched = trace.getItemInputsFetched(i);
+        final long invoked = trace.getItemInvoked(i);
+        final long written = trace.getItemWritten(i);
+        final long end = Math.max(Math.max(started, inputsFetched), Math.max(invoked, written));
+        final String function = (i < job._functions.length) ? job._functions[i] : "item " + i;
+        events.add(completeEvent(function, "item", tid, started - origin, end - started));
+        if (inputsFetched != 0) {
+          events.add(completeEvent("fetch inputs", "phase", tid, started - origin, inputsFetched - started));
+          if (invoked != 0) {
+            events.add(completeEvent("invoke", "phase", tid, inputsFetched - origin, invoked - inputsFetched));
+            if (written != 0) {
+              events.add(completeEvent("write", "phase", tid, invoked - origin, written - invoked));
+            }
+          }
+        }
+      }
+    }
+    writer.write("{\"traceEvents\":[\n");
+    for (int i = 0; i < events.size(); i++) {
+      if (i > 0) {
+        writer.write(",\n");
+      }
+      writer.write(events.get(i));
+    }
+    writer.write("\n]}\n");
+    writer.flush();
+  }
+
+  private static String metadataEvent(final String name, final int tid, final String value) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("{\"name\":\"").append(name).append("\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(tid);
+    sb.append(",\"args\":{\"name\":");
+    appendString(sb, value);
+    return sb.append("}}").toString();
+  }
+
+  private static String completeEvent(final String name, final String category, final int tid, final long startNanos, final long durationNanos) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("{\"name\":");
+    appendString(sb, name);
+    sb.append(",\"cat\":\"").append(category).append("\",\"ph\":\"X\",\"pid\":1,\"tid\":").append(tid);
+    sb.append(",\"ts\":");
+    appendMicros(sb, startNanos);
+    sb.append(",\"dur\":");
+    appendMicros(sb, Math.max(durationNanos, 0));
+    return sb.append('}').toString();
+  }
+
+  private static String asyncEvent(final String name, final char phase, final long id, final long timeNanos) {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("{\"name\":\"").append(name).append("\",\"cat\":\"job\",\"ph\":\"").append(phase);
+    sb.append("\",\"id\":").append(id).append(",\"pid\":1,\"tid\":0,\"ts\":");
+    appendMicros(sb, timeNanos);
+    return sb.append('}').toString();
+  }
+
+  private static void appendMicros(final StringBuilder sb, long nanos) {
+    if (nanos < 0) {
+      // Clocks on different machines may not agree
+      sb.append('-');
+      nanos = -nanos;
+    }
+    sb.append(nanos / 1000).append('.');
+    final long fraction = nanos % 1000;
+    if (fraction < 100) {
+      sb.append('0');
+      if (fraction < 10) {
+        sb.append('0');
+      }
+    }
+    sb.append(fraction);
+  }
+
+  private static void appendString(final StringBuilder sb, final String str) {
+    sb.append('"');
+    for (int i = 0; i < str.length(); i++) {
+      final char c = str.charAt(i);
+      switch (c) {
+        case '"':
+          sb.append("\\\"");
+          break;
+        case '\\':
+          sb.append("\\\\");
+          break;
+        default:
+          if (c < ' ') {
+            sb.append(String.format("\\u%04x", (int) c));
+          } else {
+            sb.append(c);
+          }
+          break;
+      }
+    }
+    sb.append('"');
+  }
+
+}
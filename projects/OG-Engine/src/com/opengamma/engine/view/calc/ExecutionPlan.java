@@ -86,10 +86,12 @@ import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
       private final int[] _inputs;
       private final int[] _outputs;
       private final int[] _tail;
+      private final long _priority;
 
       private FragmentDescriptor(final GraphFragment<?, ?> fragment) {
         _nodes = fragment.getNodes();
         _cacheSelectHint = fragment.getCacheSelectHint();
+        _priority = fragment.getPriority();
         int[] a;
         int i;
         if (fragment.getInputFragments().isEmpty()) {
@@ -131,6 +133,7 @@ import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
         _inputs = copyFrom.getInputs();
         _outputs = copyFrom.getOutputs();
         _tail = copyFrom.getTail();
+        _priority = copyFrom.getPriority();
       }
 
       public Collection<DependencyNode> getNodes() {
@@ -153,6 +156,10 @@ import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
         return _tail;
       }
 
+      public long getPriority() {
+        return _priority;
+      }
+
     }
 
     private final Map<Integer, FragmentDescriptor> _fragments;
@@ -185,6 +192,7 @@ import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
       for (Map.Entry<Integer, FragmentDescriptor> descriptor : _fragments.entrySet()) {
         final GraphFragment fragment = new GraphFragment(context, descriptor.getValue().getNodes());
         fragment.setCacheSelectHint(descriptor.getValue().getCacheSelectHint());
+        fragment.setPriority(descriptor.getValue().getPriority());
         fragments.put(descriptor.getKey(), fragment);
       }
       final List<GraphFragment> runnables = new LinkedList<GraphFragment>();
@@ -217,7 +225,7 @@ import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
         }
       }
       root.initBlockCount();
-      for (GraphFragment runnable : runnables) {
+      for (GraphFragment runnable : GraphFragment.byPriority(runnables)) {
         runnable.execute();
       }
       return root.getFuture();
@@ -5,6 +5,7 @@
  */
 package com.opengamma.engine.view.calc;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -99,7 +100,7 @@ import com.opengamma.util.ehcache.EHCacheUtils;
     public DependencyGraphKey(final DependencyGraph graph, final long functionInitId) {
       _functionInitId = functionInitId;
       _terminals = new HashSet<ValueSpecification>(graph.getTerminalOutputSpecifications());
-      final Set<DependencyNode> nodes = graph.getDependencyNodes();
+      final Collection<DependencyNode> nodes = graph.isFrozen() ? graph.getExecutionOrder() : graph.getDependencyNodes();
       _nodes = Maps.newHashMapWithExpectedSize(nodes.size());
       for (DependencyNode node : nodes) {
         _nodes.put(new DependencyNodeKey(node), node);
@@ -143,11 +144,15 @@ import com.opengamma.util.ehcache.EHCacheUtils;
 
   /**
    * Building the "key" object can be costly. If the graph is still in memory, then we can keep a previous key
-   * around. The current behavior of view processes and executors is that graphs do not get modified once they
-   * are constructed and being used. If this changes then we will have a problem at execution as the older plan
-   * will match.
+   * around. A frozen graph is looked up by its execution order, which is replaced if the graph is thawed and
+   * modified, so the key is rebuilt when the graph is frozen again. A graph which is not frozen is looked up by
+   * identity and must not be modified once it is being used or the older plan will match.
    */
-  private final Map<DependencyGraph, DependencyGraphKey> _identityLookup = new MapMaker().weakKeys().makeMap();
+  private final Map<Object, DependencyGraphKey> _identityLookup = new MapMaker().weakKeys().makeMap();
+
+  private static Object getIdentity(final DependencyGraph graph) {
+    return graph.isFrozen() ? graph.getExecutionOrder() : graph;
+  }
 
   public ExecutionPlanCache(final CacheManager manager, final int cacheSize) {
     if (cacheSize > 0) {
@@ -168,11 +173,12 @@ import com.opengamma.util.ehcache.EHCacheUtils;
   public ExecutionPlan getCachedPlan(final DependencyGraph graph, final long functionInitId) {
     if (_cache != null) {
       s_logger.debug("Searching for cached execution plan for {}/{}", graph, functionInitId);
-      DependencyGraphKey key = _identityLookup.get(graph);
+      final Object identity = getIdentity(graph);
+      DependencyGraphKey key = _identityLookup.get(identity);
       if ((key == null) || (key._functionInitId != functionInitId)) {
         s_logger.debug("Identity lookup miss");
         key = new DependencyGraphKey(graph, functionInitId);
-        _identityLookup.put(graph, key);
+        _identityLookup.put(identity, key);
       }
       final Element element = _cache.get(key);
       if (element != null) {
@@ -190,11 +196,12 @@ import com.opengamma.util.ehcache.EHCacheUtils;
   public void cachePlan(final DependencyGraph graph, final long functionInitId, final ExecutionPlan plan) {
     if (_cache != null) {
       s_logger.info("Caching execution plan for {}/{}", graph, functionInitId);
-      DependencyGraphKey key = _identityLookup.get(graph);
+      final Object identity = getIdentity(graph);
+      DependencyGraphKey key = _identityLookup.get(identity);
       if ((key == null) || (key._functionInitId != functionInitId)) {
         s_logger.debug("Identity lookup miss");
         key = new DependencyGraphKey(graph, functionInitId);
-        _identityLookup.put(graph, key);
+        _identityLookup.put(identity, key);
       }
       _cache.put(new Element(key, plan));
     }
@@ -8,6 +8,7 @@ package com.opengamma.engine.view.calc;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -42,6 +43,7 @@ import com.opengamma.engine.view.calcnode.CalculationJobSpecification;
   private AtomicInteger _blockCount;
   private Collection<Long> _requiredJobs;
   private Collection<F> _tail;
+  private long _priority;
 
   public GraphFragment(final C context) {
     _context = context;
@@ -96,6 +98,20 @@ import com.opengamma.engine.view.calcnode.CalculationJobSpecification;
     return _cacheSelectHint;
   }
 
+  /**
+   * Sets the dispatch priority. When several fragments become runnable at once, those with the higher priority are
+   * dispatched first.
+   * 
+   * @param priority the priority, for example the estimated time from the start of the fragment to the end of the graph
+   */
+  public void setPriority(final long priority) {
+    _priority = priority;
+  }
+
+  public long getPriority() {
+    return _priority;
+  }
+
   public int getJobItems() {
     return _nodes.size();
   }
@@ -159,11 +175,36 @@ import com.opengamma.engine.view.calcnode.CalculationJobSpecification;
   public void resultReceived(final CalculationJobResult result) {
     // Release tree fragments up the tree
     getContext().addExecutionTime(result.getDuration());
-    for (GraphFragment<C, F> dependent : getOutputFragments()) {
-      dependent.inputCompleted();
+    if (getOutputFragments().size() > 1) {
+      for (GraphFragment<C, F> dependent : byPriority(getOutputFragments())) {
+        dependent.inputCompleted();
+      }
+    } else {
+      for (GraphFragment<C, F> dependent : getOutputFragments()) {
+        dependent.inputCompleted();
+      }
     }
   }
 
+  /**
+   * Orders fragments by descending priority.
+   * 
+   * @param fragments the fragments to order, not null
+   * @return the ordered fragments, not null
+   */
+  public static <T extends GraphFragment<?, ?>> List<T> byPriority(final Collection<T> fragments) {
+    final List<T> result = new ArrayList<T>(fragments);
+    Collections.sort(result, new Comparator<T>() {
+      @Override
+      public int compare(final T o1, final T o2) {
+        final long p1 = o1.getPriority();
+        final long p2 = o2.getPriority();
+        return (p1 > p2) ? -1 : ((p1 < p2) ? 1 : 0);
+      }
+    });
+    return result;
+  }
+
   public long getFunctionInitializationTimestamp() {
     return getContext().getFunctionInitId();
   }
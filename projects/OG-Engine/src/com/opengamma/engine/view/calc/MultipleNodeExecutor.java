@@ -6,6 +6,7 @@
 package com.opengamma.engine.view.calc;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -24,9 +25,12 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.function.BatchFunctionInvoker;
+import com.opengamma.engine.function.ParameterizedFunction;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.cache.CacheSelectHint;
 import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
@@ -56,9 +60,15 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
   private final int _maxConcurrency;
   private final FunctionCosts _functionCosts;
   private final ExecutionPlanCache _cache;
+  private final boolean _criticalPath;
 
   protected MultipleNodeExecutor(final SingleComputationCycle cycle, final int minimumJobItems, final int maximumJobItems, final long minimumJobCost, final long maximumJobCost,
       final int maximumConcurrency, final FunctionCosts functionCosts, final ExecutionPlanCache cache) {
+    this(cycle, minimumJobItems, maximumJobItems, minimumJobCost, maximumJobCost, maximumConcurrency, functionCosts, cache, false);
+  }
+
+  protected MultipleNodeExecutor(final SingleComputationCycle cycle, final int minimumJobItems, final int maximumJobItems, final long minimumJobCost, final long maximumJobCost,
+      final int maximumConcurrency, final FunctionCosts functionCosts, final ExecutionPlanCache cache, final boolean criticalPath) {
     // Don't check for null as the factory does this, plus for testing we don't have a cycle and override the methods that use it
     _cycle = cycle;
     _minJobItems = minimumJobItems;
@@ -68,6 +78,7 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
     _maxConcurrency = maximumConcurrency;
     _functionCosts = functionCosts;
     _cache = cache;
+    _criticalPath = criticalPath;
   }
 
   protected long getFunctionInitId() {
@@ -91,6 +102,10 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
   }
 
   protected Cancelable dispatchJob(final CalculationJob job, final JobResultReceiver jobResultReceiver) {
+    final CycleExecutionTracer tracer = getCycle().getTracer();
+    if (tracer != null) {
+      tracer.jobDispatched(job);
+    }
     return getCycle().getViewProcessContext().getComputationJobDispatcher().dispatchJob(job, jobResultReceiver);
   }
 
@@ -143,6 +158,9 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
     }
     int failCount = 0;
     do {
+      if (isCriticalPath()) {
+        analyseCriticalPath(allFragments);
+      }
       if (mergeSharedInputs(logicalRoot, allFragments)) {
         failCount = 0;
       } else {
@@ -158,6 +176,9 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
         }
       }
     } while (true);
+    if (isCriticalPath()) {
+      analyseCriticalPath(allFragments);
+    }
     findTailFragments(allFragments);
     context.allocateFragmentMap(allFragments.size());
     // Set block counts on non-leaf nodes & leave only the leaves in the set
@@ -181,7 +202,7 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
         (double) totalInvocationCost / (double) count, (double) totalDataCost / (double) count);
     // printFragment(logicalRoot);
     // Execute anything left (leaf nodes)
-    for (MutableGraphFragment fragment : allFragments) {
+    for (MutableGraphFragment fragment : isCriticalPath() ? GraphFragment.byPriority(allFragments) : allFragments) {
       fragment.execute();
     }
     return logicalRoot;
@@ -256,7 +277,86 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
     return _functionCosts;
   }
 
+  /**
+   * Indicates whether fragments are formed and dispatched with regard to the critical path through the graph.
+   * 
+   * @return true if critical path partitioning is enabled
+   */
+  public boolean isCriticalPath() {
+    return _criticalPath;
+  }
+
+  /**
+   * Estimates the earliest start time of each fragment, and the time from its start to the completion of the graph, from
+   * the function costs. The latter is used as the dispatch priority of the fragment so that work on the critical path is
+   * dispatched before work that can be delayed. The difference between the two and the overall graph duration is the
+   * slack, the amount by which the fragment could be extended without delaying the graph.
+   */
+  private void analyseCriticalPath(final Set<MutableGraphFragment> allFragments) {
+    // Topological sort of the fragments
+    final Map<MutableGraphFragment, AtomicInteger> blockCount = Maps.newHashMapWithExpectedSize(allFragments.size());
+    final List<MutableGraphFragment> order = new ArrayList<MutableGraphFragment>(allFragments.size());
+    for (MutableGraphFragment fragment : allFragments) {
+      if (fragment.getInputFragments().isEmpty()) {
+        order.add(fragment);
+      } else {
+        blockCount.put(fragment, new AtomicInteger(fragment.getInputFragments().size()));
+      }
+    }
+    for (int i = 0; i < order.size(); i++) {
+      for (MutableGraphFragment output : order.get(i).getOutputFragments()) {
+        final AtomicInteger count = blockCount.get(output);
+        if ((count != null) && (count.decrementAndGet() == 0)) {
+          order.add(output);
+        }
+      }
+    }
+    // Forward pass for the earliest start times
+    final Map<MutableGraphFragment, Long> earliestStart = Maps.newHashMapWithExpectedSize(order.size());
+    for (MutableGraphFragment fragment : order) {
+      long start = 0;
+      for (MutableGraphFragment input : fragment.getInputFragments()) {
+        final long finish = earliestStart.get(input) + input.getJobCost();
+        if (finish > start) {
+          start = finish;
+        }
+      }
+      earliestStart.put(fragment, start);
+    }
+    // Backward pass for the time to completion
+    long graphCost = 0;
+    for (int i = order.size() - 1; i >= 0; i--) {
+      final MutableGraphFragment fragment = order.get(i);
+      long remaining = 0;
+      for (MutableGraphFragment output : fragment.getOutputFragments()) {
+        if (!output.getNodes().isEmpty() && (output.getPriority() > remaining)) {
+          remaining = output.getPriority();
+        }
+      }
+      remaining += fragment.getJobCost();
+      fragment.setPriority(remaining);
+      final long cost = earliestStart.get(fragment) + remaining;
+      if (cost > graphCost) {
+        graphCost = cost;
+      }
+    }
+    for (MutableGraphFragment fragment : order) {
+      fragment.setSlack(graphCost - earliestStart.get(fragment) - fragment.getPriority());
+    }
+  }
+
+  /**
+   * Tests whether two fragments that could otherwise run concurrently can be combined into a single job without
+   * delaying completion of the graph. Running them sequentially delays the completion of each by the cost of the other.
+   */
+  private boolean canMergeConcurrent(final MutableGraphFragment a, final MutableGraphFragment b) {
+    return !isCriticalPath() || ((a.getSlack() >= b.getJobCost()) && (b.getSlack() >= a.getJobCost()));
+  }
+
   private Collection<MutableGraphFragment> graphToFragments(final MutableGraphFragmentContext context, final DependencyGraph graph, final Set<MutableGraphFragment> allFragments) {
+    if (graph.isFrozen()) {
+      return frozenGraphToFragments(context, graph, allFragments);
+    }
     final Map<DependencyNode, MutableGraphFragment> node2fragment = new HashMap<DependencyNode, MutableGraphFragment>();
     final Collection<DependencyNode> rootNodes = graph.getRootNodes();
     final Collection<MutableGraphFragment> rootFragments = new ArrayList<MutableGraphFragment>(rootNodes.size());
@@ -265,6 +365,29 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
     return rootFragments;
   }
 
+  /**
+   * Creates a fragment for each node of a frozen graph by iterating the nodes in execution order. The input fragments
+   * of a node will always have been created before it.
+   */
+  private Collection<MutableGraphFragment> frozenGraphToFragments(final MutableGraphFragmentContext context, final DependencyGraph graph, final Set<MutableGraphFragment> allFragments) {
+    final int size = graph.getSize();
+    final MutableGraphFragment[] fragments = new MutableGraphFragment[size];
+    final Collection<MutableGraphFragment> rootFragments = new ArrayList<MutableGraphFragment>();
+    for (int i = 0; i < size; i++) {
+      final MutableGraphFragment fragment = new MutableGraphFragment(context, graph.getNode(i));
+      fragments[i] = fragment;
+      for (int input : graph.getInputNodeIndices(i)) {
+        fragment.getInputFragments().add(fragments[input]);
+        fragments[input].getOutputFragments().add(fragment);
+      }
+      if (graph.getDependentNodeIndices(i).length == 0) {
+        rootFragments.add(fragment);
+      }
+    }
+    allFragments.addAll(Arrays.asList(fragments));
+    return rootFragments;
+  }
+
   private void graphToFragments(final MutableGraphFragmentContext context, final DependencyGraph graph, final Collection<MutableGraphFragment> output,
       final Map<DependencyNode, MutableGraphFragment> node2fragment, final Collection<DependencyNode> nodes) {
     // TODO Andrew 2010-09-02 -- Can we do this by iterating the graph nodes instead of walking the tree?
@@ -288,12 +411,48 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
     }
   }
 
+  /**
+   * Returns the function that all nodes in the fragment use, if it can be invoked on a batch of targets.
+   */
+  private static String getBatchFunction(final MutableGraphFragment fragment) {
+    String function = null;
+    for (DependencyNode node : fragment.getNodes()) {
+      final ParameterizedFunction nodeFunction = node.getFunction();
+      if (nodeFunction == null) {
+        return null;
+      }
+      if (function == null) {
+        if (!(nodeFunction.getFunction().getFunctionInvoker() instanceof BatchFunctionInvoker)) {
+          return null;
+        }
+        function = nodeFunction.getUniqueId();
+      } else if (!function.equals(nodeFunction.getUniqueId())) {
+        return null;
+      }
+    }
+    return function;
+  }
+
+  /**
+   * Returns the key under which a fragment is matched with others by {@link #mergeSharedInputs}. A fragment using only a
+   * {@link BatchFunctionInvoker} function is only matched with others for the same function so that the resulting job
+   * items can be passed to the function in a single call.
+   */
+  private static Object getSharedInputsKey(final MutableGraphFragment fragment) {
+    final String function = getBatchFunction(fragment);
+    if (function != null) {
+      return Pair.of(fragment.getInputFragments(), function);
+    } else {
+      return fragment.getInputFragments();
+    }
+  }
+
   /**
    * Finds pairs of nodes with the same input set (i.e. that would execute concurrently) that are below the minimum job size
    * and merge them together.
    */
   private boolean mergeSharedInputs(final MutableGraphFragment logicalRoot, final Set<MutableGraphFragment> allFragments) {
-    final Map<Set<MutableGraphFragment>, MutableGraphFragment> possibleCandidates = new HashMap<Set<MutableGraphFragment>, MutableGraphFragment>();
+    final Map<Object, MutableGraphFragment> possibleCandidates = new HashMap<Object, MutableGraphFragment>();
     // REVIEW 2010-08-27 Andrew -- Should we only create validCandidates when we're ready to use it?
     final Map<MutableGraphFragment, MutableGraphFragment> validCandidates = new HashMap<MutableGraphFragment, MutableGraphFragment>();
     boolean result = false;
@@ -308,13 +467,14 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
           // We already meet the minimum requirement for the graph
           continue;
         }
-        final MutableGraphFragment mergeCandidate = possibleCandidates.get(fragment.getInputFragments());
+        final Object key = getSharedInputsKey(fragment);
+        final MutableGraphFragment mergeCandidate = possibleCandidates.get(key);
         if (mergeCandidate != null) {
-          if (mergeCandidate.canAppendFragment(fragment, getMaxJobItems(), getMaxJobCost())) {
+          if (mergeCandidate.canAppendFragment(fragment, getMaxJobItems(), getMaxJobCost()) && canMergeConcurrent(mergeCandidate, fragment)) {
             // Defer the merge because we're iterating through the dependent's inputs at the moment
             validCandidates.put(fragment, mergeCandidate);
             // Stop using the merge candidate
-            possibleCandidates.remove(fragment.getInputFragments());
+            possibleCandidates.remove(key);
             continue;
           }
           if (fragment.getJobCost() >= mergeCandidate.getJobCost()) {
@@ -322,7 +482,7 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
             continue;
           }
         }
-        possibleCandidates.put(fragment.getInputFragments(), fragment);
+        possibleCandidates.put(key, fragment);
       }
       if (validCandidates.isEmpty()) {
         return result;
@@ -330,6 +490,9 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
       for (Map.Entry<MutableGraphFragment, MutableGraphFragment> merge : validCandidates.entrySet()) {
         final MutableGraphFragment fragment = merge.getKey();
         final MutableGraphFragment mergeCandidate = merge.getValue();
+        if (isCriticalPath()) {
+          mergeCandidate.setSlack(Math.min(mergeCandidate.getSlack() - fragment.getJobCost(), fragment.getSlack() - mergeCandidate.getJobCost()));
+        }
         mergeCandidate.appendFragment(fragment);
         // Merge candidate already has the correct inputs by definition
         for (MutableGraphFragment dependency : fragment.getOutputFragments()) {
@@ -379,6 +542,10 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
         // Can't merge
         continue;
       }
+      if (isCriticalPath() && (dependency.getInputFragments().size() > 1) && (fragment.getJobCost() > dependency.getSlack())) {
+        // The merged job can't start until the dependency's other inputs are available; that would delay the graph
+        continue;
+      }
       // Merge fragment with it's dependency and slice it out of the graph
       dependency.prependFragment(fragment);
       fragmentIterator.remove();
@@ -436,7 +603,8 @@ public class MultipleNodeExecutor implements DependencyGraphExecutor<DependencyG
         }
       }
       if (event.getFirst() != null) {
-        for (MutableGraphFragment starting : event.getFirst()) {
+        // With critical path analysis, the most urgent fragments get the first chance to become tails
+        for (MutableGraphFragment starting : isCriticalPath() ? GraphFragment.byPriority(event.getFirst()) : event.getFirst()) {
           if (starting.getInputFragments().isEmpty()) {
             // No inputs, so we're a leaf node = new graph color
             nextExecutionId++;
@@ -26,6 +26,7 @@ public class MultipleNodeExecutorFactory implements DependencyGraphExecutorFacto
   private long _maximumJobCost = Long.MAX_VALUE;
   private int _maximumConcurrency = Integer.MAX_VALUE;
   private FunctionCosts _functionCosts;
+  private boolean _criticalPath;
   
   protected ExecutionPlanCache getExecutionPlanCache() {
     return _executionPlanCache;
@@ -81,6 +82,22 @@ public class MultipleNodeExecutorFactory implements DependencyGraphExecutorFacto
     return _maximumConcurrency;
   }
 
+  /**
+   * Sets whether graph fragments should be formed and dispatched with regard to the critical path. When set, fragments
+   * that could run concurrently are only merged if neither would delay completion of the graph, and fragments on the
+   * critical path are dispatched first.
+   * 
+   * @param criticalPath true to enable critical path partitioning
+   */
+  public void setCriticalPath(final boolean criticalPath) {
+    _criticalPath = criticalPath;
+    invalidateExecutionPlanCache();
+  }
+
+  public boolean isCriticalPath() {
+    return _criticalPath;
+  }
+
   public void setFunctionCosts(final FunctionCosts functionCosts) {
     ArgumentChecker.notNull(functionCosts, "functionCosts");
     _functionCosts = functionCosts;
@@ -98,7 +115,8 @@ public class MultipleNodeExecutorFactory implements DependencyGraphExecutorFacto
   @Override
   public MultipleNodeExecutor createExecutor(final SingleComputationCycle cycle) {
     ArgumentChecker.notNull(cycle, "cycle");
-    return new MultipleNodeExecutor(cycle, getMinimumJobItems(), getMaximumJobItems(), getMinimumJobCost(), getMaximumJobCost(), getMaximumConcurrency(), getFunctionCosts(), _executionPlanCache);
+    return new MultipleNodeExecutor(cycle, getMinimumJobItems(), getMaximumJobItems(), getMinimumJobCost(), getMaximumJobCost(), getMaximumConcurrency(), getFunctionCosts(), _executionPlanCache,
+        isCriticalPath());
   }
 
   @Override
@@ -42,6 +42,7 @@ import com.opengamma.engine.view.calcnode.stats.FunctionInvocationStatistics;
   private long _dataInputCost;
   private long _dataOutputCost;
   private int _executionId;
+  private long _slack = Long.MAX_VALUE;
 
   private MutableGraphFragment(final MutableGraphFragmentContext context) {
     super(context);
@@ -106,6 +107,20 @@ import com.opengamma.engine.view.calcnode.stats.FunctionInvocationStatistics;
     return latest;
   }
 
+  /**
+   * Returns the amount the completion of this fragment can be delayed without delaying completion of the graph, as
+   * last calculated by the critical path analysis.
+   * 
+   * @return the slack, or {@link Long#MAX_VALUE} if no analysis has been done
+   */
+  public long getSlack() {
+    return _slack;
+  }
+
+  public void setSlack(final long slack) {
+    _slack = slack;
+  }
+
   public void addTail(final MutableGraphFragment fragment) {
     Collection<MutableGraphFragment> tail = getTail();
     if (tail == null) {
@@ -302,7 +317,7 @@ import com.opengamma.engine.view.calcnode.stats.FunctionInvocationStatistics;
 
   @Override
   public String toString() {
-    return super.toString() + ", earliestStart=" + _startTime + ", executionCost=" + _invocationCost;
+    return super.toString() + ", earliestStart=" + _startTime + ", executionCost=" + _invocationCost + ", priority=" + getPriority();
   }
 
   public static class Root extends MutableGraphFragment {
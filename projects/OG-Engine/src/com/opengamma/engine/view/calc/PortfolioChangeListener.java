@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc;
+
+import com.opengamma.core.change.ChangeEvent;
+import com.opengamma.core.change.ChangeListener;
+
+/**
+ * Change listener for the position source which notifies a computation job of changed portfolios, positions and
+ * trades so that the affected parts of its compilation can be rebuilt.
+ */
+public class PortfolioChangeListener implements ChangeListener {
+
+  private final ViewComputationJob _computationJob;
+
+  public PortfolioChangeListener(ViewComputationJob computationJob) {
+    _computationJob = computationJob;
+  }
+
+  @Override
+  public void entityChanged(ChangeEvent event) {
+    if (event.getBeforeId() != null) {
+      getViewComputationJob().dirtyPortfolio(event.getBeforeId().getObjectId());
+    } else if (event.getAfterId() != null) {
+      getViewComputationJob().dirtyPortfolio(event.getAfterId().getObjectId());
+    }
+  }
+
+  private ViewComputationJob getViewComputationJob() {
+    return _computationJob;
+  }
+
+}
@@ -0,0 +1,371 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang.ObjectUtils;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.function.FunctionParameters;
+import com.opengamma.engine.function.MarketDataSourcingFunction;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.cache.DefaultViewComputationCache;
+import com.opengamma.engine.view.cache.ViewComputationCache;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Lets view processes share the results of identical calculations. Each cycle publishes the nodes it has executed and,
+ * before executing, a cycle in another view process may take the values of any node it finds with the same function,
+ * parameters, target and outputs whose inputs were, recursively, identical. Market data inputs are compared by value so
+ * only cycles seeing the same market data share work. Anything else that can influence a function's result, such as
+ * the valuation time, is supplied by the cycle as a context object and must also be equal.
+ * <p>
+ * Values are only taken from cycles that have completed and remain until the publishing cycle is released, so sharing
+ * is opportunistic: two processes executing at the same moment will both calculate.
+ */
+public class SharedComputationRegistry {
+
+  private final ConcurrentMap<NodeKey, Entry> _entries = new ConcurrentHashMap<NodeKey, Entry>();
+  private final AtomicLong _sharedNodes = new AtomicLong();
+
+  /**
+   * Identifies the calculation performed by a node.
+   */
+  private static final class NodeKey {
+
+    private final Object _context;
+    private final String _function;
+    private final FunctionParameters _parameters;
+    private final ComputationTargetSpecification _target;
+    private final Set<ValueSpecification> _outputs;
+    // Values for market data, otherwise the keys of the producing nodes
+    private final Map<ValueSpecification, Object> _inputs;
+    private final int _hashCode;
+
+    public NodeKey(final Object context, final DependencyNode node, final Map<ValueSpecification, Object> inputs) {
+      _context = context;
+      _function = node.getFunction().getFunction().getFunctionDefinition().getUniqueId();
+      _parameters = node.getFunction().getParameters();
+      _target = node.getComputationTarget().toSpecification();
+      _outputs = new HashSet<ValueSpecification>(node.getOutputValues());
+      _inputs = inputs;
+      int hc = _context.hashCode();
+      hc += (hc << 4) + ObjectUtils.hashCode(_function);
+      hc += (hc << 4) + ObjectUtils.hashCode(_parameters);
+      hc += (hc << 4) + _target.hashCode();
+      hc += (hc << 4) + _outputs.hashCode();
+      hc += (hc << 4) + _inputs.hashCode();
+      _hashCode = hc;
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof NodeKey)) {
+        return false;
+      }
+      final NodeKey other = (NodeKey) o;
+      return (_hashCode == other._hashCode)
+          && ObjectUtils.equals(_function, other._function)
+          && _target.equals(other._target)
+          && ObjectUtils.equals(_parameters, other._parameters)
+          && _outputs.equals(other._outputs)
+          && _context.equals(other._context)
+          && _inputs.equals(other._inputs);
+    }
+
+  }
+
+  /**
+   * A published node.
+   */
+  private static final class Entry {
+
+    private final NodeKey _key;
+    private final Configuration _configuration;
+
+    public Entry(final NodeKey key, final Configuration configuration) {
+      _key = key;
+      _configuration = configuration;
+    }
+
+  }
+
+  /**
+   * The graph and cache of a calculation configuration within a participating cycle.
+   */
+  private static final class Configuration {
+
+    private final Participant _participant;
+    private final ViewComputationCache _cache;
+    private final Map<DependencyNode, NodeKey> _keys;
+    private final List<Entry> _published = new ArrayList<Entry>();
+
+    public Configuration(final Participant participant, final ViewComputationCache cache, final Map<DependencyNode, NodeKey> keys) {
+      _participant = participant;
+      _cache = cache;
+      _keys = keys;
+    }
+
+  }
+
+  /**
+   * The view cycle's view of the registry. A cycle configures each of its graphs, imports what it can before execution
+   * and publishes the nodes it has executed afterwards. It must withdraw when it is released.
+   */
+  public final class Participant {
+
+    private final ReadWriteLock _lock = new ReentrantReadWriteLock();
+    private final Map<String, Configuration> _configurations = new HashMap<String, Configuration>();
+    private boolean _withdrawn;
+
+    private Participant() {
+    }
+
+    /**
+     * Identifies the nodes of a graph. This must be called after the market data has been loaded into the cache and
+     * before values are imported or published for the configuration.
+     *
+     * @param calcConfigurationName the calculation configuration name, not null
+     * @param graph the graph, not null
+     * @param cache the cache the cycle is using for the configuration, not null
+     * @param context the other parameters of the calculation, compared with {@link Object#equals}, not null
+     * @param marketData the market data values, after any overrides, as written to the cache, not null
+     */
+    public void configure(final String calcConfigurationName, final DependencyGraph graph, final ViewComputationCache cache, final Object context,
+        final Map<ValueSpecification, Object> marketData) {
+      ArgumentChecker.notNull(calcConfigurationName, "calcConfigurationName");
+      ArgumentChecker.notNull(graph, "graph");
+      ArgumentChecker.notNull(cache, "cache");
+      ArgumentChecker.notNull(context, "context");
+      ArgumentChecker.notNull(marketData, "marketData");
+      final Map<DependencyNode, NodeKey> keys = new HashMap<DependencyNode, NodeKey>();
+      for (DependencyNode node : graph.getExecutionOrder()) {
+        final Map<ValueSpecification, Object> inputs = new HashMap<ValueSpecification, Object>();
+        if (node.getFunction().getFunction() instanceof MarketDataSourcingFunction) {
+          for (ValueSpecification output : node.getOutputValues()) {
+            inputs.put(output, marketData.get(output));
+          }
+        } else {
+          for (ValueSpecification input : node.getInputValues()) {
+            final NodeKey inputKey = keys.get(graph.getNodeProducing(input));
+            if (inputKey == null) {
+              break;
+            }
+            inputs.put(input, inputKey);
+          }
+          if (inputs.size() != node.getInputValues().size()) {
+            // Not something we can identify, so neither can anything that depends on it
+            continue;
+          }
+        }
+        NodeKey key = new NodeKey(context, node, inputs);
+        final Entry entry = _entries.get(key);
+        if (entry != null) {
+          // Use the published instance so that the keys of the dependent nodes compare quickly
+          key = entry._key;
+        }
+        keys.put(node, key);
+      }
+      _lock.writeLock().lock();
+      try {
+        _configurations.put(calcConfigurationName, new Configuration(this, cache, keys));
+      } finally {
+        _lock.writeLock().unlock();
+      }
+    }
+
+    /**
+     * Copies the values of nodes already calculated by other cycles into this cycle's cache.
+     *
+     * @param calcConfigurationName the calculation configuration name, not null
+     * @param nodes the nodes not yet executed, not null
+     * @return the nodes for which all output values were copied, not null
+     */
+    public Collection<DependencyNode> importValues(final String calcConfigurationName, final Collection<DependencyNode> nodes) {
+      final Configuration configuration = getConfiguration(calcConfigurationName);
+      final Map<Configuration, List<DependencyNode>> sources = new LinkedHashMap<Configuration, List<DependencyNode>>();
+      for (DependencyNode node : nodes) {
+        final NodeKey key = configuration._keys.get(node);
+        if (key == null) {
+          continue;
+        }
+        final Entry entry = _entries.get(key);
+        if ((entry == null) || (entry._configuration._participant == this)) {
+          continue;
+        }
+        List<DependencyNode> sourceNodes = sources.get(entry._configuration);
+        if (sourceNodes == null) {
+          sourceNodes = new ArrayList<DependencyNode>();
+          sources.put(entry._configuration, sourceNodes);
+        }
+        sourceNodes.add(node);
+      }
+      if (sources.isEmpty()) {
+        return Collections.emptyList();
+      }
+      final Collection<DependencyNode> imported = new ArrayList<DependencyNode>();
+      for (Map.Entry<Configuration, List<DependencyNode>> source : sources.entrySet()) {
+        final Participant sourceParticipant = source.getKey()._participant;
+        // The source cycle is being released if the lock isn't available; calculating is better than waiting
+        if (!sourceParticipant._lock.readLock().tryLock()) {
+          continue;
+        }
+        try {
+          if (sourceParticipant._withdrawn) {
+            continue;
+          }
+          final Collection<ValueSpecification> specifications = new ArrayList<ValueSpecification>();
+          for (DependencyNode node : source.getValue()) {
+            specifications.addAll(node.getOutputValues());
+          }
+          final Set<ValueSpecification> copied = copyValues(configuration._cache, source.getKey()._cache, specifications);
+          for (DependencyNode node : source.getValue()) {
+            if (copied.containsAll(node.getOutputValues())) {
+              imported.add(node);
+            }
+          }
+        } finally {
+          sourceParticipant._lock.readLock().unlock();
+        }
+      }
+      _sharedNodes.addAndGet(imported.size());
+      return imported;
+    }
+
+    /**
+     * Makes the values of executed nodes available to other cycles.
+     *
+     * @param calcConfigurationName the calculation configuration name, not null
+     * @param nodes the nodes which executed successfully, not null
+     */
+    public void publish(final String calcConfigurationName, final Collection<DependencyNode> nodes) {
+      _lock.writeLock().lock();
+      try {
+        if (_withdrawn) {
+          return;
+        }
+        final Configuration configuration = getConfiguration(calcConfigurationName);
+        for (DependencyNode node : nodes) {
+          if (node.getFunction().getFunction() instanceof MarketDataSourcingFunction) {
+            continue;
+          }
+          final NodeKey key = configuration._keys.get(node);
+          if (key != null) {
+            // Replace any earlier entry; the newer cycle is likely to be released later
+            final Entry entry = new Entry(key, configuration);
+            _entries.put(key, entry);
+            configuration._published.add(entry);
+          }
+        }
+      } finally {
+        _lock.writeLock().unlock();
+      }
+    }
+
+    /**
+     * Removes everything published by the cycle. This must be called before the cycle's caches are released and waits
+     * for any other cycles copying values from them.
+     */
+    public void withdraw() {
+      _lock.writeLock().lock();
+      try {
+        _withdrawn = true;
+        for (Configuration configuration : _configurations.values()) {
+          for (Entry entry : configuration._published) {
+            _entries.remove(entry._key, entry);
+          }
+          configuration._published.clear();
+        }
+      } finally {
+        _lock.writeLock().unlock();
+      }
+    }
+
+    private Configuration getConfiguration(final String calcConfigurationName) {
+      _lock.readLock().lock();
+      try {
+        final Configuration configuration = _configurations.get(calcConfigurationName);
+        if (configuration == null) {
+          throw new IllegalStateException("Calculation configuration " + calcConfigurationName + " has not been configured");
+        }
+        return configuration;
+      } finally {
+        _lock.readLock().unlock();
+      }
+    }
+
+  }
+
+  /**
+   * Creates the registry entry point for a view cycle.
+   *
+   * @return the participant, not null
+   */
+  public Participant join() {
+    return new Participant();
+  }
+
+  /**
+   * Returns the number of nodes currently published.
+   *
+   * @return the number of nodes
+   */
+  public int getPublishedNodeCount() {
+    return _entries.size();
+  }
+
+  /**
+   * Returns the total number of nodes that have not been executed because their values were taken from another cycle.
+   *
+   * @return the number of nodes
+   */
+  public long getSharedNodeCount() {
+    return _sharedNodes.get();
+  }
+
+  private static Set<ValueSpecification> copyValues(final ViewComputationCache cache, final ViewComputationCache sourceCache, final Collection<ValueSpecification> specifications) {
+    if ((cache instanceof DefaultViewComputationCache) && (sourceCache instanceof DefaultViewComputationCache)) {
+      return new HashSet<ValueSpecification>(((DefaultViewComputationCache) cache).shareValues((DefaultViewComputationCache) sourceCache, specifications));
+    }
+    final Set<ValueSpecification> copied = new HashSet<ValueSpecification>();
+    final Collection<ComputedValue> values = new ArrayList<ComputedValue>();
+    for (Pair<ValueSpecification, Object> value : sourceCache.getValues(specifications)) {
+      if (value.getSecond() != null) {
+        copied.add(value.getFirst());
+        values.add(new ComputedValue(value.getFirst(), value.getSecond()));
+      }
+    }
+    cache.putSharedValues(values);
+    return copied;
+  }
+
+}
@@ -18,14 +18,17 @@ import com.opengamma.engine.marketdata.OverrideOperation;
 import com.opengamma.engine.value.ComputedValue;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.InMemoryViewComputationResultModel;
 import com.opengamma.engine.view.ViewCalculationConfiguration;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewDefinition;
 import com.opengamma.engine.view.ViewProcessContext;
 import com.opengamma.engine.view.cache.CacheSelectHint;
+import com.opengamma.engine.view.cache.DefaultViewComputationCache;
 import com.opengamma.engine.view.cache.MissingMarketDataSentinel;
 import com.opengamma.engine.view.cache.ViewComputationCache;
+import com.opengamma.engine.view.cache.ViewComputationCacheStatistics;
 import com.opengamma.engine.view.calc.stats.GraphExecutorStatisticsGatherer;
 import com.opengamma.engine.view.calcnode.CalculationJobResult;
 import com.opengamma.engine.view.calcnode.CalculationJobResultItem;
@@ -47,6 +50,8 @@ import javax.time.Instant;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -99,10 +104,20 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
 
   private final Set<DependencyNode> _executedNodes = Collections.newSetFromMap(new ConcurrentHashMap<DependencyNode, Boolean>());
   private final Set<DependencyNode> _failedNodes = Collections.newSetFromMap(new ConcurrentHashMap<DependencyNode, Boolean>());
+  private final Set<DependencyNode> _skippedNodes = Collections.newSetFromMap(new ConcurrentHashMap<DependencyNode, Boolean>());
   private final Map<String, ViewComputationCache> _cachesByCalculationConfiguration = new HashMap<String, ViewComputationCache>();
 
+  // Sharing with other view processes
+  private volatile SharedComputationRegistry.Participant _sharedComputation;
+  private Map<ViewComputationCache, Map<ValueSpecification, Object>> _sharedComputationMarketData;
+
   // Output
   private final InMemoryViewComputationResultModel _resultModel;
+  private volatile boolean _columnarResults;
+  private volatile ColumnarViewComputationResultModel _columnarResultModel;
+
+  // Diagnostics
+  private volatile CycleExecutionTracer _tracer;
 
 
   public SingleComputationCycle(UniqueId cycleId, UniqueId viewProcessId,
@@ -145,6 +160,43 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     return result;
   }
 
+  /**
+   * Gets the tracer recording the execution of the cycle's jobs.
+   * 
+   * @return the tracer, or null if the cycle is not being traced
+   */
+  public CycleExecutionTracer getTracer() {
+    return _tracer;
+  }
+
+  /**
+   * Sets a tracer to record the execution of the cycle's jobs. This must be set before the cycle is executed.
+   * 
+   * @param tracer the tracer, or null to not trace the cycle
+   */
+  public void setTracer(final CycleExecutionTracer tracer) {
+    _tracer = tracer;
+  }
+
+  /**
+   * Tests whether the full result of the cycle will be a {@link ColumnarViewComputationResultModel}.
+   * 
+   * @return true if the result will be columnar
+   */
+  public boolean isColumnarResults() {
+    return _columnarResults;
+  }
+
+  /**
+   * Sets whether the full result of the cycle should be a {@link ColumnarViewComputationResultModel}. This must be set
+   * before the cycle is executed.
+   * 
+   * @param columnarResults true to produce a columnar result
+   */
+  public void setColumnarResults(final boolean columnarResults) {
+    _columnarResults = columnarResults;
+  }
+
   //-------------------------------------------------------------------------
   public Instant getValuationTime() {
     return getExecutionOptions().getValuationTime();
@@ -247,8 +299,9 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
   }
 
   @Override
-  public InMemoryViewComputationResultModel getResultModel() {
-    return _resultModel;
+  public ViewComputationResultModel getResultModel() {
+    final ViewComputationResultModel columnarResultModel = _columnarResultModel;
+    return (columnarResultModel != null) ? columnarResultModel : _resultModel;
   }
 
   @Override
@@ -286,17 +339,59 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
    *                               still must be called.
    */
   public void execute(SingleComputationCycle previousCycle, MarketDataSnapshot marketDataSnapshot, ExecutorService calcJobResultExecutorService) throws InterruptedException {
+    execute(previousCycle, marketDataSnapshot, calcJobResultExecutorService, null);
+  }
+
+  /**
+   * Synchronously runs the cycle, only executing the nodes affected by a known set of market data changes if possible.
+   * This is only possible if the previous cycle used the same compiled view definition. All other values, including
+   * market data, are taken from the previous cycle and the result fragments produced only contain the recalculated
+   * values.
+   *
+   * @param previousCycle  the previous cycle from which a delta cycle should be performed, or null to perform
+   *                       a full cycle
+   * @param marketDataSnapshot  the market data snapshot with which to execute the cycle, not null
+   * @param calcJobResultExecutorService  the executor to use for streaming calculation job result consumption, not null
+   * @param changedMarketData  the market data that has changed since the previous cycle, or null if not known
+   * @throws InterruptedException  if the thread is interrupted while waiting for the computation cycle to complete.
+   *                               Execution of any outstanding jobs will be cancelled, but {@link #release()}
+   *                               still must be called.
+   */
+  public void execute(SingleComputationCycle previousCycle, MarketDataSnapshot marketDataSnapshot, ExecutorService calcJobResultExecutorService,
+      Set<ValueRequirement> changedMarketData) throws InterruptedException {
     if (_state != ViewCycleState.AWAITING_EXECUTION) {
       throw new IllegalStateException("State must be " + ViewCycleState.AWAITING_EXECUTION);
     }
     _startTime = Instant.now();
     _state = ViewCycleState.EXECUTING;
 
+    final boolean partial = (previousCycle != null) && (changedMarketData != null) && (previousCycle.getCompiledViewDefinition() == getCompiledViewDefinition());
     createAllCaches();
-    prepareInputs(marketDataSnapshot);
-
-    if (previousCycle != null) {
-      computeDelta(previousCycle);
+    final SharedComputationRegistry sharedComputationRegistry = getViewProcessContext().getSharedComputationRegistry();
+    // Identifying nodes needs all of the market data values so a partial cycle doesn't take part
+    if ((sharedComputationRegistry != null) && !partial) {
+      _sharedComputation = sharedComputationRegistry.join();
+      _sharedComputationMarketData = new HashMap<ViewComputationCache, Map<ValueSpecification, Object>>();
+    }
+    if (partial) {
+      final Map<ValueRequirement, ValueSpecification> allMarketDataRequirements = getCompiledViewDefinition().getMarketDataRequirements();
+      final Map<ValueRequirement, ValueSpecification> marketDataRequirements = new HashMap<ValueRequirement, ValueSpecification>();
+      for (ValueRequirement requirement : changedMarketData) {
+        final ValueSpecification specification = allMarketDataRequirements.get(requirement);
+        if (specification != null) {
+          marketDataRequirements.put(requirement, specification);
+        }
+      }
+      prepareInputs(marketDataSnapshot, marketDataRequirements);
+      computeDelta(previousCycle, new HashSet<ValueSpecification>(marketDataRequirements.values()));
+    } else {
+      prepareInputs(marketDataSnapshot, getCompiledViewDefinition().getMarketDataRequirements());
+      if (previousCycle != null) {
+        computeDelta(previousCycle, null);
+      }
+    }
+    if (_sharedComputation != null) {
+      importSharedComputation();
     }
 
     final BlockingQueue<CalculationJobResult> calcJobResultQueue = new LinkedBlockingQueue<CalculationJobResult>();
@@ -356,9 +451,25 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     }
 
     populateResultModel();
+    reportCacheStatistics();
+    if (_sharedComputation != null) {
+      publishSharedComputation();
+    }
     _state = ViewCycleState.EXECUTED;
   }
 
+  private void reportCacheStatistics() {
+    for (String calcConfigurationName : getAllCalculationConfigurationNames()) {
+      final ViewComputationCache cache = getComputationCache(calcConfigurationName);
+      if (cache instanceof DefaultViewComputationCache) {
+        final ViewComputationCacheStatistics statistics = ((DefaultViewComputationCache) cache).getStatistics();
+        if (statistics != null) {
+          _statisticsGatherer.cacheStatistics(calcConfigurationName, statistics);
+        }
+      }
+    }
+  }
+
   /**
    * Creates a map containing the "shift" operations to apply to market data or each
    * calculation configuration. If there is no operation to apply, the map contains
@@ -390,9 +501,8 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     return shifts;
   }
 
-  private void prepareInputs(MarketDataSnapshot snapshot) {
+  private void prepareInputs(MarketDataSnapshot snapshot, Map<ValueRequirement, ValueSpecification> marketDataRequirements) {
     Set<ValueSpecification> missingMarketData = new HashSet<ValueSpecification>();
-    Map<ValueRequirement, ValueSpecification> marketDataRequirements = getCompiledViewDefinition().getMarketDataRequirements();
     s_logger.debug("Populating {} market data items using snapshot {}", marketDataRequirements.size(), snapshot);
     Map<ViewComputationCache, OverrideOperation> cacheMarketDataOperation = getCacheMarketDataOperation();
     InMemoryViewComputationResultModel marketDataResultFragment = constructTemplateResultModel();
@@ -413,7 +523,7 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
         dataAsValue = new ComputedValue(marketDataRequirement.getValue(), data);
 
         // REVIEW jonathan 2011-11-17 -- do we really need to include all market data in the result by default?
-        getResultModel().addMarketData(dataAsValue);
+        _resultModel.addMarketData(dataAsValue);
         addMarketDataToResultFragment(marketDataResultFragment, marketDataRequirement.getValue(), dataAsValue);
       }
       addToAllCaches(marketDataRequirement.getKey(), dataAsValue, cacheMarketDataOperation);
@@ -463,6 +573,14 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
         }
       }
       cache.putSharedValue(cacheValue);
+      if (_sharedComputationMarketData != null) {
+        Map<ValueSpecification, Object> marketData = _sharedComputationMarketData.get(cache);
+        if (marketData == null) {
+          marketData = new HashMap<ValueSpecification, Object>();
+          _sharedComputationMarketData.put(cache, marketData);
+        }
+        marketData.put(cacheValue.getSpecification(), cacheValue.getValue());
+      }
     }
   }
 
@@ -477,29 +595,56 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
    * <li>Only recompute the values that could have changed based on live data inputs
    * </ul> 
    *
+   * <p>
+   * If the changed market data is known, the nodes that depend on it are recomputed without comparing any values. The
+   * unchanged market data is also copied from the previous iteration and, as nothing else has changed, no result
+   * fragment is produced for the copied values.
+   *
    * @param previousCycle Previous iteration. It must not have been cleaned yet ({@link #releaseResources()}).
+   * @param changedMarketData The market data known to have changed, or null to compare all of the market data
    */
-  private void computeDelta(SingleComputationCycle previousCycle) {
+  private void computeDelta(SingleComputationCycle previousCycle, Set<ValueSpecification> changedMarketData) {
     if (previousCycle.getState() != ViewCycleState.EXECUTED) {
       throw new IllegalArgumentException("State of previous cycle must be " + ViewCycleState.EXECUTED);
     }
     InMemoryViewComputationResultModel deltaResultFragment = constructTemplateResultModel();
+    if (changedMarketData != null) {
+      for (ComputedValue marketData : previousCycle.getResultModel().getAllMarketData()) {
+        if (!changedMarketData.contains(marketData.getSpecification())) {
+          _resultModel.addMarketData(marketData);
+        }
+      }
+    }
     for (String calcConfigurationName : getAllCalculationConfigurationNames()) {
       DependencyGraph depGraph = getCompiledViewDefinition().getDependencyGraph(calcConfigurationName);
 
       ViewComputationCache cache = getComputationCache(calcConfigurationName);
       ViewComputationCache previousCache = previousCycle.getComputationCache(calcConfigurationName);
 
-      LiveDataDeltaCalculator deltaCalculator = new LiveDataDeltaCalculator(depGraph, cache, previousCache);
-      deltaCalculator.computeDelta();
-
-      s_logger.info("Computed delta for calculation configuration '{}'. {} nodes out of {} require recomputation.",
-          new Object[]{calcConfigurationName, deltaCalculator.getChangedNodes().size(), depGraph.getSize()});
+      final Collection<DependencyNode> unchangedNodes;
+      if (changedMarketData != null) {
+        final Set<DependencyNode> changedNodes = getDependentNodes(depGraph, changedMarketData);
+        unchangedNodes = new ArrayList<DependencyNode>(depGraph.getSize() - changedNodes.size());
+        for (DependencyNode node : depGraph.getDependencyNodes()) {
+          if (!changedNodes.contains(node)) {
+            unchangedNodes.add(node);
+          }
+        }
+        s_logger.info("Computed partial delta for calculation configuration '{}'. {} nodes out of {} require recomputation.",
+            new Object[]{calcConfigurationName, changedNodes.size(), depGraph.getSize()});
+      } else {
+        LiveDataDeltaCalculator deltaCalculator = new LiveDataDeltaCalculator(depGraph, cache, previousCache);
+        deltaCalculator.computeDelta();
+        unchangedNodes = deltaCalculator.getUnchangedNodes();
+        s_logger.info("Computed delta for calculation configuration '{}'. {} nodes out of {} require recomputation.",
+            new Object[]{calcConfigurationName, deltaCalculator.getChangedNodes().size(), depGraph.getSize()});
+      }
 
       Collection<ValueSpecification> specsToCopy = new HashSet<ValueSpecification>();
 
-      for (DependencyNode unchangedNode : deltaCalculator.getUnchangedNodes()) {
-        if (previousCycle.isExecuted(unchangedNode)) {
+      for (DependencyNode unchangedNode : unchangedNodes) {
+        // A skipped node has no values to carry forward
+        if (previousCycle.isExecuted(unchangedNode) && !previousCycle.isSkipped(unchangedNode)) {
           markExecuted(unchangedNode);
           if (previousCycle.isFailed(unchangedNode)) {
             markFailed(unchangedNode);
@@ -509,10 +654,26 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
         }
       }
       if (!specsToCopy.isEmpty()) {
-        Set<ComputedValue> valuesCopied = copyValues(cache, previousCache, specsToCopy);
-        for (ComputedValue value : valuesCopied) {
-          if (depGraph.getTerminalOutputSpecifications().contains(value.getSpecification())) {
-            deltaResultFragment.addValue(calcConfigurationName, value);
+        if (changedMarketData != null) {
+          // The copied values are unchanged so don't belong in the fragment
+          if ((cache instanceof DefaultViewComputationCache) && (previousCache instanceof DefaultViewComputationCache)) {
+            final Collection<ValueSpecification> shared = ((DefaultViewComputationCache) cache).shareValues((DefaultViewComputationCache) previousCache, specsToCopy);
+            if (shared.size() < specsToCopy.size()) {
+              final Collection<ValueSpecification> remaining = new HashSet<ValueSpecification>(specsToCopy);
+              remaining.removeAll(shared);
+              copyValues(cache, previousCache, remaining);
+            }
+          } else {
+            copyValues(cache, previousCache, specsToCopy);
+          }
+        } else if ((cache instanceof DefaultViewComputationCache) && (previousCache instanceof DefaultViewComputationCache)) {
+          shareValues((DefaultViewComputationCache) cache, (DefaultViewComputationCache) previousCache, specsToCopy, depGraph, calcConfigurationName, deltaResultFragment);
+        } else {
+          Set<ComputedValue> valuesCopied = copyValues(cache, previousCache, specsToCopy);
+          for (ComputedValue value : valuesCopied) {
+            if (depGraph.getTerminalOutputSpecifications().contains(value.getSpecification())) {
+              deltaResultFragment.addValue(calcConfigurationName, value);
+            }
           }
         }
       }
@@ -522,6 +683,164 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     }
   }
 
+  /**
+   * Finds the nodes that depend, directly or indirectly, on any of the given market data. This includes the market
+   * data nodes themselves.
+   */
+  private static Set<DependencyNode> getDependentNodes(DependencyGraph depGraph, Set<ValueSpecification> marketData) {
+    final Set<DependencyNode> nodes = new HashSet<DependencyNode>();
+    final LinkedList<DependencyNode> pending = new LinkedList<DependencyNode>();
+    for (ValueSpecification specification : marketData) {
+      final DependencyNode node = depGraph.getNodeProducing(specification);
+      if ((node != null) && nodes.add(node)) {
+        pending.add(node);
+      }
+    }
+    while (!pending.isEmpty()) {
+      for (DependencyNode dependent : pending.removeFirst().getDependentNodes()) {
+        if (nodes.add(dependent)) {
+          pending.add(dependent);
+        }
+      }
+    }
+    return nodes;
+  }
+
+  /**
+   * Carries the values of unchanged nodes forward in their encoded form, only deserializing the terminal outputs that
+   * are needed for the result fragment. Any values not held locally by the previous cache are copied as normal.
+   */
+  private void shareValues(DefaultViewComputationCache cache, DefaultViewComputationCache previousCache, Collection<ValueSpecification> specsToCopy, DependencyGraph depGraph,
+      String calcConfigurationName, InMemoryViewComputationResultModel deltaResultFragment) {
+    final Collection<ValueSpecification> shared = cache.shareValues(previousCache, specsToCopy);
+    final Set<ValueSpecification> terminalOutputs = depGraph.getTerminalOutputSpecifications();
+    final Collection<ValueSpecification> terminalShared = new ArrayList<ValueSpecification>();
+    for (ValueSpecification specification : shared) {
+      if (terminalOutputs.contains(specification)) {
+        terminalShared.add(specification);
+      }
+    }
+    if (!terminalShared.isEmpty()) {
+      for (Pair<ValueSpecification, Object> value : cache.getValues(terminalShared)) {
+        if (value.getSecond() != null) {
+          deltaResultFragment.addValue(calcConfigurationName, new ComputedValue(value.getFirst(), value.getSecond()));
+        }
+      }
+    }
+    if (shared.size() < specsToCopy.size()) {
+      final Collection<ValueSpecification> remaining = new HashSet<ValueSpecification>(specsToCopy);
+      remaining.removeAll(shared);
+      for (ComputedValue value : copyValues(cache, previousCache, remaining)) {
+        if (terminalOutputs.contains(value.getSpecification())) {
+          deltaResultFragment.addValue(calcConfigurationName, value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Takes the values of any nodes not yet executed from cycles in other view processes that have already made the same
+   * calculations, and then skips any nodes whose outputs are no longer needed as a result.
+   */
+  private void importSharedComputation() {
+    InMemoryViewComputationResultModel sharedResultFragment = constructTemplateResultModel();
+    for (ViewCalculationConfiguration calcConfig : getViewDefinition().getAllCalculationConfigurations()) {
+      final String calcConfigurationName = calcConfig.getName();
+      final DependencyGraph depGraph = getDependencyGraph(calcConfigurationName);
+      final ViewComputationCache cache = getComputationCache(calcConfigurationName);
+      Map<ValueSpecification, Object> marketData = _sharedComputationMarketData.get(cache);
+      if (marketData == null) {
+        marketData = Collections.emptyMap();
+      }
+      // Anything else, beyond the graph and market data, that a function's result may depend on
+      final Object context = Arrays.asList(getValuationTime(), getVersionCorrection(), getFunctionInitId(), calcConfig.getDefaultProperties());
+      _sharedComputation.configure(calcConfigurationName, depGraph, cache, context, marketData);
+      final List<DependencyNode> candidates = new ArrayList<DependencyNode>();
+      for (DependencyNode node : depGraph.getExecutionOrder()) {
+        if (!isExecuted(node)) {
+          candidates.add(node);
+        }
+      }
+      final Collection<DependencyNode> shared = _sharedComputation.importValues(calcConfigurationName, candidates);
+      if (shared.isEmpty()) {
+        continue;
+      }
+      final Set<ValueSpecification> terminalOutputs = depGraph.getTerminalOutputSpecifications();
+      final Collection<ValueSpecification> terminalShared = new ArrayList<ValueSpecification>();
+      for (DependencyNode node : shared) {
+        markExecuted(node);
+        for (ValueSpecification output : node.getOutputValues()) {
+          if (terminalOutputs.contains(output)) {
+            terminalShared.add(output);
+          }
+        }
+      }
+      final int skipped = skipUnneededNodes(depGraph);
+      s_logger.info("Shared {} nodes and skipped {} more for calculation configuration '{}'", new Object[] {shared.size(), skipped, calcConfigurationName});
+      _statisticsGatherer.computationShared(calcConfigurationName, shared.size(), skipped);
+      if (!terminalShared.isEmpty()) {
+        for (Pair<ValueSpecification, Object> value : cache.getValues(terminalShared)) {
+          if (value.getSecond() != null) {
+            sharedResultFragment.addValue(calcConfigurationName, new ComputedValue(value.getFirst(), value.getSecond()));
+          }
+        }
+      }
+    }
+    _sharedComputationMarketData = null;
+    if (!sharedResultFragment.getAllResults().isEmpty()) {
+      notifyFragmentCompleted(sharedResultFragment);
+    }
+  }
+
+  /**
+   * Marks as executed any node whose outputs are only needed by nodes that have already been executed. Nodes with
+   * outputs that would appear in the result are always kept.
+   *
+   * @param depGraph the dependency graph
+   * @return the number of nodes skipped
+   */
+  private int skipUnneededNodes(final DependencyGraph depGraph) {
+    final Set<ValueSpecification> resultOutputs = getOutputSpecificationsForResultModel(depGraph);
+    final List<DependencyNode> executionOrder = depGraph.getExecutionOrder();
+    int skipped = 0;
+    // Dependents come after their inputs in the execution order, so working backwards lets skipped nodes cascade
+    for (int i = executionOrder.size() - 1; i >= 0; i--) {
+      final DependencyNode node = executionOrder.get(i);
+      if (isExecuted(node) || node.getDependentNodes().isEmpty() || (node.getFunction().getFunction() instanceof MarketDataSourcingFunction)
+          || !Collections.disjoint(node.getOutputValues(), resultOutputs)) {
+        continue;
+      }
+      boolean needed = false;
+      for (DependencyNode dependent : node.getDependentNodes()) {
+        if (!isExecuted(dependent)) {
+          needed = true;
+          break;
+        }
+      }
+      if (!needed) {
+        markExecuted(node);
+        _skippedNodes.add(node);
+        skipped++;
+      }
+    }
+    return skipped;
+  }
+
+  /**
+   * Makes the values of the nodes this cycle executed successfully available to other view processes.
+   */
+  private void publishSharedComputation() {
+    for (String calcConfigurationName : getAllCalculationConfigurationNames()) {
+      final List<DependencyNode> nodes = new ArrayList<DependencyNode>();
+      for (DependencyNode node : getDependencyGraph(calcConfigurationName).getExecutionOrder()) {
+        if (isExecuted(node) && !isFailed(node) && !isSkipped(node)) {
+          nodes.add(node);
+        }
+      }
+      _sharedComputation.publish(calcConfigurationName, nodes);
+    }
+  }
+
   private Set<ComputedValue> copyValues(ViewComputationCache cache, ViewComputationCache previousCache, Collection<ValueSpecification> specsToCopy) {
     Collection<Pair<ValueSpecification, Object>> valuesToCopy = previousCache.getValues(specsToCopy);
 
@@ -537,15 +856,18 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
   }
 
   private void populateResultModel() {
-    getResultModel().setCalculationTime(Instant.now());
-    getResultModel().setCalculationDuration(getDuration());
+    _resultModel.setCalculationTime(Instant.now());
+    _resultModel.setCalculationDuration(getDuration());
+    // The columnar copy is taken before any values are added so only the header and market data are copied
+    final ColumnarViewComputationResultModel columnarResultModel = isColumnarResults() ? ColumnarViewComputationResultModel.of(_resultModel) : null;
     for (String calcConfigurationName : getAllCalculationConfigurationNames()) {
       DependencyGraph depGraph = getCompiledViewDefinition().getDependencyGraph(calcConfigurationName);
-      populateResultModel(calcConfigurationName, depGraph);
+      populateResultModel(calcConfigurationName, depGraph, columnarResultModel);
     }
+    _columnarResultModel = columnarResultModel;
   }
 
-  private void populateResultModel(String calcConfigurationName, DependencyGraph depGraph) {
+  private void populateResultModel(String calcConfigurationName, DependencyGraph depGraph, ColumnarViewComputationResultModel columnarResultModel) {
     ViewComputationCache computationCache = getComputationCache(calcConfigurationName);
     
     for (Pair<ValueSpecification, Object> value : computationCache.getValues(getOutputSpecificationsForResultModel(depGraph), CacheSelectHint.allShared())) {
@@ -555,7 +877,12 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
       if (value.getValue() instanceof MissingMarketDataSentinel) {
         continue;
       }
-      getResultModel().addValue(calcConfigurationName, new ComputedValue(value.getFirst(), value.getSecond()));
+      final ComputedValue computedValue = new ComputedValue(value.getFirst(), value.getSecond());
+      if (columnarResultModel != null) {
+        columnarResultModel.addValue(calcConfigurationName, computedValue);
+      } else {
+        _resultModel.addValue(calcConfigurationName, computedValue);
+      }
     }
   }
 
@@ -632,6 +959,12 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
 
   //-------------------------------------------------------------------------
   /*package*/void calculationJobsCompleted(List<CalculationJobResult> results) {
+    final CycleExecutionTracer tracer = getTracer();
+    if (tracer != null) {
+      for (CalculationJobResult result : results) {
+        tracer.jobCompleted(result);
+      }
+    }
     try {
       ViewComputationResultModel fragmentResult = generateCycleFragmentResult(results);
       if (fragmentResult != null) {
@@ -738,6 +1071,9 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     if (getViewDefinition().isDumpComputationCacheToDisk()) {
       dumpComputationCachesToDisk();
     }
+    if (_sharedComputation != null) {
+      _sharedComputation.withdraw();
+    }
     getViewProcessContext().getComputationCacheSource().releaseCaches(getUniqueId());
     _state = ViewCycleState.DESTROYED;
   }
@@ -776,6 +1112,16 @@ public class SingleComputationCycle implements ViewCycle, EngineResource {
     }
   }
 
+  /**
+   * Tests whether a node was marked as executed without being run because its outputs were not needed.
+   * 
+   * @param node the node to test
+   * @return true if the node was skipped
+   */
+  public boolean isSkipped(DependencyNode node) {
+    return node != null && _skippedNodes.contains(node);
+  }
+
   public boolean isFailed(DependencyNode node) {
     return node == null || _failedNodes.contains(node);
   }
@@ -116,8 +116,11 @@ public class SingleNodeExecutor implements DependencyGraphExecutor<CalculationJo
     AtomicExecutorFuture future = new AtomicExecutorFuture(runnable, graph, item2Node, statistics);
     _executingSpecifications.put(jobSpec, future);
     _cycle.getViewProcessContext().getViewProcessorQueryReceiver().addJob(jobSpec, graph);
-    Cancelable cancel = _cycle.getViewProcessContext().getComputationJobDispatcher()
-        .dispatchJob(new CalculationJob(jobSpec, _cycle.getFunctionInitId(), null, items, cacheHint), this);
+    final CalculationJob job = new CalculationJob(jobSpec, _cycle.getFunctionInitId(), null, items, cacheHint);
+    if (_cycle.getTracer() != null) {
+      _cycle.getTracer().jobDispatched(job);
+    }
+    Cancelable cancel = _cycle.getViewProcessContext().getComputationJobDispatcher().dispatchJob(job, this);
     future.setCancel(cancel);
 
     return future;
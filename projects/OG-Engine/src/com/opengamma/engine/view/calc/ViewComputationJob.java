@@ -11,11 +11,18 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import javax.time.Duration;
@@ -50,16 +57,20 @@ import com.opengamma.engine.view.calc.trigger.ViewCycleEligibility;
 import com.opengamma.engine.view.calc.trigger.ViewCycleTrigger;
 import com.opengamma.engine.view.calc.trigger.ViewCycleTriggerResult;
 import com.opengamma.engine.view.calc.trigger.ViewCycleType;
+import com.opengamma.engine.view.compilation.CompiledViewDefinitionCache;
 import com.opengamma.engine.view.compilation.CompiledViewDefinitionWithGraphsImpl;
 import com.opengamma.engine.view.compilation.ViewCompilationServices;
 import com.opengamma.engine.view.compilation.ViewDefinitionCompiler;
+import com.opengamma.engine.view.execution.ArbitraryViewCycleExecutionSequence;
 import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
 import com.opengamma.engine.view.execution.ViewExecutionFlags;
 import com.opengamma.engine.view.execution.ViewExecutionOptions;
 import com.opengamma.engine.view.listener.ComputationResultListener;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.UniqueId;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
 import com.opengamma.util.TerminatableJob;
 import com.opengamma.util.monitor.OperationTimer;
 
@@ -72,6 +83,44 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
 
   private static final long NANOS_PER_MILLISECOND = 1000000;
   private static final long MARKET_DATA_TIMEOUT_MILLIS = 10000;
+  private static final long CYCLE_TERMINATION_TIMEOUT_MILLIS = 10000;
+
+  /**
+   * A cycle which is executing concurrently with others from the same sequence. Its notifications are held until all
+   * earlier cycles have been delivered so that listeners see the same sequence of events as if the cycles had been
+   * executed one at a time.
+   */
+  private final class PendingCycle implements Callable<Void>, ComputationResultListener {
+
+    private final ViewCycleExecutionOptions _executionOptions;
+    private final MarketDataSnapshot _marketDataSnapshot;
+    private final List<ViewComputationResultModel> _fragments = new ArrayList<ViewComputationResultModel>();
+    private EngineResourceReference<SingleComputationCycle> _cycleReference;
+    private ViewCycleMetadata _cycleMetadata;
+    private Future<Void> _future;
+
+    private PendingCycle(final ViewCycleExecutionOptions executionOptions, final MarketDataSnapshot marketDataSnapshot) {
+      _executionOptions = executionOptions;
+      _marketDataSnapshot = marketDataSnapshot;
+    }
+
+    @Override
+    public Void call() throws InterruptedException {
+      // Each cycle in the sequence is a full computation; there is no previous cycle to take a delta from
+      _cycleReference.get().execute(null, _marketDataSnapshot, getViewProcess().getCalcJobResultExecutorService());
+      return null;
+    }
+
+    @Override
+    public synchronized void resultAvailable(final ViewComputationResultModel result) {
+      _fragments.add(result);
+    }
+
+    private synchronized List<ViewComputationResultModel> getFragments() {
+      return new ArrayList<ViewComputationResultModel>(_fragments);
+    }
+
+  }
 
   private final ViewProcessImpl _viewProcess;
   private final ViewExecutionOptions _executionOptions;
@@ -80,6 +129,9 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
   private final ViewCycleTrigger _masterCycleTrigger;
   private final FixedTimeTrigger _compilationExpiryCycleTrigger;
   private final boolean _executeCycles;
+  private final int _maxConcurrentCycles;
+  private final Queue<PendingCycle> _pendingCycles = new LinkedList<PendingCycle>();
+  private ExecutorService _cycleExecutor;
 
   private int _cycleCount;
   private EngineResourceReference<SingleComputationCycle> _previousCycleReference;
@@ -91,6 +143,18 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
   private CountDownLatch _pendingSubscriptionLatch;
 
   private ChangeListener _viewDefinitionChangeListener;
+  private ChangeListener _portfolioChangeListener;
+  private final Set<ObjectId> _changedPortfolioObjects = Collections.newSetFromMap(new ConcurrentHashMap<ObjectId, Boolean>());
+
+  /**
+   * The market data reported as changed since the last cycle was started, for partial delta cycles. Guarded by itself.
+   */
+  private final Set<ValueRequirement> _changedMarketData = new HashSet<ValueRequirement>();
+  /**
+   * Whether {@link #_changedMarketData} is incomplete, for example because the required market data has changed.
+   * Guarded by {@link #_changedMarketData}.
+   */
+  private boolean _changedMarketDataUnknown = true;
 
   private volatile boolean _wakeOnMarketDataChanged;
   private volatile boolean _marketDataChanged = true;
@@ -104,6 +168,7 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
   private double _totalTimeNanos;
 
   private MarketDataProvider _marketDataProvider;
+  private MarketDataSpecification _marketDataSpecification;
 
   public ViewComputationJob(ViewProcessImpl viewProcess, ViewExecutionOptions executionOptions,
       ViewProcessContext processContext, EngineResourceManagerInternal<SingleComputationCycle> cycleManager) {
@@ -119,8 +184,10 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     _compilationExpiryCycleTrigger = new FixedTimeTrigger();
     _masterCycleTrigger = createViewCycleTrigger(executionOptions);
     _executeCycles = !getExecutionOptions().getFlags().contains(ViewExecutionFlags.COMPILE_ONLY);
+    _maxConcurrentCycles = getMaxConcurrentCycles(executionOptions);
     updateViewDefinitionIfRequired();
     subscribeToViewDefinition();
+    subscribeToPortfolio();
   }
 
   private ViewCycleTrigger createViewCycleTrigger(ViewExecutionOptions executionOptions) {
@@ -263,6 +330,8 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
       return;
     }
 
+    // Taken before the snapshot is initialised, so any later changes will be seen by the next cycle
+    final Set<ValueRequirement> changedMarketData = takeChangedMarketData();
     try {
       if (getExecutionOptions().getFlags().contains(ViewExecutionFlags.AWAIT_MARKET_DATA)) {
         marketDataSnapshot.init(compiledViewDefinition.getMarketDataRequirements().keySet(), MARKET_DATA_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
@@ -277,51 +346,36 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
       cycleExecutionFailed(executionOptions, new OpenGammaRuntimeException("Error initializing snapshot" + marketDataSnapshot, e));
     }
 
+    if (_executeCycles && isConcurrentCycles()) {
+      submitCycle(executionOptions, marketDataSnapshot, compiledViewDefinition, versionCorrection);
+      return;
+    }
+
     EngineResourceReference<SingleComputationCycle> cycleReference;
     try {
       cycleReference = createCycle(executionOptions, compiledViewDefinition, versionCorrection);
     } catch (Exception e) {
       s_logger.error("Error creating next view cycle for view process " + getViewProcess(), e);
+      invalidateChangedMarketData();
       return;
     }
 
     if (_executeCycles) {
       try {
-        final SingleComputationCycle singleComputationCycle = cycleReference.get();
-        final Set<String> configurationNames = singleComputationCycle.getAllCalculationConfigurationNames();
-        
-        final HashMap<String, Collection<ComputationTarget>> configToComputationTargets = new HashMap<String, Collection<ComputationTarget>>();
-        for (String configName : configurationNames) {
-          DependencyGraph dependencyGraph = singleComputationCycle.getExecutableDependencyGraph(configName);
-          configToComputationTargets.put(configName, dependencyGraph.getAllComputationTargets());
-        }
-        
-        final HashMap<String, Map<ValueSpecification, Set<ValueRequirement>>> configToTerminalOutputs = new HashMap<String, Map<ValueSpecification, Set<ValueRequirement>>>();
-        for (String configName : configurationNames) {
-          DependencyGraph dependencyGraph = singleComputationCycle.getExecutableDependencyGraph(configName);
-          configToTerminalOutputs.put(configName, dependencyGraph.getTerminalOutputs());
-        }
-        
-        cycleStarted(new DefaultViewCycleMetadata(
-            cycleReference.get().getUniqueId(),
-            marketDataSnapshot.getUniqueId(),
-            compiledViewDefinition.getViewDefinition().getUniqueId(),
-            versionCorrection,
-            executionOptions.getValuationTime(),
-            configurationNames,
-            configToComputationTargets,
-            configToTerminalOutputs
-        ));
-        executeViewCycle(cycleType, cycleReference, marketDataSnapshot, getViewProcess().getCalcJobResultExecutorService());
+        cycleStarted(createCycleMetadata(cycleReference.get(), marketDataSnapshot, compiledViewDefinition, versionCorrection, executionOptions));
+        executeViewCycle(cycleType, cycleReference, marketDataSnapshot, getViewProcess().getCalcJobResultExecutorService(), changedMarketData);
       } catch (InterruptedException e) {
         // Execution interrupted - don't propagate as failure
         s_logger.info("View cycle execution interrupted for view process {}", getViewProcess());
         cycleReference.release();
+        // The changes taken by the cycle are lost so the next delta must compare everything
+        invalidateChangedMarketData();
         return;
       } catch (Exception e) {
         // Execution failed
         s_logger.error("View cycle execution failed for view process " + getViewProcess(), e);
         cycleReference.release();
+        invalidateChangedMarketData();
         cycleExecutionFailed(executionOptions, e);
         return;
       }
@@ -350,6 +404,173 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     }
   }
 
+  /**
+   * Returns the number of cycles that may be in flight at once. The results of a concurrent cycle are only delivered
+   * when the next cycle is submitted, so this is limited to finite sequences that run without waiting for triggers.
+   * In-flight cycles would otherwise hold back results from a live or infinite sequence.
+   */
+  private static int getMaxConcurrentCycles(final ViewExecutionOptions executionOptions) {
+    final Integer maxConcurrentCycles = executionOptions.getMaxConcurrentCycles();
+    if ((maxConcurrentCycles == null) || (maxConcurrentCycles <= 1)) {
+      return 1;
+    }
+    if (!(executionOptions.getExecutionSequence() instanceof ArbitraryViewCycleExecutionSequence)
+        || !executionOptions.getFlags().contains(ViewExecutionFlags.RUN_AS_FAST_AS_POSSIBLE)) {
+      s_logger.warn("Ignoring maximum of {} concurrent cycles; only supported for a finite sequence run as fast as possible", maxConcurrentCycles);
+      return 1;
+    }
+    return maxConcurrentCycles;
+  }
+
+  private boolean isConcurrentCycles() {
+    return _maxConcurrentCycles > 1;
+  }
+
+  private ViewCycleMetadata createCycleMetadata(SingleComputationCycle cycle, MarketDataSnapshot marketDataSnapshot,
+      CompiledViewDefinitionWithGraphsImpl compiledViewDefinition, VersionCorrection versionCorrection, ViewCycleExecutionOptions executionOptions) {
+    final Set<String> configurationNames = cycle.getAllCalculationConfigurationNames();
+    
+    final HashMap<String, Collection<ComputationTarget>> configToComputationTargets = new HashMap<String, Collection<ComputationTarget>>();
+    for (String configName : configurationNames) {
+      DependencyGraph dependencyGraph = cycle.getExecutableDependencyGraph(configName);
+      configToComputationTargets.put(configName, dependencyGraph.getAllComputationTargets());
+    }
+    
+    final HashMap<String, Map<ValueSpecification, Set<ValueRequirement>>> configToTerminalOutputs = new HashMap<String, Map<ValueSpecification, Set<ValueRequirement>>>();
+    for (String configName : configurationNames) {
+      DependencyGraph dependencyGraph = cycle.getExecutableDependencyGraph(configName);
+      configToTerminalOutputs.put(configName, dependencyGraph.getTerminalOutputs());
+    }
+    
+    return new DefaultViewCycleMetadata(
+        cycle.getUniqueId(),
+        marketDataSnapshot.getUniqueId(),
+        compiledViewDefinition.getViewDefinition().getUniqueId(),
+        versionCorrection,
+        executionOptions.getValuationTime(),
+        configurationNames,
+        configToComputationTargets,
+        configToTerminalOutputs);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Starts a cycle executing alongside any others already in flight, then delivers the results of the earliest cycles
+   * until there is capacity for the next one. At the end of the sequence, everything still in flight is delivered.
+   */
+  private void submitCycle(ViewCycleExecutionOptions executionOptions, MarketDataSnapshot marketDataSnapshot,
+      CompiledViewDefinitionWithGraphsImpl compiledViewDefinition, VersionCorrection versionCorrection) {
+    final PendingCycle pendingCycle = new PendingCycle(executionOptions, marketDataSnapshot);
+    try {
+      pendingCycle._cycleReference = createCycle(executionOptions, compiledViewDefinition, versionCorrection, pendingCycle);
+    } catch (Exception e) {
+      s_logger.error("Error creating next view cycle for view process " + getViewProcess(), e);
+      return;
+    }
+    try {
+      pendingCycle._cycleMetadata = createCycleMetadata(pendingCycle._cycleReference.get(), marketDataSnapshot, compiledViewDefinition, versionCorrection, executionOptions);
+    } catch (Exception e) {
+      s_logger.error("View cycle execution failed for view process " + getViewProcess(), e);
+      pendingCycle._cycleReference.release();
+      cycleExecutionFailed(executionOptions, e);
+      return;
+    }
+    pendingCycle._future = getCycleExecutor().submit(pendingCycle);
+    _pendingCycles.add(pendingCycle);
+    s_logger.debug("Submitted cycle {}, {} in flight", pendingCycle._cycleMetadata.getViewCycleId(), _pendingCycles.size());
+    final boolean lastCycle = getExecutionOptions().getExecutionSequence().isEmpty();
+    try {
+      deliverPendingCycles(lastCycle ? 0 : _maxConcurrentCycles - 1);
+    } catch (InterruptedException e) {
+      s_logger.info("Interrupted while waiting for view cycles to complete for view process {}", getViewProcess());
+      return;
+    }
+    if (lastCycle && !isTerminated()) {
+      processCompleted();
+    }
+  }
+
+  private ExecutorService getCycleExecutor() {
+    if (_cycleExecutor == null) {
+      _cycleExecutor = Executors.newFixedThreadPool(_maxConcurrentCycles, new NamedThreadPoolFactory("ViewCycle-" + getViewProcess().getUniqueId(), true));
+    }
+    return _cycleExecutor;
+  }
+
+  /**
+   * Waits for the earliest cycles in flight to complete, in sequence order, and notifies the view process of each.
+   * 
+   * @param maxPending the number of cycles that may be left in flight
+   * @throws InterruptedException if interrupted while waiting for a cycle; it remains in flight
+   */
+  private void deliverPendingCycles(final int maxPending) throws InterruptedException {
+    while (_pendingCycles.size() > maxPending) {
+      final PendingCycle pendingCycle = _pendingCycles.peek();
+      Exception failure = null;
+      try {
+        pendingCycle._future.get();
+      } catch (ExecutionException e) {
+        failure = (e.getCause() instanceof Exception) ? (Exception) e.getCause() : new OpenGammaRuntimeException("View cycle execution failed", e.getCause());
+      }
+      _pendingCycles.remove();
+      if (isTerminated()) {
+        pendingCycle._cycleReference.release();
+        continue;
+      }
+      cycleStarted(pendingCycle._cycleMetadata);
+      if (failure != null) {
+        s_logger.error("View cycle execution failed for view process " + getViewProcess(), failure);
+        pendingCycle._cycleReference.release();
+        notifyCycleExecutionFailed(pendingCycle._executionOptions, failure);
+        continue;
+      }
+      for (ViewComputationResultModel fragment : pendingCycle.getFragments()) {
+        cycleFragmentCompleted(fragment);
+      }
+      recordCycleDuration(pendingCycle._cycleReference.get());
+      cycleCompleted(pendingCycle._cycleReference.get());
+      if (_previousCycleReference != null) {
+        _previousCycleReference.release();
+      }
+      _previousCycleReference = pendingCycle._cycleReference;
+    }
+  }
+
+  /**
+   * Delivers any cycles still in flight so that a notification about a later cycle, or the end of the sequence, is
+   * not seen before them.
+   */
+  private void deliverPendingCycles() {
+    try {
+      deliverPendingCycles(0);
+    } catch (InterruptedException e) {
+      s_logger.info("Interrupted while waiting for view cycles to complete for view process {}", getViewProcess());
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void cancelPendingCycles() {
+    if (_cycleExecutor == null) {
+      return;
+    }
+    for (PendingCycle pendingCycle : _pendingCycles) {
+      pendingCycle._future.cancel(true);
+    }
+    _cycleExecutor.shutdownNow();
+    try {
+      if (!_cycleExecutor.awaitTermination(CYCLE_TERMINATION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+        s_logger.warn("Timed out waiting for {} cancelled view cycles to stop", _pendingCycles.size());
+      }
+    } catch (InterruptedException e) {
+      s_logger.info("Interrupted while waiting for cancelled view cycles to stop");
+    }
+    for (PendingCycle pendingCycle : _pendingCycles) {
+      pendingCycle._cycleReference.release();
+    }
+    _pendingCycles.clear();
+    _cycleExecutor = null;
+  }
+
   private void cycleCompleted(ViewCycle cycle) {
     try {
       getViewProcess().cycleCompleted(cycle);
@@ -376,6 +597,11 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
   }
 
   private void cycleExecutionFailed(ViewCycleExecutionOptions executionOptions, Exception exception) {
+    deliverPendingCycles();
+    notifyCycleExecutionFailed(executionOptions, exception);
+  }
+
+  private void notifyCycleExecutionFailed(ViewCycleExecutionOptions executionOptions, Exception exception) {
     try {
       getViewProcess().cycleExecutionFailed(executionOptions, exception);
     } catch (Exception vpe) {
@@ -457,7 +683,8 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
   private void executeViewCycle(ViewCycleType cycleType,
                                 EngineResourceReference<SingleComputationCycle> cycleReference,
                                 MarketDataSnapshot marketDataSnapshot,
-                                ExecutorService calcJobResultExecutorService) throws Exception {
+                                ExecutorService calcJobResultExecutorService,
+                                Set<ValueRequirement> changedMarketData) throws Exception {
     SingleComputationCycle deltaCycle;
     if (cycleType == ViewCycleType.FULL) {
       s_logger.info("Performing full computation");
@@ -468,7 +695,7 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     }
 
     try {
-      cycleReference.get().execute(deltaCycle, marketDataSnapshot, calcJobResultExecutorService);
+      cycleReference.get().execute(deltaCycle, marketDataSnapshot, calcJobResultExecutorService, changedMarketData);
     } catch (InterruptedException e) {
       Thread.interrupted();
       // In reality this means that the job has been terminated, and it will end as soon as we return from this method.
@@ -481,7 +708,62 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
       throw e;
     }
 
-    long durationNanos = cycleReference.get().getDuration().toNanosLong();
+    recordCycleDuration(cycleReference.get());
+  }
+
+  private boolean isPartialDeltaCycles() {
+    return getExecutionOptions().getFlags().contains(ViewExecutionFlags.PARTIAL_DELTA_CYCLES) && !isConcurrentCycles();
+  }
+
+  /**
+   * Takes the market data reported as changed since the last call, if it is known. 
+   * 
+   * @return the changed market data, or null if partial delta cycles are not in use or the changes are not known
+   */
+  private Set<ValueRequirement> takeChangedMarketData() {
+    if (!isPartialDeltaCycles()) {
+      return null;
+    }
+    synchronized (_changedMarketData) {
+      final Set<ValueRequirement> changed = _changedMarketDataUnknown ? null : new HashSet<ValueRequirement>(_changedMarketData);
+      _changedMarketData.clear();
+      _changedMarketDataUnknown = false;
+      return changed;
+    }
+  }
+
+  private void recordChangedMarketData(final Collection<ValueRequirement> values) {
+    final CompiledViewDefinitionWithGraphsImpl compiledView = getCachedCompiledViewDefinition();
+    synchronized (_changedMarketData) {
+      if (_changedMarketDataUnknown) {
+        return;
+      }
+      if (compiledView == null) {
+        invalidateChangedMarketData();
+        return;
+      }
+      final Map<ValueRequirement, ValueSpecification> marketDataRequirements = compiledView.getMarketDataRequirements();
+      for (ValueRequirement value : values) {
+        if (marketDataRequirements.containsKey(value)) {
+          _changedMarketData.add(value);
+        }
+      }
+      if (_changedMarketData.size() > marketDataRequirements.size() / 2) {
+        // Comparing all of the values will be cheaper than working out the affected nodes
+        invalidateChangedMarketData();
+      }
+    }
+  }
+
+  private void invalidateChangedMarketData() {
+    synchronized (_changedMarketData) {
+      _changedMarketData.clear();
+      _changedMarketDataUnknown = true;
+    }
+  }
+
+  private void recordCycleDuration(SingleComputationCycle cycle) {
+    long durationNanos = cycle.getDuration().toNanosLong();
     _totalTimeNanos += durationNanos;
     _cycleCount += 1;
     s_logger.info("Last latency was {} ms, Average latency is {} ms", durationNanos / NANOS_PER_MILLISECOND, (_totalTimeNanos / _cycleCount) / NANOS_PER_MILLISECOND);
@@ -489,15 +771,18 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
 
   @Override
   protected void postRunCycle() {
+    cancelPendingCycles();
     if (_previousCycleReference != null) {
       _previousCycleReference.release();
     }
     unsubscribeFromViewDefinition();
+    unsubscribeFromPortfolio();
     removeMarketDataProvider();
     invalidateCachedCompiledViewDefinition();
   }
 
   private void processCompleted() {
+    deliverPendingCycles();
     s_logger.info("Computation job completed for view process {}", getViewProcess());
     try {
       getViewProcess().processCompleted();
@@ -525,6 +810,18 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     _compilationDirty = true;
   }
 
+  /**
+   * Indicates that a portfolio, portfolio node, position or trade has changed. If it is part of the portfolio
+   * referenced by the view definition then the affected parts of the compilation will be rebuilt at the earliest
+   * opportunity.
+   * 
+   * @param objectId  the object identifier of the changed entity, not null
+   */
+  public void dirtyPortfolio(ObjectId objectId) {
+    s_logger.debug("Marking {} as changed for view process {}", objectId, getViewProcess());
+    _changedPortfolioObjects.add(objectId);
+  }
+
   public synchronized void triggerCycle() {
     s_logger.debug("Cycle triggered manually");
     _forceTriggerCycle = true;
@@ -548,21 +845,29 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
   //-------------------------------------------------------------------------
   private EngineResourceReference<SingleComputationCycle> createCycle(ViewCycleExecutionOptions executionOptions,
       CompiledViewDefinitionWithGraphsImpl compiledViewDefinition, VersionCorrection versionCorrection) {
-    // View definition was compiled based on compilation options, which might have only included an indicative
-    // valuation time. A further check ensures that the compiled view definition is still valid.
-    if (!compiledViewDefinition.isValidFor(executionOptions.getValuationTime())) {
-      throw new OpenGammaRuntimeException("Compiled view definition " + compiledViewDefinition + " not valid for execution options " + executionOptions);
-    }
-    UniqueId cycleId = getViewProcess().generateCycleId();
-
     ComputationResultListener streamingResultListener = new ComputationResultListener() {
       @Override
       public void resultAvailable(ViewComputationResultModel result) {
         cycleFragmentCompleted(result);
       }
     };
+    return createCycle(executionOptions, compiledViewDefinition, versionCorrection, streamingResultListener);
+  }
+
+  private EngineResourceReference<SingleComputationCycle> createCycle(ViewCycleExecutionOptions executionOptions,
+      CompiledViewDefinitionWithGraphsImpl compiledViewDefinition, VersionCorrection versionCorrection, ComputationResultListener streamingResultListener) {
+    // View definition was compiled based on compilation options, which might have only included an indicative
+    // valuation time. A further check ensures that the compiled view definition is still valid.
+    if (!compiledViewDefinition.isValidFor(executionOptions.getValuationTime())) {
+      throw new OpenGammaRuntimeException("Compiled view definition " + compiledViewDefinition + " not valid for execution options " + executionOptions);
+    }
+    UniqueId cycleId = getViewProcess().generateCycleId();
     SingleComputationCycle cycle = new SingleComputationCycle(cycleId, getViewProcess().getUniqueId(),
         streamingResultListener, getProcessContext(), compiledViewDefinition, executionOptions, versionCorrection);
+    if (getViewProcess().isCycleTracing()) {
+      cycle.setTracer(new CycleExecutionTracer(cycleId));
+    }
+    cycle.setColumnarResults(getExecutionOptions().getFlags().contains(ViewExecutionFlags.COLUMNAR_RESULTS));
     return getCycleManager().manage(cycle);
   }
 
@@ -578,23 +883,50 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     long functionInitId = getProcessContext().getFunctionCompilationService().getFunctionCompilationContext().getFunctionInitId();
     CompiledViewDefinitionWithGraphsImpl compiledViewDefinition;
     updateViewDefinitionIfRequired();
+    final CompiledViewDefinitionCache sharedCache = getProcessContext().getCompiledViewDefinitionCache();
     if (_compilationDirty) {
       _compilationDirty = false;
+      if ((sharedCache != null) && (getCachedCompiledViewDefinition() != null)) {
+        sharedCache.remove(getCachedCompiledViewDefinition());
+      }
       invalidateCachedCompiledViewDefinition();
       compiledViewDefinition = null;
     } else {
       compiledViewDefinition = getCachedCompiledViewDefinition();
     }
+    final Set<ObjectId> changedPortfolioObjects = new HashSet<ObjectId>(_changedPortfolioObjects);
+    _changedPortfolioObjects.removeAll(changedPortfolioObjects);
     if (compiledViewDefinition != null && compiledViewDefinition.isValidFor(valuationTime) && functionInitId == compiledViewDefinition.getFunctionInitId()) {
-      // Existing cached model is valid (an optimisation for the common case of similar, increasing valuation times)
-      return compiledViewDefinition;
+      if (changedPortfolioObjects.isEmpty()) {
+        // Existing cached model is valid (an optimisation for the common case of similar, increasing valuation times)
+        return compiledViewDefinition;
+      }
+      final CompiledViewDefinitionWithGraphsImpl previousCompilation = compiledViewDefinition;
+      // The changes are applied to copies of the graphs, so a shared compilation is not modified
+      compiledViewDefinition = compileChanges(previousCompilation, changedPortfolioObjects, valuationTime, versionCorrection);
+      if (compiledViewDefinition == previousCompilation) {
+        // None of the changes affect the view
+        return compiledViewDefinition;
+      }
+      if (sharedCache != null) {
+        // Other view processes will apply the same changes to their copies; later ones must not start from it
+        sharedCache.remove(previousCompilation);
+      }
+    } else {
+      compiledViewDefinition = null;
     }
 
     try {
       MarketDataAvailabilityProvider availabilityProvider = getMarketDataProvider().getAvailabilityProvider();
       ViewCompilationServices compilationServices = getProcessContext().asCompilationServices(availabilityProvider);
-      compiledViewDefinition = ViewDefinitionCompiler.compile(_viewDefinition, compilationServices, valuationTime, versionCorrection);
-      
+      if (compiledViewDefinition == null) {
+        if (sharedCache != null) {
+          compiledViewDefinition = sharedCache.compile(_viewDefinition, compilationServices, _marketDataSpecification, valuationTime, versionCorrection);
+        } else {
+          compiledViewDefinition = ViewDefinitionCompiler.compile(_viewDefinition, compilationServices, valuationTime, versionCorrection);
+        }
+      }
+
       if (isTerminated()) {
         return compiledViewDefinition; //[PLAT-1904] If we can't terminate the compilation at least avoid doing the subscribe etc.
       }
@@ -604,6 +936,8 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
       throw new OpenGammaRuntimeException(message, e);
     }
     setCachedCompiledViewDefinition(compiledViewDefinition);
+    // Ticks seen before now were filtered against the previous market data requirements
+    invalidateChangedMarketData();
     // [PLAT-984]
     // Assume that valuation times are increasing in real-time towards the expiry of the view definition, so that we
     // can predict the time to expiry. If this assumption is wrong then the worst we do is trigger an unnecessary
@@ -627,6 +961,26 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     return compiledViewDefinition;
   }
 
+  /**
+   * Applies portfolio changes to the cached compilation, rebuilding only the affected parts of its dependency graphs.
+   * The subsequent update of the market data subscriptions then only adds or removes the values which have changed.
+   * 
+   * @return the updated compilation, the original if not affected by the changes, or null if a full compilation is
+   *         required
+   */
+  private CompiledViewDefinitionWithGraphsImpl compileChanges(CompiledViewDefinitionWithGraphsImpl compiledViewDefinition, Set<ObjectId> changedPortfolioObjects,
+      Instant valuationTime, VersionCorrection versionCorrection) {
+    try {
+      MarketDataAvailabilityProvider availabilityProvider = getMarketDataProvider().getAvailabilityProvider();
+      ViewCompilationServices compilationServices = getProcessContext().asCompilationServices(availabilityProvider);
+      return ViewDefinitionCompiler.compileChanges(compiledViewDefinition, changedPortfolioObjects, compilationServices, valuationTime, versionCorrection);
+    } catch (Exception e) {
+      // The existing compilation is not modified by a failed update; a full compilation will replace it
+      s_logger.warn("Error applying portfolio changes to compiled view definition; performing full compilation", e);
+      return null;
+    }
+  }
+
   /**
    * Gets the cached compiled view definition which may be re-used in subsequent computation cycles.
    * <p>
@@ -681,6 +1035,22 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     getProcessContext().getViewDefinitionRepository().changeManager().addChangeListener(_viewDefinitionChangeListener);
   }
 
+  private void subscribeToPortfolio() {
+    if (_portfolioChangeListener != null || getProcessContext().getPositionSource() == null) {
+      return;
+    }
+    _portfolioChangeListener = new PortfolioChangeListener(this);
+    getProcessContext().getPositionSource().changeManager().addChangeListener(_portfolioChangeListener);
+  }
+
+  private void unsubscribeFromPortfolio() {
+    if (_portfolioChangeListener == null) {
+      return;
+    }
+    getProcessContext().getPositionSource().changeManager().removeChangeListener(_portfolioChangeListener);
+    _portfolioChangeListener = null;
+  }
+
   private void unsubscribeFromViewDefinition() {
     if (_viewDefinitionChangeListener == null) {
       return;
@@ -704,6 +1074,7 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     removeMarketDataSubscriptions();
     _marketDataProvider.removeListener(this);
     _marketDataProvider = null;
+    _marketDataSpecification = null;
   }
 
   private MarketDataProvider getMarketDataProvider() {
@@ -715,6 +1086,7 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     if (_marketDataProvider == null) {
       s_logger.error("Couldn't resolve {}", marketDataSpec);
     } else {
+      _marketDataSpecification = marketDataSpec;
       _marketDataProvider.addListener(this);
     }
   }
@@ -765,12 +1137,12 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
   }
 
   private void removeMarketDataSubscriptions() {
-    removeMarketDataSubscriptions(_marketDataSubscriptions);
+    removeMarketDataSubscriptions(new ArrayList<ValueRequirement>(_marketDataSubscriptions));
   }
 
   private void removeMarketDataSubscriptions(final Collection<ValueRequirement> unusedSubscriptions) {
     final OperationTimer timer = new OperationTimer(s_logger, "Removing {} market data subscriptions", unusedSubscriptions.size());
-    getMarketDataProvider().unsubscribe(getViewDefinition().getMarketDataUser(), _marketDataSubscriptions);
+    getMarketDataProvider().unsubscribe(getViewDefinition().getMarketDataUser(), new HashSet<ValueRequirement>(unusedSubscriptions));
     _marketDataSubscriptions.removeAll(unusedSubscriptions);
     timer.finished();
   }
@@ -782,6 +1154,8 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
     // Can't tell in general whether this subscription message was relating to a subscription that we made or one that
     // a concurrent user of the MarketDataProvider made.
     s_logger.debug("Subscription succeeded: {}", requirement);
+    // A value may now be available without a change being reported
+    invalidateChangedMarketData();
     removePendingSubscription(requirement);
   }
 
@@ -797,6 +1171,9 @@ public class ViewComputationJob extends TerminatableJob implements MarketDataLis
 
   @Override
   public void valuesChanged(Collection<ValueRequirement> values) {
+    if (isPartialDeltaCycles()) {
+      recordChangedMarketData(values);
+    }
     if (!getExecutionOptions().getFlags().contains(ViewExecutionFlags.TRIGGER_CYCLE_ON_MARKET_DATA_CHANGED)) {
       return;
     }
@@ -94,4 +94,14 @@ public final class MultipleNodeExecutor implements MultipleNodeExecutorMBean {
     getUnderlying().setMinimumJobItems(minimumJobItems);
   }
 
+  @Override
+  public boolean isCriticalPath() {
+    return getUnderlying().isCriticalPath();
+  }
+
+  @Override
+  public void setCriticalPath(boolean criticalPath) {
+    getUnderlying().setCriticalPath(criticalPath);
+  }
+
 }
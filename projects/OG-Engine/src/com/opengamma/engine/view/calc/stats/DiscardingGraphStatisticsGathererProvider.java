@@ -6,6 +6,7 @@
 
 package com.opengamma.engine.view.calc.stats;
 
+import com.opengamma.engine.view.cache.ViewComputationCacheStatistics;
 import com.opengamma.id.UniqueId;
 
 /**
@@ -28,6 +29,16 @@ public class DiscardingGraphStatisticsGathererProvider implements GraphExecutorS
       // No action
     }
 
+    @Override
+    public void cacheStatistics(String calcConfig, ViewComputationCacheStatistics statistics) {
+      // No action
+    }
+
+    @Override
+    public void computationShared(String calcConfig, int sharedNodes, int skippedNodes) {
+      // No action
+    }
+
   };
 
   public GraphExecutorStatisticsGatherer getStatisticsGatherer(final UniqueId viewProcessId) {
@@ -10,6 +10,7 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import javax.time.Instant;
 
+import com.opengamma.engine.view.cache.ViewComputationCacheStatistics;
 import com.opengamma.id.UniqueId;
 
 /**
@@ -28,6 +29,9 @@ public class GraphExecutionStatistics {
   private final AtomicLong _processedJobSize = new AtomicLong();
   private final AtomicLong _processedJobCycleCost = new AtomicLong();
   private final AtomicLong _processedJobDataCost = new AtomicLong();
+  private final AtomicLong _sharedNodes = new AtomicLong();
+  private final AtomicLong _skippedNodes = new AtomicLong();
+  private final ViewComputationCacheStatistics _cacheStatistics = new ViewComputationCacheStatistics();
   private volatile Instant _lastProcessedTime;
   private volatile Instant _lastExecutedTime;
 
@@ -80,6 +84,33 @@ public class GraphExecutionStatistics {
     return _processedJobDataCost.get();
   }
 
+  /**
+   * Returns the number of nodes whose outputs were taken from another view process instead of being executed.
+   * 
+   * @return the number of shared nodes
+   */
+  public long getSharedNodes() {
+    return _sharedNodes.get();
+  }
+
+  /**
+   * Returns the number of nodes that were not executed because only shared nodes needed their outputs.
+   * 
+   * @return the number of skipped nodes
+   */
+  public long getSkippedNodes() {
+    return _skippedNodes.get();
+  }
+
+  /**
+   * Returns the cumulative value cache activity. The figures are totals and are not affected by {@link #decay}.
+   * 
+   * @return the cache statistics, not null
+   */
+  public ViewComputationCacheStatistics getCacheStatistics() {
+    return _cacheStatistics;
+  }
+
   public Instant getLastProcessedTime() {
     return _lastProcessedTime;
   }
@@ -165,7 +196,17 @@ public class GraphExecutionStatistics {
     _lastProcessedTime = Instant.now();
   }
 
+  public void recordCacheStatistics(final ViewComputationCacheStatistics statistics) {
+    _cacheStatistics.add(statistics);
+  }
+
+  public void recordSharing(final int sharedNodes, final int skippedNodes) {
+    _sharedNodes.addAndGet(sharedNodes);
+    _skippedNodes.addAndGet(skippedNodes);
+  }
+
   public void reset() {
+    _cacheStatistics.reset();
     _processedGraphs.set(0);
     _executedGraphs.set(0);
     _executedNodes.set(0);
@@ -175,6 +216,8 @@ public class GraphExecutionStatistics {
     _processedJobSize.set(0);
     _processedJobCycleCost.set(0);
     _processedJobDataCost.set(0);
+    _sharedNodes.set(0);
+    _skippedNodes.set(0);
   }
 
   private static void decay(final AtomicLong value, final double factor) {
@@ -191,6 +234,8 @@ public class GraphExecutionStatistics {
     decay(_processedJobSize, factor);
     decay(_processedJobCycleCost, factor);
     decay(_processedJobDataCost, factor);
+    decay(_sharedNodes, factor);
+    decay(_skippedNodes, factor);
   }
 
   public GraphExecutionStatistics snapshot() {
@@ -200,6 +245,8 @@ public class GraphExecutionStatistics {
   }
 
   public void snapshot(final GraphExecutionStatistics other) {
+    _cacheStatistics.reset();
+    _cacheStatistics.add(other.getCacheStatistics());
     _processedGraphs.set(other.getProcessedGraphs());
     _executedGraphs.set(other.getExecutedGraphs());
     _executedNodes.set(other.getExecutedNodes());
@@ -209,6 +256,8 @@ public class GraphExecutionStatistics {
     _processedJobSize.set(other.getProcessedJobSize());
     _processedJobCycleCost.set(other.getProcessedJobCycleCost());
     _processedJobDataCost.set(other.getProcessedJobDataCost());
+    _sharedNodes.set(other.getSharedNodes());
+    _skippedNodes.set(other.getSkippedNodes());
   }
 
   public void delta(final GraphExecutionStatistics future) {
@@ -221,5 +270,7 @@ public class GraphExecutionStatistics {
     _processedJobSize.set(future.getProcessedJobSize() - getProcessedJobSize());
     _processedJobCycleCost.set(future.getProcessedJobCycleCost() - getProcessedJobCycleCost());
     _processedJobDataCost.set(future.getProcessedJobDataCost() - getProcessedJobDataCost());
+    _sharedNodes.set(future.getSharedNodes() - getSharedNodes());
+    _skippedNodes.set(future.getSkippedNodes() - getSkippedNodes());
   }
 }
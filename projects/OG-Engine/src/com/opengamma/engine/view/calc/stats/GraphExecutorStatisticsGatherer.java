@@ -7,6 +7,7 @@
 package com.opengamma.engine.view.calc.stats;
 
 import com.opengamma.engine.view.calc.DependencyGraphExecutor;
+import com.opengamma.engine.view.cache.ViewComputationCacheStatistics;
 import com.opengamma.engine.view.calcnode.JobDispatcher;
 
 /**
@@ -35,4 +36,22 @@ public interface GraphExecutorStatisticsGatherer {
    */
   void graphExecuted(String calcConfig, int nodeCount, long executionTime, long duration);
 
+  /**
+   * Reports the value cache activity from a graph execution.
+   * 
+   * @param calcConfig Calculation configuration name.
+   * @param statistics Data volumes and hit rates of the computation cache used by the graph.
+   */
+  void cacheStatistics(String calcConfig, ViewComputationCacheStatistics statistics);
+
+  /**
+   * Reports the nodes of a graph that did not need executing because identical work had already been done by another
+   * view process.
+   * 
+   * @param calcConfig Calculation configuration name.
+   * @param sharedNodes Number of nodes whose outputs were taken from another view process.
+   * @param skippedNodes Number of nodes skipped because only shared nodes needed their outputs.
+   */
+  void computationShared(String calcConfig, int sharedNodes, int skippedNodes);
+
 }
@@ -16,6 +16,7 @@ import java.util.concurrent.ConcurrentMap;
 import javax.time.Instant;
 import javax.time.InstantProvider;
 
+import com.opengamma.engine.view.cache.ViewComputationCacheStatistics;
 import com.opengamma.id.UniqueId;
 
 /**
@@ -57,6 +58,16 @@ public class TotallingGraphStatisticsGathererProvider extends PerViewStatisticsG
       getOrCreateConfiguration(calcConfig).recordProcessing(totalJobs, meanJobSize, meanJobCycleCost, meanJobIOCost);
     }
 
+    @Override
+    public void cacheStatistics(String calcConfig, ViewComputationCacheStatistics statistics) {
+      getOrCreateConfiguration(calcConfig).recordCacheStatistics(statistics);
+    }
+
+    @Override
+    public void computationShared(String calcConfig, int sharedNodes, int skippedNodes) {
+      getOrCreateConfiguration(calcConfig).recordSharing(sharedNodes, skippedNodes);
+    }
+
     public List<GraphExecutionStatistics> getExecutionStatistics() {
       return new ArrayList<GraphExecutionStatistics>(_statistics.values());
     }
@@ -12,12 +12,15 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 
+import org.apache.commons.lang.ObjectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.engine.ComputationTarget;
 import com.opengamma.engine.ComputationTargetResolver;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.function.BatchFunctionInvoker;
 import com.opengamma.engine.function.CompiledFunctionRepository;
 import com.opengamma.engine.function.CompiledFunctionService;
 import com.opengamma.engine.function.FunctionExecutionContext;
@@ -25,6 +28,7 @@ import com.opengamma.engine.function.FunctionInputs;
 import com.opengamma.engine.function.FunctionInputsImpl;
 import com.opengamma.engine.function.FunctionInvoker;
 import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.ViewProcessor;
 import com.opengamma.engine.view.cache.CacheSelectHint;
@@ -118,29 +122,157 @@ public abstract class AbstractCalculationNode implements CalculationNode {
   }
 
   protected List<CalculationJobResultItem> executeJobItems(final CalculationJob job, final DelayedViewComputationCache cache,
-      final CompiledFunctionRepository functions, final String calculationConfiguration) {
-    final List<CalculationJobResultItem> resultItems = new ArrayList<CalculationJobResultItem>();
-    for (CalculationJobItem jobItem : job.getJobItems()) {
+      final CompiledFunctionRepository functions, final String calculationConfiguration, final CalculationJobTrace trace) {
+    final List<CalculationJobItem> jobItems = job.getJobItems();
+    final List<CalculationJobResultItem> resultItems = new ArrayList<CalculationJobResultItem>(jobItems.size());
+    int index = 0;
+    while (index < jobItems.size()) {
       if (job.isCancelled()) {
         return null;
       }
-      CalculationJobResultItem resultItem;
+      final int batchSize = getBatchSize(functions, jobItems, index);
+      if (batchSize > 1) {
+        invokeBatch(functions, jobItems.subList(index, index + batchSize), cache, calculationConfiguration, resultItems, trace, index);
+        index += batchSize;
+      } else {
+        final CalculationJobItem jobItem = jobItems.get(index);
+        CalculationJobResultItem resultItem;
+        try {
+          invoke(functions, jobItem, cache, new DeferredInvocationStatistics(getFunctionInvocationStatistics(), calculationConfiguration), trace, index);
+          resultItem = new CalculationJobResultItem(jobItem);
+        } catch (MissingInputException e) {
+          // NOTE kirk 2009-10-20 -- We intentionally only do the message here so that we don't
+          // litter the logs with stack traces; the inputs missing have also already been
+          // written at INFO level
+          s_logger.info("Unable to invoke {} due to missing inputs", jobItem);
+          resultItem = new CalculationJobResultItem(jobItem, e);
+        } catch (Throwable t) {
+          s_logger.error("Invoking " + jobItem.getFunctionUniqueIdentifier() + " threw exception", t);
+          resultItem = new CalculationJobResultItem(jobItem, t);
+        }
+        resultItems.add(resultItem);
+        index++;
+      }
+    }
+    return resultItems;
+  }
+
+  /**
+   * Returns the number of consecutive items, starting at the given index, that can be passed to a
+   * {@link BatchFunctionInvoker} in a single call. The items must be for the same function with the same parameters and
+   * none may consume the output of another.
+   */
+  private int getBatchSize(final CompiledFunctionRepository functions, final List<CalculationJobItem> jobItems, final int index) {
+    final CalculationJobItem first = jobItems.get(index);
+    if ((index + 1 >= jobItems.size()) || !first.getFunctionUniqueIdentifier().equals(jobItems.get(index + 1).getFunctionUniqueIdentifier())) {
+      return 1;
+    }
+    if (!(functions.getInvoker(first.getFunctionUniqueIdentifier()) instanceof BatchFunctionInvoker)) {
+      return 1;
+    }
+    final String functionUniqueId = first.getFunctionUniqueIdentifier();
+    final Set<ComputationTargetSpecification> targets = new HashSet<ComputationTargetSpecification>();
+    targets.add(first.getComputationTargetSpecification());
+    int end = index + 1;
+    batch: while (end < jobItems.size()) {
+      final CalculationJobItem jobItem = jobItems.get(end);
+      if (!functionUniqueId.equals(jobItem.getFunctionUniqueIdentifier()) || !ObjectUtils.equals(first.getFunctionParameters(), jobItem.getFunctionParameters())) {
+        break;
+      }
+      for (ValueSpecification input : jobItem.getInputs()) {
+        if (functionUniqueId.equals(input.getFunctionUniqueId()) && targets.contains(input.getTargetSpecification())) {
+          // Possibly produced by an earlier item in the batch
+          break batch;
+        }
+      }
+      targets.add(jobItem.getComputationTargetSpecification());
+      end++;
+    }
+    return end - index;
+  }
+
+  private void invokeBatch(final CompiledFunctionRepository functions, final List<CalculationJobItem> jobItems, final DelayedViewComputationCache cache,
+      final String calculationConfiguration, final List<CalculationJobResultItem> resultItems, final CalculationJobTrace trace, final int traceOffset) {
+    final String functionUniqueId = jobItems.get(0).getFunctionUniqueIdentifier();
+    final BatchFunctionInvoker invoker = (BatchFunctionInvoker) functions.getInvoker(functionUniqueId);
+    s_logger.debug("Invoking {} on {} targets", functionUniqueId, jobItems.size());
+    getFunctionExecutionContext().setFunctionParameters(jobItems.get(0).getFunctionParameters());
+    final CalculationJobResultItem[] results = new CalculationJobResultItem[jobItems.size()];
+    final List<Integer> batchIndices = new ArrayList<Integer>(jobItems.size());
+    final List<FunctionInputs> batchInputs = new ArrayList<FunctionInputs>(jobItems.size());
+    final List<ComputationTarget> batchTargets = new ArrayList<ComputationTarget>(jobItems.size());
+    final List<Set<ValueRequirement>> batchDesiredValues = new ArrayList<Set<ValueRequirement>>(jobItems.size());
+    final List<DeferredInvocationStatistics> batchStatistics = new ArrayList<DeferredInvocationStatistics>(jobItems.size());
+    for (int i = 0; i < results.length; i++) {
+      final CalculationJobItem jobItem = jobItems.get(i);
+      final DeferredInvocationStatistics statistics = new DeferredInvocationStatistics(getFunctionInvocationStatistics(), calculationConfiguration);
+      if (trace != null) {
+        trace.itemStarted(traceOffset + i);
+      }
       try {
-        invoke(functions, jobItem, cache, new DeferredInvocationStatistics(getFunctionInvocationStatistics(), calculationConfiguration));
-        resultItem = new CalculationJobResultItem(jobItem);
+        final ComputationTarget target = resolveTarget(jobItem);
+        batchInputs.add(assembleInputs(invoker, jobItem, cache, statistics));
+        if (trace != null) {
+          trace.itemInputsFetched(traceOffset + i);
+        }
+        batchTargets.add(target);
+        batchDesiredValues.add(jobItem.getDesiredValues());
+        batchStatistics.add(statistics);
+        batchIndices.add(i);
       } catch (MissingInputException e) {
-        // NOTE kirk 2009-10-20 -- We intentionally only do the message here so that we don't
-        // litter the logs with stack traces; the inputs missing have also already been
-        // written at INFO level
         s_logger.info("Unable to invoke {} due to missing inputs", jobItem);
-        resultItem = new CalculationJobResultItem(jobItem, e);
+        results[i] = new CalculationJobResultItem(jobItem, e);
       } catch (Throwable t) {
-        s_logger.error("Invoking " + jobItem.getFunctionUniqueIdentifier() + " threw exception", t);
-        resultItem = new CalculationJobResultItem(jobItem, t);
+        s_logger.error("Invoking " + functionUniqueId + " threw exception", t);
+        results[i] = new CalculationJobResultItem(jobItem, t);
       }
-      resultItems.add(resultItem);
     }
-    return resultItems;
+    List<Set<ComputedValue>> batchResults = null;
+    long invocationTime = 0;
+    if (!batchIndices.isEmpty()) {
+      try {
+        invocationTime = System.nanoTime();
+        batchResults = invoker.execute(getFunctionExecutionContext(), batchInputs, batchTargets, batchDesiredValues);
+        invocationTime = System.nanoTime() - invocationTime;
+        if ((batchResults == null) || (batchResults.size() != batchIndices.size())) {
+          throw new OpenGammaRuntimeException("Invoker " + invoker + " returned " + ((batchResults == null) ? "no" : batchResults.size()) + " results for " + batchIndices.size()
+              + " targets");
+        }
+      } catch (Throwable t) {
+        s_logger.warn("Batch invocation of " + functionUniqueId + " threw exception; invoking targets individually", t);
+        batchResults = null;
+      }
+    }
+    for (int i = 0; i < batchIndices.size(); i++) {
+      final int index = batchIndices.get(i);
+      final CalculationJobItem jobItem = jobItems.get(index);
+      final DeferredInvocationStatistics statistics = batchStatistics.get(i);
+      try {
+        final Set<ComputedValue> values;
+        if (batchResults != null) {
+          values = batchResults.get(i);
+          statistics.setInvocationTime(invocationTime / batchIndices.size());
+        } else {
+          statistics.beginInvocation();
+          values = invoker.execute(getFunctionExecutionContext(), batchInputs.get(i), batchTargets.get(i), batchDesiredValues.get(i));
+          statistics.endInvocation();
+        }
+        if (trace != null) {
+          trace.itemInvoked(traceOffset + index);
+        }
+        storeResults(invoker, functionUniqueId, values, cache, statistics);
+        if (trace != null) {
+          trace.itemWritten(traceOffset + index);
+        }
+        results[index] = new CalculationJobResultItem(jobItem);
+      } catch (Throwable t) {
+        s_logger.error("Invoking " + functionUniqueId + " threw exception", t);
+        results[index] = new CalculationJobResultItem(jobItem, t);
+      }
+    }
+    for (CalculationJobResultItem result : results) {
+      resultItems.add(result);
+    }
   }
 
   public CalculationJobResult executeJob(final CalculationJob job) {
@@ -151,15 +283,23 @@ public abstract class AbstractCalculationNode implements CalculationNode {
     getFunctionExecutionContext().setValuationClock(DateUtils.fixedClockUTC(spec.getValuationTime()));
     final CompiledFunctionRepository functions = getFunctionCompilationService().compileFunctionRepository(spec.getValuationTime());
     final DelayedViewComputationCache cache = getDelayedViewComputationCache(getCache(spec), job.getCacheSelectHint());
+    final CalculationJobTrace trace = job.isTraced() ? new CalculationJobTrace(job.getJobItems().size()) : null;
+    if (trace != null) {
+      trace.jobStarted();
+    }
     long executionTime = System.nanoTime();
     final String calculationConfiguration = spec.getCalcConfigName();
-    final List<CalculationJobResultItem> resultItems = executeJobItems(job, cache, functions, calculationConfiguration);
+    final List<CalculationJobResultItem> resultItems = executeJobItems(job, cache, functions, calculationConfiguration, trace);
     if (resultItems == null) {
       return null;
     }
     cache.waitForPendingWrites();
     executionTime = System.nanoTime() - executionTime;
     CalculationJobResult jobResult = new CalculationJobResult(spec, executionTime, resultItems, getNodeId());
+    if (trace != null) {
+      trace.jobFinished();
+      jobResult.setTrace(trace);
+    }
     s_logger.info("Executed {} in {}ns", job, executionTime);
     return jobResult;
   }
@@ -179,20 +319,16 @@ public abstract class AbstractCalculationNode implements CalculationNode {
     return cache;
   }
 
-  private void invoke(final CompiledFunctionRepository functions, final CalculationJobItem jobItem, final DelayedViewComputationCache cache, final DeferredInvocationStatistics statistics) {
-    final String functionUniqueId = jobItem.getFunctionUniqueIdentifier();
+  private ComputationTarget resolveTarget(final CalculationJobItem jobItem) {
     final ComputationTarget target = getTargetResolver().resolve(jobItem.getComputationTargetSpecification());
     if (target == null) {
       throw new OpenGammaRuntimeException("Unable to resolve specification " + jobItem.getComputationTargetSpecification());
     }
-    s_logger.debug("Invoking {} on target {}", functionUniqueId, target);
-    final FunctionInvoker invoker = functions.getInvoker(functionUniqueId);
-    if (invoker == null) {
-      throw new NullPointerException("Unable to locate " + functionUniqueId + " in function repository.");
-    }
-    // set parameters
-    getFunctionExecutionContext().setFunctionParameters(jobItem.getFunctionParameters());
-    // assemble inputs
+    return target;
+  }
+
+  private FunctionInputs assembleInputs(final FunctionInvoker invoker, final CalculationJobItem jobItem, final DelayedViewComputationCache cache,
+      final DeferredInvocationStatistics statistics) {
     final Collection<ComputedValue> inputs = new HashSet<ComputedValue>();
     final Collection<ValueSpecification> missingInputs = new HashSet<ValueSpecification>();
     int inputBytes = 0;
@@ -216,20 +352,52 @@ public abstract class AbstractCalculationNode implements CalculationNode {
         s_logger.debug("Executing even with missing inputs {}", missingInputs);
       } else {
         s_logger.info("Not able to execute as missing inputs {}", missingInputs);
-        throw new MissingInputException(missingInputs, functionUniqueId);
+        throw new MissingInputException(missingInputs, jobItem.getFunctionUniqueIdentifier());
       }
     }
-    final FunctionInputs functionInputs = new FunctionInputsImpl(inputs, missingInputs);
-    // execute
-    statistics.beginInvocation();
-    final Set<ComputedValue> results = invoker.execute(getFunctionExecutionContext(), functionInputs, target, jobItem.getDesiredValues());
+    return new FunctionInputsImpl(inputs, missingInputs);
+  }
+
+  private void storeResults(final FunctionInvoker invoker, final String functionUniqueId, final Set<ComputedValue> results, final DelayedViewComputationCache cache,
+      final DeferredInvocationStatistics statistics) {
     if (results == null) {
       throw new NullPointerException("No results returned by invoker " + invoker);
     }
-    statistics.endInvocation();
     statistics.setFunctionIdentifier(functionUniqueId);
     statistics.setExpectedDataOutputSamples(results.size());
-    // store results
     cache.putValues(results, statistics);
   }
+
+  private void invoke(final CompiledFunctionRepository functions, final CalculationJobItem jobItem, final DelayedViewComputationCache cache, final DeferredInvocationStatistics statistics,
+      final CalculationJobTrace trace, final int traceIndex) {
+    if (trace != null) {
+      trace.itemStarted(traceIndex);
+    }
+    final String functionUniqueId = jobItem.getFunctionUniqueIdentifier();
+    final ComputationTarget target = resolveTarget(jobItem);
+    s_logger.debug("Invoking {} on target {}", functionUniqueId, target);
+    final FunctionInvoker invoker = functions.getInvoker(functionUniqueId);
+    if (invoker == null) {
+      throw new NullPointerException("Unable to locate " + functionUniqueId + " in function repository.");
+    }
+    // set parameters
+    getFunctionExecutionContext().setFunctionParameters(jobItem.getFunctionParameters());
+    // assemble inputs
+    final FunctionInputs functionInputs = assembleInputs(invoker, jobItem, cache, statistics);
+    if (trace != null) {
+      trace.itemInputsFetched(traceIndex);
+    }
+    // execute
+    statistics.beginInvocation();
+    final Set<ComputedValue> results = invoker.execute(getFunctionExecutionContext(), functionInputs, target, jobItem.getDesiredValues());
+    statistics.endInvocation();
+    if (trace != null) {
+      trace.itemInvoked(traceIndex);
+    }
+    // store results
+    storeResults(invoker, functionUniqueId, results, cache, statistics);
+    if (trace != null) {
+      trace.itemWritten(traceIndex);
+    }
+  }
 }
@@ -22,6 +22,9 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.cache.CacheSelectHint;
+import com.opengamma.engine.view.cache.RemoteViewComputationCacheSource;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.tuple.Pair;
 
@@ -54,14 +57,17 @@ public abstract class AbstractCalculationNodeInvocationContainer {
 
   }
 
-  private static class JobEntry {
+  /**
+   * A job submitted to the container, along with its execution state.
+   */
+  protected static final class JobEntry {
 
     private final CalculationJob _job;
     private final JobExecution _execution;
     private ExecutionReceiver _receiver;
     private AtomicInteger _blockCount;
 
-    public JobEntry(final CalculationJob job, final JobExecution execution, final ExecutionReceiver receiver) {
+    private JobEntry(final CalculationJob job, final JobExecution execution, final ExecutionReceiver receiver) {
       _job = job;
       _execution = execution;
       _receiver = receiver;
@@ -71,11 +77,11 @@ public abstract class AbstractCalculationNodeInvocationContainer {
       return _job;
     }
 
-    public JobExecution getExecution() {
+    private JobExecution getExecution() {
       return _execution;
     }
 
-    public ExecutionReceiver getReceiver() {
+    private ExecutionReceiver getReceiver() {
       return _receiver;
     }
 
@@ -85,7 +91,7 @@ public abstract class AbstractCalculationNodeInvocationContainer {
      * Note that we initialize the count to two so that the job does not get spawned prematurely until the
      * addJob thread has processed the required job list and performs a decrement to clear the additional value.
      */
-    public void incrementBlockCount() {
+    private void incrementBlockCount() {
       if (_blockCount == null) {
         _blockCount = new AtomicInteger(2);
       } else {
@@ -97,11 +103,11 @@ public abstract class AbstractCalculationNodeInvocationContainer {
      * Decrements the block count.
      * @return true when the count reaches zero
      */
-    public boolean releaseBlockCount() {
+    private boolean releaseBlockCount() {
       return _blockCount.decrementAndGet() == 0;
     }
 
-    public void invalidate() {
+    private void invalidate() {
       _receiver = null;
     }
 
@@ -134,6 +140,7 @@ public abstract class AbstractCalculationNodeInvocationContainer {
     private Status _status;
     private Set<JobEntry> _blocked;
     private Pair<Thread, CalculationJob> _executor;
+    private boolean _cancelling;
 
     public JobExecution(final long jobId) {
       _jobId = jobId;
@@ -157,12 +164,42 @@ public abstract class AbstractCalculationNodeInvocationContainer {
       _status = status;
     }
 
-    public synchronized Pair<Thread, CalculationJob> getAndSetExecutor(final Pair<Thread, CalculationJob> executor) {
+    /**
+     * Takes the executing thread so that it can be interrupted. The thread will not leave {@link #threadFree} until
+     * {@link #cancelled} is called.
+     */
+    public synchronized Pair<Thread, CalculationJob> cancelling() {
       final Pair<Thread, CalculationJob> previous = _executor;
-      _executor = executor;
+      _executor = null;
+      if (previous != null) {
+        _cancelling = true;
+      }
       return previous;
     }
 
+    public synchronized void cancelled() {
+      _cancelling = false;
+      notifyAll();
+    }
+
+    /**
+     * Releases the executing thread, waiting for any cancellation in progress to deliver its interrupt.
+     * 
+     * @return true if the job was cancelled and the thread may have been interrupted
+     */
+    public synchronized boolean threadFree() {
+      while (_cancelling) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          s_logger.debug("Interrupt received");
+        }
+      }
+      final boolean cancelled = (_executor == null);
+      _executor = null;
+      return cancelled;
+    }
+
     public synchronized boolean threadBusy(final CalculationJob job) {
       assert _executor == null;
       if (_status == Status.FAILED) {
@@ -205,6 +242,11 @@ public abstract class AbstractCalculationNodeInvocationContainer {
   private final Queue<JobEntry> _runnableJobs = new ConcurrentLinkedQueue<JobEntry>();
   private final ExecutorService _executorService = Executors.newCachedThreadPool();
 
+  /**
+   * Cache source used to prefetch the inputs of jobs that cannot start immediately, null if the nodes do not use a remote cache.
+   */
+  private volatile RemoteViewComputationCacheSource _prefetchSource;
+
   protected Queue<AbstractCalculationNode> getNodes() {
     return _nodes;
   }
@@ -212,12 +254,16 @@ public abstract class AbstractCalculationNodeInvocationContainer {
   public void addNode(final AbstractCalculationNode node) {
     ArgumentChecker.notNull(node, "node");
     getNodes().add(node);
+    updatePrefetchSource(node);
     onNodeChange();
   }
 
   public void addNodes(final Collection<AbstractCalculationNode> nodes) {
     ArgumentChecker.notNull(nodes, "nodes");
     getNodes().addAll(nodes);
+    for (AbstractCalculationNode node : nodes) {
+      updatePrefetchSource(node);
+    }
     onNodeChange();
   }
 
@@ -225,6 +271,7 @@ public abstract class AbstractCalculationNodeInvocationContainer {
     ArgumentChecker.notNull(node, "node");
     getNodes().clear();
     getNodes().add(node);
+    updatePrefetchSource(node);
     onNodeChange();
   }
 
@@ -232,9 +279,18 @@ public abstract class AbstractCalculationNodeInvocationContainer {
     ArgumentChecker.notNull(nodes, "nodes");
     getNodes().clear();
     getNodes().addAll(nodes);
+    for (AbstractCalculationNode node : nodes) {
+      updatePrefetchSource(node);
+    }
     onNodeChange();
   }
 
+  private void updatePrefetchSource(final AbstractCalculationNode node) {
+    if (node.getCacheSource() instanceof RemoteViewComputationCacheSource) {
+      _prefetchSource = (RemoteViewComputationCacheSource) node.getCacheSource();
+    }
+  }
+
   protected abstract void onNodeChange();
 
   protected void onJobStart(final CalculationJob job) {
@@ -261,11 +317,47 @@ public abstract class AbstractCalculationNodeInvocationContainer {
     return _failures.get(jobId);
   }
 
+  /**
+   * Requests the shared input values of a job that cannot start immediately so that the remote cache can stream them
+   * to this node while it is busy with other work. Values produced by earlier items of the same job, or held in the
+   * private caches, are not requested.
+   * 
+   * @param job the queued or blocked job, not null
+   */
+  private void prefetchInputs(final CalculationJob job) {
+    final RemoteViewComputationCacheSource source = _prefetchSource;
+    if (source == null) {
+      return;
+    }
+    final CacheSelectHint cacheSelect = job.getCacheSelectHint();
+    final Set<ValueSpecification> outputs = new HashSet<ValueSpecification>();
+    final Set<ValueSpecification> inputs = new HashSet<ValueSpecification>();
+    for (CalculationJobItem jobItem : job.getJobItems()) {
+      for (ValueSpecification input : jobItem.getInputs()) {
+        if (!outputs.contains(input) && !cacheSelect.isPrivateValue(input)) {
+          inputs.add(input);
+        }
+      }
+      outputs.addAll(jobItem.getOutputs());
+    }
+    try {
+      source.prefetch(job.getSpecification().getViewCycleId(), job.getSpecification().getCalcConfigName(), inputs);
+    } catch (RuntimeException e) {
+      // Prefetching is an optimisation only; the job will fetch its inputs when it runs
+      s_logger.warn("Couldn't prefetch inputs for job {} - {}", job.getSpecification().getJobId(), e.getMessage());
+    }
+  }
+
   /**
    * Adds a job to the runnable queue, spawning a worker thread if a node is supplied or one is
-   * available. 
+   * available. A sub-class may replace this to schedule runnable jobs differently, for example onto
+   * its own worker threads, using {@link #executeJob} to run each one.
+   * 
+   * @param jobexec the runnable job, not null
+   * @param node optional node to run the job on
+   * @return true if a worker thread was spawned, false if the job was queued
    */
-  private void spawnOrQueueJob(final JobEntry jobexec, AbstractCalculationNode node) {
+  protected boolean spawnOrQueueJob(final JobEntry jobexec, AbstractCalculationNode node) {
     if (node == null) {
       node = getNodes().poll();
       if (node == null) {
@@ -274,7 +366,7 @@ public abstract class AbstractCalculationNodeInvocationContainer {
           if (node == null) {
             s_logger.debug("Adding job {} to runnable queue", jobexec.getJob().getSpecification().getJobId());
             _runnableJobs.add(jobexec);
-            return;
+            return false;
           }
         }
       }
@@ -289,6 +381,7 @@ public abstract class AbstractCalculationNodeInvocationContainer {
       }
 
     });
+    return true;
   }
 
   private void failExecution(final JobExecution execution) {
@@ -372,116 +465,76 @@ public abstract class AbstractCalculationNodeInvocationContainer {
         // Decrement the additional count from the initialization
         if (!jobEntry.releaseBlockCount()) {
           s_logger.debug("Blocked execution of {}", jobExecution.getJobId());
+          prefetchInputs(job);
           return;
         }
       }
     }
-    spawnOrQueueJob(jobEntry, node);
+    if (!spawnOrQueueJob(jobEntry, node)) {
+      prefetchInputs(job);
+    }
   }
 
   private void threadFree(final JobExecution exec) {
-    // The executor should only go null transiently while the cancel action happens and should then
-    // be restored. If, for probably erroneous reasons, the job has been launched twice we can see
-    // a continuous null here from the second running thread so have a spin count here to give up
-    // after 1s regardless (which may cause further errors, but is better than deadlock).
-    int spin = 0;
-    do {
-      final Pair<Thread, CalculationJob> previous = exec.getAndSetExecutor(null);
-      if (previous != null) {
-        assert previous.getFirst() == Thread.currentThread();
-        return;
-      }
-      // Executor reference is null while the job is being canceled. An interrupt may be done as part of
-      // this so we need to make sure we swallow it rather than leave ourselves in an interrupted state.
+    if (exec.threadFree()) {
+      // The job was cancelled; clear any interrupt that was delivered to this thread rather than leave it to affect a subsequent wait
       if (Thread.interrupted()) {
         s_logger.debug("Interrupt status cleared");
-        return;
       }
-      switch (spin) {
-        case 0:
-          s_logger.debug("Waiting for interrupt");
-          break;
-        case 1:
-          s_logger.info("Waiting for interrupt");
-          break;
-        case 2:
-          s_logger.warn("Waiting for interrupt");
-          break;
-        default:
-          s_logger.error("Waiting for interrupt");
-          break;
-      }
-      try {
-        Thread.sleep(10);
-      } catch (InterruptedException e) {
-        s_logger.debug("Interrupt received");
-        return;
-      }
-    } while (++spin < 1000);
+    }
   }
 
   /**
-   * Executes jobs from the runnable queue until it is empty.
+   * Executes a single job, releasing any tail jobs it was blocking to {@link #spawnOrQueueJob} when it completes.
    * 
    * @param node Node to run on, not null
-   * @param jobexec The first job to run, not null
+   * @param jobexec The job to run, not null
    */
-  private void executeJobs(final AbstractCalculationNode node, JobEntry jobexec) {
-    do {
-      s_logger.info("Executing job {} on {}", jobexec.getExecution().getJobId(), node.getNodeId());
-      onJobStart(jobexec.getJob());
-      CalculationJobResult result = null;
-      if (jobexec.getExecution().threadBusy(jobexec.getJob())) {
-        try {
-          result = node.executeJob(jobexec.getJob());
-          threadFree(jobexec.getExecution());
-        } catch (Exception e) {
-          // Any tail jobs will be abandoned
-          threadFree(jobexec.getExecution());
-          s_logger.warn("Job {} failed", jobexec.getExecution().getJobId());
-          failExecution(jobexec.getExecution());
-          jobexec.getReceiver().executionFailed(node, e);
-        }
-      } else {
-        s_logger.debug("Job {} cancelled", jobexec.getExecution().getJobId());
-      }
-      if (result != null) {
-        final Set<JobEntry> blocked;
-        synchronized (jobexec.getExecution()) {
-          jobexec.getExecution().setStatus(JobExecution.Status.COMPLETED);
-          blocked = jobexec.getExecution().getBlocked();
-          _executions.remove(jobexec.getExecution().getJobId());
-        }
-        if (blocked != null) {
-          s_logger.info("Job {} completed - releasing blocked jobs", jobexec.getExecution().getJobId());
-          for (JobEntry tail : blocked) {
-            if (tail.getReceiver() != null) {
-              if (tail.releaseBlockCount()) {
-                spawnOrQueueJob(tail, null);
-              }
-            }
-          }
-        } else {
-          s_logger.info("Job {} completed - no tail jobs", jobexec.getExecution().getJobId());
-        }
+  protected void executeJob(final AbstractCalculationNode node, final JobEntry jobexec) {
+    s_logger.info("Executing job {} on {}", jobexec.getExecution().getJobId(), node.getNodeId());
+    onJobStart(jobexec.getJob());
+    CalculationJobResult result = null;
+    if (jobexec.getExecution().threadBusy(jobexec.getJob())) {
+      try {
+        result = node.executeJob(jobexec.getJob());
+        threadFree(jobexec.getExecution());
+      } catch (Exception e) {
+        // Any tail jobs will be abandoned
+        threadFree(jobexec.getExecution());
+        s_logger.warn("Job {} failed", jobexec.getExecution().getJobId());
+        failExecution(jobexec.getExecution());
+        jobexec.getReceiver().executionFailed(node, e);
       }
-      if (result != null) {
-        jobexec.getReceiver().executionComplete(result);
+    } else {
+      s_logger.debug("Job {} cancelled", jobexec.getExecution().getJobId());
+    }
+    if (result != null) {
+      final Set<JobEntry> blocked;
+      synchronized (jobexec.getExecution()) {
+        jobexec.getExecution().setStatus(JobExecution.Status.COMPLETED);
+        blocked = jobexec.getExecution().getBlocked();
+        _executions.remove(jobexec.getExecution().getJobId());
       }
-      jobexec = _runnableJobs.poll();
-      if (jobexec == null) {
-        synchronized (this) {
-          jobexec = _runnableJobs.poll();
-          if (jobexec == null) {
-            getNodes().add(node);
-            break;
+      if (blocked != null) {
+        s_logger.info("Job {} completed - releasing blocked jobs", jobexec.getExecution().getJobId());
+        for (JobEntry tail : blocked) {
+          if (tail.getReceiver() != null) {
+            if (tail.releaseBlockCount()) {
+              spawnOrQueueJob(tail, null);
+            }
           }
         }
+      } else {
+        s_logger.info("Job {} completed - no tail jobs", jobexec.getExecution().getJobId());
       }
-    } while (true);
-    s_logger.debug("Finished job execution on {}", node.getNodeId());
-    onJobExecutionComplete();
-    // Housekeeping
+      jobexec.getReceiver().executionComplete(result);
+    }
+  }
+
+  /**
+   * Discards old entries from the failure set if enough jobs have failed since the last clean up.
+   */
+  protected void cleanupFailures() {
     if (_failureCount.get() > FAILURE_CLEANUP_PERIOD) {
       _failureCount.set(0);
       int count = 0;
@@ -501,6 +554,31 @@ public abstract class AbstractCalculationNodeInvocationContainer {
     s_logger.debug("Failure map size = {}, execution map size = {}", _failures.size(), _executions.size());
   }
 
+  /**
+   * Executes jobs from the runnable queue until it is empty.
+   * 
+   * @param node Node to run on, not null
+   * @param jobexec The first job to run, not null
+   */
+  private void executeJobs(final AbstractCalculationNode node, JobEntry jobexec) {
+    do {
+      executeJob(node, jobexec);
+      jobexec = _runnableJobs.poll();
+      if (jobexec == null) {
+        synchronized (this) {
+          jobexec = _runnableJobs.poll();
+          if (jobexec == null) {
+            getNodes().add(node);
+            break;
+          }
+        }
+      }
+    } while (true);
+    s_logger.debug("Finished job execution on {}", node.getNodeId());
+    onJobExecutionComplete();
+    cleanupFailures();
+  }
+
   protected void cancelJob(final CalculationJobSpecification jobSpec) {
     final JobExecution jobExec = getExecution(jobSpec.getJobId());
     if (jobExec == null) {
@@ -509,21 +587,18 @@ public abstract class AbstractCalculationNodeInvocationContainer {
     }
     s_logger.info("Cancelling job {}", jobSpec.getJobId());
     failExecution(jobExec);
-    Pair<Thread, CalculationJob> executor = jobExec.getAndSetExecutor(null);
+    final Pair<Thread, CalculationJob> executor = jobExec.cancelling();
     if (executor != null) {
-      s_logger.debug("Marking job {} cancelled", executor.getSecond().getSpecification().getJobId());
-      executor.getSecond().cancel();
-      s_logger.info("Interrupting thread {}", executor.getFirst().getName());
-      executor.getFirst().interrupt();
-      // Need to wait for the execution thread to acknowledge the interrupt, or it may be canceled by us swapping the executor
-      // reference back in and the interrupt will affect a subsequent wait causing erroneous behavior
-      while (executor.getFirst().isInterrupted()) {
-        s_logger.debug("Waiting for thread {} to accept the interrupt", executor.getFirst().getName());
-        Thread.yield();
+      try {
+        s_logger.debug("Marking job {} cancelled", executor.getSecond().getSpecification().getJobId());
+        executor.getSecond().cancel();
+        s_logger.info("Interrupting thread {}", executor.getFirst().getName());
+        executor.getFirst().interrupt();
+      } finally {
+        // The execution thread will clear the interrupt when it is released
+        jobExec.cancelled();
       }
       s_logger.debug("Thread {} interrupted", executor.getFirst().getName());
-      executor = jobExec.getAndSetExecutor(executor);
-      assert executor == null;
     }
   }
 
@@ -46,6 +46,17 @@ public class CalculationJob implements Serializable {
    */
   private boolean _cancelled;
 
+  /**
+   * Whether the job is encoded in the compact Fudge form. A remote node that receives a compact job will reply with a
+   * compact result.
+   */
+  private boolean _compactEncoding;
+
+  /**
+   * Whether the node should record a {@link CalculationJobTrace} of the job's execution.
+   */
+  private boolean _traced;
+
   public CalculationJob(UniqueId viewCycleId, String calcConfigName, Instant valuationTime, long functionInitializationTimestamp, long jobId, List<CalculationJobItem> jobItems,
       final CacheSelectHint cacheSelect) {
     this(new CalculationJobSpecification(viewCycleId, calcConfigName, valuationTime, jobId), 0, null, jobItems, cacheSelect);
@@ -105,6 +116,34 @@ public class CalculationJob implements Serializable {
     _cancelled = true;
   }
 
+  public boolean isCompactEncoding() {
+    return _compactEncoding;
+  }
+
+  /**
+   * Sets whether the job should be encoded in the compact Fudge form. Only set this for a remote node which has said that it
+   * supports the encoding, and after the inputs have been converted to identifiers.
+   * 
+   * @param compactEncoding true to use the compact encoding
+   */
+  public void setCompactEncoding(final boolean compactEncoding) {
+    _compactEncoding = compactEncoding;
+  }
+
+  public boolean isTraced() {
+    return _traced;
+  }
+
+  /**
+   * Sets whether the node executing the job should record the times at which each of the job items was processed and
+   * return them in the {@link CalculationJobResult}.
+   * 
+   * @param traced true to trace the execution
+   */
+  public void setTraced(final boolean traced) {
+    _traced = traced;
+  }
+
   /**
    * Resolves the numeric identifiers passed in a Fudge message to the full {@link ValueSpecification} objects.
    * 
@@ -12,6 +12,7 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.cache.IdentifierMap;
 import com.opengamma.util.ArgumentChecker;
@@ -31,6 +32,16 @@ public class CalculationJobResult implements Serializable {
   private final List<CalculationJobResultItem> _resultItems;
   private final long _durationNanos;
   private final String _nodeId;
+
+  /**
+   * Whether the result is encoded in the compact Fudge form, which omits the job items from the result items.
+   */
+  private boolean _compactEncoding;
+
+  /**
+   * The execution trace, if the job was traced.
+   */
+  private CalculationJobTrace _trace;
   
   public CalculationJobResult(
       CalculationJobSpecification specification,
@@ -71,6 +82,43 @@ public class CalculationJobResult implements Serializable {
     return _nodeId;
   }
 
+  public boolean isCompactEncoding() {
+    return _compactEncoding;
+  }
+
+  public void setCompactEncoding(final boolean compactEncoding) {
+    _compactEncoding = compactEncoding;
+  }
+
+  /**
+   * Returns the times recorded by the node if the job was marked for tracing.
+   * 
+   * @return the trace, or null if the job was not traced
+   */
+  public CalculationJobTrace getTrace() {
+    return _trace;
+  }
+
+  public void setTrace(final CalculationJobTrace trace) {
+    _trace = trace;
+  }
+
+  /**
+   * Restores the job items to result items that were received in the compact encoding. The result items are in the same order
+   * as the items in the job that was executed.
+   * 
+   * @param job the job that produced this result, not null
+   */
+  public void resolveItems(final CalculationJob job) {
+    final List<CalculationJobItem> jobItems = job.getJobItems();
+    if (jobItems.size() != _resultItems.size()) {
+      throw new OpenGammaRuntimeException("Received " + _resultItems.size() + " result items for " + jobItems.size() + " job items");
+    }
+    for (int i = 0; i < jobItems.size(); i++) {
+      _resultItems.get(i).setItem(jobItems.get(i));
+    }
+  }
+
   /**
    * Numeric identifiers may have been passed when the result items were encoded as a Fudge message. This will resolve
    * them to full {@link ValueSpecification} objects.
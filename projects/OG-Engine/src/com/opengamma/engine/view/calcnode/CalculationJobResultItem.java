@@ -5,7 +5,10 @@
  */
 package com.opengamma.engine.view.calcnode;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
 
 import com.opengamma.engine.ComputationTargetSpecification;
@@ -18,14 +21,15 @@ import com.opengamma.util.ArgumentChecker;
  */
 public class CalculationJobResultItem {
 
-  private final CalculationJobItem _item;
+  private CalculationJobItem _item;
   private final InvocationResult _result;
 
   private final String _exceptionClass;
   private final String _exceptionMsg;
   private final String _stackTrace;
 
-  private final Set<ValueSpecification> _missingInputs;
+  private Set<ValueSpecification> _missingInputs;
+  private long[] _missingInputIdentifiers;
 
   public CalculationJobResultItem(CalculationJobItem item, Throwable exception) {
     ArgumentChecker.notNull(item, "Calculation job item");
@@ -116,6 +120,13 @@ public class CalculationJobResultItem {
    */
   public void resolveInputs(final IdentifierMap identifierMap) {
     _item.resolveInputs(identifierMap);
+    if ((_missingInputIdentifiers != null) && _missingInputs.isEmpty()) {
+      final Collection<Long> identifiers = new ArrayList<Long>(_missingInputIdentifiers.length);
+      for (long identifier : _missingInputIdentifiers) {
+        identifiers.add(identifier);
+      }
+      _missingInputs = new HashSet<ValueSpecification>(identifierMap.getValueSpecifications(identifiers).values());
+    }
   }
 
   /**
@@ -126,6 +137,45 @@ public class CalculationJobResultItem {
    */
   public void convertInputs(final IdentifierMap identifierMap) {
     _item.convertInputs(identifierMap);
+    if ((_missingInputIdentifiers == null) && !_missingInputs.isEmpty()) {
+      final Collection<Long> identifiers = identifierMap.getIdentifiers(_missingInputs).values();
+      _missingInputIdentifiers = new long[identifiers.size()];
+      int i = 0;
+      for (Long identifier : identifiers) {
+        _missingInputIdentifiers[i++] = identifier;
+      }
+    }
+  }
+
+  /**
+   * Returns the numeric identifiers of the missing inputs, if they have been converted for encoding.
+   * 
+   * @return the identifiers, or null if not converted or there are no missing inputs
+   */
+  public long[] getMissingInputIdentifiers() {
+    return _missingInputIdentifiers;
+  }
+
+  /* package */void setItem(final CalculationJobItem item) {
+    _item = item;
+  }
+
+  /**
+   * Creates a result item received in the compact encoding. The job item is omitted and must be set with
+   * {@link CalculationJobResult#resolveItems} before use, and the missing inputs are given as identifiers to be
+   * resolved with {@link #resolveInputs}.
+   * 
+   * @param result the invocation result, not null
+   * @param exceptionClass the exception class name, null if none
+   * @param exceptionMsg the exception message, null if none
+   * @param stackTrace the exception stack trace, null if none
+   * @param missingInputIdentifiers the identifiers of any missing inputs, null if none
+   * @return the result item, not null
+   */
+  public static CalculationJobResultItem create(InvocationResult result, String exceptionClass, String exceptionMsg, String stackTrace, long[] missingInputIdentifiers) {
+    final CalculationJobResultItem item = new CalculationJobResultItem(null, result, exceptionClass, exceptionMsg, stackTrace, Collections.<ValueSpecification>emptySet());
+    item._missingInputIdentifiers = missingInputIdentifiers;
+    return item;
   }
 
   public static CalculationJobResultItem create(CalculationJobItem item, InvocationResult result, 
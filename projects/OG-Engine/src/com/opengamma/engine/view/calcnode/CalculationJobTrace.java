@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calcnode;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Timestamps recorded by a calculation node while executing a traced {@link CalculationJob}. All times are in
+ * nanoseconds since the epoch, as returned by {@link #now}, so that they can be compared with times recorded by the
+ * view processor that dispatched the job.
+ * <p>
+ * Four times are recorded for each job item - when execution of the item started, when its inputs had been fetched,
+ * when the function invocation completed and when the results had been written. A time is zero if the item did not
+ * reach that point, for example because of a missing input.
+ */
+public class CalculationJobTrace implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int ITEM_STARTED = 0;
+  private static final int ITEM_INPUTS_FETCHED = 1;
+  private static final int ITEM_INVOKED = 2;
+  private static final int ITEM_WRITTEN = 3;
+  private static final int ITEM_TIMES = 4;
+
+  private static final long s_nanoOffset = System.currentTimeMillis() * 1000000L - System.nanoTime();
+
+  private long _started;
+  private long _finished;
+  private final long[] _itemTimes;
+
+  public CalculationJobTrace(final int itemCount) {
+    _itemTimes = new long[itemCount * ITEM_TIMES];
+  }
+
+  public CalculationJobTrace(final long started, final long finished, final long[] itemTimes) {
+    ArgumentChecker.notNull(itemTimes, "itemTimes");
+    ArgumentChecker.isTrue(itemTimes.length % ITEM_TIMES == 0, "itemTimes must contain " + ITEM_TIMES + " values for each item");
+    _started = started;
+    _finished = finished;
+    _itemTimes = itemTimes;
+  }
+
+  /**
+   * Returns the current time in nanoseconds since the epoch. This has the resolution of {@link System#nanoTime} but is
+   * only as accurate as {@link System#currentTimeMillis} was when the class was loaded.
+   *
+   * @return the current time
+   */
+  public static long now() {
+    return s_nanoOffset + System.nanoTime();
+  }
+
+  public void jobStarted() {
+    _started = now();
+  }
+
+  public void jobFinished() {
+    _finished = now();
+  }
+
+  public void itemStarted(final int item) {
+    _itemTimes[item * ITEM_TIMES + ITEM_STARTED] = now();
+  }
+
+  public void itemInputsFetched(final int item) {
+    _itemTimes[item * ITEM_TIMES + ITEM_INPUTS_FETCHED] = now();
+  }
+
+  public void itemInvoked(final int item) {
+    _itemTimes[item * ITEM_TIMES + ITEM_INVOKED] = now();
+  }
+
+  public void itemWritten(final int item) {
+    _itemTimes[item * ITEM_TIMES + ITEM_WRITTEN] = now();
+  }
+
+  public long getStarted() {
+    return _started;
+  }
+
+  public long getFinished() {
+    return _finished;
+  }
+
+  public int getItemCount() {
+    return _itemTimes.length / ITEM_TIMES;
+  }
+
+  public long getItemStarted(final int item) {
+    return _itemTimes[item * ITEM_TIMES + ITEM_STARTED];
+  }
+
+  public long getItemInputsFetched(final int item) {
+    return _itemTimes[item * ITEM_TIMES + ITEM_INPUTS_FETCHED];
+  }
+
+  public long getItemInvoked(final int item) {
+    return _itemTimes[item * ITEM_TIMES + ITEM_INVOKED];
+  }
+
+  public long getItemWritten(final int item) {
+    return _itemTimes[item * ITEM_TIMES + ITEM_WRITTEN];
+  }
+
+  /**
+   * Returns the raw item times, four for each item, for encoding.
+   *
+   * @return the item times, not null
+   */
+  public long[] getItemTimes() {
+    return _itemTimes;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof CalculationJobTrace)) {
+      return false;
+    }
+    final CalculationJobTrace other = (CalculationJobTrace) o;
+    return (_started == other._started) && (_finished == other._finished) && Arrays.equals(_itemTimes, other._itemTimes);
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (_started ^ (_started >>> 32)) * 31 + Arrays.hashCode(_itemTimes);
+  }
+
+}
@@ -49,4 +49,27 @@ public class CapabilityRequirements {
     return true;
   }
 
+  /**
+   * Requirements are equal if they require the same capabilities. This allows the {@link JobDispatcher} to
+   * memoise the invokers that can satisfy a given set of requirements.
+   *
+   * @param o object to compare to
+   * @return true if the objects are equal
+   */
+  @Override
+  public boolean equals(final Object o) {
+    if (o == this) {
+      return true;
+    }
+    if (!(o instanceof CapabilityRequirements)) {
+      return false;
+    }
+    return getRequiredCapabilities().equals(((CapabilityRequirements) o).getRequiredCapabilities());
+  }
+
+  @Override
+  public int hashCode() {
+    return getRequiredCapabilities().hashCode();
+  }
+
 }
@@ -38,6 +38,10 @@ public class DeferredInvocationStatistics {
     _invocationTime = System.nanoTime() - _invocationTime;
   }
 
+  protected void setInvocationTime(final long invocationTime) {
+    _invocationTime = invocationTime;
+  }
+
   protected void setDataInputBytes(final int bytes, final int samples) {
     if (samples > 0) {
       _dataInputBytes = (double) bytes / (double) samples;
@@ -7,6 +7,7 @@ package com.opengamma.engine.view.calcnode;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -15,13 +16,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.RunnableScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
@@ -127,6 +132,7 @@ public class JobDispatcher implements JobInvokerRegister {
     private final AtomicReference<Timeout> _timeout = new AtomicReference<Timeout>();
     private Set<JobInvoker> _excludeJobInvoker;
     private int _rescheduled;
+    private volatile long _queuedTime;
 
     private DispatchJob(final CalculationJob job, final JobResultReceiver resultReceiver) {
       _rootJob = job;
@@ -306,13 +312,16 @@ public class JobDispatcher implements JobInvokerRegister {
       return _jobCreationTime;
     }
 
-    private boolean canRunOn(final JobInvoker jobInvoker) {
-      if (_excludeJobInvoker != null) {
-        if (_excludeJobInvoker.contains(jobInvoker)) {
-          return false;
-        }
-      }
-      return getRequirements().satisfiedBy(jobInvoker.getCapabilities());
+    private long getQueuedTime() {
+      return _queuedTime;
+    }
+
+    private void setQueuedTime(final long queuedTime) {
+      _queuedTime = queuedTime;
+    }
+
+    private boolean isExcluded(final JobInvoker jobInvoker) {
+      return (_excludeJobInvoker != null) && _excludeJobInvoker.contains(jobInvoker);
     }
 
     @Override
@@ -342,9 +351,132 @@ public class JobDispatcher implements JobInvokerRegister {
 
   }
 
-  private final Queue<DispatchJob> _pending = new LinkedList<DispatchJob>();
-  private final Queue<JobInvoker> _invokers = new ConcurrentLinkedQueue<JobInvoker>();
-  private final Map<JobInvoker, Collection<Capability>> _capabilityCache = new ConcurrentHashMap<JobInvoker, Collection<Capability>>();
+  /**
+   * Invokers that export the same capabilities. Jobs are offered to the invokers in a pool in round-robin order.
+   * An invoker is removed from the queue while a job is being offered to it and returned to the end of the queue
+   * afterwards, so no lock is needed to rotate the pool.
+   */
+  private static final class InvokerPool {
+
+    private final List<Capability> _capabilities;
+    private final Queue<JobInvoker> _invokers = new ConcurrentLinkedQueue<JobInvoker>();
+    private final AtomicInteger _size = new AtomicInteger();
+
+    private InvokerPool(final List<Capability> capabilities) {
+      _capabilities = capabilities;
+    }
+
+    public List<Capability> getCapabilities() {
+      return _capabilities;
+    }
+
+    public void add(final JobInvoker invoker) {
+      _invokers.add(invoker);
+      _size.incrementAndGet();
+    }
+
+    public JobInvoker poll() {
+      final JobInvoker invoker = _invokers.poll();
+      if (invoker != null) {
+        _size.decrementAndGet();
+      }
+      return invoker;
+    }
+
+    public void remove(final JobInvoker invoker) {
+      if (_invokers.remove(invoker)) {
+        _size.decrementAndGet();
+      }
+    }
+
+    /**
+     * Returns the approximate number of invokers currently available in the pool. Unlike
+     * {@link ConcurrentLinkedQueue#size} this is constant time.
+     * 
+     * @return the number of invokers
+     */
+    public int size() {
+      return _size.get();
+    }
+
+  }
+
+  /**
+   * Jobs with the same capability requirements that are waiting for an invoker. When an invoker becomes available only
+   * the queues for requirements its pool satisfies are drained.
+   */
+  private static final class PendingQueue {
+
+    private final CapabilityRequirements _requirements;
+    private final BlockingDeque<DispatchJob> _jobs = new LinkedBlockingDeque<DispatchJob>();
+
+    private PendingQueue(final CapabilityRequirements requirements) {
+      _requirements = requirements;
+    }
+
+    public CapabilityRequirements getRequirements() {
+      return _requirements;
+    }
+
+    public BlockingDeque<DispatchJob> getJobs() {
+      return _jobs;
+    }
+
+  }
+
+  /**
+   * A memoised value, stamped with the generation of the pools and queues it was computed from.
+   */
+  private static final class Memo<T> {
+
+    private final long _generation;
+    private final T[] _values;
+
+    public Memo(final long generation, final T[] values) {
+      _generation = generation;
+      _values = values;
+    }
+
+  }
+
+  private static final InvokerPool[] NO_POOLS = new InvokerPool[0];
+  private static final PendingQueue[] NO_QUEUES = new PendingQueue[0];
+
+  /**
+   * Jobs waiting for an invoker, keyed by their capability requirements.
+   */
+  private final ConcurrentMap<CapabilityRequirements, PendingQueue> _pending = new ConcurrentHashMap<CapabilityRequirements, PendingQueue>();
+  /**
+   * Memoised pending queues that an invoker pool can service. An entry is only valid while its generation matches
+   * {@link #_generation}.
+   */
+  private final ConcurrentMap<InvokerPool, Memo<PendingQueue>> _servicedQueues = new ConcurrentHashMap<InvokerPool, Memo<PendingQueue>>();
+  /**
+   * Incremented whenever an invoker is made available. A thread that fails to dispatch a job can compare this before and
+   * after queuing the job to detect an invoker that became available in the meantime.
+   */
+  private final AtomicLong _availability = new AtomicLong();
+  /**
+   * Invoker pools, keyed by the canonical form of the capabilities exported by the invokers in each.
+   */
+  private final ConcurrentMap<List<Capability>, InvokerPool> _invokerPools = new ConcurrentHashMap<List<Capability>, InvokerPool>();
+  /**
+   * The pool each registered invoker was last placed in.
+   */
+  private final ConcurrentMap<JobInvoker, InvokerPool> _invokerPool = new ConcurrentHashMap<JobInvoker, InvokerPool>();
+  /**
+   * Memoised pools that can satisfy a set of requirements. An entry is only valid while its generation matches
+   * {@link #_generation}.
+   */
+  private final ConcurrentMap<CapabilityRequirements, Memo<InvokerPool>> _eligiblePools = new ConcurrentHashMap<CapabilityRequirements, Memo<InvokerPool>>();
+  /**
+   * Incremented after a new invoker pool or pending queue is created, invalidating the memoised values. A value computed
+   * concurrently with the creation is stamped with the earlier generation so is never used again.
+   */
+  private final AtomicLong _generation = new AtomicLong();
+  private final AtomicInteger _nextPool = new AtomicInteger();
+  private final AtomicLong _dispatchCount = new AtomicLong();
+  private final AtomicLong _dispatchLatencyNanos = new AtomicLong();
 
   private int _maxJobAttempts = DEFAULT_MAX_JOB_ATTEMPTS;
   private String _jobFailureNodeId = DEFAULT_JOB_FAILURE_NODE_ID;
@@ -357,7 +489,12 @@ public class JobDispatcher implements JobInvokerRegister {
    * How often to query an invoker that has outstanding jobs.
    */
   private long _maxJobExecutionTimeQuery = DEFAULT_MAX_JOB_EXECUTION_QUERY_TIMEOUT;
+  /**
+   * Maximum number of milliseconds a job can wait for an invoker before it is abandoned.
+   */
+  private long _maxJobPendingTime;
   private ScheduledThreadPoolExecutor _jobTimeoutExecutor;
+  private RunnableScheduledFuture<?> _pendingSweep;
   private CalculationNodeStatisticsGatherer _statisticsGatherer = new DiscardingNodeStatisticsGatherer();
 
   public JobDispatcher() {
@@ -414,6 +551,37 @@ public class JobDispatcher implements JobInvokerRegister {
     }
   }
 
+  public long getMaxJobPendingTime() {
+    return _maxJobPendingTime;
+  }
+
+  /**
+   * Sets the maximum time for a job to wait for an invoker in milliseconds. Jobs that could not be given to any invoker
+   * within this time are aborted by a periodic sweep of the pending queues. To disable the limit, pass 0 or negative.
+   * 
+   * @param maxJobPendingTime time in milliseconds
+   */
+  public synchronized void setMaxJobPendingTime(final long maxJobPendingTime) {
+    _maxJobPendingTime = maxJobPendingTime;
+    if (_pendingSweep != null) {
+      _pendingSweep.cancel(false);
+      _jobTimeoutExecutor.remove(_pendingSweep);
+      _pendingSweep = null;
+    }
+    if (maxJobPendingTime > 0) {
+      if (_jobTimeoutExecutor == null) {
+        _jobTimeoutExecutor = new ScheduledThreadPoolExecutor(1);
+        _jobTimeoutExecutor.setMaximumPoolSize(1);
+      }
+      _pendingSweep = (RunnableScheduledFuture<?>) _jobTimeoutExecutor.scheduleWithFixedDelay(new Runnable() {
+        @Override
+        public void run() {
+          failJobsBefore(System.nanoTime() - getMaxJobPendingTime() * 1000000L);
+        }
+      }, maxJobPendingTime, maxJobPendingTime, TimeUnit.MILLISECONDS);
+    }
+  }
+
   public void setMaxJobExecutionTimeQuery(final long maxJobExecutionTimeQuery) {
     if (maxJobExecutionTimeQuery <= 0) {
       throw new IllegalArgumentException("maxJobExecutionTimeQuery must be greater than 0ms");
@@ -442,105 +610,293 @@ public class JobDispatcher implements JobInvokerRegister {
     return _capabilityRequirementsProvider;
   }
 
-  protected Queue<DispatchJob> getPending() {
-    return _pending;
+  /**
+   * Returns the number of jobs waiting for an invoker.
+   * 
+   * @return the number of pending jobs
+   */
+  public int getPendingJobCount() {
+    int count = 0;
+    for (PendingQueue queue : _pending.values()) {
+      count += queue.getJobs().size();
+    }
+    return count;
   }
 
-  protected Queue<JobInvoker> getInvokers() {
-    return _invokers;
+  /**
+   * Returns the number of jobs that have been accepted by an invoker.
+   * 
+   * @return the number of dispatched jobs
+   */
+  public long getDispatchCount() {
+    return _dispatchCount.get();
+  }
+
+  /**
+   * Returns the total time, in nanoseconds, between jobs being passed to {@link #dispatchJob} and their
+   * acceptance by an invoker. This includes any time spent in the pending queue.
+   * 
+   * @return the cumulative dispatch latency in nanoseconds
+   */
+  public long getDispatchLatencyNanos() {
+    return _dispatchLatencyNanos.get();
+  }
+
+  /**
+   * Resets the dispatch count and latency figures.
+   */
+  public void resetDispatchStatistics() {
+    _dispatchCount.set(0);
+    _dispatchLatencyNanos.set(0);
+  }
+
+  private void dispatched(final DispatchJob job) {
+    _dispatchLatencyNanos.addAndGet(job.getDurationNanos());
+    _dispatchCount.incrementAndGet();
+  }
+
+  /**
+   * Returns the canonical form of a capability collection, used to group invokers that export
+   * the same capabilities. This is the capabilities in their natural order.
+   * 
+   * @param capabilities the capabilities exported by an invoker, not null
+   * @return the canonical form, not null
+   */
+  private static List<Capability> canonicalCapabilities(final Collection<Capability> capabilities) {
+    if (capabilities.isEmpty()) {
+      return Collections.emptyList();
+    }
+    final List<Capability> sorted = new ArrayList<Capability>(capabilities);
+    Collections.sort(sorted);
+    return Collections.unmodifiableList(sorted);
+  }
+
+  private InvokerPool getInvokerPool(final Collection<Capability> capabilities) {
+    final List<Capability> key = canonicalCapabilities(capabilities);
+    InvokerPool pool = _invokerPools.get(key);
+    if (pool == null) {
+      pool = new InvokerPool(key);
+      final InvokerPool existing = _invokerPools.putIfAbsent(key, pool);
+      if (existing == null) {
+        s_logger.debug("Created invoker pool for {}", key);
+        _generation.incrementAndGet();
+        _eligiblePools.clear();
+      } else {
+        pool = existing;
+      }
+    }
+    return pool;
+  }
+
+  private InvokerPool[] getEligiblePools(final CapabilityRequirements requirements) {
+    final long generation = _generation.get();
+    final Memo<InvokerPool> memo = _eligiblePools.get(requirements);
+    if ((memo != null) && (memo._generation == generation)) {
+      return memo._values;
+    }
+    final List<InvokerPool> eligible = new ArrayList<InvokerPool>(_invokerPools.size());
+    for (InvokerPool pool : _invokerPools.values()) {
+      if (requirements.satisfiedBy(pool.getCapabilities())) {
+        eligible.add(pool);
+      }
+    }
+    final InvokerPool[] pools = eligible.isEmpty() ? NO_POOLS : eligible.toArray(new InvokerPool[eligible.size()]);
+    _eligiblePools.put(requirements, new Memo<InvokerPool>(generation, pools));
+    return pools;
+  }
+
+  private PendingQueue getPendingQueue(final CapabilityRequirements requirements) {
+    PendingQueue queue = _pending.get(requirements);
+    if (queue == null) {
+      queue = new PendingQueue(requirements);
+      final PendingQueue existing = _pending.putIfAbsent(requirements, queue);
+      if (existing == null) {
+        s_logger.debug("Created pending queue for {}", requirements);
+        _generation.incrementAndGet();
+        _servicedQueues.clear();
+      } else {
+        queue = existing;
+      }
+    }
+    return queue;
+  }
+
+  private PendingQueue[] getServicedQueues(final InvokerPool pool) {
+    final long generation = _generation.get();
+    final Memo<PendingQueue> memo = _servicedQueues.get(pool);
+    if ((memo != null) && (memo._generation == generation)) {
+      return memo._values;
+    }
+    final List<PendingQueue> serviced = new ArrayList<PendingQueue>(_pending.size());
+    for (PendingQueue queue : _pending.values()) {
+      if (queue.getRequirements().satisfiedBy(pool.getCapabilities())) {
+        serviced.add(queue);
+      }
+    }
+    final PendingQueue[] queues = serviced.isEmpty() ? NO_QUEUES : serviced.toArray(new PendingQueue[serviced.size()]);
+    _servicedQueues.put(pool, new Memo<PendingQueue>(generation, queues));
+    return queues;
   }
 
-  protected Map<JobInvoker, Collection<Capability>> getCapabilityCache() {
-    return _capabilityCache;
+  private void invokerAvailable(final InvokerPool pool, final JobInvoker invoker) {
+    pool.add(invoker);
+    _availability.incrementAndGet();
   }
 
   @Override
   public synchronized void registerJobInvoker(final JobInvoker invoker) {
     ArgumentChecker.notNull(invoker, "invoker");
     s_logger.debug("Registering job invoker {}", invoker);
-    getInvokers().add(invoker);
-    getCapabilityCache().put(invoker, invoker.getCapabilities());
-    if (!getPending().isEmpty()) {
-      retryPending(0L);
+    final InvokerPool pool = getInvokerPool(invoker.getCapabilities());
+    final InvokerPool previous = _invokerPool.put(invoker, pool);
+    if ((previous != null) && (previous != pool)) {
+      s_logger.info("Capabilities of invoker {} changed", invoker);
+      previous.remove(invoker);
+    }
+    invokerAvailable(pool, invoker);
+    for (PendingQueue queue : getServicedQueues(pool)) {
+      if (!queue.getJobs().isEmpty()) {
+        retryPending(queue);
+      }
     }
   }
 
-  // caller must already own monitor
-  private void retryPending(final long failJobsBefore) {
+  /**
+   * Dispatches jobs from the head of a pending queue until one cannot be dispatched.
+   * 
+   * @param queue the queue to drain
+   */
+  private void retryPending(final PendingQueue queue) {
     s_logger.debug("Retrying pending operations");
-    final Iterator<DispatchJob> iterator = getPending().iterator();
-    while (iterator.hasNext()) {
-      final DispatchJob job = iterator.next();
-      if (invoke(job)) {
-        iterator.remove();
-      } else {
-        if (failJobsBefore <= 0) {
-          if (getInvokers().isEmpty()) {
-            s_logger.debug("No invokers available - not retrying operations");
-            break;
+    final BlockingDeque<DispatchJob> jobs = queue.getJobs();
+    do {
+      final long availability = _availability.get();
+      final DispatchJob job = jobs.poll();
+      if (job == null) {
+        return;
+      }
+      if (!invoke(job)) {
+        jobs.offerFirst(job);
+        if (_availability.get() == availability) {
+          s_logger.debug("No invokers available - not retrying operations");
+          return;
+        }
+      }
+    } while (true);
+  }
+
+  /**
+   * Aborts any pending jobs that were queued before the given time. Each queue is first retried so that only
+   * jobs that could not be dispatched are aborted.
+   * 
+   * @param failJobsBefore the cut-off, from {@link System#nanoTime}
+   */
+  protected void failJobsBefore(final long failJobsBefore) {
+    for (PendingQueue queue : _pending.values()) {
+      if (queue.getJobs().isEmpty()) {
+        continue;
+      }
+      retryPending(queue);
+      final BlockingDeque<DispatchJob> jobs = queue.getJobs();
+      final Iterator<DispatchJob> iterator = jobs.iterator();
+      while (iterator.hasNext()) {
+        final DispatchJob job = iterator.next();
+        if (job._completed.get()) {
+          jobs.removeFirstOccurrence(job);
+        } else if (job.getQueuedTime() - failJobsBefore < 0) {
+          // The job may have been taken from the queue and dispatched since the iterator returned it
+          if (jobs.removeFirstOccurrence(job)) {
+            job.jobAbort(null, "no invokers available after timeout");
           }
-        } else if (job.getJobCreationTime() < failJobsBefore) {
-          iterator.remove();
-          job.jobAbort(null, "no invokers available after timeout");
         }
       }
     }
   }
 
-  // TODO [ENG-42] schedule retryPending to be called periodically with failJobsBefore set to `System.nanoTime() - a timeout` to cancel jobs which can't be executed at all
-  // TODO [ENG-42] the invoker selection logic is inefficient; it's likely that capability requirements objects won't vary much so comparison against the capabilities of invokers should be cached
-  // TODO [ENG-42] job dispatch should not be O(n) on number of invokers; the caching of capabilities should allow a nearer O(1) selection
-
-  // caller must already own monitor
+  /**
+   * Offers the job to the invokers able to run it. The pools of invokers that satisfy the job's requirements
+   * are memoised so the cost of selection does not depend on the number of registered invokers. Does not
+   * require the monitor.
+   * 
+   * @param job the job to invoke
+   * @return true if the job was accepted by an invoker (or has been cancelled), false if no invoker was available
+   */
   private boolean invoke(final DispatchJob job) {
     if (job._completed.get()) {
       s_logger.info("Job {} cancelled", job.getJob().getSpecification().getJobId());
       return true;
     }
+    final InvokerPool[] pools = getEligiblePools(job.getRequirements());
+    if (pools.length == 1) {
+      if (invoke(job, pools[0])) {
+        return true;
+      }
+    } else if (pools.length > 1) {
+      final int start = (_nextPool.getAndIncrement() & Integer.MAX_VALUE) % pools.length;
+      for (int i = 0; i < pools.length; i++) {
+        if (invoke(job, pools[(start + i) % pools.length])) {
+          return true;
+        }
+      }
+    }
+    s_logger.debug("No invokers available for job {}", job.getJob().getSpecification().getJobId());
+    return false;
+  }
+
+  private boolean invoke(final DispatchJob job, final InvokerPool pool) {
     Collection<JobInvoker> retry = null;
     do {
-      final Iterator<JobInvoker> iterator = getInvokers().iterator();
-      while (iterator.hasNext()) {
-        final JobInvoker jobInvoker = iterator.next();
-        if (job.canRunOn(jobInvoker)) {
-          if (jobInvoker.invoke(job.getJob(), job)) {
-            s_logger.debug("Invoker {} accepted job {}", jobInvoker, job.getJob().getSpecification().getJobId());
-            // request a job timeout
-            job.setTimeout(jobInvoker);
-            // put invoker to the end of the list
-            iterator.remove();
-            getInvokers().add(jobInvoker);
-            return true;
-          } else {
-            s_logger.debug("Invoker {} refused to execute job {}", jobInvoker, job.getJob().getSpecification().getJobId());
-            iterator.remove();
-            if (jobInvoker.notifyWhenAvailable(this)) {
-              s_logger.info("Invoker {} requested immediate retry", jobInvoker);
-              if (retry == null) {
-                retry = new LinkedList<JobInvoker>();
-              }
-              retry.add(jobInvoker);
+      int attempts = pool.size();
+      while (attempts-- > 0) {
+        final JobInvoker jobInvoker = pool.poll();
+        if (jobInvoker == null) {
+          break;
+        }
+        if (job.isExcluded(jobInvoker)) {
+          pool.add(jobInvoker);
+          continue;
+        }
+        if (jobInvoker.invoke(job.getJob(), job)) {
+          s_logger.debug("Invoker {} accepted job {}", jobInvoker, job.getJob().getSpecification().getJobId());
+          // request a job timeout
+          job.setTimeout(jobInvoker);
+          dispatched(job);
+          // put invoker to the end of the queue
+          invokerAvailable(pool, jobInvoker);
+          return true;
+        } else {
+          s_logger.debug("Invoker {} refused to execute job {}", jobInvoker, job.getJob().getSpecification().getJobId());
+          if (jobInvoker.notifyWhenAvailable(this)) {
+            s_logger.info("Invoker {} requested immediate retry", jobInvoker);
+            if (retry == null) {
+              retry = new LinkedList<JobInvoker>();
             }
+            retry.add(jobInvoker);
           }
         }
       }
       if (retry != null) {
-        getInvokers().addAll(retry);
+        for (JobInvoker jobInvoker : retry) {
+          invokerAvailable(pool, jobInvoker);
+        }
         retry = null;
       } else {
         break;
       }
     } while (true);
-    s_logger.debug("No invokers available for job {}", job.getJob().getSpecification().getJobId());
     return false;
   }
 
-  private synchronized void dispatchJobImpl(final DispatchJob job) {
+  private void dispatchJobImpl(final DispatchJob job) {
+    final long availability = _availability.get();
     if (!invoke(job)) {
       s_logger.debug("Adding job to pending set");
-      getPending().add(job);
-      if (_invokers != null) {
-        retryPending(0L);
+      final PendingQueue queue = getPendingQueue(job.getRequirements());
+      job.setQueuedTime(System.nanoTime());
+      queue.getJobs().add(job);
+      if (_availability.get() != availability) {
+        // An invoker became available after we tried them; it may have missed the job being queued
+        retryPending(queue);
       }
     }
   }
@@ -571,15 +927,15 @@ public class JobDispatcher implements JobInvokerRegister {
    * @return Map of invoker identifier to capability set.
    */
   public Map<String, Collection<Capability>> getAllCapabilities() {
-    final Iterator<Map.Entry<JobInvoker, Collection<Capability>>> invokerCapabilityIterator = getCapabilityCache().entrySet().iterator();
+    final Iterator<Map.Entry<JobInvoker, InvokerPool>> invokerPoolIterator = _invokerPool.entrySet().iterator();
     final Map<String, Collection<Capability>> result = new HashMap<String, Collection<Capability>>();
-    while (invokerCapabilityIterator.hasNext()) {
-      final Map.Entry<JobInvoker, Collection<Capability>> invokerCapability = invokerCapabilityIterator.next();
-      final String identifier = invokerCapability.getKey().getInvokerId();
+    while (invokerPoolIterator.hasNext()) {
+      final Map.Entry<JobInvoker, InvokerPool> invokerPool = invokerPoolIterator.next();
+      final String identifier = invokerPool.getKey().getInvokerId();
       if (identifier == null) {
-        invokerCapabilityIterator.remove();
+        invokerPoolIterator.remove();
       } else {
-        result.put(identifier, invokerCapability.getValue());
+        result.put(identifier, invokerPool.getValue().getCapabilities());
       }
     }
     return result;
@@ -63,6 +63,10 @@ public class LocalNodeJobInvoker extends AbstractCalculationNodeInvocationContai
 
   @Override
   public void onNodeChange() {
+    notifyAvailable();
+  }
+
+  protected void notifyAvailable() {
     final JobInvokerRegister notify = _notifyWhenAvailable.getAndSet(null);
     if (notify != null) {
       notify.registerJobInvoker(this);
@@ -78,7 +82,7 @@ public class LocalNodeJobInvoker extends AbstractCalculationNodeInvocationContai
     return getCapabilitySet().getCapabilities();
   }
 
-  private void addTail(final Collection<CalculationJob> tails, final ExecutionReceiver executionReceiver) {
+  protected void addTail(final Collection<CalculationJob> tails, final ExecutionReceiver executionReceiver) {
     if (tails != null) {
       for (CalculationJob tail : tails) {
         addJob(tail, executionReceiver, null);
@@ -87,13 +91,8 @@ public class LocalNodeJobInvoker extends AbstractCalculationNodeInvocationContai
     }
   }
 
-  @Override
-  public boolean invoke(final CalculationJob job, final JobInvocationReceiver receiver) {
-    final AbstractCalculationNode node = getNodes().poll();
-    if (node == null) {
-      return false;
-    }
-    final ExecutionReceiver executionReceiver = new ExecutionReceiver() {
+  protected ExecutionReceiver createExecutionReceiver(final JobInvocationReceiver receiver) {
+    return new ExecutionReceiver() {
 
       @Override
       public void executionComplete(CalculationJobResult result) {
@@ -107,6 +106,15 @@ public class LocalNodeJobInvoker extends AbstractCalculationNodeInvocationContai
       }
 
     };
+  }
+
+  @Override
+  public boolean invoke(final CalculationJob job, final JobInvocationReceiver receiver) {
+    final AbstractCalculationNode node = getNodes().poll();
+    if (node == null) {
+      return false;
+    }
+    final ExecutionReceiver executionReceiver = createExecutionReceiver(receiver);
     addJob(job, executionReceiver, node);
     addTail(job.getTail(), executionReceiver);
     return true;
@@ -137,7 +145,7 @@ public class LocalNodeJobInvoker extends AbstractCalculationNodeInvocationContai
   @Override
   public boolean notifyWhenAvailable(JobInvokerRegister callback) {
     _notifyWhenAvailable.set(callback);
-    if (!getNodes().isEmpty()) {
+    if (isAvailable()) {
       callback = _notifyWhenAvailable.getAndSet(null);
       if (callback != null) {
         return true;
@@ -146,6 +154,15 @@ public class LocalNodeJobInvoker extends AbstractCalculationNodeInvocationContai
     return false;
   }
 
+  /**
+   * Tests whether the invoker can accept another job.
+   * 
+   * @return true if a node is available
+   */
+  protected boolean isAvailable() {
+    return !getNodes().isEmpty();
+  }
+
   @Override
   public String toString() {
     return getInvokerId();
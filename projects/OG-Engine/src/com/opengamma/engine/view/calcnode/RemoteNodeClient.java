@@ -72,6 +72,7 @@ public class RemoteNodeClient extends AbstractCalculationNodeInvocationContainer
         @Override
         public void executionComplete(final CalculationJobResult result) {
           result.convertInputs(getIdentifierMap());
+          result.setCompactEncoding(job.isCompactEncoding());
           sendMessage(new Result(result));
         }
 
@@ -162,7 +163,7 @@ public class RemoteNodeClient extends AbstractCalculationNodeInvocationContainer
   }
 
   protected void sendCapabilities() {
-    final Ready ready = new Ready(getNodes().size());
+    final Ready ready = new Ready(getNodes().size(), Boolean.TRUE);
     // TODO any other capabilities to add
     sendMessage(ready);
   }
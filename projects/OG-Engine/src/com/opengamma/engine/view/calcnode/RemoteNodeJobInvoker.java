@@ -48,10 +48,15 @@ import com.opengamma.transport.FudgeMessageSender;
   private static final Logger s_logger = LoggerFactory.getLogger(RemoteNodeJobInvoker.class);
 
   private final ConcurrentMap<CalculationJobSpecification, JobInvocationReceiver> _jobCompletionCallbacks = new ConcurrentHashMap<CalculationJobSpecification, JobInvocationReceiver>();
+  /**
+   * Jobs sent in the compact encoding, needed to restore the job items to the results.
+   */
+  private final ConcurrentMap<CalculationJobSpecification, CalculationJob> _compactJobs = new ConcurrentHashMap<CalculationJobSpecification, CalculationJob>();
   private final ExecutorService _executorService;
   private final FudgeMessageSender _fudgeMessageSender;
   private final CapabilitySet _capabilitySet = new CapabilitySet();
   private volatile int _capacity;
+  private volatile boolean _compactEncoding;
   private final AtomicInteger _launched = new AtomicInteger();
   private final AtomicReference<JobInvokerRegister> _dispatchCallback = new AtomicReference<JobInvokerRegister>();
   private final IdentifierMap _identifierMap;
@@ -84,6 +89,7 @@ import com.opengamma.transport.FudgeMessageSender;
         }
       }
       // We decrement the count (and re-register) before processing the data as the remote node is already available if it's sent us its data.
+      _compactJobs.remove(message.getJob());
       final JobInvocationReceiver receiver = getJobCompletionCallbacks().remove(message.getJob());
       if (receiver != null) {
         s_logger.debug("Failed job on {} with message {}", message.getComputeNodeId(), message.getErrorMessage());
@@ -110,6 +116,9 @@ import com.opengamma.transport.FudgeMessageSender;
     protected void visitReadyMessage(final Ready message) {
       s_logger.debug("Remote invoker ready message - {}", message);
       getCapabilitySet().setParameterCapability(PlatformCapabilities.NODE_COUNT, message.getCapacity());
+      if (message.getCompactEncoding() != null) {
+        _compactEncoding = message.getCompactEncoding();
+      }
       // [ENG-42] this is where we'd detect any other capability changes
       _capacity = message.getCapacity();
       final int launched = _launched.get();
@@ -136,9 +145,18 @@ import com.opengamma.transport.FudgeMessageSender;
         }
       }
       // We decrement the count (and re-register) before processing the data as the remote node is already available if it's sent us its data.
+      final CalculationJob compactJob = _compactJobs.remove(message.getResult().getSpecification());
       final JobInvocationReceiver receiver = getJobCompletionCallbacks().remove(message.getResult().getSpecification());
       if (receiver != null) {
         final CalculationJobResult result = message.getResult();
+        if (result.isCompactEncoding()) {
+          if (compactJob == null) {
+            s_logger.error("Compact result received for job {} which was not sent compactly", result.getSpecification());
+            receiver.jobFailed(RemoteNodeJobInvoker.this, result.getComputeNodeId(), new OpenGammaRuntimeException("Unexpected compact result"));
+            return;
+          }
+          result.resolveItems(compactJob);
+        }
         result.resolveInputs(getIdentifierMap());
         receiver.jobCompleted(result);
       } else {
@@ -215,8 +233,17 @@ import com.opengamma.transport.FudgeMessageSender;
         try {
           getJobCompletionCallbacks().put(job.getSpecification(), receiver);
           job.convertInputs(getIdentifierMap());
+          final boolean compactEncoding = _compactEncoding;
+          // The job may have been sent compactly to a different node before
+          job.setCompactEncoding(compactEncoding);
+          if (compactEncoding) {
+            _compactJobs.put(job.getSpecification(), job);
+          } else {
+            _compactJobs.remove(job.getSpecification());
+          }
           sendMessage(new Execute(job));
         } catch (Exception e) {
+          _compactJobs.remove(job.getSpecification());
           s_logger.warn("Error sending job {}", job.getSpecification().getJobId());
           _launched.decrementAndGet();
           receiver.jobFailed(RemoteNodeJobInvoker.this, "node on " + getInvokerId(), new OpenGammaRuntimeException("Error sending job", e));
@@ -247,6 +274,9 @@ import com.opengamma.transport.FudgeMessageSender;
   @Override
   public void cancel(final Collection<CalculationJobSpecification> jobs) {
     s_logger.info("Cancelling {} jobs at {}", jobs.size(), getInvokerId());
+    for (CalculationJobSpecification job : jobs) {
+      _compactJobs.remove(job);
+    }
     sendMessage(new Cancel(jobs));
   }
 
@@ -296,6 +326,7 @@ import com.opengamma.transport.FudgeMessageSender;
     s_logger.warn("Client connection {} dropped", connection, cause);
     _launched.addAndGet(_capacity);
     _invokerId = null;
+    _compactJobs.clear();
     for (CalculationJobSpecification jobSpec : getJobCompletionCallbacks().keySet()) {
       final JobInvocationReceiver callback = getJobCompletionCallbacks().remove(jobSpec);
       // There could still be late messages arriving from a buffer even though the connection has now failed
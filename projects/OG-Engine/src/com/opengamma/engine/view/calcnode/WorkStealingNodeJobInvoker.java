@@ -0,0 +1,252 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calcnode;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.NamedThreadPoolFactory;
+
+/**
+ * Invokes jobs on a set of local calculation nodes using a work-stealing scheduler. Each node is owned by a worker
+ * thread with its own queue of runnable jobs. A tail job released by the completion of a job is placed at the front
+ * of the completing worker's queue so that it runs next, on the thread whose node has its inputs in the private cache.
+ * Other jobs are given to an idle worker if there is one. A worker with nothing to do takes the oldest job from the
+ * back of another worker's queue, or parks until it is given one.
+ * <p>
+ * The invoker presents all of its nodes to the {@link JobDispatcher} as a single invoker that will accept jobs until the
+ * number running and queued reaches the number of nodes multiplied by the slots per node.
+ * <p>
+ * Worker threads are created as nodes are added and remain for the lifetime of the invoker; nodes cannot be removed.
+ */
+public class WorkStealingNodeJobInvoker extends LocalNodeJobInvoker {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(WorkStealingNodeJobInvoker.class);
+
+  /**
+   * The default number of jobs to accept for each node.
+   */
+  public static final int DEFAULT_SLOTS_PER_NODE = 2;
+
+  private final class Worker implements Runnable {
+
+    private final AbstractCalculationNode _node;
+    private final BlockingDeque<JobEntry> _jobs = new LinkedBlockingDeque<JobEntry>();
+    private final int _index;
+    private volatile Thread _thread;
+
+    private Worker(final AbstractCalculationNode node, final int index) {
+      _node = node;
+      _index = index;
+    }
+
+    private JobEntry nextJob() {
+      JobEntry job = _jobs.pollFirst();
+      if (job != null) {
+        return job;
+      }
+      final int count = _workers.size();
+      for (int i = 1; i < count; i++) {
+        final Worker victim = _workers.get((_index + i) % count);
+        job = victim._jobs.pollLast();
+        if (job != null) {
+          s_logger.debug("Worker {} stole job from {}", _index, victim._index);
+          return job;
+        }
+      }
+      return null;
+    }
+
+    private void execute(final JobEntry job) {
+      try {
+        executeJob(_node, job);
+      } catch (RuntimeException e) {
+        s_logger.error("Error executing job", e);
+      } finally {
+        _pending.decrementAndGet();
+      }
+      onJobExecutionComplete();
+    }
+
+    @Override
+    public void run() {
+      _currentWorker.set(this);
+      s_logger.info("Worker {} started for {}", _index, _node.getNodeId());
+      while (true) {
+        JobEntry job = nextJob();
+        if (job == null) {
+          _idleWorkers.add(this);
+          // Anything submitted before we were on the idle queue must be found here; anything after will unpark us
+          job = nextJob();
+          if (job == null) {
+            cleanupFailures();
+            LockSupport.park(this);
+            _idleWorkers.remove(this);
+            continue;
+          }
+          _idleWorkers.remove(this);
+        }
+        execute(job);
+      }
+    }
+
+    private void unpark() {
+      final Thread thread = _thread;
+      if (thread != null) {
+        LockSupport.unpark(thread);
+      }
+    }
+
+  }
+
+  private final ThreadLocal<Worker> _currentWorker = new ThreadLocal<Worker>();
+  private final List<Worker> _workers = new CopyOnWriteArrayList<Worker>();
+  private final Queue<Worker> _idleWorkers = new ConcurrentLinkedQueue<Worker>();
+  private final AtomicInteger _nextWorker = new AtomicInteger();
+  private final AtomicInteger _pending = new AtomicInteger();
+  private final ThreadFactory _threadFactory = new NamedThreadPoolFactory("WorkStealingNode", true);
+  private int _slotsPerNode = DEFAULT_SLOTS_PER_NODE;
+
+  public WorkStealingNodeJobInvoker() {
+  }
+
+  public WorkStealingNodeJobInvoker(final AbstractCalculationNode node) {
+    addNode(node);
+  }
+
+  public WorkStealingNodeJobInvoker(final Collection<AbstractCalculationNode> nodes) {
+    addNodes(nodes);
+  }
+
+  public int getSlotsPerNode() {
+    return _slotsPerNode;
+  }
+
+  public void setSlotsPerNode(final int slotsPerNode) {
+    ArgumentChecker.notNegativeOrZero(slotsPerNode, "slotsPerNode");
+    _slotsPerNode = slotsPerNode;
+  }
+
+  /**
+   * Returns the number of jobs that are running or waiting in a worker queue.
+   *
+   * @return the number of jobs
+   */
+  public int getPendingJobCount() {
+    return _pending.get();
+  }
+
+  protected int getWorkerCount() {
+    return _workers.size();
+  }
+
+  private synchronized void createWorkers() {
+    AbstractCalculationNode node = getNodes().poll();
+    while (node != null) {
+      final Worker worker = new Worker(node, _workers.size());
+      _workers.add(worker);
+      final Thread thread = _threadFactory.newThread(worker);
+      worker._thread = thread;
+      thread.start();
+      node = getNodes().poll();
+    }
+  }
+
+  @Override
+  public void recalculateCapabilities() {
+    setCapability(PlatformCapabilities.NODE_COUNT, getWorkerCount());
+  }
+
+  @Override
+  public void onNodeChange() {
+    createWorkers();
+    recalculateCapabilities();
+    super.onNodeChange();
+  }
+
+  @Override
+  protected boolean isAvailable() {
+    return getPendingJobCount() < getWorkerCount() * getSlotsPerNode();
+  }
+
+  @Override
+  public boolean invoke(final CalculationJob job, final JobInvocationReceiver receiver) {
+    if (!isAvailable()) {
+      return false;
+    }
+    final ExecutionReceiver executionReceiver = createExecutionReceiver(receiver);
+    addJob(job, executionReceiver, null);
+    addTail(job.getTail(), executionReceiver);
+    return true;
+  }
+
+  /**
+   * Places a runnable job on a worker queue. A job released by a worker goes to the front of that worker's own queue;
+   * anything else goes to an idle worker if there is one, or the back of the next worker queue in turn.
+   *
+   * @param jobexec the runnable job, not null
+   * @param node ignored - the workers own the nodes
+   * @return true if the job will start immediately, false if it is queued behind other work
+   */
+  @Override
+  protected boolean spawnOrQueueJob(final JobEntry jobexec, final AbstractCalculationNode node) {
+    final int count = _workers.size();
+    if (count == 0) {
+      throw new IllegalStateException("No calculation nodes available");
+    }
+    _pending.incrementAndGet();
+    final Worker current = _currentWorker.get();
+    if (current != null) {
+      s_logger.debug("Queuing job {} on current worker {}", jobexec.getJob().getSpecification().getJobId(), current._index);
+      current._jobs.addFirst(jobexec);
+      if (current._jobs.size() > 1) {
+        // More work than this worker will do next; let an idle worker steal it
+        wakeIdleWorker();
+      }
+      return false;
+    }
+    Worker worker = _idleWorkers.poll();
+    if (worker != null) {
+      s_logger.debug("Giving job {} to idle worker {}", jobexec.getJob().getSpecification().getJobId(), worker._index);
+      worker._jobs.addLast(jobexec);
+      worker.unpark();
+      return true;
+    }
+    worker = _workers.get((_nextWorker.getAndIncrement() & Integer.MAX_VALUE) % count);
+    s_logger.debug("Queuing job {} on worker {}", jobexec.getJob().getSpecification().getJobId(), worker._index);
+    worker._jobs.addLast(jobexec);
+    // A worker may have gone idle since we checked
+    wakeIdleWorker();
+    return false;
+  }
+
+  private void wakeIdleWorker() {
+    final Worker worker = _idleWorkers.poll();
+    if (worker != null) {
+      worker.unpark();
+    }
+  }
+
+  @Override
+  protected void onJobExecutionComplete() {
+    if (isAvailable()) {
+      notifyAvailable();
+    }
+  }
+
+}
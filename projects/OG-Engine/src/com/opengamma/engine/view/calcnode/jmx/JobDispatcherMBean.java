@@ -0,0 +1,19 @@
+/**
+ * Copyright (C) 2009 - present by OpenGamma Inc. and the OpenGamma group of companies
+ * 
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calcnode.jmx;
+
+/**
+ * JMX MBean interface for the job dispatcher statistics.
+ */
+public interface JobDispatcherMBean {
+
+  long getDispatchCount();
+  long getDispatchLatencyNanos();
+  double getMeanDispatchLatencyMillis();
+  int getPendingJobs();
+  void resetDispatchStatistics();
+
+}
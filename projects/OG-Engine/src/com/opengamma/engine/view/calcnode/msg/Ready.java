@@ -7,6 +7,8 @@ public class Ready extends com.opengamma.engine.view.calcnode.msg.RemoteCalcNode
   private static final long serialVersionUID = -2102452682l;
   private int _capacity;
   public static final String CAPACITY_KEY = "capacity";
+  private Boolean _compactEncoding;
+  public static final String COMPACT_ENCODING_KEY = "compactEncoding";
   public Ready (int capacity) {
     _capacity = capacity;
   }
@@ -21,11 +23,25 @@ public class Ready extends com.opengamma.engine.view.calcnode.msg.RemoteCalcNode
     catch (IllegalArgumentException e) {
       throw new IllegalArgumentException ("Fudge message is not a Ready - field 'capacity' is not integer", e);
     }
+    fudgeField = fudgeMsg.getByName (COMPACT_ENCODING_KEY);
+    if (fudgeField != null)  {
+      try {
+        setCompactEncoding (fudgeMsg.getFieldValue (Boolean.class, fudgeField));
+      }
+      catch (IllegalArgumentException e) {
+        throw new IllegalArgumentException ("Fudge message is not a Ready - field 'compactEncoding' is not boolean", e);
+      }
+    }
+  }
+  public Ready (int capacity, Boolean compactEncoding) {
+    _capacity = capacity;
+    _compactEncoding = compactEncoding;
   }
   protected Ready (final Ready source) {
     super (source);
     if (source == null) throw new NullPointerException ("'source' must not be null");
     _capacity = source._capacity;
+    _compactEncoding = source._compactEncoding;
   }
   public Ready clone () {
     return new Ready (this);
@@ -39,6 +55,9 @@ public class Ready extends com.opengamma.engine.view.calcnode.msg.RemoteCalcNode
   public void toFudgeMsg (final org.fudgemsg.mapping.FudgeSerializer serializer, final org.fudgemsg.MutableFudgeMsg msg) {
     super.toFudgeMsg (serializer, msg);
     msg.add (CAPACITY_KEY, null, _capacity);
+    if (_compactEncoding != null)  {
+      msg.add (COMPACT_ENCODING_KEY, null, _compactEncoding);
+    }
   }
   public static Ready fromFudgeMsg (final org.fudgemsg.mapping.FudgeDeserializer deserializer, final org.fudgemsg.FudgeMsg fudgeMsg) {
     final java.util.List<org.fudgemsg.FudgeField> types = fudgeMsg.getAllByOrdinal (0);
@@ -60,6 +79,12 @@ public class Ready extends com.opengamma.engine.view.calcnode.msg.RemoteCalcNode
   public void setCapacity (int capacity) {
     _capacity = capacity;
   }
+  public Boolean getCompactEncoding () {
+    return _compactEncoding;
+  }
+  public void setCompactEncoding (Boolean compactEncoding) {
+    _compactEncoding = compactEncoding;
+  }
   public String toString () {
     return org.apache.commons.lang.builder.ToStringBuilder.reflectionToString(this, org.apache.commons.lang.builder.ToStringStyle.SHORT_PREFIX_STYLE);
   }
@@ -5,7 +5,6 @@
  */
 package com.opengamma.engine.view.client;
 
-import java.util.Timer;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -26,6 +25,7 @@ import com.opengamma.engine.view.calc.EngineResourceReference;
 import com.opengamma.engine.view.calc.EngineResourceRetainer;
 import com.opengamma.engine.view.calc.ViewCycle;
 import com.opengamma.engine.view.client.merging.RateLimitingMergingViewProcessListener;
+import com.opengamma.engine.view.client.merging.SchedulingWheel;
 import com.opengamma.engine.view.compilation.CompiledViewDefinition;
 import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
 import com.opengamma.engine.view.execution.ViewExecutionOptions;
@@ -80,13 +80,13 @@ public class ViewClientImpl implements ViewClient {
    * @param id  the unique identifier assigned to this view client
    * @param viewProcessor  the parent view processor to which this client belongs
    * @param user  the user who owns this client
-   * @param timer  the timer to use for scheduled tasks
+   * @param wheel  the wheel on which to schedule the release of rate-limited results
    */
-  public ViewClientImpl(UniqueId id, ViewProcessorImpl viewProcessor, UserPrincipal user, Timer timer) {
+  public ViewClientImpl(UniqueId id, ViewProcessorImpl viewProcessor, UserPrincipal user, SchedulingWheel wheel) {
     ArgumentChecker.notNull(id, "id");
     ArgumentChecker.notNull(viewProcessor, "viewProcessor");
     ArgumentChecker.notNull(user, "user");
-    ArgumentChecker.notNull(timer, "timer");
+    ArgumentChecker.notNull(wheel, "wheel");
 
     _id = id;
     _viewProcessor = viewProcessor;
@@ -207,7 +207,7 @@ public class ViewClientImpl implements ViewClient {
 
     };
 
-    _mergingViewProcessListener = new RateLimitingMergingViewProcessListener(_mergedViewProcessListener, getViewProcessor().getViewCycleManager(), timer);
+    _mergingViewProcessListener = new RateLimitingMergingViewProcessListener(_mergedViewProcessListener, getViewProcessor().getViewCycleManager(), wheel);
     _mergingViewProcessListener.setPaused(true);
   }
 
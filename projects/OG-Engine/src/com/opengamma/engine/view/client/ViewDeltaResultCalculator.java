@@ -5,11 +5,14 @@
  */
 package com.opengamma.engine.view.client;
 
+import java.util.List;
 import java.util.Map;
 
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.value.ComputedValue;
 import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.DeltaDefinition;
 import com.opengamma.engine.view.InMemoryViewDeltaResultModel;
 import com.opengamma.engine.view.ViewCalculationResultModel;
@@ -44,12 +47,54 @@ public class ViewDeltaResultCalculator {
     if (previousResult != null) {
       deltaModel.setPreviousCalculationTime(previousResult.getCalculationTime());
     }
+    if ((result instanceof ColumnarViewComputationResultModel)
+        && ((previousResult == null) || (previousResult instanceof ColumnarViewComputationResultModel))) {
+      computeDeltaModel(viewDefinition, deltaModel, (ColumnarViewComputationResultModel) previousResult, (ColumnarViewComputationResultModel) result);
+      return deltaModel;
+    }
     for (ComputationTargetSpecification targetSpec : result.getAllTargets()) {
       computeDeltaModel(viewDefinition, deltaModel, targetSpec, previousResult, result);
     }
     return deltaModel;
   }
   
+  private static void computeDeltaModel(ViewDefinition viewDefinition, InMemoryViewDeltaResultModel deltaModel, ColumnarViewComputationResultModel previousResult,
+      ColumnarViewComputationResultModel result) {
+    final List<ComputationTargetSpecification> targets = result.getTargets();
+    // Map each row of the new result to the row of the same target in the previous result
+    final int[] previousRows = new int[targets.size()];
+    if (previousResult != null) {
+      final List<ComputationTargetSpecification> previousTargets = previousResult.getTargets();
+      for (int row = 0; row < previousRows.length; row++) {
+        if ((row < previousTargets.size()) && previousTargets.get(row).equals(targets.get(row))) {
+          previousRows[row] = row;
+        } else {
+          previousRows[row] = previousResult.getRow(targets.get(row));
+        }
+      }
+    }
+    for (ColumnarViewComputationResultModel.Column column : result.getColumns()) {
+      final String calcConfigName = column.getCalculationConfiguration();
+      final DeltaDefinition deltaDefinition = viewDefinition.getCalculationConfiguration(calcConfigName).getDeltaDefinition();
+      final ColumnarViewComputationResultModel.Column previousColumn = (previousResult != null) ? previousResult.getColumn(calcConfigName, column.getValueName(), column.getProperties()) : null;
+      for (int row = column.nextRow(0); row >= 0; row = column.nextRow(row + 1)) {
+        final int previousRow = (previousColumn != null) ? previousRows[row] : -1;
+        final boolean delta;
+        if ((previousRow < 0) || !previousColumn.isPresent(previousRow)) {
+          delta = true;
+        } else if (column.isDouble(row) && previousColumn.isDouble(previousRow)) {
+          delta = deltaDefinition.isDelta(previousColumn.getDouble(previousRow), column.getDouble(row));
+        } else {
+          final ValueSpecification specification = column.getSpecification(targets.get(row));
+          delta = deltaDefinition.isDelta(new ComputedValue(specification, previousColumn.getValue(previousRow)), new ComputedValue(specification, column.getValue(row)));
+        }
+        if (delta) {
+          deltaModel.addValue(calcConfigName, new ComputedValue(column.getSpecification(targets.get(row)), column.getValue(row)));
+        }
+      }
+    }
+  }
+
   private static void computeDeltaModel(ViewDefinition viewDefinition, InMemoryViewDeltaResultModel deltaModel, ComputationTargetSpecification targetSpec,
       ViewResultModel previousResult, ViewResultModel result) {
     for (String calcConfigName : result.getCalculationConfigurationNames()) {
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.client.merging;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.InMemoryViewResultModel;
+import com.opengamma.engine.view.ViewResultEntry;
+import com.opengamma.engine.view.ViewResultModel;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * The latest value of each result entry, keyed by calculation configuration and value specification, from a sequence
+ * of merged result models.
+ */
+/* package */class MergedResultEntries {
+
+  private final Map<Pair<String, ValueSpecification>, ComputedValue> _entries = new LinkedHashMap<Pair<String, ValueSpecification>, ComputedValue>();
+
+  public void merge(final ViewResultModel source) {
+    for (ViewResultEntry entry : source.getAllResults()) {
+      final ComputedValue value = entry.getComputedValue();
+      _entries.put(Pair.of(entry.getCalculationConfiguration(), value.getSpecification()), value);
+    }
+  }
+
+  /**
+   * Writes the entries to a result model, along with the metadata of the latest source.
+   *
+   * @param latestSource the most recently merged model, not null
+   * @param destination the model to write to, not null
+   */
+  public void populate(final ViewResultModel latestSource, final InMemoryViewResultModel destination) {
+    ViewResultModelMergeUtils.copyMetadata(latestSource, destination);
+    for (Map.Entry<Pair<String, ValueSpecification>, ComputedValue> entry : _entries.entrySet()) {
+      destination.addValue(entry.getKey().getFirst(), entry.getValue());
+    }
+  }
+
+}
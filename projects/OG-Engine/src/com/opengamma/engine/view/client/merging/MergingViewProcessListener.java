@@ -141,6 +141,7 @@ public class MergingViewProcessListener implements ViewResultListener {
         getUnderlying().viewDefinitionCompiled(compiledViewDefinition, hasMarketDataPermissions);
       } else {
         _callQueue.add(new ViewDefinitionCompiledCall(compiledViewDefinition, hasMarketDataPermissions));
+        updateQueued();
       }
       _lastUpdateMillis.set(System.currentTimeMillis());
     } finally {
@@ -156,6 +157,7 @@ public class MergingViewProcessListener implements ViewResultListener {
         getUnderlying().viewDefinitionCompilationFailed(valuationTime, exception);
       } else {
         _callQueue.add(new ViewDefinitionCompilationFailedCall(valuationTime, exception));
+        updateQueued();
       }
     } finally {
       _mergerLock.unlock();
@@ -172,6 +174,7 @@ public class MergingViewProcessListener implements ViewResultListener {
         _previousCycleStartedIndex = _latestCycleStartedIndex;
         _latestCycleStartedIndex = _callQueue.size();
         _callQueue.add(new CycleStartedCall(cycleMetadata));
+        updateQueued();
       }
     } finally {
       _mergerLock.unlock();
@@ -210,6 +213,7 @@ public class MergingViewProcessListener implements ViewResultListener {
         if (_previousCycleStartedIndex != -1) {
           removeCall(_previousCycleStartedIndex);
         }
+        updateQueued();
       }
       _lastUpdateMillis.set(System.currentTimeMillis());
     } finally {
@@ -235,6 +239,7 @@ public class MergingViewProcessListener implements ViewResultListener {
           _cycleFragmentCompletedIndex = _callQueue.size();
           _callQueue.add(cycleFragmentCompletedCall);
         }
+        updateQueued();
       }
       _lastUpdateMillis.set(System.currentTimeMillis());
     } finally {
@@ -250,6 +255,7 @@ public class MergingViewProcessListener implements ViewResultListener {
         getUnderlying().cycleExecutionFailed(executionOptions, exception);
       } else {
         _callQueue.add(new CycleExecutionFailedCall(executionOptions, exception));
+        updateQueued();
       }
     } finally {
       _mergerLock.unlock();
@@ -264,6 +270,7 @@ public class MergingViewProcessListener implements ViewResultListener {
         getUnderlying().processCompleted();
       } else {
         _callQueue.add(new ProcessCompletedCall());
+        updateQueued();
       }
     } finally {
       _mergerLock.unlock();
@@ -278,6 +285,7 @@ public class MergingViewProcessListener implements ViewResultListener {
         getUnderlying().processTerminated(executionInterrupted);
       } else {
         _callQueue.add(new ProcessTerminatedCall(executionInterrupted));
+        updateQueued();
       }
       getCycleRetainer().replaceRetainedCycle(null);
     } finally {
@@ -291,6 +299,27 @@ public class MergingViewProcessListener implements ViewResultListener {
   }
   
   //-------------------------------------------------------------------------
+  /**
+   * Called after an update has been queued rather than passed through. The caller holds the merger lock, so an
+   * implementation must not block or call back into the merger.
+   */
+  protected void updateQueued() {
+  }
+
+  /**
+   * Tests whether there are updates waiting to be drained.
+   * 
+   * @return true if there are queued updates
+   */
+  protected boolean hasQueuedUpdates() {
+    _mergerLock.lock();
+    try {
+      return !_callQueue.isEmpty();
+    } finally {
+      _mergerLock.unlock();
+    }
+  }
+
   public void drain() {
     _mergerLock.lock();
     try {
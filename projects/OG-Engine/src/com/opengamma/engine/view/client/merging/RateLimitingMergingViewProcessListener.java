@@ -5,8 +5,7 @@
  */
 package com.opengamma.engine.view.client.merging;
 
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -17,34 +16,42 @@ import com.opengamma.util.ArgumentChecker;
 /**
  * Merges view process results to satisfy a specified maximum downstream update rate (given in terms of a minimum
  * period between updates). This maximum rate can be adjusted on-the-fly.
+ * <p>
+ * A release of the merged updates is scheduled on a shared {@link SchedulingWheel} when the first update arrives
+ * after the previous release, so a listener with nothing to deliver costs nothing, and a burst of updates within the
+ * period is delivered as one.
  */
 public class RateLimitingMergingViewProcessListener extends MergingViewProcessListener {
 
   private static final long MIN_PERIOD = 50;
   
-  private final Timer _timer;
-  private ReentrantLock _taskSetupLock = new ReentrantLock();
-  private TimerTask _asyncUpdateCheckerTask;
+  private final SchedulingWheel _wheel;
+  private final ReentrantLock _taskSetupLock = new ReentrantLock();
+  private final AtomicBoolean _releaseScheduled = new AtomicBoolean();
+  private volatile SchedulingWheel.Task _release;
+  private final Runnable _releaseTask = new Runnable() {
+    @Override
+    public void run() {
+      release();
+    }
+  };
   
-  private boolean _isPaused;
+  private volatile boolean _isPaused;
+  private volatile boolean _isTerminated;
   
   private AtomicLong _minimumUpdatePeriodMillis = new AtomicLong(0);
   
-  /**
-   * The time at which an update was last triggered.
-   */
-  private AtomicLong _lastUpdateTimeMillis = new AtomicLong();
-  
-  public RateLimitingMergingViewProcessListener(ViewResultListener underlying, EngineResourceManagerInternal<?> cycleManager, Timer timer) {
+  public RateLimitingMergingViewProcessListener(ViewResultListener underlying, EngineResourceManagerInternal<?> cycleManager, SchedulingWheel wheel) {
     super(underlying, cycleManager);
-    ArgumentChecker.notNull(timer, "timer");
-    _timer = timer;
+    ArgumentChecker.notNull(wheel, "wheel");
+    _wheel = wheel;
   }
   
   public void terminate() {
     _taskSetupLock.lock();
     try {
-      cancelTimerTask();
+      _isTerminated = true;
+      cancelRelease();
     } finally {
       _taskSetupLock.unlock();
     }
@@ -113,50 +120,46 @@ public class RateLimitingMergingViewProcessListener extends MergingViewProcessLi
   }
   
   //-------------------------------------------------------------------------
-  private boolean drainIfRequired() {    
-    
-    long currentTime = System.currentTimeMillis();
-    long lastUpdateTime = _lastUpdateTimeMillis.get();
-    long lastResultTime = getLastUpdateTimeMillis();
-    if (lastResultTime < lastUpdateTime) {
-      // No more results since the last output
-      return false;
+  @Override
+  protected void updateQueued() {
+    scheduleRelease();
+  }
+
+  private void scheduleRelease() {
+    final long minimumUpdatePeriodMillis = getMinimumUpdatePeriodMillis();
+    if (_isTerminated || isPaused() || (minimumUpdatePeriodMillis == 0)) {
+      return;
     }
-    
-    long minimumUpdatePeriodMillis = getMinimumUpdatePeriodMillis();
-    if (currentTime - lastUpdateTime < minimumUpdatePeriodMillis) {
-      return false;
+    if (_releaseScheduled.compareAndSet(false, true)) {
+      _release = _wheel.schedule(_releaseTask, minimumUpdatePeriodMillis);
     }
-    
-    if (!_lastUpdateTimeMillis.compareAndSet(lastUpdateTime, currentTime)) {
-      // Another thread has got there before us
-      return false;
+  }
+
+  private void release() {
+    _releaseScheduled.set(false);
+    if (isPaused() || isPassThrough()) {
+      // Anything queued will be released on resumption
+      return;
     }
-    
     drain();
-    return true;
   }
   
   private void updateConfiguration() {
     long minimumUpdatePeriodMillis = getMinimumUpdatePeriodMillis();
-    cancelTimerTask();
+    cancelRelease();
     setPassThrough(minimumUpdatePeriodMillis == 0 && !isPaused());
-    if (!isPaused() && !isPassThrough()) {
-      _asyncUpdateCheckerTask = new TimerTask() {
-        @Override
-        public void run() {
-          drainIfRequired();
-        }
-      };
-      _timer.schedule(_asyncUpdateCheckerTask, minimumUpdatePeriodMillis, minimumUpdatePeriodMillis);
-    } 
+    if (!isPaused() && !isPassThrough() && hasQueuedUpdates()) {
+      scheduleRelease();
+    }
   }
 
-  private void cancelTimerTask() {
-    if (_asyncUpdateCheckerTask != null) {
-      _asyncUpdateCheckerTask.cancel();
-      _asyncUpdateCheckerTask = null;
+  private void cancelRelease() {
+    final SchedulingWheel.Task release = _release;
+    if (release != null) {
+      release.cancel();
+      _release = null;
     }
+    _releaseScheduled.set(false);
   }
   
 }
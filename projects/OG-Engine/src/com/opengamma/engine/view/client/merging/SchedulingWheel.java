@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.client.merging;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.util.ArgumentChecker;
+
+/**
+ * Hashed timing wheel for releasing merged updates to many listeners from a single thread. Scheduling and cancelling
+ * a task are constant time operations, so the cost of a wheel does not grow with the number of rate-limited listeners
+ * the way a timer's task queue does.
+ * <p>
+ * Tasks are one-shot and run on the wheel's thread, no earlier than their delay and normally within two ticks of it.
+ * The thread is started when a task is scheduled and stops when there are no tasks left.
+ */
+public class SchedulingWheel {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(SchedulingWheel.class);
+
+  /**
+   * The default resolution of the wheel.
+   */
+  public static final long DEFAULT_TICK_MILLIS = 10;
+
+  private static final int DEFAULT_WHEEL_SIZE = 256;
+
+  /**
+   * Handle to a scheduled task.
+   */
+  public static final class Task {
+
+    private final Runnable _runnable;
+    private long _rounds;
+    private volatile boolean _cancelled;
+
+    private Task(final Runnable runnable, final long rounds) {
+      _runnable = runnable;
+      _rounds = rounds;
+    }
+
+    /**
+     * Cancels the task. It will not run if it has not already started.
+     */
+    public void cancel() {
+      _cancelled = true;
+    }
+
+    public boolean isCancelled() {
+      return _cancelled;
+    }
+
+  }
+
+  private final String _name;
+  private final long _tickMillis;
+  private final List<List<Task>> _slots;
+  private int _cursor;
+  private int _pending;
+  private Thread _thread;
+
+  public SchedulingWheel(final String name) {
+    this(name, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+  }
+
+  public SchedulingWheel(final String name, final long tickMillis, final int wheelSize) {
+    ArgumentChecker.notNull(name, "name");
+    ArgumentChecker.notNegativeOrZero(tickMillis, "tickMillis");
+    ArgumentChecker.notNegativeOrZero(wheelSize, "wheelSize");
+    _name = name;
+    _tickMillis = tickMillis;
+    _slots = new ArrayList<List<Task>>(wheelSize);
+    for (int i = 0; i < wheelSize; i++) {
+      _slots.add(new LinkedList<Task>());
+    }
+  }
+
+  public long getTickMillis() {
+    return _tickMillis;
+  }
+
+  /**
+   * Returns the number of tasks waiting on the wheel, including any cancelled ones that haven't been discarded yet.
+   *
+   * @return the number of tasks
+   */
+  public synchronized int getPendingTaskCount() {
+    return _pending;
+  }
+
+  /**
+   * Schedules a task to run once after a delay.
+   *
+   * @param runnable the task, not null
+   * @param delayMillis the delay in milliseconds
+   * @return the handle to cancel the task with, not null
+   */
+  public Task schedule(final Runnable runnable, final long delayMillis) {
+    ArgumentChecker.notNull(runnable, "runnable");
+    // The current tick is partly over, so one more is needed to be sure the full delay has elapsed
+    final long ticks = Math.max(0, (delayMillis + _tickMillis - 1) / _tickMillis) + 1;
+    final int size = _slots.size();
+    synchronized (this) {
+      final Task task = new Task(runnable, (ticks - 1) / size);
+      _slots.get((int) ((_cursor + ticks) % size)).add(task);
+      _pending++;
+      if (_thread == null) {
+        _thread = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            SchedulingWheel.this.run();
+          }
+        }, _name);
+        _thread.setDaemon(true);
+        _thread.start();
+      }
+      return task;
+    }
+  }
+
+  /**
+   * Advances the wheel by one tick.
+   *
+   * @param due receives the tasks that should now run
+   * @return false if the wheel is empty and the thread should stop
+   */
+  private synchronized boolean tick(final List<Task> due) {
+    if (_pending == 0) {
+      _thread = null;
+      return false;
+    }
+    _cursor = (_cursor + 1) % _slots.size();
+    final Iterator<Task> itr = _slots.get(_cursor).iterator();
+    while (itr.hasNext()) {
+      final Task task = itr.next();
+      if (task.isCancelled()) {
+        itr.remove();
+        _pending--;
+      } else if (task._rounds > 0) {
+        task._rounds--;
+      } else {
+        itr.remove();
+        _pending--;
+        due.add(task);
+      }
+    }
+    return true;
+  }
+
+  private void run() {
+    final List<Task> due = new ArrayList<Task>();
+    long nextTick = System.currentTimeMillis() + _tickMillis;
+    while (true) {
+      final long sleep = nextTick - System.currentTimeMillis();
+      if (sleep > 0) {
+        try {
+          Thread.sleep(sleep);
+        } catch (InterruptedException e) {
+          s_logger.warn("Interrupted");
+        }
+        continue;
+      }
+      if (!tick(due)) {
+        return;
+      }
+      nextTick += _tickMillis;
+      for (Task task : due) {
+        if (!task.isCancelled()) {
+          try {
+            task._runnable.run();
+          } catch (RuntimeException e) {
+            s_logger.error("Error running scheduled task", e);
+          }
+        }
+      }
+      due.clear();
+    }
+  }
+
+}
@@ -5,16 +5,26 @@
  */
 package com.opengamma.engine.view.client.merging;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.InMemoryViewComputationResultModel;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewResultModel;
 
 /**
  * Provides the ability to merge {@link ViewResultModel} instances.
+ * <p>
+ * Only the latest value for each result entry is recorded as results are merged; the merged model is built when it is
+ * first requested after a change.
  */
 public class ViewComputationResultModelMerger {
 
+  private final MergedResultEntries _results = new MergedResultEntries();
+  private final Map<ValueSpecification, ComputedValue> _marketData = new LinkedHashMap<ValueSpecification, ComputedValue>();
+  private ViewResultModel _latestSource;
   private InMemoryViewComputationResultModel _currentMergedResult;
   
   /**
@@ -23,14 +33,12 @@ public class ViewComputationResultModelMerger {
    * @param newResult  the new result to merge
    */
   public void merge(ViewComputationResultModel newResult) {
-    if (_currentMergedResult == null) {
-      // Start of a new result
-      _currentMergedResult = new InMemoryViewComputationResultModel();
-    }
     for (ComputedValue marketData : newResult.getAllMarketData()) {
-      _currentMergedResult.addMarketData(marketData);
+      _marketData.put(marketData.getSpecification(), marketData);
     }
-    ViewResultModelMergeUtils.merge(newResult, _currentMergedResult);
+    _results.merge(newResult);
+    _latestSource = newResult;
+    _currentMergedResult = null;
   }
 
   /**
@@ -39,6 +47,14 @@ public class ViewComputationResultModelMerger {
    * @return  the latest merged result
    */
   public ViewComputationResultModel getLatestResult() {
+    if ((_currentMergedResult == null) && (_latestSource != null)) {
+      final InMemoryViewComputationResultModel result = new InMemoryViewComputationResultModel();
+      for (ComputedValue marketData : _marketData.values()) {
+        result.addMarketData(marketData);
+      }
+      _results.populate(_latestSource, result);
+      _currentMergedResult = result;
+    }
     return _currentMergedResult;
   }
   
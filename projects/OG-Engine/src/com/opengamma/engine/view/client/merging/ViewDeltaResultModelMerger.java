@@ -5,27 +5,42 @@
  */
 package com.opengamma.engine.view.client.merging;
 
+import javax.time.Instant;
+
 import com.opengamma.engine.view.InMemoryViewDeltaResultModel;
 import com.opengamma.engine.view.ViewDeltaResultModel;
 import com.opengamma.engine.view.ViewResultModel;
 
 /**
  * Provides the ability to merge {@link ViewResultModel} instances.
+ * <p>
+ * Only the latest value for each changed result entry is recorded as deltas are merged; the merged delta is built when
+ * it is first requested after a change.
  */
 public class ViewDeltaResultModelMerger {
 
+  private final MergedResultEntries _results = new MergedResultEntries();
+  private ViewResultModel _latestSource;
+  private Instant _previousResultTimestamp;
   private InMemoryViewDeltaResultModel _currentMergedResult;
   
   public void merge(ViewDeltaResultModel newResult) {
-    if (_currentMergedResult == null) {
+    if (_latestSource == null) {
       // Start of a new result
-      _currentMergedResult = new InMemoryViewDeltaResultModel();
-      _currentMergedResult.setPreviousCalculationTime(newResult.getPreviousResultTimestamp());
+      _previousResultTimestamp = newResult.getPreviousResultTimestamp();
     }
-    ViewResultModelMergeUtils.merge(newResult, _currentMergedResult);
+    _results.merge(newResult);
+    _latestSource = newResult;
+    _currentMergedResult = null;
   }
   
   public ViewDeltaResultModel getLatestResult() {
+    if ((_currentMergedResult == null) && (_latestSource != null)) {
+      final InMemoryViewDeltaResultModel result = new InMemoryViewDeltaResultModel();
+      result.setPreviousCalculationTime(_previousResultTimestamp);
+      _results.populate(_latestSource, result);
+      _currentMergedResult = result;
+    }
     return _currentMergedResult;
   }
   
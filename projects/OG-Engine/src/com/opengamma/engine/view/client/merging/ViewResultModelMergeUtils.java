@@ -26,12 +26,7 @@ public class ViewResultModelMergeUtils {
   
   //-------------------------------------------------------------------------
   public static void merge(ViewResultModel source, InMemoryViewResultModel destination) {
-    destination.setValuationTime(source.getValuationTime());
-    destination.setCalculationTime(source.getCalculationTime());
-    destination.setCalculationDuration(source.getCalculationDuration());
-    destination.setVersionCorrection(source.getVersionCorrection());
-    destination.setViewCycleId(source.getViewCycleId());
-    destination.setViewProcessId(source.getViewProcessId());
+    copyMetadata(source, destination);
     
     for (ComputationTargetSpecification targetSpec : source.getAllTargets()) {
       for (String calcConfigName : source.getCalculationConfigurationNames()) {
@@ -46,5 +41,14 @@ public class ViewResultModelMergeUtils {
       }
     }
   }
+
+  public static void copyMetadata(ViewResultModel source, InMemoryViewResultModel destination) {
+    destination.setValuationTime(source.getValuationTime());
+    destination.setCalculationTime(source.getCalculationTime());
+    destination.setCalculationDuration(source.getCalculationDuration());
+    destination.setVersionCorrection(source.getVersionCorrection());
+    destination.setViewCycleId(source.getViewCycleId());
+    destination.setViewProcessId(source.getViewProcessId());
+  }
   
 }
@@ -0,0 +1,635 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.compilation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.time.Instant;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeField;
+import org.fudgemsg.FudgeMsg;
+import org.fudgemsg.MutableFudgeMsg;
+import org.fudgemsg.mapping.FudgeDeserializer;
+import org.fudgemsg.mapping.FudgeSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.MapMaker;
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.core.position.Portfolio;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.function.CompiledFunctionDefinition;
+import com.opengamma.engine.function.MarketDataSourcingFunction;
+import com.opengamma.engine.function.ParameterizedFunction;
+import com.opengamma.engine.function.resolver.ResolutionRule;
+import com.opengamma.engine.marketdata.spec.MarketDataSpecification;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ArgumentChecker;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Caches compiled view definitions so that they can be shared by view processes, and optionally kept on local disk so
+ * that they survive a restart.
+ * <p>
+ * A compilation is keyed by the version of the view definition, the version of its portfolio, the specification of
+ * the market data it was compiled against and the function initialization identifier. A lookup will find a
+ * compilation with a matching key whose validity range includes the valuation time. Concurrent requests for the same
+ * key wait for a single compilation rather than each compiling the view.
+ * <p>
+ * When a directory is given, compilations are written to it in the {@link DependencyGraph} Fudge encoding. The
+ * function initialization identifier changes every time the functions are initialized so compilations on disk are
+ * instead keyed on a fingerprint of the function repository, made from the identifier, short name, class and priority
+ * of each resolution rule. A compilation loaded from disk is only used if every function it references can also be
+ * found by identifier and short name in the current function repository.
+ * <p>
+ * The graphs of a cached compilation are shared and must not be modified. Anything which would invalidate a
+ * compilation, such as a change to the portfolio's positions, should {@link #remove} it from the cache.
+ */
+public class CompiledViewDefinitionCache {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(CompiledViewDefinitionCache.class);
+
+  /**
+   * The default number of keys to hold compilations for.
+   */
+  public static final int DEFAULT_MAX_SIZE = 32;
+
+  private static final int MAX_COMPILATIONS_PER_KEY = 4;
+
+  private static final String FILE_SUFFIX = ".fudge";
+
+  private static final String VIEW_DEFINITION_ID_FIELD = "viewDefinitionId";
+  private static final String VIEW_DEFINITION_FIELD = "viewDefinition";
+  private static final String PORTFOLIO_ID_FIELD = "portfolioId";
+  private static final String PORTFOLIO_RESOLVED_FIELD = "portfolioResolved";
+  private static final String MARKET_DATA_SPECIFICATION_FIELD = "marketDataSpecification";
+  private static final String FUNCTION_FINGERPRINT_FIELD = "functionFingerprint";
+  private static final String VALID_FROM_FIELD = "validFrom";
+  private static final String VALID_TO_FIELD = "validTo";
+  private static final String CONFIGURATION_FIELD = "configuration";
+  private static final String GRAPH_FIELD = "graph";
+  private static final String TERMINAL_OUTPUT_FIELD = "terminalOutput";
+  private static final String MARKET_DATA_FIELD = "marketData";
+  private static final String SPECIFICATION_FIELD = "specification";
+  private static final String REQUIREMENT_FIELD = "requirement";
+
+  private static final class Key {
+
+    private final UniqueId _viewDefinitionId;
+    private final UniqueId _portfolioId;
+    private final MarketDataSpecification _marketDataSpecification;
+    private final long _functionInitId;
+
+    public Key(final UniqueId viewDefinitionId, final UniqueId portfolioId, final MarketDataSpecification marketDataSpecification, final long functionInitId) {
+      _viewDefinitionId = viewDefinitionId;
+      _portfolioId = portfolioId;
+      _marketDataSpecification = marketDataSpecification;
+      _functionInitId = functionInitId;
+    }
+
+    public boolean isPersistable() {
+      return (_viewDefinitionId != null) && (_viewDefinitionId.isVersioned()) && ((_portfolioId == null) || _portfolioId.isVersioned());
+    }
+
+    public String getMarketDataSpecificationName() {
+      return _marketDataSpecification.toString();
+    }
+
+    /**
+     * Returns the file name prefix for compilations with this key. The function initialization identifier is not
+     * part of the prefix as it won't be the same after a restart. The prefix is not unique; the fields of each file
+     * must be checked.
+     */
+    public String getFilePrefix(final String functionFingerprint) {
+      final String persistentKey = _viewDefinitionId + "," + _portfolioId + "," + getMarketDataSpecificationName() + "," + functionFingerprint;
+      return Integer.toHexString(persistentKey.hashCode()) + "-";
+    }
+
+    @Override
+    public int hashCode() {
+      int hc = (_viewDefinitionId != null) ? _viewDefinitionId.hashCode() : 0;
+      hc += (hc << 4) + ((_portfolioId != null) ? _portfolioId.hashCode() : 0);
+      hc += (hc << 4) + _marketDataSpecification.hashCode();
+      hc += (hc << 4) + (int) (_functionInitId ^ (_functionInitId >>> 32));
+      return hc;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      final Key other = (Key) o;
+      return (_functionInitId == other._functionInitId)
+          && _marketDataSpecification.equals(other._marketDataSpecification)
+          && ((_viewDefinitionId != null) ? _viewDefinitionId.equals(other._viewDefinitionId) : (other._viewDefinitionId == null))
+          && ((_portfolioId != null) ? _portfolioId.equals(other._portfolioId) : (other._portfolioId == null));
+    }
+
+  }
+
+  private static final class Entry {
+
+    private final CompiledViewDefinitionWithGraphsImpl _compiledViewDefinition;
+    private final File _file;
+
+    public Entry(final CompiledViewDefinitionWithGraphsImpl compiledViewDefinition, final File file) {
+      _compiledViewDefinition = compiledViewDefinition;
+      _file = file;
+    }
+
+  }
+
+  private final int _maxSize;
+  private final File _directory;
+  private final FudgeContext _fudgeContext = OpenGammaFudgeContext.getInstance();
+  private final Map<Key, List<Entry>> _entries;
+  private final ConcurrentMap<Key, Object> _locks = new MapMaker().weakValues().makeMap();
+
+  /**
+   * Creates a cache held in memory only.
+   */
+  public CompiledViewDefinitionCache() {
+    this(DEFAULT_MAX_SIZE, null);
+  }
+
+  /**
+   * Creates a cache.
+   *
+   * @param maxSize the number of keys to hold compilations for
+   * @param directory the directory to persist compilations to, or null to hold them in memory only
+   */
+  public CompiledViewDefinitionCache(final int maxSize, final File directory) {
+    ArgumentChecker.notNegativeOrZero(maxSize, "maxSize");
+    _maxSize = maxSize;
+    _directory = directory;
+    if (directory != null) {
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        throw new IllegalArgumentException("Can't create directory " + directory);
+      }
+    }
+    _entries = new LinkedHashMap<Key, List<Entry>>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Key, List<Entry>> eldest) {
+        return size() > _maxSize;
+      }
+    };
+  }
+
+  public int getMaxSize() {
+    return _maxSize;
+  }
+
+  public File getDirectory() {
+    return _directory;
+  }
+
+  /**
+   * Returns a compilation of the view definition that is valid for the valuation time, compiling it if there is no
+   * suitable compilation in the cache.
+   *
+   * @param viewDefinition the view definition, not null
+   * @param compilationServices the compilation services, not null
+   * @param marketDataSpecification the specification of the market data whose availability the compilation services
+   *        provide, not null
+   * @param valuationTime the valuation time, not null
+   * @param versionCorrection the version-correction at which to load the portfolio, not null
+   * @return the compiled view definition, not null
+   */
+  public CompiledViewDefinitionWithGraphsImpl compile(final ViewDefinition viewDefinition, final ViewCompilationServices compilationServices,
+      final MarketDataSpecification marketDataSpecification, final Instant valuationTime, final VersionCorrection versionCorrection) {
+    ArgumentChecker.notNull(viewDefinition, "viewDefinition");
+    ArgumentChecker.notNull(compilationServices, "compilationServices");
+    ArgumentChecker.notNull(marketDataSpecification, "marketDataSpecification");
+    ArgumentChecker.notNull(valuationTime, "valuationTime");
+    final Key key = new Key(viewDefinition.getUniqueId(), resolvePortfolioId(viewDefinition, compilationServices, versionCorrection),
+        marketDataSpecification, getFunctionInitId(compilationServices));
+    synchronized (getLock(key)) {
+      CompiledViewDefinitionWithGraphsImpl compiledViewDefinition = find(key, viewDefinition, valuationTime);
+      if (compiledViewDefinition != null) {
+        s_logger.info("Using cached compilation of {} for {}", viewDefinition.getName(), valuationTime);
+        return compiledViewDefinition;
+      }
+      File file = null;
+      Collection<ResolutionRule> rules = null;
+      String functionFingerprint = null;
+      if ((_directory != null) && key.isPersistable()) {
+        rules = compilationServices.getFunctionResolver().compile(valuationTime).getAllResolutionRules();
+        functionFingerprint = getFunctionFingerprint(rules);
+        final Entry loaded = load(key, functionFingerprint, rules, viewDefinition, compilationServices, valuationTime, versionCorrection);
+        if (loaded != null) {
+          s_logger.info("Loaded compilation of {} for {} from {}", new Object[] {viewDefinition.getName(), valuationTime, loaded._file });
+          add(key, loaded);
+          return loaded._compiledViewDefinition;
+        }
+      }
+      compiledViewDefinition = ViewDefinitionCompiler.compile(viewDefinition, compilationServices, valuationTime, versionCorrection);
+      if (functionFingerprint != null) {
+        file = store(key, functionFingerprint, compiledViewDefinition);
+      }
+      add(key, new Entry(compiledViewDefinition, file));
+      return compiledViewDefinition;
+    }
+  }
+
+  /**
+   * Removes a compilation from the cache, and from disk if it was persisted.
+   *
+   * @param compiledViewDefinition the compilation to remove, not null
+   */
+  public void remove(final CompiledViewDefinitionWithGraphsImpl compiledViewDefinition) {
+    File file = null;
+    synchronized (this) {
+      final Iterator<List<Entry>> itrEntries = _entries.values().iterator();
+      while (itrEntries.hasNext()) {
+        final List<Entry> entries = itrEntries.next();
+        final Iterator<Entry> itrEntry = entries.iterator();
+        while (itrEntry.hasNext()) {
+          final Entry entry = itrEntry.next();
+          if (entry._compiledViewDefinition == compiledViewDefinition) {
+            itrEntry.remove();
+            file = entry._file;
+          }
+        }
+        if (entries.isEmpty()) {
+          itrEntries.remove();
+        }
+      }
+    }
+    if ((file != null) && !file.delete()) {
+      s_logger.warn("Couldn't delete {}", file);
+    }
+  }
+
+  /**
+   * Removes all compilations from memory. Persisted compilations are left on disk.
+   */
+  public synchronized void clear() {
+    _entries.clear();
+  }
+
+  /**
+   * Returns the number of compilations held in memory.
+   *
+   * @return the number of compilations
+   */
+  public synchronized int size() {
+    int size = 0;
+    for (List<Entry> entries : _entries.values()) {
+      size += entries.size();
+    }
+    return size;
+  }
+
+  private Object getLock(final Key key) {
+    Object lock = _locks.get(key);
+    if (lock == null) {
+      lock = new Object();
+      final Object existing = _locks.putIfAbsent(key, lock);
+      if (existing != null) {
+        lock = existing;
+      }
+    }
+    return lock;
+  }
+
+  private synchronized CompiledViewDefinitionWithGraphsImpl find(final Key key, final ViewDefinition viewDefinition, final Instant valuationTime) {
+    final List<Entry> entries = _entries.get(key);
+    if (entries == null) {
+      return null;
+    }
+    for (Entry entry : entries) {
+      // The view definition is compared in case its identifier is not versioned
+      if (entry._compiledViewDefinition.isValidFor(valuationTime) && viewDefinition.equals(entry._compiledViewDefinition.getViewDefinition())) {
+        return entry._compiledViewDefinition;
+      }
+    }
+    return null;
+  }
+
+  private synchronized void add(final Key key, final Entry entry) {
+    List<Entry> entries = _entries.get(key);
+    if (entries == null) {
+      entries = new ArrayList<Entry>(MAX_COMPILATIONS_PER_KEY);
+      _entries.put(key, entries);
+    } else if (entries.size() >= MAX_COMPILATIONS_PER_KEY) {
+      // Drop the oldest; persisted copies are left on disk
+      entries.remove(0);
+    }
+    entries.add(entry);
+  }
+
+  private static long getFunctionInitId(final ViewCompilationServices compilationServices) {
+    final Long functionInitId = compilationServices.getFunctionCompilationContext().getFunctionInitId();
+    return (functionInitId != null) ? functionInitId : 0L;
+  }
+
+  private static UniqueId resolvePortfolioId(final ViewDefinition viewDefinition, final ViewCompilationServices compilationServices, final VersionCorrection versionCorrection) {
+    final UniqueId portfolioId = viewDefinition.getPortfolioId();
+    if ((portfolioId == null) || portfolioId.isVersioned() || (compilationServices.getPositionSource() == null)) {
+      return portfolioId;
+    }
+    try {
+      final Portfolio portfolio = compilationServices.getPositionSource().getPortfolio(portfolioId.getObjectId(), versionCorrection);
+      if (portfolio != null) {
+        return portfolio.getUniqueId();
+      }
+    } catch (RuntimeException e) {
+      // If the portfolio is needed the compilation will fail; if not then the version doesn't matter
+      s_logger.debug("Couldn't resolve portfolio {}: {}", portfolioId, e.getMessage());
+    }
+    return portfolioId;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Returns a fingerprint of the function repository that stays the same across restarts as long as the functions and
+   * their priorities do.
+   */
+  private static String getFunctionFingerprint(final Collection<ResolutionRule> rules) {
+    final List<String> functions = new ArrayList<String>(rules.size());
+    for (ResolutionRule rule : rules) {
+      final CompiledFunctionDefinition function = rule.getFunction().getFunction();
+      functions.add(function.getFunctionDefinition().getUniqueId() + "," + function.getFunctionDefinition().getShortName() + ","
+          + function.getFunctionDefinition().getClass().getName() + "," + rule.getPriority());
+    }
+    Collections.sort(functions);
+    try {
+      final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      for (String function : functions) {
+        digest.update(function.getBytes("UTF-8"));
+        digest.update((byte) '\n');
+      }
+      final StringBuilder sb = new StringBuilder();
+      for (byte b : digest.digest()) {
+        sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new OpenGammaRuntimeException("SHA-1 not available", e);
+    } catch (UnsupportedEncodingException e) {
+      throw new OpenGammaRuntimeException("UTF-8 not available", e);
+    }
+  }
+
+  private File store(final Key key, final String functionFingerprint, final CompiledViewDefinitionWithGraphsImpl compiledViewDefinition) {
+    final FudgeSerializer serializer = new FudgeSerializer(_fudgeContext);
+    final MutableFudgeMsg msg = serializer.newMessage();
+    msg.add(VIEW_DEFINITION_ID_FIELD, key._viewDefinitionId.toString());
+    if (key._portfolioId != null) {
+      msg.add(PORTFOLIO_ID_FIELD, key._portfolioId.toString());
+    }
+    msg.add(PORTFOLIO_RESOLVED_FIELD, compiledViewDefinition.getPortfolio() != null);
+    msg.add(MARKET_DATA_SPECIFICATION_FIELD, key.getMarketDataSpecificationName());
+    msg.add(FUNCTION_FINGERPRINT_FIELD, functionFingerprint);
+    if (compiledViewDefinition.getValidFrom() != null) {
+      msg.add(VALID_FROM_FIELD, compiledViewDefinition.getValidFrom().toEpochMillisLong());
+    }
+    if (compiledViewDefinition.getValidTo() != null) {
+      msg.add(VALID_TO_FIELD, compiledViewDefinition.getValidTo().toEpochMillisLong());
+    }
+    serializer.addToMessageWithClassHeaders(msg, VIEW_DEFINITION_FIELD, null, compiledViewDefinition.getViewDefinition());
+    for (DependencyGraph graph : compiledViewDefinition.getAllDependencyGraphs()) {
+      final MutableFudgeMsg configuration = serializer.newMessage();
+      serializer.addToMessage(configuration, GRAPH_FIELD, null, graph);
+      for (Map.Entry<ValueSpecification, Set<ValueRequirement>> terminalOutput : graph.getTerminalOutputs().entrySet()) {
+        for (ValueRequirement requirement : terminalOutput.getValue()) {
+          configuration.add(TERMINAL_OUTPUT_FIELD, null, encodePair(serializer, requirement, terminalOutput.getKey()));
+        }
+      }
+      // The requirements of the market data sourcing functions aren't part of the graph encoding
+      for (Pair<ValueRequirement, ValueSpecification> marketData : graph.getAllRequiredMarketData()) {
+        configuration.add(MARKET_DATA_FIELD, null, encodePair(serializer, marketData.getFirst(), marketData.getSecond()));
+      }
+      msg.add(CONFIGURATION_FIELD, null, configuration);
+    }
+    final File file = new File(_directory, key.getFilePrefix(functionFingerprint) + System.currentTimeMillis() + FILE_SUFFIX);
+    try {
+      final OutputStream out = new FileOutputStream(file);
+      try {
+        out.write(_fudgeContext.toByteArray(msg));
+      } finally {
+        out.close();
+      }
+      s_logger.info("Wrote compilation of {} to {}", compiledViewDefinition.getViewDefinition().getName(), file);
+      return file;
+    } catch (IOException e) {
+      s_logger.warn("Couldn't write compilation to " + file, e);
+      return null;
+    }
+  }
+
+  private static MutableFudgeMsg encodePair(final FudgeSerializer serializer, final ValueRequirement requirement, final ValueSpecification specification) {
+    final MutableFudgeMsg msg = serializer.newMessage();
+    serializer.addToMessage(msg, REQUIREMENT_FIELD, null, requirement);
+    serializer.addToMessage(msg, SPECIFICATION_FIELD, null, specification);
+    return msg;
+  }
+
+  private Entry load(final Key key, final String functionFingerprint, final Collection<ResolutionRule> rules, final ViewDefinition viewDefinition,
+      final ViewCompilationServices compilationServices, final Instant valuationTime, final VersionCorrection versionCorrection) {
+    final String prefix = key.getFilePrefix(functionFingerprint);
+    final File[] files = _directory.listFiles(new FilenameFilter() {
+      @Override
+      public boolean accept(final File dir, final String name) {
+        return name.startsWith(prefix) && name.endsWith(FILE_SUFFIX);
+      }
+    });
+    if (files == null) {
+      return null;
+    }
+    Map<String, CompiledFunctionDefinition> functions = null;
+    for (File file : files) {
+      try {
+        final FudgeMsg msg;
+        final InputStream in = new FileInputStream(file);
+        try {
+          msg = _fudgeContext.deserialize(in).getMessage();
+        } finally {
+          in.close();
+        }
+        if (!isMatch(msg, key, functionFingerprint, valuationTime)) {
+          continue;
+        }
+        final FudgeDeserializer deserializer = new FudgeDeserializer(_fudgeContext);
+        if (!viewDefinition.equals(deserializer.fieldValueToObject(ViewDefinition.class, msg.getByName(VIEW_DEFINITION_FIELD)))) {
+          continue;
+        }
+        if (functions == null) {
+          functions = getFunctions(rules);
+        }
+        final CompiledViewDefinitionWithGraphsImpl compiledViewDefinition = decode(deserializer, msg, key, viewDefinition, compilationServices, functions, valuationTime, versionCorrection);
+        if (compiledViewDefinition == null) {
+          s_logger.info("Compilation in {} no longer matches the function repository", file);
+          continue;
+        }
+        return new Entry(compiledViewDefinition, file);
+      } catch (Exception e) {
+        s_logger.warn("Couldn't read compilation from " + file, e);
+      }
+    }
+    return null;
+  }
+
+  private static boolean isMatch(final FudgeMsg msg, final Key key, final String functionFingerprint, final Instant valuationTime) {
+    if (!key._viewDefinitionId.toString().equals(msg.getString(VIEW_DEFINITION_ID_FIELD))) {
+      return false;
+    }
+    final String portfolioId = msg.getString(PORTFOLIO_ID_FIELD);
+    if ((key._portfolioId != null) ? !key._portfolioId.toString().equals(portfolioId) : (portfolioId != null)) {
+      return false;
+    }
+    if (!key.getMarketDataSpecificationName().equals(msg.getString(MARKET_DATA_SPECIFICATION_FIELD))) {
+      return false;
+    }
+    if (!functionFingerprint.equals(msg.getString(FUNCTION_FINGERPRINT_FIELD))) {
+      return false;
+    }
+    final Long validFrom = msg.getLong(VALID_FROM_FIELD);
+    if ((validFrom != null) && (valuationTime.toEpochMillisLong() < validFrom)) {
+      return false;
+    }
+    final Long validTo = msg.getLong(VALID_TO_FIELD);
+    if ((validTo != null) && (valuationTime.toEpochMillisLong() > validTo)) {
+      return false;
+    }
+    return true;
+  }
+
+  private static Map<String, CompiledFunctionDefinition> getFunctions(final Collection<ResolutionRule> rules) {
+    final Map<String, CompiledFunctionDefinition> functions = new HashMap<String, CompiledFunctionDefinition>();
+    for (ResolutionRule rule : rules) {
+      final CompiledFunctionDefinition function = rule.getFunction().getFunction();
+      functions.put(function.getFunctionDefinition().getUniqueId(), function);
+    }
+    return functions;
+  }
+
+  private static CompiledViewDefinitionWithGraphsImpl decode(final FudgeDeserializer deserializer, final FudgeMsg msg, final Key key, final ViewDefinition viewDefinition,
+      final ViewCompilationServices compilationServices, final Map<String, CompiledFunctionDefinition> functions, final Instant valuationTime,
+      final VersionCorrection versionCorrection) {
+    final Map<String, DependencyGraph> graphs = new HashMap<String, DependencyGraph>();
+    for (FudgeField configurationField : msg.getAllByName(CONFIGURATION_FIELD)) {
+      final FudgeMsg configuration = (FudgeMsg) configurationField.getValue();
+      final DependencyGraph stored = deserializer.fieldValueToObject(DependencyGraph.class, configuration.getByName(GRAPH_FIELD));
+      final Map<ValueSpecification, Set<ValueRequirement>> terminalOutputs = new HashMap<ValueSpecification, Set<ValueRequirement>>();
+      for (FudgeField terminalOutputField : configuration.getAllByName(TERMINAL_OUTPUT_FIELD)) {
+        final FudgeMsg terminalOutput = (FudgeMsg) terminalOutputField.getValue();
+        final ValueSpecification specification = deserializer.fieldValueToObject(ValueSpecification.class, terminalOutput.getByName(SPECIFICATION_FIELD));
+        Set<ValueRequirement> requirements = terminalOutputs.get(specification);
+        if (requirements == null) {
+          requirements = new HashSet<ValueRequirement>();
+          terminalOutputs.put(specification, requirements);
+        }
+        requirements.add(deserializer.fieldValueToObject(ValueRequirement.class, terminalOutput.getByName(REQUIREMENT_FIELD)));
+      }
+      final Map<ValueSpecification, ValueRequirement> marketData = new HashMap<ValueSpecification, ValueRequirement>();
+      for (FudgeField marketDataField : configuration.getAllByName(MARKET_DATA_FIELD)) {
+        final FudgeMsg marketDataMsg = (FudgeMsg) marketDataField.getValue();
+        marketData.put(deserializer.fieldValueToObject(ValueSpecification.class, marketDataMsg.getByName(SPECIFICATION_FIELD)),
+            deserializer.fieldValueToObject(ValueRequirement.class, marketDataMsg.getByName(REQUIREMENT_FIELD)));
+      }
+      final DependencyGraph graph = rebind(stored, terminalOutputs, marketData, functions);
+      if (graph == null) {
+        return null;
+      }
+      graphs.put(graph.getCalculationConfigurationName(), graph);
+    }
+    Portfolio portfolio = null;
+    if (Boolean.TRUE.equals(msg.getBoolean(PORTFOLIO_RESOLVED_FIELD))) {
+      portfolio = PortfolioCompiler.getPortfolio(new ViewCompilationContext(viewDefinition, compilationServices, valuationTime), versionCorrection);
+      if (!portfolio.getUniqueId().equals(key._portfolioId)) {
+        return null;
+      }
+      PortfolioCompiler.cachePortfolioTargets(compilationServices.getComputationTargetResolver(), portfolio);
+    }
+    return new CompiledViewDefinitionWithGraphsImpl(viewDefinition, graphs, portfolio, key._functionInitId);
+  }
+
+  /**
+   * Creates a copy of a deserialized graph using the real functions in place of the stubs.
+   *
+   * @return the graph, or null if a function is missing
+   */
+  private static DependencyGraph rebind(final DependencyGraph stored, final Map<ValueSpecification, Set<ValueRequirement>> terminalOutputs,
+      final Map<ValueSpecification, ValueRequirement> marketData, final Map<String, CompiledFunctionDefinition> functions) {
+    final DependencyGraph graph = new DependencyGraph(stored.getCalculationConfigurationName());
+    final Map<DependencyNode, DependencyNode> rebound = new HashMap<DependencyNode, DependencyNode>();
+    for (DependencyNode node : stored.getExecutionOrder()) {
+      final String functionId = node.getFunction().getFunction().getFunctionDefinition().getUniqueId();
+      final String functionName = node.getFunction().getFunction().getFunctionDefinition().getShortName();
+      final CompiledFunctionDefinition function;
+      if (MarketDataSourcingFunction.UNIQUE_ID.equals(functionId)) {
+        if (node.getOutputValues().size() != 1) {
+          return null;
+        }
+        final ValueSpecification output = node.getOutputValues().iterator().next();
+        final ValueRequirement requirement = marketData.get(output);
+        if (requirement == null) {
+          return null;
+        }
+        final MarketDataSourcingFunction marketDataFunction = new MarketDataSourcingFunction(requirement);
+        if (!output.equals(marketDataFunction.getResult())) {
+          return null;
+        }
+        function = marketDataFunction;
+      } else {
+        function = functions.get(functionId);
+        if ((function == null) || !function.getFunctionDefinition().getShortName().equals(functionName)) {
+          return null;
+        }
+      }
+      final ParameterizedFunction parameterizedFunction = new ParameterizedFunction(function, node.getFunction().getParameters());
+      parameterizedFunction.setUniqueId(node.getFunction().getUniqueId());
+      final DependencyNode newNode = new DependencyNode(node.getComputationTarget());
+      newNode.setFunction(parameterizedFunction);
+      newNode.addOutputValues(node.getOutputValues());
+      for (ValueSpecification inputValue : node.getInputValues()) {
+        newNode.addInputValue(inputValue);
+      }
+      for (DependencyNode inputNode : node.getInputNodes()) {
+        newNode.addInputNode(rebound.get(inputNode));
+      }
+      graph.addDependencyNode(newNode);
+      rebound.put(node, newNode);
+    }
+    graph.addTerminalOutputs(terminalOutputs);
+    return graph;
+  }
+
+}
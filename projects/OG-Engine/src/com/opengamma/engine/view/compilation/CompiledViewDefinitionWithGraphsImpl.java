@@ -33,7 +33,7 @@ public class CompiledViewDefinitionWithGraphsImpl extends CompiledViewDefinition
   private final long _functionInitId;
 
   /**
-   * Constructs an instance.
+   * Constructs an instance. The dependency graphs are frozen.
    * 
    * @param viewDefinition  the view definition, not null
    * @param graphsByConfiguration  the dependency graphs by calculation configuration name, not null
@@ -53,6 +53,9 @@ public class CompiledViewDefinitionWithGraphsImpl extends CompiledViewDefinition
       Map<String, DependencyGraph> graphsByConfiguration,
       long functionInitId) {
     super(viewDefinition, portfolio, compiledCalculationConfigurations, validityRange.getFirst(), validityRange.getSecond());
+    for (DependencyGraph graph : graphsByConfiguration.values()) {
+      graph.freeze();
+    }
     _functionInitId = functionInitId;
     _graphsByConfiguration = Collections.unmodifiableMap(graphsByConfiguration);
   }
@@ -0,0 +1,375 @@
+/**
+ * Copyright (C) 2009 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.compilation;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+import javax.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.opengamma.core.position.Portfolio;
+import com.opengamma.core.position.PortfolioNode;
+import com.opengamma.core.position.Position;
+import com.opengamma.core.position.Trade;
+import com.opengamma.core.position.impl.PortfolioNodeTraverser;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyGraphBuilder;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ResultModelDefinition;
+import com.opengamma.engine.view.ResultOutputMode;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.monitor.OperationTimer;
+
+/**
+ * Applies changes to positions and trades in a portfolio to an existing compilation of a view definition. Only the
+ * parts of the dependency graphs for the changed positions and trades, and for the portfolio nodes that aggregate
+ * them, are rebuilt; the new nodes are spliced into the existing graphs, sharing any nodes (for example market data or
+ * curves) that are already present.
+ * <p>
+ * Changes to the structure of the portfolio, such as nodes being added or removed or positions moving between nodes,
+ * are not handled and require a full compilation.
+ */
+public final class PortfolioChangeCompiler {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(PortfolioChangeCompiler.class);
+
+  private PortfolioChangeCompiler() {
+  }
+
+  /**
+   * Gathers the targets in a portfolio which are affected by a set of changed objects, and the remaining structure of
+   * the portfolio which must be the same before and after the change for it to be applied incrementally.
+   */
+  private static final class AffectedTargets {
+
+    private final Collection<ObjectId> _changedObjects;
+    private final Map<UniqueId, Set<UniqueId>> _unchangedPositions = new HashMap<UniqueId, Set<UniqueId>>();
+    private final Set<ComputationTargetSpecification> _targets = new HashSet<ComputationTargetSpecification>();
+    private boolean _affected;
+
+    public AffectedTargets(final Collection<ObjectId> changedObjects, final Portfolio portfolio) {
+      _changedObjects = changedObjects;
+      _affected = isChanged(portfolio.getUniqueId());
+      visit(portfolio.getRootNode());
+    }
+
+    private boolean isChanged(final UniqueId identifier) {
+      return (identifier != null) && _changedObjects.contains(identifier.getObjectId());
+    }
+
+    private boolean isChanged(final Position position) {
+      if (isChanged(position.getUniqueId())) {
+        return true;
+      }
+      for (Trade trade : position.getTrades()) {
+        if (isChanged(trade.getUniqueId())) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private boolean visit(final PortfolioNode node) {
+      boolean affected = isChanged(node.getUniqueId());
+      final Set<UniqueId> unchangedPositions = new HashSet<UniqueId>();
+      for (Position position : node.getPositions()) {
+        if (isChanged(position)) {
+          affected = true;
+          _targets.add(new ComputationTargetSpecification(ComputationTargetType.POSITION, position.getUniqueId()));
+          for (Trade trade : position.getTrades()) {
+            _targets.add(new ComputationTargetSpecification(ComputationTargetType.TRADE, trade.getUniqueId()));
+          }
+        } else {
+          unchangedPositions.add(position.getUniqueId());
+        }
+      }
+      _unchangedPositions.put(node.getUniqueId(), unchangedPositions);
+      for (PortfolioNode child : node.getChildNodes()) {
+        affected |= visit(child);
+      }
+      if (affected) {
+        // The node aggregates a changed position so must be rebuilt
+        _targets.add(new ComputationTargetSpecification(ComputationTargetType.PORTFOLIO_NODE, node.getUniqueId()));
+        _affected = true;
+      }
+      return affected;
+    }
+
+    /**
+     * Tests whether any of the changed objects are part of the portfolio.
+     *
+     * @return true if the portfolio is affected by the changes
+     */
+    public boolean isAffected() {
+      return _affected;
+    }
+
+    /**
+     * Returns the portfolio node, position and trade targets affected by the changes.
+     *
+     * @return the affected targets, not null
+     */
+    public Set<ComputationTargetSpecification> getTargets() {
+      return _targets;
+    }
+
+    /**
+     * Returns the positions held by each portfolio node, excluding the changed ones.
+     *
+     * @return the unchanged positions keyed by portfolio node identifier, not null
+     */
+    public Map<UniqueId, Set<UniqueId>> getUnchangedPositions() {
+      return _unchangedPositions;
+    }
+
+  }
+
+  /**
+   * The partial compilation of a single calculation configuration, held until all configurations have been checked
+   * so that nothing is built if any of them can't be updated incrementally.
+   * <p>
+   * The existing graph, and its nodes, may still be in use by other view cycles so are never modified. The unchanged
+   * nodes are copied into a new graph and the rebuilt nodes spliced into that.
+   */
+  private static final class GraphUpdate {
+
+    private final DependencyGraph _graph;
+    private final Set<DependencyNode> _removedNodes;
+    private final DependencyGraph _addedNodes;
+
+    public GraphUpdate(final DependencyGraph graph, final Set<DependencyNode> removedNodes, final DependencyGraph addedNodes) {
+      _graph = graph;
+      _removedNodes = removedNodes;
+      _addedNodes = addedNodes;
+    }
+
+    public String getCalculationConfigurationName() {
+      return _graph.getCalculationConfigurationName();
+    }
+
+    private static DependencyNode copyNode(final DependencyNode node, final Map<DependencyNode, DependencyNode> copies) {
+      final DependencyNode newNode = new DependencyNode(node.getComputationTarget());
+      newNode.setFunction(node.getFunction());
+      newNode.addOutputValues(node.getOutputValues());
+      for (ValueSpecification inputValue : node.getInputValues()) {
+        newNode.addInputValue(inputValue);
+      }
+      for (DependencyNode inputNode : node.getInputNodes()) {
+        newNode.addInputNode(copies.get(inputNode));
+      }
+      return newNode;
+    }
+
+    public DependencyGraph apply() {
+      final DependencyGraph graph = new DependencyGraph(_graph.getCalculationConfigurationName());
+      final Map<DependencyNode, DependencyNode> copies = new HashMap<DependencyNode, DependencyNode>();
+      // The removed nodes include all of their dependents, so a retained node never has a removed input
+      for (DependencyNode node : _graph.getExecutionOrder()) {
+        if (!_removedNodes.contains(node)) {
+          final DependencyNode newNode = copyNode(node, copies);
+          graph.addDependencyNode(newNode);
+          copies.put(node, newNode);
+        }
+      }
+      final Map<ValueSpecification, Set<ValueRequirement>> terminalOutputs = new HashMap<ValueSpecification, Set<ValueRequirement>>();
+      for (Map.Entry<ValueSpecification, Set<ValueRequirement>> terminalOutput : _graph.getTerminalOutputs().entrySet()) {
+        if (!_removedNodes.contains(_graph.getNodeProducing(terminalOutput.getKey()))) {
+          terminalOutputs.put(terminalOutput.getKey(), terminalOutput.getValue());
+        }
+      }
+      graph.addTerminalOutputs(terminalOutputs);
+      if (_addedNodes != null) {
+        final Map<DependencyNode, DependencyNode> spliced = new HashMap<DependencyNode, DependencyNode>();
+        for (DependencyNode node : _addedNodes.getExecutionOrder()) {
+          final DependencyNode existing = graph.getNodeProducing(node.getOutputValues().iterator().next());
+          if (existing != null) {
+            spliced.put(node, existing);
+            continue;
+          }
+          final DependencyNode newNode = copyNode(node, spliced);
+          graph.addDependencyNode(newNode);
+          spliced.put(node, newNode);
+        }
+        graph.addTerminalOutputs(_addedNodes.getTerminalOutputs());
+      }
+      graph.removeUnnecessaryValues();
+      return graph;
+    }
+
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Updates a compiled view definition to reflect changes to positions and trades in its portfolio. The existing
+   * compilation is not modified; a new compiled view definition is returned which shares the dependency graphs of any
+   * unaffected calculation configurations and holds updated copies of the others.
+   *
+   * @param compiledViewDefinition  the existing compilation, not null
+   * @param changedObjects  the identifiers of the changed portfolios, portfolio nodes, positions or trades, not null
+   * @param compilationServices  the compilation services, not null
+   * @param valuationTime  the valuation time to compile for, not null
+   * @param versionCorrection  the version-correction at which to load the changed portfolio, not null
+   * @return the updated compilation, the original compilation if none of the changes affect it, or null if the
+   *         changes can't be applied incrementally and a full compilation is required
+   */
+  protected static CompiledViewDefinitionWithGraphsImpl execute(final CompiledViewDefinitionWithGraphsImpl compiledViewDefinition, final Collection<ObjectId> changedObjects,
+      final ViewCompilationServices compilationServices, final Instant valuationTime, final VersionCorrection versionCorrection) {
+    final Portfolio previousPortfolio = compiledViewDefinition.getPortfolio();
+    if (previousPortfolio == null) {
+      // No portfolio targets in the graphs
+      return compiledViewDefinition;
+    }
+    final AffectedTargets previous = new AffectedTargets(changedObjects, previousPortfolio);
+    if (!previous.isAffected()) {
+      s_logger.debug("Changes to {} do not affect portfolio {}", changedObjects, previousPortfolio.getUniqueId());
+      return compiledViewDefinition;
+    }
+    final ViewDefinition viewDefinition = compiledViewDefinition.getViewDefinition();
+    final OperationTimer timer = new OperationTimer(s_logger, "Incrementally compiling ViewDefinition: {}", viewDefinition.getName());
+    final ViewCompilationContext compilationContext = new ViewCompilationContext(viewDefinition, compilationServices, valuationTime);
+    final Portfolio portfolio = PortfolioCompiler.getPortfolio(compilationContext, versionCorrection);
+    final AffectedTargets current = new AffectedTargets(changedObjects, portfolio);
+    if (!previous.getUnchangedPositions().equals(current.getUnchangedPositions())) {
+      s_logger.info("Structure of portfolio {} has changed; full compilation required", portfolio.getUniqueId());
+      return null;
+    }
+    PortfolioCompiler.cachePortfolioTargets(compilationServices.getComputationTargetResolver(), portfolio);
+    final Collection<GraphUpdate> updates = new LinkedList<GraphUpdate>();
+    for (ViewCalculationConfiguration calcConfig : viewDefinition.getAllCalculationConfigurations()) {
+      final DependencyGraph graph = compiledViewDefinition.getDependencyGraph(calcConfig.getName());
+      if (graph == null) {
+        return null;
+      }
+      final Set<DependencyNode> removedNodes = getNodesToRemove(graph, previous.getTargets());
+      // Anything which consumed a value from a changed target, but isn't itself a portfolio target, must be rebuilt
+      final Set<ValueRequirement> requirements = new HashSet<ValueRequirement>();
+      for (DependencyNode node : removedNodes) {
+        for (ValueSpecification terminalOutput : node.getTerminalOutputValues()) {
+          final Set<ValueRequirement> terminalRequirements = graph.getTerminalOutputs().get(terminalOutput);
+          if ((terminalRequirements != null) && !previous.getTargets().contains(terminalOutput.getTargetSpecification())) {
+            requirements.addAll(terminalRequirements);
+          }
+        }
+      }
+      requirements.addAll(getPortfolioRequirements(calcConfig, portfolio, current.getTargets()));
+      DependencyGraph addedNodes = null;
+      if (!requirements.isEmpty()) {
+        final DependencyGraphBuilder builder = compilationContext.getBuilder(calcConfig.getName());
+        builder.addTarget(requirements);
+        addedNodes = builder.getDependencyGraph();
+        addedNodes.removeUnnecessaryValues();
+        if (!canSplice(graph, removedNodes, addedNodes)) {
+          s_logger.info("Rebuilt nodes for {} can't be spliced into existing graph; full compilation required", calcConfig.getName());
+          return null;
+        }
+      }
+      if (removedNodes.isEmpty() && (addedNodes == null)) {
+        continue;
+      }
+      s_logger.info("Replacing {} node(s) with {} in {}", new Object[] {removedNodes.size(), (addedNodes != null) ? addedNodes.getSize() : 0, calcConfig.getName()});
+      updates.add(new GraphUpdate(graph, removedNodes, addedNodes));
+    }
+    final Map<String, DependencyGraph> graphs = new HashMap<String, DependencyGraph>(compiledViewDefinition.getDependencyGraphsByConfiguration());
+    for (GraphUpdate update : updates) {
+      graphs.put(update.getCalculationConfigurationName(), update.apply());
+    }
+    timer.finished();
+    return new CompiledViewDefinitionWithGraphsImpl(viewDefinition, graphs, portfolio, compilationServices.getFunctionCompilationContext().getFunctionInitId());
+  }
+
+  /**
+   * Finds the nodes which operate on any of the targets, together with all of the nodes which depend on them.
+   */
+  private static Set<DependencyNode> getNodesToRemove(final DependencyGraph graph, final Set<ComputationTargetSpecification> targets) {
+    final Set<DependencyNode> nodes = new HashSet<DependencyNode>();
+    final LinkedList<DependencyNode> pending = new LinkedList<DependencyNode>();
+    for (ComputationTargetType type : new ComputationTargetType[] {ComputationTargetType.PORTFOLIO_NODE, ComputationTargetType.POSITION, ComputationTargetType.TRADE }) {
+      for (DependencyNode node : graph.getDependencyNodes(type)) {
+        if (targets.contains(node.getComputationTarget().toSpecification())) {
+          pending.add(node);
+        }
+      }
+    }
+    while (!pending.isEmpty()) {
+      final DependencyNode node = pending.removeFirst();
+      if (graph.containsNode(node) && nodes.add(node)) {
+        pending.addAll(node.getDependentNodes());
+      }
+    }
+    return nodes;
+  }
+
+  /**
+   * Produces the portfolio and specific requirements of a calculation configuration that apply to any of the targets.
+   */
+  private static Set<ValueRequirement> getPortfolioRequirements(final ViewCalculationConfiguration calcConfig, final Portfolio portfolio,
+      final Set<ComputationTargetSpecification> targets) {
+    final Set<ValueRequirement> requirements = new HashSet<ValueRequirement>();
+    if (!calcConfig.getAllPortfolioRequirements().isEmpty()) {
+      final PortfolioCompilerTraversalCallback traversalCallback = new PortfolioCompilerTraversalCallback(calcConfig);
+      PortfolioNodeTraverser.depthFirst(traversalCallback).traverse(portfolio.getRootNode());
+      for (ValueRequirement requirement : traversalCallback.getAllValueRequirements()) {
+        if (targets.contains(requirement.getTargetSpecification())) {
+          requirements.add(requirement);
+        }
+      }
+    }
+    final ResultModelDefinition resultModelDefinition = calcConfig.getViewDefinition().getResultModelDefinition();
+    for (ValueRequirement requirement : calcConfig.getSpecificRequirements()) {
+      if (targets.contains(requirement.getTargetSpecification())
+          && (resultModelDefinition.getOutputMode(requirement.getTargetSpecification().getType()) != ResultOutputMode.NONE)) {
+        requirements.add(requirement);
+      }
+    }
+    return requirements;
+  }
+
+  /**
+   * Tests whether each node of the rebuilt graph either produces values that no remaining node in the existing graph
+   * produces, or can be replaced by a single existing node which produces all of its values. A rebuilt node which
+   * needs a value that an existing node was not computing can't be spliced without invalidating that node.
+   */
+  private static boolean canSplice(final DependencyGraph graph, final Set<DependencyNode> removedNodes, final DependencyGraph addedNodes) {
+    for (DependencyNode node : addedNodes.getDependencyNodes()) {
+      DependencyNode existing = null;
+      boolean missing = false;
+      for (ValueSpecification output : node.getOutputValues()) {
+        DependencyNode producer = graph.getNodeProducing(output);
+        if ((producer != null) && removedNodes.contains(producer)) {
+          producer = null;
+        }
+        if (producer == null) {
+          if (existing != null) {
+            return false;
+          }
+          missing = true;
+        } else {
+          if (missing || ((existing != null) && (existing != producer))) {
+            return false;
+          }
+          existing = producer;
+        }
+      }
+    }
+    return true;
+  }
+
+}
@@ -77,9 +77,7 @@ public final class PortfolioCompiler {
       }
       
       // Cache PortfolioNode, Trade and Position entities
-      CachingComputationTargetResolver resolver = compilationContext.getServices().getComputationTargetResolver();
-      resolver.cachePortfolioNodeHierarchy(portfolio.getRootNode());
-      cacheTradesPositionsAndSecurities(resolver, portfolio.getRootNode());
+      cachePortfolioTargets(compilationContext.getServices().getComputationTargetResolver(), portfolio);
 
       // Add portfolio requirements to the dependency graph
       PortfolioCompilerTraversalCallback traversalCallback = new PortfolioCompilerTraversalCallback(calcConfig);
@@ -90,6 +88,17 @@ public final class PortfolioCompiler {
     return portfolio;
   }
 
+  /**
+   * Caches the portfolio nodes, positions, trades and securities of a resolved portfolio with the target resolver.
+   * 
+   * @param resolver  the target resolver, not null
+   * @param portfolio  the resolved portfolio, not null
+   */
+  /* package */static void cachePortfolioTargets(final CachingComputationTargetResolver resolver, final Portfolio portfolio) {
+    resolver.cachePortfolioNodeHierarchy(portfolio.getRootNode());
+    cacheTradesPositionsAndSecurities(resolver, portfolio.getRootNode());
+  }
+
   private static void cacheTradesPositionsAndSecurities(final CachingComputationTargetResolver resolver, final PortfolioNode node) {
     final Collection<Position> positions = node.getPositions();
     resolver.cachePositions(positions);
@@ -129,8 +138,9 @@ public final class PortfolioCompiler {
    * 
    * @param compilationContext  the compilation context containing the view being compiled, not null
    * @param versionCorrection  the version-correction at which the portfolio is required, not null
+   * @return the resolved portfolio, not null
    */
-  private static Portfolio getPortfolio(ViewCompilationContext compilationContext, VersionCorrection versionCorrection) {
+  /* package */static Portfolio getPortfolio(ViewCompilationContext compilationContext, VersionCorrection versionCorrection) {
     UniqueId portfolioId = compilationContext.getViewDefinition().getPortfolioId();
     if (portfolioId == null) {
       throw new OpenGammaRuntimeException("The view definition '" + compilationContext.getViewDefinition().getName() + "' contains required portfolio outputs, but it does not reference a portfolio.");
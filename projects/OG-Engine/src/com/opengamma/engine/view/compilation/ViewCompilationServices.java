@@ -35,6 +35,7 @@ public class ViewCompilationServices {
   private final CachingComputationTargetResolver _computationTargetResolver;
   // TODO: pass this into constructors
   private final DependencyGraphBuilderFactory _dependencyGraphBuilder = s_dependencyGraphBuilder;
+  private boolean _parallelCompilation;
   
   /**
    * Constructs an instance, without a position source or security source.
@@ -174,4 +175,21 @@ public class ViewCompilationServices {
     return _dependencyGraphBuilder;
   }
 
+  /**
+   * Gets whether the dependency graphs for each calculation configuration are built concurrently.
+   * @return true to build the graphs concurrently using the executor service, false to build them sequentially
+   */
+  public boolean isParallelCompilation() {
+    return _parallelCompilation;
+  }
+
+  /**
+   * Sets whether the dependency graphs for each calculation configuration are built concurrently using the executor
+   * service. The default is to build them sequentially.
+   * @param parallelCompilation true to build the graphs concurrently, false to build them sequentially
+   */
+  public void setParallelCompilation(final boolean parallelCompilation) {
+    _parallelCompilation = parallelCompilation;
+  }
+
 }
@@ -5,18 +5,25 @@
  */
 package com.opengamma.engine.view.compilation;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
 
 import javax.time.Instant;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.core.position.Portfolio;
 import com.opengamma.core.security.SecuritySource;
 import com.opengamma.engine.ComputationTargetType;
@@ -24,10 +31,12 @@ import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyGraphBuilder;
 import com.opengamma.engine.depgraph.DependencyNode;
 import com.opengamma.engine.depgraph.DependencyNodeFormatter;
+import com.opengamma.engine.function.resolver.CompiledFunctionResolver;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.ViewCalculationConfiguration;
 import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.id.ObjectId;
 import com.opengamma.id.VersionCorrection;
 import com.opengamma.util.ArgumentChecker;
 import com.opengamma.util.monitor.OperationTimer;
@@ -71,7 +80,7 @@ public final class ViewDefinitionCompiler {
     t += System.nanoTime();
     s_logger.debug("Added portfolio requirements after {}ms", (double) t / 1e6);
     t -= System.nanoTime();
-    Map<String, DependencyGraph> graphsByConfiguration = processDependencyGraphs(viewCompilationContext);
+    Map<String, DependencyGraph> graphsByConfiguration = compilationServices.isParallelCompilation() ? processDependencyGraphsParallel(viewCompilationContext) : processDependencyGraphs(viewCompilationContext);
     t += System.nanoTime();
     s_logger.debug("Processed dependency graphs after {}ms", (double) t / 1e6);
     timer.finished();
@@ -89,24 +98,96 @@ public final class ViewDefinitionCompiler {
     return new CompiledViewDefinitionWithGraphsImpl(viewDefinition, graphsByConfiguration, portfolio, compilationServices.getFunctionCompilationContext().getFunctionInitId());
   }
 
+  /**
+   * Updates an existing compilation of a view definition to reflect changes to positions or trades in its portfolio,
+   * rebuilding only the affected parts of the dependency graphs. The existing compilation is not modified.
+   * 
+   * @param compiledViewDefinition  the existing compilation, not null
+   * @param changedObjects  the identifiers of the changed portfolio objects, not null
+   * @param compilationServices  the compilation services, not null
+   * @param valuationTime  the valuation time to compile for, not null
+   * @param versionCorrection  the version-correction at which to load the portfolio, not null
+   * @return the updated compilation, the original if it is not affected by the changes, or null if a full compilation
+   *         is required
+   */
+  public static CompiledViewDefinitionWithGraphsImpl compileChanges(CompiledViewDefinitionWithGraphsImpl compiledViewDefinition, Collection<ObjectId> changedObjects,
+      ViewCompilationServices compilationServices, Instant valuationTime, VersionCorrection versionCorrection) {
+    ArgumentChecker.notNull(compiledViewDefinition, "compiledViewDefinition");
+    ArgumentChecker.notNull(changedObjects, "changedObjects");
+    ArgumentChecker.notNull(compilationServices, "compilationServices");
+    return PortfolioChangeCompiler.execute(compiledViewDefinition, changedObjects, compilationServices, valuationTime, versionCorrection);
+  }
+
+  private static DependencyGraph buildDependencyGraph(final DependencyGraphBuilder builder, final Set<ValueRequirement> requirements) {
+    final long t = System.nanoTime();
+    builder.addTarget(requirements);
+    final DependencyGraph graph = builder.getDependencyGraph();
+    graph.removeUnnecessaryValues();
+    s_logger.info("Built dependency graph for {} in {}ms", builder.getCalculationConfigurationName(), (double) (System.nanoTime() - t) / 1e6);
+    return graph;
+  }
+
   private static Map<String, DependencyGraph> processDependencyGraphs(ViewCompilationContext context) {
-    // TODO: support one of two modes; sequential build of the graphs (below) or parallel build using the executor service from the compilation services
-    // TODO: perhaps a heuristic to determine which is better, or a global setting
     final Map<String, DependencyGraph> result = new HashMap<String, DependencyGraph>();
     final Iterator<Pair<DependencyGraphBuilder, Set<ValueRequirement>>> itr = context.getBuilders().iterator();
     while (itr.hasNext()) {
       final Pair<DependencyGraphBuilder, Set<ValueRequirement>> entry = itr.next();
       final DependencyGraphBuilder builder = entry.getFirst();
-      builder.addTarget(entry.getSecond());
-      final DependencyGraph graph = builder.getDependencyGraph();
-      graph.removeUnnecessaryValues();
-      result.put(builder.getCalculationConfigurationName(), graph);
+      result.put(builder.getCalculationConfigurationName(), buildDependencyGraph(builder, entry.getSecond()));
       // TODO: do we want to do anything with the ValueRequirement to resolved ValueSpecification data?
       itr.remove();
     }
     return result;
   }
 
+  /**
+   * Builds the graphs for each calculation configuration concurrently. Each configuration's builder already holds the
+   * {@link CompiledFunctionResolver} created for it by the {@link ViewCompilationContext}; the resolvers support
+   * concurrent resolution so nothing further is shared or copied. One configuration is built on the calling thread so
+   * that compilation can't stall if the executor is saturated.
+   * 
+   * @param context the compilation context, not null
+   * @return the graphs keyed by calculation configuration name
+   */
+  private static Map<String, DependencyGraph> processDependencyGraphsParallel(ViewCompilationContext context) {
+    final Map<String, DependencyGraph> result = new HashMap<String, DependencyGraph>();
+    final ExecutorCompletionService<DependencyGraph> completionService = new ExecutorCompletionService<DependencyGraph>(context.getServices().getExecutorService());
+    final List<Future<DependencyGraph>> futures = new ArrayList<Future<DependencyGraph>>();
+    Pair<DependencyGraphBuilder, Set<ValueRequirement>> local = null;
+    for (final Pair<DependencyGraphBuilder, Set<ValueRequirement>> entry : context.getBuilders()) {
+      if (local == null) {
+        local = entry;
+        continue;
+      }
+      futures.add(completionService.submit(new Callable<DependencyGraph>() {
+        @Override
+        public DependencyGraph call() {
+          return buildDependencyGraph(entry.getFirst(), entry.getSecond());
+        }
+      }));
+    }
+    try {
+      if (local != null) {
+        result.put(local.getFirst().getCalculationConfigurationName(), buildDependencyGraph(local.getFirst(), local.getSecond()));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        final DependencyGraph graph = completionService.take().get();
+        result.put(graph.getCalculationConfigurationName(), graph);
+      }
+    } catch (InterruptedException e) {
+      Thread.interrupted();
+      throw new OpenGammaRuntimeException("Interrupted while building dependency graphs", e);
+    } catch (ExecutionException e) {
+      throw new OpenGammaRuntimeException("Error building dependency graph", e.getCause());
+    } finally {
+      for (Future<DependencyGraph> future : futures) {
+        future.cancel(true);
+      }
+    }
+    context.getBuilders().clear();
+    return result;
+  }
+
   private static void outputDependencyGraphs(Map<String, DependencyGraph> graphsByConfiguration) {
     StringBuilder sb = new StringBuilder();
     for (Map.Entry<String, DependencyGraph> entry : graphsByConfiguration.entrySet()) {
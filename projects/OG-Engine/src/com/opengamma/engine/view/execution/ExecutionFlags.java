@@ -57,6 +57,26 @@ public final class ExecutionFlags {
     return this;
   }
   
+  /**
+   * Adds {@link ViewExecutionFlags#PARTIAL_DELTA_CYCLES}.
+   * 
+   * @return this
+   */
+  public ExecutionFlags partialDeltaCycles() {
+    _flags.add(ViewExecutionFlags.PARTIAL_DELTA_CYCLES);
+    return this;
+  }
+  
+  /**
+   * Adds {@link ViewExecutionFlags#COLUMNAR_RESULTS}.
+   * 
+   * @return this
+   */
+  public ExecutionFlags columnarResults() {
+    _flags.add(ViewExecutionFlags.COLUMNAR_RESULTS);
+    return this;
+  }
+  
   /**
    * Adds {@link ViewExecutionFlags#RUN_AS_FAST_AS_POSSIBLE}.
    * 
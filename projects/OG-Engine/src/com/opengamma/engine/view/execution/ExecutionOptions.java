@@ -24,6 +24,7 @@ public class ExecutionOptions implements ViewExecutionOptions {
   private final ViewCycleExecutionSequence _executionSequence;
   private final EnumSet<ViewExecutionFlags> _flags;
   private final Integer _maxSuccessiveDeltaCycles;
+  private final Integer _maxConcurrentCycles;
   private final ViewCycleExecutionOptions _defaultExecutionOptions;
   private final VersionCorrection _versionCorrection;
 
@@ -207,13 +208,31 @@ public class ExecutionOptions implements ViewExecutionOptions {
    */
   public ExecutionOptions(ViewCycleExecutionSequence executionSequence, EnumSet<ViewExecutionFlags> flags,
       Integer maxSuccessiveDeltaCycles, ViewCycleExecutionOptions defaultExecutionOptions, VersionCorrection versionCorrection) {
+    this(executionSequence, flags, maxSuccessiveDeltaCycles, defaultExecutionOptions, versionCorrection, null);
+  }
+
+  /**
+   * 
+   * @param executionSequence  the execution sequence, not null
+   * @param flags  the execution flags, not null
+   * @param maxSuccessiveDeltaCycles  the maximum cycles, may be null
+   * @param defaultExecutionOptions  the default view cycle execution options, may be null
+   * @param versionCorrection  the version-correction instants, not null
+   * @param maxConcurrentCycles  the maximum number of cycles to execute at the same time, null for one at a time
+   */
+  public ExecutionOptions(ViewCycleExecutionSequence executionSequence, EnumSet<ViewExecutionFlags> flags,
+      Integer maxSuccessiveDeltaCycles, ViewCycleExecutionOptions defaultExecutionOptions, VersionCorrection versionCorrection, Integer maxConcurrentCycles) {
     ArgumentChecker.notNull(executionSequence, "executionSequence");
     ArgumentChecker.notNull(flags, "flags");
     ArgumentChecker.notNull(versionCorrection, "versionCorrection");
+    if (maxConcurrentCycles != null) {
+      ArgumentChecker.notNegativeOrZero(maxConcurrentCycles, "maxConcurrentCycles");
+    }
     
     _executionSequence = executionSequence;
     _flags = flags;
     _maxSuccessiveDeltaCycles = maxSuccessiveDeltaCycles;
+    _maxConcurrentCycles = maxConcurrentCycles;
     _defaultExecutionOptions = defaultExecutionOptions;
     _versionCorrection = versionCorrection;
   }
@@ -229,6 +248,11 @@ public class ExecutionOptions implements ViewExecutionOptions {
     return _maxSuccessiveDeltaCycles;
   }
 
+  @Override
+  public Integer getMaxConcurrentCycles() {
+    return _maxConcurrentCycles;
+  }
+
   @Override
   public ViewCycleExecutionOptions getDefaultExecutionOptions() {
     return _defaultExecutionOptions;
@@ -279,6 +303,13 @@ public class ExecutionOptions implements ViewExecutionOptions {
     } else if (!_versionCorrection.equals(other._versionCorrection)) {
       return false;
     }
+    if (_maxConcurrentCycles == null) {
+      if (other._maxConcurrentCycles != null) {
+        return false;
+      }
+    } else if (!_maxConcurrentCycles.equals(other._maxConcurrentCycles)) {
+      return false;
+    }
     return true;
   }
 
@@ -291,13 +322,14 @@ public class ExecutionOptions implements ViewExecutionOptions {
     result = prime * result + ((_defaultExecutionOptions == null) ? 0 : _defaultExecutionOptions.hashCode());
     result = prime * result + ((_maxSuccessiveDeltaCycles == null) ? 0 : _maxSuccessiveDeltaCycles.hashCode());
     result = prime * result + _versionCorrection.hashCode();
+    result = prime * result + ((_maxConcurrentCycles == null) ? 0 : _maxConcurrentCycles.hashCode());
     return result;
   }
 
   @Override
   public String toString() {
     return "ExecutionOptions [executionSequence=" + _executionSequence + ", flags=" + _flags + ", maxSuccessiveDeltaCycles=" + _maxSuccessiveDeltaCycles + ", defaultExecutionOptions=" +
-        _defaultExecutionOptions + ", versionCorrection=" + _versionCorrection + "]";
+        _defaultExecutionOptions + ", versionCorrection=" + _versionCorrection + ", maxConcurrentCycles=" + _maxConcurrentCycles + "]";
   }
 
 }
@@ -5,6 +5,7 @@
  */
 package com.opengamma.engine.view.execution;
 
+import com.opengamma.engine.view.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.ViewDefinition;
 import com.opengamma.util.PublicAPI;
 
@@ -31,6 +32,22 @@ public enum ViewExecutionFlags {
    */
   TRIGGER_CYCLE_ON_TIME_ELAPSED,
   
+  /**
+   * Indicates that a delta cycle should only execute the nodes that depend on the market data reported as changed
+   * since the previous cycle, rather than comparing every market data value with the previous cycle. Everything else
+   * is taken from the previous cycle and the cycle's result fragments only contain the recalculated values. A cycle
+   * falls back to the normal delta calculation whenever the changes are not known, for example after the view
+   * definition has been recompiled.
+   */
+  PARTIAL_DELTA_CYCLES,
+
+  /**
+   * Indicates that each cycle's full result should be held as a {@link ColumnarViewComputationResultModel}, which
+   * keeps double values in primitive arrays and allows the delta between successive results to be calculated a column
+   * at a time.
+   */
+  COLUMNAR_RESULTS,
+
   /**
    * Indicates that the execution sequence should proceed as fast as possible, ignoring any minimum elapsed time
    * between cycles specified in the view definition, and possibly executing cycles concurrently.
@@ -34,6 +34,17 @@ public interface ViewExecutionOptions {
    * @return the maximum number of delta cycles following a full computation cycle, null for no limit
    */
   Integer getMaxSuccessiveDeltaCycles();
+
+  /**
+   * Gets the maximum number of cycles from the execution sequence that may be executing at the same time. This is
+   * intended for finite sequences, such as a historical backfill over a list of valuation dates, where each cycle is
+   * independent of the previous one. Results are still delivered in sequence order. It is only honoured for an
+   * {@link ArbitraryViewCycleExecutionSequence} with {@link ViewExecutionFlags#RUN_AS_FAST_AS_POSSIBLE} set; any other
+   * sequence executes one cycle at a time.
+   * 
+   * @return the maximum number of concurrent cycles, null to execute one cycle at a time
+   */
+  Integer getMaxConcurrentCycles();
     
   /**
    * Gets the default execution options.
@@ -0,0 +1,181 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.time.Instant;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.MapComputationTargetResolver;
+import com.opengamma.engine.depgraph.AbstractDependencyGraphBuilderTest.TestFunction;
+import com.opengamma.engine.function.CachingFunctionRepositoryCompiler;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.function.FunctionInputs;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.function.resolver.DefaultFunctionResolver;
+import com.opengamma.engine.marketdata.availability.FixedMarketDataAvailabilityProvider;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Builds graphs with several threads where the requirements on a shared target are recursive, so that resolve tasks
+ * hit recursion constraints and fallback tasks are created and discarded while other threads are looking them up.
+ */
+@Test
+public class DepGraphConcurrencyTest {
+
+  private static final int TARGETS = 500;
+  private static final int RUNS = 20;
+  private static final int ADDITIONAL_THREADS = 4;
+
+  private static final String VALUE = "Value";
+  private static final String X = "X";
+  private static final String Y = "Y";
+  private static final String SPOT = "Spot";
+
+  private final ComputationTarget _shared = new ComputationTarget(UniqueId.of("Test", "Shared"));
+  private final Set<ComputationTarget> _targets = new HashSet<ComputationTarget>();
+  private final Set<ValueRequirement> _requirements = new HashSet<ValueRequirement>();
+  private final FixedMarketDataAvailabilityProvider _marketData = new FixedMarketDataAvailabilityProvider();
+  private final InMemoryFunctionRepository _functions = new InMemoryFunctionRepository();
+
+  private final class SharedFunction extends TestFunction {
+
+    private final String _name;
+    private final String _output;
+    private final ValueRequirement _input;
+
+    public SharedFunction(final String name, final String output, final ValueRequirement input) {
+      _name = name;
+      _output = output;
+      _input = input;
+    }
+
+    @Override
+    public String getShortName() {
+      return _name;
+    }
+
+    @Override
+    public Set<ValueRequirement> getRequirements(final FunctionCompilationContext context, final ComputationTarget target, final ValueRequirement desiredValue) {
+      return Collections.singleton(_input);
+    }
+
+    @Override
+    public Set<ValueSpecification> getResults(final FunctionCompilationContext context, final ComputationTarget target) {
+      if (_shared.equals(target)) {
+        return Collections.singleton(new ValueSpecification(_output, target.toSpecification(), createValueProperties().get()));
+      } else {
+        return Collections.emptySet();
+      }
+    }
+
+    @Override
+    public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target,
+        final Set<ValueRequirement> desiredValues) {
+      return null;
+    }
+
+  }
+
+  public DepGraphConcurrencyTest() {
+    final ValueRequirement x = new ValueRequirement(X, _shared.toSpecification());
+    final ValueRequirement y = new ValueRequirement(Y, _shared.toSpecification());
+    final ValueRequirement spot = new ValueRequirement(SPOT, _shared.toSpecification());
+    _marketData.addAvailableRequirement(spot);
+    for (int i = 0; i < TARGETS; i++) {
+      final ComputationTarget target = new ComputationTarget(UniqueId.of("Test", Integer.toString(i)));
+      _targets.add(target);
+      _requirements.add(new ValueRequirement(VALUE, target.toSpecification()));
+    }
+    // X can be produced from Y or from the market data, and Y only from X. Resolving Y therefore explores X with a
+    // recursion constraint which will need a fallback task when X is requested by anything else.
+    _functions.addFunction(new SharedFunction("YToX", X, y));
+    _functions.addFunction(new SharedFunction("SpotToX", X, spot));
+    _functions.addFunction(new SharedFunction("XToY", Y, x));
+    _functions.addFunction(new TestFunction() {
+
+      @Override
+      public String getShortName() {
+        return "XYToValue";
+      }
+
+      @Override
+      public Set<ValueRequirement> getRequirements(final FunctionCompilationContext context, final ComputationTarget target, final ValueRequirement desiredValue) {
+        final Set<ValueRequirement> requirements = new HashSet<ValueRequirement>();
+        // Alternate the order so that threads reach the shared requirements from both directions
+        if ((target.getUniqueId().getValue().hashCode() & 1) == 0) {
+          requirements.add(x);
+          requirements.add(y);
+        } else {
+          requirements.add(y);
+          requirements.add(x);
+        }
+        return requirements;
+      }
+
+      @Override
+      public Set<ValueSpecification> getResults(final FunctionCompilationContext context, final ComputationTarget target) {
+        if (_shared.equals(target)) {
+          return Collections.emptySet();
+        } else {
+          return Collections.singleton(new ValueSpecification(VALUE, target.toSpecification(), createValueProperties().get()));
+        }
+      }
+
+      @Override
+      public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target,
+          final Set<ValueRequirement> desiredValues) {
+        return null;
+      }
+
+    });
+  }
+
+  private DependencyGraphBuilder createBuilder() {
+    final DependencyGraphBuilder builder = new DependencyGraphBuilder();
+    builder.setMarketDataAvailabilityProvider(_marketData);
+    final FunctionCompilationContext context = new FunctionCompilationContext();
+    builder.setCompilationContext(context);
+    final CompiledFunctionService compilationService = new CompiledFunctionService(_functions, new CachingFunctionRepositoryCompiler(), context);
+    compilationService.initialize();
+    builder.setFunctionResolver(new DefaultFunctionResolver(compilationService).compile(Instant.now()));
+    final MapComputationTargetResolver targetResolver = new MapComputationTargetResolver();
+    targetResolver.addTarget(_shared);
+    for (ComputationTarget target : _targets) {
+      targetResolver.addTarget(target);
+    }
+    builder.setTargetResolver(targetResolver);
+    builder.setCalculationConfigurationName("Default");
+    builder.setMaxAdditionalThreads(ADDITIONAL_THREADS);
+    return builder;
+  }
+
+  public void testRecursiveSharedRequirements() {
+    for (int i = 0; i < RUNS; i++) {
+      final DependencyGraphBuilder builder = createBuilder();
+      builder.addTarget(_requirements);
+      final DependencyGraph graph = builder.getDependencyGraph();
+      assertTrue(builder.getExceptions().isEmpty());
+      assertEquals(TARGETS, builder.getValueRequirementMapping().size());
+      // A node for every target, plus X from the market data, the market data node, and Y
+      assertEquals(TARGETS + 3, graph.getSize());
+    }
+  }
+
+}
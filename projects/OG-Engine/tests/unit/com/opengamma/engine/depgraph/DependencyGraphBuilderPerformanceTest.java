@@ -0,0 +1,167 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Sets;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.MapComputationTargetResolver;
+import com.opengamma.engine.depgraph.AbstractDependencyGraphBuilderTest.TestFunction;
+import com.opengamma.engine.function.CachingFunctionRepositoryCompiler;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.function.FunctionInputs;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.function.resolver.DefaultFunctionResolver;
+import com.opengamma.engine.marketdata.availability.FixedMarketDataAvailabilityProvider;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Measures the throughput of the dependency graph builder against the number of threads it is allowed to use. Every
+ * target requires a value from a single shared target so that the builder threads contend on the same resolution
+ * state, as they would when many positions depend on the same curve.
+ */
+@Test(enabled = false)
+public class DependencyGraphBuilderPerformanceTest {
+
+  private static final Logger s_logger = LoggerFactory.getLogger(DependencyGraphBuilderPerformanceTest.class);
+
+  private static final int TARGETS = 5000;
+  private static final int WARMUP_RUNS = 2;
+  private static final int TIMED_RUNS = 5;
+
+  private static final String VALUE = "Value";
+  private static final String INTERMEDIATE = "Intermediate";
+  private static final String QUOTE = "Quote";
+  private static final String SPOT = "Spot";
+
+  private final ComputationTarget _shared = new ComputationTarget(UniqueId.of("Test", "Shared"));
+  private final Set<ComputationTarget> _targets = new HashSet<ComputationTarget>();
+  private final Set<ValueRequirement> _requirements = new HashSet<ValueRequirement>();
+  private final FixedMarketDataAvailabilityProvider _marketData = new FixedMarketDataAvailabilityProvider();
+  private final InMemoryFunctionRepository _functions = new InMemoryFunctionRepository();
+
+  public DependencyGraphBuilderPerformanceTest() {
+    _marketData.addAvailableRequirement(new ValueRequirement(SPOT, _shared.toSpecification()));
+    for (int i = 0; i < TARGETS; i++) {
+      final ComputationTarget target = new ComputationTarget(UniqueId.of("Test", Integer.toString(i)));
+      _targets.add(target);
+      _requirements.add(new ValueRequirement(VALUE, target.toSpecification()));
+      _marketData.addAvailableRequirement(new ValueRequirement(QUOTE, target.toSpecification()));
+    }
+    _functions.addFunction(new TestFunction() {
+
+      @Override
+      public String getShortName() {
+        return "IntermediateToValue";
+      }
+
+      @Override
+      public Set<ValueRequirement> getRequirements(final FunctionCompilationContext context, final ComputationTarget target, final ValueRequirement desiredValue) {
+        return Sets.newHashSet(new ValueRequirement(INTERMEDIATE, target.toSpecification()), new ValueRequirement(SPOT, _shared.toSpecification()));
+      }
+
+      @Override
+      public Set<ValueSpecification> getResults(final FunctionCompilationContext context, final ComputationTarget target) {
+        return Sets.newHashSet(new ValueSpecification(VALUE, target.toSpecification(), createValueProperties().get()));
+      }
+
+      @Override
+      public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target,
+          final Set<ValueRequirement> desiredValues) {
+        return null;
+      }
+
+    });
+    _functions.addFunction(new TestFunction() {
+
+      @Override
+      public String getShortName() {
+        return "QuoteToIntermediate";
+      }
+
+      @Override
+      public Set<ValueRequirement> getRequirements(final FunctionCompilationContext context, final ComputationTarget target, final ValueRequirement desiredValue) {
+        return Sets.newHashSet(new ValueRequirement(QUOTE, target.toSpecification()), new ValueRequirement(SPOT, _shared.toSpecification()));
+      }
+
+      @Override
+      public Set<ValueSpecification> getResults(final FunctionCompilationContext context, final ComputationTarget target) {
+        return Sets.newHashSet(new ValueSpecification(INTERMEDIATE, target.toSpecification(), createValueProperties().get()));
+      }
+
+      @Override
+      public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target,
+          final Set<ValueRequirement> desiredValues) {
+        return null;
+      }
+
+    });
+  }
+
+  private DependencyGraphBuilder createBuilder(final int additionalThreads) {
+    final DependencyGraphBuilder builder = new DependencyGraphBuilder();
+    builder.setMarketDataAvailabilityProvider(_marketData);
+    final FunctionCompilationContext context = new FunctionCompilationContext();
+    builder.setCompilationContext(context);
+    final CompiledFunctionService compilationService = new CompiledFunctionService(_functions, new CachingFunctionRepositoryCompiler(), context);
+    compilationService.initialize();
+    builder.setFunctionResolver(new DefaultFunctionResolver(compilationService).compile(Instant.now()));
+    final MapComputationTargetResolver targetResolver = new MapComputationTargetResolver();
+    targetResolver.addTarget(_shared);
+    for (ComputationTarget target : _targets) {
+      targetResolver.addTarget(target);
+    }
+    builder.setTargetResolver(targetResolver);
+    builder.setCalculationConfigurationName("Default");
+    builder.setMaxAdditionalThreads(additionalThreads);
+    return builder;
+  }
+
+  private long buildGraph(final int additionalThreads) {
+    final DependencyGraphBuilder builder = createBuilder(additionalThreads);
+    final long start = System.nanoTime();
+    builder.addTarget(_requirements);
+    final DependencyGraph graph = builder.getDependencyGraph();
+    final long time = System.nanoTime() - start;
+    // A node for each of the two functions on every target, plus the market data nodes
+    assertEquals(TARGETS * 3 + 1, graph.getSize());
+    return time;
+  }
+
+  public void testThroughput() {
+    final int maxThreads = Runtime.getRuntime().availableProcessors() * 2;
+    for (int threads = 0; threads <= maxThreads; threads = (threads == 0) ? 1 : threads * 2) {
+      for (int i = 0; i < WARMUP_RUNS; i++) {
+        buildGraph(threads);
+      }
+      long best = Long.MAX_VALUE;
+      long total = 0;
+      for (int i = 0; i < TIMED_RUNS; i++) {
+        final long time = buildGraph(threads);
+        best = Math.min(best, time);
+        total += time;
+      }
+      s_logger.info("{} additional threads: best {}ms, mean {}ms, {} targets/s", new Object[] {threads, best / 1000000, total / TIMED_RUNS / 1000000,
+          (TARGETS * 1000000000L) / best });
+    }
+  }
+
+}
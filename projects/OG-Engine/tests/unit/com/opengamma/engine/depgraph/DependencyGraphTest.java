@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.function.MarketDataSourcingFunction;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Test DependencyGraph.
+ */
+@Test
+public class DependencyGraphTest {
+
+  private DependencyNode createNode(final String name, final DependencyNode... inputNodes) {
+    final ComputationTarget target = new ComputationTarget(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", name));
+    final MarketDataSourcingFunction function = new MarketDataSourcingFunction(new ValueRequirement("Value", target.toSpecification()));
+    final DependencyNode node = new DependencyNode(target);
+    node.setFunction(function);
+    node.addOutputValue(function.getMarketDataRequirement().getSecond());
+    for (DependencyNode inputNode : inputNodes) {
+      node.addInputNode(inputNode);
+      node.addInputValue(inputNode.getOutputValues().iterator().next());
+    }
+    return node;
+  }
+
+  private static ValueSpecification getOutput(final DependencyNode node) {
+    return node.getOutputValues().iterator().next();
+  }
+
+  public void testRemoveDependencyNodes() {
+    // 0 and 2 consume 3; 0 also consumes 1
+    final DependencyNode node3 = createNode("3");
+    final DependencyNode node1 = createNode("1");
+    final DependencyNode node2 = createNode("2", node3);
+    final DependencyNode node0 = createNode("0", node1, node3);
+    final DependencyGraph graph = new DependencyGraph("Default");
+    graph.addDependencyNode(node3);
+    graph.addDependencyNode(node1);
+    graph.addDependencyNode(node2);
+    graph.addDependencyNode(node0);
+    final ValueSpecification output0 = getOutput(node0);
+    final ValueSpecification output2 = getOutput(node2);
+    graph.addTerminalOutput(new ValueRequirement("Value", output0.getTargetSpecification()), output0);
+    graph.addTerminalOutput(new ValueRequirement("Value", output2.getTargetSpecification()), output2);
+    assertEquals(2, graph.getRootNodes().size());
+
+    graph.removeDependencyNodes(Collections.singleton(node0));
+    assertEquals(3, graph.getSize());
+    assertFalse(graph.containsNode(node0));
+    assertNull(graph.getNodeProducing(output0));
+    assertEquals(Collections.singleton(output2), graph.getTerminalOutputs().keySet());
+    assertEquals(Collections.singleton(node2), node3.getDependentNodes());
+    assertTrue(node1.getDependentNodes().isEmpty());
+    assertTrue(graph.isRootNode(node1));
+    assertTrue(graph.isRootNode(node2));
+
+    // Node 1 is no longer needed by anything
+    graph.removeUnnecessaryValues();
+    assertEquals(2, graph.getSize());
+    assertFalse(graph.containsNode(node1));
+
+    graph.removeDependencyNodes(Arrays.asList(node2, node3));
+    assertEquals(0, graph.getSize());
+    assertTrue(graph.getRootNodes().isEmpty());
+    assertTrue(graph.getTerminalOutputs().isEmpty());
+  }
+
+  public void testFreeze() {
+    // 0 and 2 consume 3; 0 also consumes 1
+    final DependencyNode node3 = createNode("3");
+    final DependencyNode node1 = createNode("1");
+    final DependencyNode node2 = createNode("2", node3);
+    final DependencyNode node0 = createNode("0", node1, node3);
+    final DependencyGraph graph = new DependencyGraph("Default");
+    graph.addDependencyNode(node0);
+    graph.addDependencyNode(node1);
+    graph.addDependencyNode(node2);
+    graph.addDependencyNode(node3);
+    final ValueSpecification output0 = getOutput(node0);
+    graph.addTerminalOutput(new ValueRequirement("Value", output0.getTargetSpecification()), output0);
+    assertFalse(graph.isFrozen());
+    graph.freeze();
+    assertTrue(graph.isFrozen());
+    assertEquals(4, graph.getSize());
+    assertEquals(2, graph.getRootNodes().size());
+    assertSame(node0, graph.getNodeProducing(output0));
+    final List<DependencyNode> order = graph.getExecutionOrder();
+    assertSame(order, graph.getExecutionOrder());
+    assertTrue(order.indexOf(node3) < order.indexOf(node2));
+    assertTrue(order.indexOf(node3) < order.indexOf(node0));
+    assertTrue(order.indexOf(node1) < order.indexOf(node0));
+    final int index0 = graph.getNodeIndex(node0);
+    assertSame(node0, graph.getNode(index0));
+    assertEquals(2, graph.getInputNodeIndices(index0).length);
+    assertEquals(0, graph.getDependentNodeIndices(index0).length);
+    assertEquals(2, graph.getDependentNodeIndices(graph.getNodeIndex(node3)).length);
+    // Sub-graphs of a frozen graph are frozen, with edges restricted to the sub-graph
+    final DependencyGraph subGraph = graph.subGraph(Arrays.asList(node0, node3));
+    assertTrue(subGraph.isFrozen());
+    assertEquals(Arrays.asList(node3, node0), subGraph.getExecutionOrder());
+    assertEquals(1, subGraph.getInputNodeIndices(1).length);
+    assertEquals(Collections.singleton(node0), subGraph.getRootNodes());
+    assertEquals(Collections.singleton(output0), subGraph.getTerminalOutputSpecifications());
+    assertEquals(-1, subGraph.getNodeIndex(node1));
+    graph.thaw();
+    assertFalse(graph.isFrozen());
+    graph.removeDependencyNodes(Collections.singleton(node0));
+    assertEquals(3, graph.getSize());
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testModifyFrozen() {
+    final DependencyGraph graph = new DependencyGraph("Default");
+    graph.addDependencyNode(createNode("0"));
+    graph.freeze();
+    graph.addDependencyNode(createNode("1"));
+  }
+
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.depgraph;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.function.ParameterizedFunction;
+import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Tests the {@link ResolutionFailureAggregator} class.
+ */
+@Test
+public class ResolutionFailureAggregatorTest {
+
+  private static final class CountingVisitor extends ResolutionFailureVisitor<Void> {
+
+    private final Map<String, Integer> _counts = new HashMap<String, Integer>();
+    private int _samples;
+
+    @Override
+    protected synchronized Void visitFailureSummary(final String valueName, final ComputationTargetType targetType, final String function, final int count,
+        final Collection<ResolutionFailure> samples) {
+      _counts.put(valueName + "/" + function, count);
+      _samples += samples.size();
+      return null;
+    }
+
+  }
+
+  private static ValueRequirement requirement(final String valueName, final int target) {
+    return new ValueRequirement(valueName, new ComputationTarget(UniqueId.of("Test", Integer.toString(target))).toSpecification());
+  }
+
+  private static ResolutionFailure functionFailure(final ValueRequirement requirement, final MockFunction function) {
+    return ResolutionFailure.functionApplication(requirement, new ParameterizedFunction(function, function.getDefaultParameters()),
+        new ValueSpecification(requirement, function.getUniqueId())).requirement(requirement("Input", 0), null);
+  }
+
+  public void testAggregation() {
+    final ResolutionFailureAggregator aggregator = new ResolutionFailureAggregator(2);
+    final MockFunction function = new MockFunction("Fn", new ComputationTarget(UniqueId.of("Test", "0")));
+    for (int i = 0; i < 10; i++) {
+      aggregator.failed(functionFailure(requirement("PV", i), function));
+      aggregator.failed(ResolutionFailure.noFunctions(requirement("Delta", i)));
+    }
+    assertEquals(20, aggregator.getFailureCount());
+    final CountingVisitor visitor = new CountingVisitor();
+    assertEquals(2, aggregator.accept(visitor).size());
+    assertEquals((Integer) 10, visitor._counts.get("PV/Fn"));
+    assertEquals((Integer) 10, visitor._counts.get("Delta/null"));
+    assertEquals(4, visitor._samples);
+  }
+
+  public void testDrain() {
+    final ResolutionFailureAggregator aggregator = new ResolutionFailureAggregator();
+    aggregator.failed(ResolutionFailure.noFunctions(requirement("PV", 1)));
+    CountingVisitor visitor = new CountingVisitor();
+    assertEquals(1, aggregator.drain(visitor).size());
+    assertEquals((Integer) 1, visitor._counts.get("PV/null"));
+    visitor = new CountingVisitor();
+    assertTrue(aggregator.drain(visitor).isEmpty());
+    aggregator.failed(ResolutionFailure.noFunctions(requirement("PV", 2)));
+    assertEquals(1, aggregator.drain(visitor).size());
+    assertEquals((Integer) 1, visitor._counts.get("PV/null"));
+    assertEquals(2, aggregator.getFailureCount());
+  }
+
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.fudgemsg;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.Collections;
+
+import javax.time.Duration;
+import javax.time.Instant;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ColumnarViewComputationResultModel;
+import com.opengamma.engine.view.ViewComputationResultModel;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.test.AbstractFudgeBuilderTestCase;
+
+@Test
+public class ColumnarViewComputationResultModelBuilderTest extends AbstractFudgeBuilderTestCase {
+
+  private static ComputedValue value(final String valueName, final String target, final Object value) {
+    return new ComputedValue(new ValueSpecification(valueName, new ComputationTargetSpecification(UniqueId.of("Test", target)),
+        ValueProperties.with(ValuePropertyNames.FUNCTION, "Fn").get()), value);
+  }
+
+  public void testEncoding() {
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel();
+    model.setViewProcessId(UniqueId.of("Process", "1"));
+    model.setViewCycleId(UniqueId.of("Cycle", "1"));
+    model.setValuationTime(Instant.ofEpochMillis(400));
+    model.setCalculationTime(Instant.ofEpochMillis(500));
+    model.setCalculationDuration(Duration.ofMillis(100));
+    model.setVersionCorrection(VersionCorrection.LATEST);
+    model.addValue("Default", value("PV", "1", 1.0));
+    model.addValue("Default", value("PV", "2", "Missing"));
+    model.addValue("Default", value("PV", "3", 3.0));
+    model.addValue("Other", value("Delta", "2", 0.5));
+    model.addMarketData(value("Market", "1", 2.0));
+    model.addRequirements(Collections.singleton(new ValueRequirement("PV", new ComputationTargetSpecification(UniqueId.of("Test", "1")))),
+        value("PV", "1", 1.0).getSpecification());
+    final ViewComputationResultModel cycled = cycleObject(ViewComputationResultModel.class, model);
+    assertEquals(ColumnarViewComputationResultModel.class, cycled.getClass());
+    assertEquals(model.getViewProcessId(), cycled.getViewProcessId());
+    assertEquals(model.getValuationTime(), cycled.getValuationTime());
+    assertEquals(model.getCalculationDuration(), cycled.getCalculationDuration());
+    assertEquals(model.getAllResults(), cycled.getAllResults());
+    assertEquals(model.getAllMarketData(), cycled.getAllMarketData());
+    assertEquals(model.getRequirementToSpecificationMapping(), cycled.getRequirementToSpecificationMapping());
+  }
+
+}
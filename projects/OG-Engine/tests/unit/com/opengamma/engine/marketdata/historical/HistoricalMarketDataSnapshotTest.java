@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.marketdata.historical;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.time.Instant;
+import javax.time.calendar.LocalDate;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.opengamma.core.historicaltimeseries.impl.MockHistoricalTimeSeriesSource;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.ExternalIdBundle;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.timeseries.localdate.ListLocalDateDoubleTimeSeries;
+
+/**
+ * Tests the {@link HistoricalMarketDataSnapshot} class.
+ */
+@Test
+public class HistoricalMarketDataSnapshotTest {
+
+  private static final LocalDate DATE_1 = LocalDate.of(2012, 6, 1);
+  private static final LocalDate DATE_2 = LocalDate.of(2012, 6, 4);
+
+  private static MockHistoricalTimeSeriesSource createTimeSeriesSource() {
+    final MockHistoricalTimeSeriesSource source = new MockHistoricalTimeSeriesSource();
+    source.storeHistoricalTimeSeries(ExternalIdBundle.of(ExternalId.of("Test", "A")), "Source", "Provider", "Price",
+        new ListLocalDateDoubleTimeSeries(new LocalDate[] {DATE_1, DATE_2 }, new double[] {1d, 2d }));
+    source.storeHistoricalTimeSeries(ExternalIdBundle.of(ExternalId.of("Test", "B")), "Source", "Provider", "Price",
+        new ListLocalDateDoubleTimeSeries(new LocalDate[] {DATE_2 }, new double[] {3d }));
+    return source;
+  }
+
+  private static ValueRequirement requirement(final String target) {
+    return new ValueRequirement("Price", ComputationTargetType.PRIMITIVE, UniqueId.of("Test", target));
+  }
+
+  public void testInitFetchesValuesOnDate() {
+    final HistoricalMarketDataSnapshot snapshot = new HistoricalMarketDataSnapshot(createTimeSeriesSource(), Instant.EPOCH, DATE_1, null);
+    snapshot.init(ImmutableSet.of(requirement("A"), requirement("B"), requirement("C")), 0, TimeUnit.MILLISECONDS);
+    // The mock source doesn't support the single resolved lookup, so these must all come from the bulk fetch
+    assertEquals(1d, snapshot.query(requirement("A")));
+    assertNull(snapshot.query(requirement("B")));
+    assertNull(snapshot.query(requirement("C")));
+  }
+
+  public void testInitFetchesLatestValues() {
+    final HistoricalMarketDataSnapshot snapshot = new HistoricalMarketDataSnapshot(createTimeSeriesSource(), Instant.EPOCH, null, null);
+    snapshot.init(ImmutableSet.of(requirement("A"), requirement("B")), 0, TimeUnit.MILLISECONDS);
+    assertEquals(2d, snapshot.query(requirement("A")));
+    assertEquals(3d, snapshot.query(requirement("B")));
+  }
+
+}
@@ -311,6 +311,17 @@ public class ValuePropertiesTest {
   
 
   
+  public void testInterned() {
+    final ValueProperties a = ValueProperties.with("A", "1").with("B", "2").get();
+    final ValueProperties b = ValueProperties.with("B", "2").with("A", "1").get();
+    assertSame(a, b);
+    final ValueProperties.Builder builder = ValueProperties.with("A", "1");
+    final ValueProperties c = builder.get();
+    builder.with("A", "2");
+    assertSame(a.withoutAny("B"), c);
+    assertEquals(Collections.singleton("1"), c.getValues("A"));
+  }
+
   @Test(expectedExceptions = IllegalArgumentException.class)
   public void testParseInvalidNoValue() {
     ValueProperties.parse("ValueName=[");
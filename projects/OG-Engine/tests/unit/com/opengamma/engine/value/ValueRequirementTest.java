@@ -8,6 +8,7 @@ package com.opengamma.engine.value;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
 
 import java.math.BigDecimal;
@@ -131,6 +132,15 @@ public class ValueRequirementTest {
     assertTrue(toString.contains(ComputationTargetType.PRIMITIVE.toString()));
   }
 
+  //-------------------------------------------------------------------------
+  public void test_intern() {
+    final ValueRequirement a = new ValueRequirement("DATA", ComputationTargetType.PRIMITIVE, USD, ValueProperties.with(ValuePropertyNames.FUNCTION, "Foo").get());
+    final ValueRequirement b = new ValueRequirement("DATA", ComputationTargetType.PRIMITIVE, USD, ValueProperties.with(ValuePropertyNames.FUNCTION, "Foo").get());
+    assertSame(a.intern(), b.intern());
+    assertSame(a.getConstraints(), b.getConstraints());
+    assertSame(a.getTargetSpecification().intern(), b.intern().getTargetSpecification());
+  }
+
   //-------------------------------------------------------------------------
   public void test_fudgeEncoding() {
     FudgeContext context = OpenGammaFudgeContext.getInstance();
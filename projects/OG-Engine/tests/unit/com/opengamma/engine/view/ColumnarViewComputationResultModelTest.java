@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.Sets;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueProperties;
+import com.opengamma.engine.value.ValuePropertyNames;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.client.ViewDeltaResultCalculator;
+import com.opengamma.id.UniqueId;
+import com.opengamma.util.tuple.Pair;
+
+/**
+ * Tests the {@link ColumnarViewComputationResultModel} class.
+ */
+@Test
+public class ColumnarViewComputationResultModelTest {
+
+  private static final String CONFIG = "Default";
+  private static final ValueProperties PROPERTIES = ValueProperties.with(ValuePropertyNames.FUNCTION, "Fn").get();
+  private static final ComputationTargetSpecification TARGET_1 = new ComputationTargetSpecification(UniqueId.of("Test", "1"));
+  private static final ComputationTargetSpecification TARGET_2 = new ComputationTargetSpecification(UniqueId.of("Test", "2"));
+
+  private static ComputedValue value(final String valueName, final ComputationTargetSpecification target, final Object value) {
+    return new ComputedValue(new ValueSpecification(valueName, target, PROPERTIES), value);
+  }
+
+  public void testValues() {
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel();
+    model.addValue(CONFIG, value("PV", TARGET_1, 1.0));
+    model.addValue(CONFIG, value("PV", TARGET_2, 2.0));
+    model.addValue(CONFIG, value("Name", TARGET_2, "Foo"));
+    assertEquals(Sets.newHashSet(TARGET_1, TARGET_2), model.getAllTargets());
+    assertEquals(Collections.singleton(CONFIG), model.getCalculationConfigurationNames());
+    assertEquals(Sets.newHashSet("PV", "Name"), model.getAllOutputValueNames());
+    assertEquals(3, model.getAllResults().size());
+    final ColumnarViewComputationResultModel.Column pv = model.getColumn(CONFIG, "PV", PROPERTIES);
+    assertEquals(2, pv.getValueCount());
+    assertTrue(pv.isDouble(model.getRow(TARGET_2)));
+    assertEquals(2.0, pv.getDouble(model.getRow(TARGET_2)));
+    final ColumnarViewComputationResultModel.Column name = model.getColumn(CONFIG, "Name", PROPERTIES);
+    assertFalse(name.isPresent(model.getRow(TARGET_1)));
+    assertFalse(name.isDouble(model.getRow(TARGET_2)));
+    final ViewCalculationResultModel calcResult = model.getCalculationResult(CONFIG);
+    final Map<Pair<String, ValueProperties>, ComputedValue> values = calcResult.getValues(TARGET_2);
+    assertEquals(2, values.size());
+    assertEquals(value("PV", TARGET_2, 2.0), values.get(Pair.of("PV", PROPERTIES)));
+    assertEquals(value("Name", TARGET_2, "Foo"), values.get(Pair.of("Name", PROPERTIES)));
+    assertEquals(1, calcResult.getAllValues(TARGET_1).size());
+    assertNull(model.getCalculationResult("Other"));
+    final Collection<ComputedValue> targetValues = model.getTargetResult(TARGET_1).getAllValues(CONFIG);
+    assertEquals(Collections.singletonList(value("PV", TARGET_1, 1.0)), targetValues);
+  }
+
+  public void testReplaceValue() {
+    final ColumnarViewComputationResultModel model = new ColumnarViewComputationResultModel();
+    model.addValue(CONFIG, value("PV", TARGET_1, "Missing"));
+    model.addValue(CONFIG, value("PV", TARGET_1, 1.0));
+    final ColumnarViewComputationResultModel.Column pv = model.getColumn(CONFIG, "PV", PROPERTIES);
+    assertEquals(1, pv.getValueCount());
+    assertTrue(pv.isDouble(0));
+    assertEquals(1.0, pv.getValue(0));
+  }
+
+  public void testCopy() {
+    final InMemoryViewComputationResultModel model = new InMemoryViewComputationResultModel();
+    model.addValue(CONFIG, value("PV", TARGET_1, 1.0));
+    model.addMarketData(value("Market", TARGET_1, 3.0));
+    final ColumnarViewComputationResultModel copy = ColumnarViewComputationResultModel.of(model);
+    assertEquals(model.getAllResults(), copy.getAllResults());
+    assertEquals(model.getAllMarketData(), copy.getAllMarketData());
+  }
+
+  public void testDelta() {
+    final ViewDefinition viewDefinition = new ViewDefinition("Test", "Test");
+    final ViewCalculationConfiguration calcConfig = new ViewCalculationConfiguration(viewDefinition, CONFIG);
+    calcConfig.getDeltaDefinition().setNumberComparer(new NumberDeltaComparer(2));
+    viewDefinition.addViewCalculationConfiguration(calcConfig);
+    final ColumnarViewComputationResultModel previous = new ColumnarViewComputationResultModel();
+    previous.addValue(CONFIG, value("PV", TARGET_1, 1.0));
+    previous.addValue(CONFIG, value("PV", TARGET_2, 2.0));
+    final ColumnarViewComputationResultModel result = new ColumnarViewComputationResultModel();
+    // Rows in a different order to the previous result
+    result.addValue(CONFIG, value("PV", TARGET_2, 2.001));
+    result.addValue(CONFIG, value("PV", TARGET_1, 1.5));
+    result.addValue(CONFIG, value("Name", TARGET_1, "Foo"));
+    final ViewDeltaResultModel delta = ViewDeltaResultCalculator.computeDeltaModel(viewDefinition, previous, result);
+    final Collection<ComputedValue> values = delta.getCalculationResult(CONFIG).getAllValues(TARGET_1);
+    assertEquals(Sets.newHashSet(value("PV", TARGET_1, 1.5), value("Name", TARGET_1, "Foo")), Sets.newHashSet(values));
+    assertNull(delta.getCalculationResult(CONFIG).getAllValues(TARGET_2));
+  }
+
+}
@@ -8,6 +8,7 @@ package com.opengamma.engine.view.cache;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -218,4 +219,45 @@ public class DefaultViewComputationCacheTest {
     assertPutValues (2, CacheSelectHint.sharedValues(Arrays.asList (valueSpecFoo)), CacheSelectHint.privateValues(Arrays.asList(valueSpecFoo)));
   }
 
+  @Test
+  public void testShareValues() {
+    final IdentifierMap identifierSource = new InMemoryIdentifierMap();
+    final InMemoryBinaryDataStore previousSharedData = new InMemoryBinaryDataStore();
+    final DefaultViewComputationCache previous = new DefaultViewComputationCache(identifierSource, new DefaultFudgeMessageStore(new InMemoryBinaryDataStore(),
+        FudgeContext.GLOBAL_DEFAULT), new DefaultFudgeMessageStore(previousSharedData, FudgeContext.GLOBAL_DEFAULT), FudgeContext.GLOBAL_DEFAULT);
+    final InMemoryBinaryDataStore nextSharedData = new InMemoryBinaryDataStore();
+    final DefaultViewComputationCache next = new DefaultViewComputationCache(identifierSource, new DefaultFudgeMessageStore(new InMemoryBinaryDataStore(),
+        FudgeContext.GLOBAL_DEFAULT), new DefaultFudgeMessageStore(nextSharedData, FudgeContext.GLOBAL_DEFAULT), FudgeContext.GLOBAL_DEFAULT);
+    final ValueSpecification valueSpecFoo = new ValueSpecification(new ValueRequirement("foo", new ComputationTargetSpecification(null)), "mockFunctionId");
+    final ValueSpecification valueSpecBar = new ValueSpecification(new ValueRequirement("bar", new ComputationTargetSpecification(null)), "mockFunctionId");
+    final ValueSpecification valueSpecMissing = new ValueSpecification(new ValueRequirement("missing", new ComputationTargetSpecification(null)), "mockFunctionId");
+    previous.putPrivateValue(new ComputedValue(valueSpecFoo, "Foo"));
+    previous.putSharedValue(new ComputedValue(valueSpecBar, "Bar"));
+    final Collection<ValueSpecification> shared = next.shareValues(previous, Arrays.asList(valueSpecFoo, valueSpecBar, valueSpecMissing));
+    assertEquals(2, shared.size());
+    assertEquals("Foo", next.getValue(valueSpecFoo, CacheSelectHint.allShared()));
+    assertEquals("Bar", next.getValue(valueSpecBar, CacheSelectHint.allShared()));
+    assertNull(next.getValue(valueSpecMissing));
+    // The encoded form is referenced, not copied
+    final long identifier = identifierSource.getIdentifier(valueSpecBar);
+    assertSame(previousSharedData.get(identifier), nextSharedData.get(identifier));
+    previous.delete();
+    assertEquals("Bar", next.getValue(valueSpecBar));
+  }
+
+  @Test
+  public void testStatistics() {
+    final ValueSpecification valueSpecFoo = new ValueSpecification(new ValueRequirement("foo", new ComputationTargetSpecification(null)), "mockFunctionId");
+    _viewComputationCache.putSharedValue(new ComputedValue(valueSpecFoo, "Foo"));
+    // Not collected unless enabled
+    assertNull(_viewComputationCache.getStatistics());
+    final ViewComputationCacheStatistics statistics = new ViewComputationCacheStatistics();
+    _viewComputationCache.setStatistics(statistics);
+    _viewComputationCache.putPrivateValue(new ComputedValue(valueSpecFoo, "Foo"));
+    _viewComputationCache.getValue(valueSpecFoo, CacheSelectHint.allShared());
+    assertEquals(1, statistics.getValueStatistics().get("foo").getPrivateValues());
+    assertEquals(0, statistics.getValueStatistics().get("foo").getSharedValues());
+    assertEquals(1, statistics.getValueStatistics().get("foo").getSharedReads());
+  }
+
 }
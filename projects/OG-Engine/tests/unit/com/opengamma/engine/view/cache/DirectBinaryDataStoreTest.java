@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests the {@link DirectBinaryDataStore} class.
+ */
+@Test
+public class DirectBinaryDataStoreTest {
+
+  private static byte[] randomBytes(final Random random, final int length) {
+    final byte[] data = new byte[length];
+    random.nextBytes(data);
+    return data;
+  }
+
+  public void testPutGet() {
+    final DirectBinaryDataStoreFactory factory = new DirectBinaryDataStoreFactory(1024, 4);
+    final BinaryDataStore store = factory.createDataStore(null);
+    final Random random = new Random();
+    final Map<Long, byte[]> expected = new HashMap<Long, byte[]>();
+    for (long i = 0; i < 100; i++) {
+      final byte[] data = randomBytes(random, random.nextInt(200));
+      store.put(i, data);
+      expected.put(i, data);
+    }
+    // Bigger than a slab
+    final byte[] large = randomBytes(random, 4096);
+    store.put(100L, large);
+    expected.put(100L, large);
+    // Replace an existing value
+    final byte[] replacement = randomBytes(random, 10);
+    store.put(0L, replacement);
+    expected.put(0L, replacement);
+    for (Map.Entry<Long, byte[]> entry : expected.entrySet()) {
+      assertTrue(Arrays.equals(entry.getValue(), store.get(entry.getKey())));
+    }
+    assertNull(store.get(101L));
+    final Map<Long, byte[]> result = store.get(Arrays.asList(1L, 100L, 101L));
+    assertEquals(2, result.size());
+    assertTrue(Arrays.equals(expected.get(1L), result.get(1L)));
+    assertTrue(Arrays.equals(large, result.get(100L)));
+  }
+
+  public void testBulkPut() {
+    final DirectBinaryDataStoreFactory factory = new DirectBinaryDataStoreFactory(1024, 4);
+    final BinaryDataStore store = factory.createDataStore(null);
+    final Map<Long, byte[]> data = new HashMap<Long, byte[]>();
+    data.put(1L, new byte[] {1, 2, 3 });
+    data.put(2L, new byte[0]);
+    store.put(data);
+    assertTrue(Arrays.equals(new byte[] {1, 2, 3 }, store.get(1L)));
+    assertEquals(0, store.get(2L).length);
+  }
+
+  public void testDeleteReleasesSlabs() {
+    final DirectBinaryDataStoreFactory factory = new DirectBinaryDataStoreFactory(1024, 2);
+    final DirectBinaryDataStore store = (DirectBinaryDataStore) factory.createDataStore(null);
+    for (long i = 0; i < 4; i++) {
+      store.put(i, new byte[1000]);
+    }
+    store.put(4L, new byte[2000]);
+    assertEquals(5, store.getSlabCount());
+    store.delete();
+    assertEquals(0, store.getSlabCount());
+    assertNull(store.get(0L));
+    // Only two standard slabs are retained; the oversized buffer is never pooled
+    assertEquals(2, factory.getPooledSlabCount());
+    final DirectBinaryDataStore next = (DirectBinaryDataStore) factory.createDataStore(null);
+    next.put(0L, new byte[] {42 });
+    assertEquals(1, factory.getPooledSlabCount());
+    assertEquals(42, next.get(0L)[0]);
+  }
+
+}
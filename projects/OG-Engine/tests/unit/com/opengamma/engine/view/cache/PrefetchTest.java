@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.fudgemsg.FudgeContext;
+import org.fudgemsg.FudgeMsgEnvelope;
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.id.UniqueId;
+import com.opengamma.transport.DirectFudgeConnection;
+import com.opengamma.util.ehcache.EHCacheUtils;
+import com.opengamma.util.fudgemsg.OpenGammaFudgeContext;
+import com.opengamma.util.test.Timeout;
+
+/**
+ * Tests the prefetch messages between {@link RemoteViewComputationCacheSource} and {@link ViewComputationCacheServer}.
+ */
+@Test
+public class PrefetchTest {
+
+  /**
+   * Counts down a latch after each message from the server has been handled.
+   */
+  private static final class LatchedCacheSource extends RemoteViewComputationCacheSource {
+
+    private volatile CountDownLatch _received = new CountDownLatch(1);
+
+    public LatchedCacheSource(final RemoteCacheClient client, final FudgeMessageStoreFactory privateDataStoreFactory) {
+      super(client, privateDataStoreFactory, EHCacheUtils.createCacheManager());
+    }
+
+    public void expectMessage() {
+      _received = new CountDownLatch(1);
+    }
+
+    public void awaitMessage() throws InterruptedException {
+      assertTrue(_received.await(Timeout.standardTimeoutMillis(), TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void messageReceived(final FudgeContext fudgeContext, final FudgeMsgEnvelope msgEnvelope) {
+      super.messageReceived(fudgeContext, msgEnvelope);
+      _received.countDown();
+    }
+
+  }
+
+  private static FudgeMessageStoreFactory createInMemoryFudgeMessageStoreFactory(final FudgeContext fudgeContext) {
+    return new DefaultFudgeMessageStoreFactory(new InMemoryBinaryDataStoreFactory(), fudgeContext);
+  }
+
+  private static ValueSpecification createValueSpecification(final String name) {
+    return new ValueSpecification(new ValueRequirement(name, "Foo"), "Bar");
+  }
+
+  public void testPrefetch() throws InterruptedException {
+    final FudgeContext fudgeContext = OpenGammaFudgeContext.getInstance();
+    final DefaultViewComputationCacheSource serverCacheSource = new DefaultViewComputationCacheSource(
+        new InMemoryIdentifierMap(), fudgeContext, createInMemoryFudgeMessageStoreFactory(fudgeContext));
+    final ViewComputationCacheServer server = new ViewComputationCacheServer(serverCacheSource);
+    final DirectFudgeConnection conduit1 = new DirectFudgeConnection(fudgeContext);
+    conduit1.connectEnd1(server);
+    final DirectFudgeConnection conduit2 = new DirectFudgeConnection(fudgeContext);
+    conduit2.connectEnd1(server);
+    final LatchedCacheSource remoteCacheSource1 = new LatchedCacheSource(new RemoteCacheClient(conduit1.getEnd2()), createInMemoryFudgeMessageStoreFactory(fudgeContext));
+    final RemoteViewComputationCacheSource remoteCacheSource2 = new RemoteViewComputationCacheSource(
+        new RemoteCacheClient(conduit2.getEnd2()), createInMemoryFudgeMessageStoreFactory(fudgeContext), EHCacheUtils.createCacheManager());
+    final UniqueId viewCycleId = UniqueId.of("Test", "ViewCycle");
+    final ValueSpecification available = createValueSpecification("Available");
+    final ValueSpecification pending = createValueSpecification("Pending");
+    serverCacheSource.getCache(viewCycleId, "Default").putSharedValue(new ComputedValue(available, "Zero"));
+    // One value is already in the shared store; the other is still to be calculated
+    remoteCacheSource1.expectMessage();
+    remoteCacheSource1.prefetch(viewCycleId, "Default", Arrays.asList(available, pending));
+    remoteCacheSource1.awaitMessage();
+    assertEquals(1, conduit1.getAndResetMessages2To1());
+    assertEquals(1, conduit1.getAndResetMessages1To2());
+    final ViewComputationCache remoteCache1 = remoteCacheSource1.getCache(viewCycleId, "Default");
+    assertEquals("Zero", remoteCache1.getValue(available));
+    // Identifier and value were both delivered by the prefetch
+    assertEquals(0, conduit1.getAndResetMessages2To1());
+    // Writing the other value streams it to the prefetching client
+    remoteCacheSource1.expectMessage();
+    remoteCacheSource2.getCache(viewCycleId, "Default").putSharedValue(new ComputedValue(pending, "One"));
+    remoteCacheSource1.awaitMessage();
+    assertEquals(1, conduit1.getAndResetMessages1To2());
+    assertEquals("One", remoteCache1.getValue(pending));
+    assertEquals(0, conduit1.getAndResetMessages2To1());
+  }
+
+  public void testPrefetchLocalWrite() throws InterruptedException {
+    final FudgeContext fudgeContext = OpenGammaFudgeContext.getInstance();
+    final DefaultViewComputationCacheSource serverCacheSource = new DefaultViewComputationCacheSource(
+        new InMemoryIdentifierMap(), fudgeContext, createInMemoryFudgeMessageStoreFactory(fudgeContext));
+    final ViewComputationCacheServer server = new ViewComputationCacheServer(serverCacheSource);
+    final DirectFudgeConnection conduit = new DirectFudgeConnection(fudgeContext);
+    conduit.connectEnd1(server);
+    final LatchedCacheSource remoteCacheSource = new LatchedCacheSource(new RemoteCacheClient(conduit.getEnd2()), createInMemoryFudgeMessageStoreFactory(fudgeContext));
+    final UniqueId viewCycleId = UniqueId.of("Test", "ViewCycle");
+    final ValueSpecification pending = createValueSpecification("Pending");
+    final ViewComputationCache serverCache = serverCacheSource.getCache(viewCycleId, "Default");
+    remoteCacheSource.expectMessage();
+    remoteCacheSource.prefetch(viewCycleId, "Default", Arrays.asList(pending));
+    remoteCacheSource.awaitMessage();
+    assertEquals(1, conduit.getAndResetMessages1To2());
+    // A value calculated on the server is streamed to the prefetching client just as one from another client would be
+    remoteCacheSource.expectMessage();
+    serverCache.putSharedValue(new ComputedValue(pending, "One"));
+    remoteCacheSource.awaitMessage();
+    assertEquals(1, conduit.getAndResetMessages1To2());
+    conduit.getAndResetMessages2To1();
+    assertEquals("One", remoteCacheSource.getCache(viewCycleId, "Default").getValue(pending));
+    assertEquals(0, conduit.getAndResetMessages2To1());
+  }
+
+}
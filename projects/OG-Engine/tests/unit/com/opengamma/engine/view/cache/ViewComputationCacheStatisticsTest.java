@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.cache;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests the {@link ViewComputationCacheStatistics} class.
+ */
+@Test
+public class ViewComputationCacheStatisticsTest {
+
+  public void testRecord() {
+    final ViewComputationCacheStatistics statistics = new ViewComputationCacheStatistics();
+    assertTrue(Double.isNaN(statistics.getCacheHitRatio()));
+    statistics.recordPrivateWrite("Foo", 10);
+    statistics.recordSharedWrite("Foo", 20);
+    statistics.recordSharedWrite("Bar", 5);
+    statistics.recordSharedRead("Bar");
+    statistics.recordRemoteFetch("Bar");
+    statistics.recordCacheHits(3);
+    statistics.recordCacheMisses(1);
+    statistics.recordWriteBehindQueueDepth(4);
+    statistics.recordWriteBehindQueueDepth(2);
+    assertEquals(10, statistics.getPrivateBytes());
+    assertEquals(25, statistics.getSharedBytes());
+    assertEquals(1, statistics.getRemoteFetches());
+    assertEquals(0.75, statistics.getCacheHitRatio(), 1e-9);
+    assertEquals(4, statistics.getMaxWriteBehindQueueDepth());
+    assertEquals(1, statistics.getValueStatistics().get("Foo").getPrivateValues());
+    assertEquals(1, statistics.getValueStatistics().get("Bar").getSharedReads());
+  }
+
+  public void testAdd() {
+    final ViewComputationCacheStatistics a = new ViewComputationCacheStatistics();
+    a.recordSharedWrite("Foo", 20);
+    a.recordWriteBehindQueueDepth(2);
+    final ViewComputationCacheStatistics b = new ViewComputationCacheStatistics();
+    b.recordSharedWrite("Foo", 30);
+    b.recordPrivateWrite("Bar", 1);
+    b.recordWriteBehindQueueDepth(5);
+    a.add(b);
+    assertEquals(2, a.getValueStatistics().get("Foo").getSharedValues());
+    assertEquals(50, a.getValueStatistics().get("Foo").getSharedBytes());
+    assertEquals(1, a.getPrivateBytes());
+    assertEquals(5, a.getMaxWriteBehindQueueDepth());
+    a.reset();
+    assertEquals(0, a.getSharedBytes());
+    assertTrue(a.getValueStatistics().isEmpty());
+  }
+
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc;
+
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.time.Instant;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.function.EmptyFunctionParameters;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.cache.CacheSelectHint;
+import com.opengamma.engine.view.calcnode.CalculationJob;
+import com.opengamma.engine.view.calcnode.CalculationJobItem;
+import com.opengamma.engine.view.calcnode.CalculationJobResult;
+import com.opengamma.engine.view.calcnode.CalculationJobResultItem;
+import com.opengamma.engine.view.calcnode.CalculationJobSpecification;
+import com.opengamma.engine.view.calcnode.CalculationJobTrace;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Tests the {@link CycleExecutionTracer} class.
+ */
+@Test
+public class CycleExecutionTracerTest {
+
+  private static CalculationJob createJob(final long jobId, final String functionId) {
+    final CalculationJobItem item = new CalculationJobItem(functionId, new EmptyFunctionParameters(), new ComputationTargetSpecification(UniqueId.of("Test", "Target")),
+        Collections.<ValueSpecification>emptySet(), Collections.<ValueRequirement>emptySet());
+    return new CalculationJob(new CalculationJobSpecification(UniqueId.of("Test", "Cycle"), "Default", Instant.now(), jobId), 0L, null, Arrays.asList(item),
+        CacheSelectHint.allShared());
+  }
+
+  private static CalculationJobResult createResult(final CalculationJob job, final String nodeId, final CalculationJobTrace trace) {
+    final CalculationJobResult result = new CalculationJobResult(job.getSpecification(), 0L,
+        Arrays.asList(new CalculationJobResultItem(job.getJobItems().get(0))), nodeId);
+    result.setTrace(trace);
+    return result;
+  }
+
+  public void testChromeTrace() throws IOException {
+    final CycleExecutionTracer tracer = new CycleExecutionTracer(UniqueId.of("Test", "Cycle"));
+    final CalculationJob job = createJob(1L, "Fn\"1");
+    final CalculationJob tail = createJob(2L, "Fn2");
+    final CalculationJob pending = createJob(3L, "Fn3");
+    job.addTail(tail);
+    tracer.jobDispatched(job);
+    tracer.jobDispatched(pending);
+    assertTrue(job.isTraced());
+    assertTrue(tail.isTraced());
+    final long now = CalculationJobTrace.now();
+    tracer.jobCompleted(createResult(job, "Node1", new CalculationJobTrace(now, now + 4000, new long[] {now + 1000, now + 2000, now + 3000, now + 4000 })));
+    tracer.jobCompleted(createResult(tail, "Node2", null));
+    final StringWriter writer = new StringWriter();
+    tracer.writeChromeTrace(writer);
+    final String json = writer.toString();
+    assertTrue(json.startsWith("{\"traceEvents\":["));
+    assertTrue(json.contains("\"args\":{\"name\":\"Node Node1\"}"));
+    assertTrue(json.contains("\"args\":{\"name\":\"Node Node2\"}"));
+    assertTrue(json.contains("\"name\":\"Default job 1\""));
+    assertTrue(json.contains("\"name\":\"Default job 2\""));
+    assertFalse(json.contains("\"name\":\"Default job 3\""));
+    assertTrue(json.contains("\"name\":\"Fn\\\"1\""));
+    assertTrue(json.contains("\"name\":\"fetch inputs\""));
+    assertTrue(json.contains("\"name\":\"invoke\",\"cat\":\"phase\",\"ph\":\"X\",\"pid\":1,\"tid\":1,"));
+    assertTrue(json.contains("\"name\":\"write\""));
+    assertTrue(json.contains("\"ph\":\"b\",\"id\":1"));
+  }
+
+}
@@ -13,7 +13,9 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -27,7 +29,11 @@ import com.opengamma.engine.ComputationTarget;
 import com.opengamma.engine.ComputationTargetType;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.function.BatchFunctionInvoker;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.function.FunctionInputs;
 import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.value.ComputedValue;
 import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.value.ValuePropertyNames;
 import com.opengamma.engine.value.ValueRequirement;
@@ -63,6 +69,20 @@ public class MultipleNodeExecutorTest {
    *    v0x, v1x, v4x to go into shared cache
    *    vx2, vx3 to go into shared cache
    */
+  private static final class BatchMockFunction extends MockFunction implements BatchFunctionInvoker {
+
+    public BatchMockFunction(final String uniqueId, final ComputationTarget target) {
+      super(uniqueId, target);
+    }
+
+    @Override
+    public List<Set<ComputedValue>> execute(final FunctionExecutionContext executionContext, final List<FunctionInputs> inputs, final List<ComputationTarget> targets,
+        final List<Set<ValueRequirement>> desiredValues) {
+      return null;
+    }
+
+  }
+
   private DependencyNode[] _testNode;
   private DependencyGraph _testGraph;
   private final ValueSpecification _testValue20 = ValueSpecification.of("Test", ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "20"), ValueProperties.builder().with(
@@ -124,7 +144,12 @@ public class MultipleNodeExecutorTest {
   }
 
   private MultipleNodeExecutor createExecutor(final int minimum, final int maximum, final int concurrency) {
-    return new MultipleNodeExecutor(null, minimum, maximum, 0, Integer.MAX_VALUE, concurrency, new FunctionCosts(), new ExecutionPlanCache(EHCacheUtils.createCacheManager(), 0)) {
+    return createExecutor(minimum, maximum, concurrency, false);
+  }
+
+  private MultipleNodeExecutor createExecutor(final int minimum, final int maximum, final int concurrency, final boolean criticalPath) {
+    return new MultipleNodeExecutor(null, minimum, maximum, 0, Integer.MAX_VALUE, concurrency, new FunctionCosts(), new ExecutionPlanCache(EHCacheUtils.createCacheManager(), 0),
+        criticalPath) {
 
       @Override
       protected long getFunctionInitId() {
@@ -526,4 +551,84 @@ public class MultipleNodeExecutorTest {
     assertEquals(7, mask);
   }
 
+  private static void collectFragments(final Collection<? extends GraphFragment<?, ?>> fragments, final Map<DependencyNode, GraphFragment<?, ?>> result) {
+    for (GraphFragment<?, ?> fragment : fragments) {
+      for (DependencyNode node : fragment.getNodes()) {
+        result.put(node, fragment);
+      }
+      collectFragments(fragment.getInputFragments(), result);
+    }
+  }
+
+  /**
+   * Critical path analysis - node 2 heads the longest chain so has the highest priority.
+   */
+  public void testCriticalPathPriority() {
+    final MultipleNodeExecutor executor = createExecutor(1, 1, 0, true);
+    final GraphFragment<?, ?> root = execute(executor, _testGraph);
+    final Map<DependencyNode, GraphFragment<?, ?>> fragments = new HashMap<DependencyNode, GraphFragment<?, ?>>();
+    collectFragments(root.getInputFragments(), fragments);
+    assertEquals(5, fragments.size());
+    final long priority2 = fragments.get(_testNode[2]).getPriority();
+    assertTrue(priority2 > fragments.get(_testNode[3]).getPriority());
+    for (int i : new int[] {0, 1, 4 }) {
+      assertTrue(priority2 > fragments.get(_testNode[i]).getPriority());
+      assertTrue(fragments.get(_testNode[i]).getPriority() > 0);
+    }
+    assertTrue(fragments.get(_testNode[4]).getPriority() < fragments.get(_testNode[3]).getPriority());
+  }
+
+  private static DependencyNode createDependentNode(final DependencyGraph graph, final DependencyNode input, final ValueSpecification inputValue, final String name,
+      final MockFunction function) {
+    final DependencyNode node = new DependencyNode(function.getTarget());
+    node.setFunction(function);
+    final ValueRequirement requirement = new ValueRequirement("Test", ComputationTargetType.PRIMITIVE, UniqueId.of("Test", name), ValueProperties.none());
+    final ValueSpecification value = new ValueSpecification(requirement, function.getUniqueId());
+    node.addOutputValue(value);
+    node.addInputNode(input);
+    node.addInputValue(inputValue);
+    graph.addDependencyNode(node);
+    graph.addTerminalOutput(requirement, value);
+    return node;
+  }
+
+  /**
+   * Four nodes sharing an input; the two using a batch function are merged with each other and not with the others.
+   */
+  public void testBatchFunctionMerge() {
+    final DependencyGraph graph = new DependencyGraph("Default");
+    final DependencyNode input = new DependencyNode(new ComputationTarget("Input"));
+    input.setFunction(MockFunction.getMockFunction(input.getComputationTarget(), "foo"));
+    final ValueSpecification inputValue = ValueSpecification.of("Test", ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "Input"), ValueProperties.builder().with(
+        ValuePropertyNames.FUNCTION, "Mock").get());
+    input.addOutputValue(inputValue);
+    input.addInputValue(_testValuex2);
+    graph.addDependencyNode(input);
+    final DependencyNode plain1 = createDependentNode(graph, input, inputValue, "P1", new MockFunction("Plain", new ComputationTarget("P1")));
+    final DependencyNode batch1 = createDependentNode(graph, input, inputValue, "B1", new BatchMockFunction("Batch", new ComputationTarget("B1")));
+    final DependencyNode plain2 = createDependentNode(graph, input, inputValue, "P2", new MockFunction("Plain", new ComputationTarget("P2")));
+    final DependencyNode batch2 = createDependentNode(graph, input, inputValue, "B2", new BatchMockFunction("Batch", new ComputationTarget("B2")));
+    final MultipleNodeExecutor executor = createExecutor(2, 2, 0);
+    final GraphFragment<?, ?> root = execute(executor, graph);
+    if (PRINT_GRAPHS) {
+      System.out.println("testBatchFunctionMerge");
+      executor.printFragment(root);
+    }
+    assertEquals(2, root.getInputFragments().size());
+    int mask = 0;
+    for (GraphFragment<?, ?> fragment : root.getInputFragments()) {
+      assertEquals(2, fragment.getNodes().size());
+      if (fragment.getNodes().contains(batch1) && fragment.getNodes().contains(batch2)) {
+        mask |= 1;
+      } else if (fragment.getNodes().contains(plain1) && fragment.getNodes().contains(plain2)) {
+        mask |= 2;
+      } else {
+        Assert.fail();
+      }
+      assertEquals(1, fragment.getInputFragments().size());
+      assertTrue(singletonFragment(fragment.getInputFragments().iterator().next(), input));
+    }
+    assertEquals(3, mask);
+  }
+
 }
@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calc;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import org.fudgemsg.FudgeContext;
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.function.MarketDataSourcingFunction;
+import com.opengamma.engine.test.MockFunction;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.cache.InMemoryViewComputationCacheSource;
+import com.opengamma.engine.view.cache.ViewComputationCache;
+import com.opengamma.id.UniqueId;
+
+/**
+ * Tests the {@link SharedComputationRegistry} class.
+ */
+@Test
+public class SharedComputationRegistryTest {
+
+  private static final ComputationTarget TARGET = new ComputationTarget(ComputationTargetType.PRIMITIVE, UniqueId.of("Test", "Target"));
+  private static final ValueRequirement MARKET_DATA = new ValueRequirement("Price", TARGET.toSpecification());
+  private static final String CONFIG = "Default";
+
+  private final InMemoryViewComputationCacheSource _cacheSource = new InMemoryViewComputationCacheSource(FudgeContext.GLOBAL_DEFAULT);
+  private int _cycles;
+
+  private static DependencyGraph createGraph() {
+    final DependencyGraph graph = new DependencyGraph(CONFIG);
+    final MarketDataSourcingFunction marketDataFunction = new MarketDataSourcingFunction(MARKET_DATA);
+    final DependencyNode marketDataNode = new DependencyNode(TARGET);
+    marketDataNode.setFunction(marketDataFunction);
+    marketDataNode.addOutputValue(marketDataFunction.getResult());
+    graph.addDependencyNode(marketDataNode);
+    final MockFunction function = MockFunction.getMockFunction("Fn", TARGET, 2.0, MARKET_DATA);
+    final DependencyNode node = new DependencyNode(TARGET);
+    node.setFunction(function);
+    node.addInputNode(marketDataNode);
+    node.addInputValue(marketDataFunction.getResult());
+    node.addOutputValues(function.getResultSpecs());
+    graph.addDependencyNode(node);
+    return graph;
+  }
+
+  private static DependencyNode getCalculationNode(final DependencyGraph graph) {
+    for (DependencyNode node : graph.getDependencyNodes()) {
+      if (node.getFunction().getFunction() instanceof MockFunction) {
+        return node;
+      }
+    }
+    throw new IllegalStateException();
+  }
+
+  private static ValueSpecification getOutput(final DependencyGraph graph) {
+    return getCalculationNode(graph).getOutputValues().iterator().next();
+  }
+
+  private static Map<ValueSpecification, Object> marketData(final double value) {
+    return Collections.<ValueSpecification, Object>singletonMap(new MarketDataSourcingFunction(MARKET_DATA).getResult(), value);
+  }
+
+  private ViewComputationCache createCache() {
+    return _cacheSource.getCache(UniqueId.of("Test", "Cycle", Integer.toString(_cycles++)), CONFIG);
+  }
+
+  private SharedComputationRegistry.Participant publish(final SharedComputationRegistry registry, final double marketData) {
+    final SharedComputationRegistry.Participant participant = registry.join();
+    final DependencyGraph graph = createGraph();
+    final ViewComputationCache cache = createCache();
+    participant.configure(CONFIG, graph, cache, "Context", marketData(marketData));
+    cache.putSharedValue(new ComputedValue(getOutput(graph), marketData * 2));
+    participant.publish(CONFIG, graph.getDependencyNodes());
+    return participant;
+  }
+
+  private Collection<DependencyNode> importValues(final SharedComputationRegistry registry, final Object context, final double marketData,
+      final ViewComputationCache cache) {
+    final SharedComputationRegistry.Participant participant = registry.join();
+    final DependencyGraph graph = createGraph();
+    participant.configure(CONFIG, graph, cache, context, marketData(marketData));
+    return participant.importValues(CONFIG, Collections.singleton(getCalculationNode(graph)));
+  }
+
+  public void testShared() {
+    final SharedComputationRegistry registry = new SharedComputationRegistry();
+    publish(registry, 1.0);
+    assertEquals(1, registry.getPublishedNodeCount());
+    final ViewComputationCache cache = createCache();
+    final Collection<DependencyNode> imported = importValues(registry, "Context", 1.0, cache);
+    assertEquals(1, imported.size());
+    assertEquals(2.0, cache.getValue(getOutput(createGraph())));
+    assertEquals(1, registry.getSharedNodeCount());
+  }
+
+  public void testDifferentMarketData() {
+    final SharedComputationRegistry registry = new SharedComputationRegistry();
+    publish(registry, 1.0);
+    assertTrue(importValues(registry, "Context", 1.5, createCache()).isEmpty());
+  }
+
+  public void testDifferentContext() {
+    final SharedComputationRegistry registry = new SharedComputationRegistry();
+    publish(registry, 1.0);
+    assertTrue(importValues(registry, "Other context", 1.0, createCache()).isEmpty());
+  }
+
+  public void testWithdrawn() {
+    final SharedComputationRegistry registry = new SharedComputationRegistry();
+    publish(registry, 1.0).withdraw();
+    assertEquals(0, registry.getPublishedNodeCount());
+    assertTrue(importValues(registry, "Context", 1.0, createCache()).isEmpty());
+    assertEquals(0, registry.getSharedNodeCount());
+  }
+
+}
@@ -7,10 +7,16 @@ package com.opengamma.engine.view.calc;
 
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -23,6 +29,7 @@ import com.opengamma.OpenGammaRuntimeException;
 import com.opengamma.core.change.ChangeType;
 import com.opengamma.core.security.SecuritySource;
 import com.opengamma.engine.marketdata.InMemoryLKVMarketDataProvider;
+import com.opengamma.engine.marketdata.InMemoryLKVMarketDataSnapshot;
 import com.opengamma.engine.marketdata.MarketDataListener;
 import com.opengamma.engine.marketdata.MarketDataPermissionProvider;
 import com.opengamma.engine.marketdata.MarketDataProvider;
@@ -41,6 +48,7 @@ import com.opengamma.engine.test.TestViewResultListener;
 import com.opengamma.engine.test.ViewProcessorTestEnvironment;
 import com.opengamma.engine.value.ComputedValue;
 import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.view.ColumnarViewComputationResultModel;
 import com.opengamma.engine.view.ViewComputationResultModel;
 import com.opengamma.engine.view.ViewProcessImpl;
 import com.opengamma.engine.view.ViewProcessorImpl;
@@ -53,6 +61,7 @@ import com.opengamma.engine.view.execution.ViewCycleExecutionOptions;
 import com.opengamma.engine.view.execution.ViewExecutionFlags;
 import com.opengamma.engine.view.execution.ViewExecutionOptions;
 import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
 import com.opengamma.livedata.LiveDataClient;
 import com.opengamma.livedata.LiveDataListener;
 import com.opengamma.livedata.LiveDataSpecification;
@@ -254,6 +263,34 @@ public class ViewComputationJobTest {
     resultListener.assertProcessCompleted(TIMEOUT);
   }
   
+  @Test
+  public void testConcurrentCycles() throws InterruptedException {
+    ViewProcessorTestEnvironment env = new ViewProcessorTestEnvironment();
+    env.init();
+    
+    ViewProcessorImpl vp = env.getViewProcessor();
+    vp.start();
+    
+    ViewClient client = vp.createViewClient(ViewProcessorTestEnvironment.TEST_USER);
+    TestViewResultListener resultListener = new TestViewResultListener();
+    client.setResultListener(resultListener);
+    Instant valuationTime = Instant.now();
+    List<ViewCycleExecutionOptions> cycles = new ArrayList<ViewCycleExecutionOptions>();
+    for (int i = 0; i < 5; i++) {
+      cycles.add(new ViewCycleExecutionOptions(valuationTime.plusMillis(i), MarketData.live()));
+    }
+    EnumSet<ViewExecutionFlags> flags = ExecutionFlags.none().runAsFastAsPossible().get();
+    ViewExecutionOptions executionOptions = new ExecutionOptions(new ArbitraryViewCycleExecutionSequence(cycles), flags, null, null, VersionCorrection.LATEST, 3);
+    client.attachToViewProcess(env.getViewDefinition().getUniqueId(), executionOptions);
+    
+    resultListener.assertViewDefinitionCompiled(TIMEOUT);
+    // Results must be delivered in sequence order however the cycles were executed
+    for (int i = 0; i < 5; i++) {
+      assertEquals(valuationTime.plusMillis(i), resultListener.getCycleCompleted(TIMEOUT).getFullResult().getValuationTime());
+    }
+    resultListener.assertProcessCompleted(TIMEOUT);
+  }
+  
   @Test
   public void testTriggerCycle() {
     ViewProcessorTestEnvironment env = new ViewProcessorTestEnvironment();
@@ -312,6 +349,144 @@ public class ViewComputationJobTest {
     client.shutdown();
   }
   
+  private ViewComputationJob attachPartialDeltaClient(ViewProcessorTestEnvironment env, TestViewResultListener resultListener) {
+    env.init();
+    
+    ViewProcessorImpl vp = env.getViewProcessor();
+    vp.start();
+    
+    ViewClient client = vp.createViewClient(ViewProcessorTestEnvironment.TEST_USER);
+    client.setResultListener(resultListener);
+    EnumSet<ViewExecutionFlags> flags = ExecutionFlags.none().partialDeltaCycles().get();
+    client.attachToViewProcess(env.getViewDefinition().getUniqueId(), ExecutionOptions.infinite(MarketData.live(), flags));
+    
+    resultListener.assertViewDefinitionCompiled(TIMEOUT);
+    resultListener.assertCycleCompleted(TIMEOUT);
+    return env.getCurrentComputationJob(env.getViewProcess(vp, client.getUniqueId()));
+  }
+  
+  private static Set<ValueRequirement> allPrimitives() {
+    return new HashSet<ValueRequirement>(Arrays.asList(ViewProcessorTestEnvironment.getPrimitive1(), ViewProcessorTestEnvironment.getPrimitive2()));
+  }
+  
+  @Test
+  public void testPartialDeltaCycle() throws InterruptedException {
+    ViewProcessorTestEnvironment env = new ViewProcessorTestEnvironment();
+    QueryRecordingMarketDataProvider marketDataProvider = new QueryRecordingMarketDataProvider();
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive1(), 1d);
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive2(), 2d);
+    env.setMarketDataProvider(marketDataProvider);
+    TestViewResultListener resultListener = new TestViewResultListener();
+    ViewComputationJob computationJob = attachPartialDeltaClient(env, resultListener);
+    assertEquals(allPrimitives(), marketDataProvider.getLastQueried());
+    
+    // Only the first primitive has changed; the second must be carried over from the previous cycle
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive1(), 3d);
+    computationJob.triggerCycle();
+    ViewComputationResultModel result = resultListener.getCycleCompleted(TIMEOUT).getFullResult();
+    assertEquals(Collections.singleton(ViewProcessorTestEnvironment.getPrimitive1()), marketDataProvider.getLastQueried());
+    
+    Map<String, Object> resultValues = new HashMap<String, Object>();
+    ViewTargetResultModel targetResult = result.getTargetResult(ViewProcessorTestEnvironment.getPrimitive1().getTargetSpecification());
+    for (ComputedValue computedValue : targetResult.getAllValues(ViewProcessorTestEnvironment.TEST_CALC_CONFIG_NAME)) {
+      resultValues.put(computedValue.getSpecification().getValueName(), computedValue.getValue());
+    }
+    assertEquals(3d, resultValues.get(ViewProcessorTestEnvironment.getPrimitive1().getValueName()));
+    assertEquals(2d, resultValues.get(ViewProcessorTestEnvironment.getPrimitive2().getValueName()));
+  }
+  
+  @Test
+  public void testPartialDeltaCycleAfterRecompile() throws InterruptedException {
+    ViewProcessorTestEnvironment env = new ViewProcessorTestEnvironment();
+    QueryRecordingMarketDataProvider marketDataProvider = new QueryRecordingMarketDataProvider();
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive1(), 1d);
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive2(), 2d);
+    env.setMarketDataProvider(marketDataProvider);
+    TestViewResultListener resultListener = new TestViewResultListener();
+    ViewComputationJob computationJob = attachPartialDeltaClient(env, resultListener);
+    
+    // The changes can't be applied to a different compilation so all of the market data is needed
+    computationJob.dirtyCompilation();
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive1(), 3d);
+    computationJob.triggerCycle();
+    resultListener.assertViewDefinitionCompiled(TIMEOUT);
+    resultListener.assertCycleCompleted(TIMEOUT);
+    assertEquals(allPrimitives(), marketDataProvider.getLastQueried());
+  }
+  
+  @Test
+  public void testPartialDeltaCycleAfterSubscription() throws InterruptedException {
+    ViewProcessorTestEnvironment env = new ViewProcessorTestEnvironment();
+    QueryRecordingMarketDataProvider marketDataProvider = new QueryRecordingMarketDataProvider();
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive1(), 1d);
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive2(), 2d);
+    env.setMarketDataProvider(marketDataProvider);
+    TestViewResultListener resultListener = new TestViewResultListener();
+    ViewComputationJob computationJob = attachPartialDeltaClient(env, resultListener);
+    
+    // A value may become available when a subscription succeeds without a change being reported for it
+    computationJob.subscriptionSucceeded(ViewProcessorTestEnvironment.getPrimitive2());
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive1(), 3d);
+    computationJob.triggerCycle();
+    resultListener.assertCycleCompleted(TIMEOUT);
+    assertEquals(allPrimitives(), marketDataProvider.getLastQueried());
+  }
+  
+  @Test
+  public void testPartialDeltaCycleWithMostInputsChanged() throws InterruptedException {
+    ViewProcessorTestEnvironment env = new ViewProcessorTestEnvironment();
+    QueryRecordingMarketDataProvider marketDataProvider = new QueryRecordingMarketDataProvider();
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive1(), 1d);
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive2(), 2d);
+    env.setMarketDataProvider(marketDataProvider);
+    TestViewResultListener resultListener = new TestViewResultListener();
+    ViewComputationJob computationJob = attachPartialDeltaClient(env, resultListener);
+    
+    // With more than half of the inputs changed, comparing everything is cheaper than finding the affected nodes
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive1(), 3d);
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive2(), 4d);
+    computationJob.triggerCycle();
+    resultListener.assertCycleCompleted(TIMEOUT);
+    assertEquals(allPrimitives(), marketDataProvider.getLastQueried());
+  }
+  
+  @Test
+  public void testColumnarResults() throws InterruptedException {
+    ViewProcessorTestEnvironment env = new ViewProcessorTestEnvironment();
+    InMemoryLKVMarketDataProvider marketDataProvider = new InMemoryLKVMarketDataProvider();
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive1(), 1d);
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive2(), 2d);
+    env.setMarketDataProvider(marketDataProvider);
+    env.init();
+    
+    ViewProcessorImpl vp = env.getViewProcessor();
+    vp.start();
+    
+    ViewClient client = vp.createViewClient(ViewProcessorTestEnvironment.TEST_USER);
+    TestViewResultListener resultListener = new TestViewResultListener();
+    client.setResultListener(resultListener);
+    EnumSet<ViewExecutionFlags> flags = ExecutionFlags.none().columnarResults().get();
+    client.attachToViewProcess(env.getViewDefinition().getUniqueId(), ExecutionOptions.infinite(MarketData.live(), flags));
+    
+    resultListener.assertViewDefinitionCompiled(TIMEOUT);
+    ViewComputationResultModel result = resultListener.getCycleCompleted(TIMEOUT).getFullResult();
+    assertTrue(result instanceof ColumnarViewComputationResultModel);
+    
+    ViewComputationJob computationJob = env.getCurrentComputationJob(env.getViewProcess(vp, client.getUniqueId()));
+    marketDataProvider.addValue(ViewProcessorTestEnvironment.getPrimitive1(), 3d);
+    computationJob.triggerCycle();
+    result = resultListener.getCycleCompleted(TIMEOUT).getFullResult();
+    assertTrue(result instanceof ColumnarViewComputationResultModel);
+    
+    Map<String, Object> resultValues = new HashMap<String, Object>();
+    ViewTargetResultModel targetResult = result.getTargetResult(ViewProcessorTestEnvironment.getPrimitive1().getTargetSpecification());
+    for (ComputedValue computedValue : targetResult.getAllValues(ViewProcessorTestEnvironment.TEST_CALC_CONFIG_NAME)) {
+      resultValues.put(computedValue.getSpecification().getValueName(), computedValue.getValue());
+    }
+    assertEquals(3d, resultValues.get(ViewProcessorTestEnvironment.getPrimitive1().getValueName()));
+    assertEquals(2d, resultValues.get(ViewProcessorTestEnvironment.getPrimitive2().getValueName()));
+  }
+  
   private void assertThreadReachesState(Thread recalcThread, Thread.State state) throws InterruptedException {
     long startTime = System.currentTimeMillis();
     while (recalcThread.getState() != state) {
@@ -322,6 +497,36 @@ public class ViewComputationJobTest {
     }
   }
   
+  /**
+   * Records the market data requested from each snapshot, so that a partial delta cycle can be told from a full one.
+   */
+  private static class QueryRecordingMarketDataProvider extends InMemoryLKVMarketDataProvider {
+    
+    private final List<Set<ValueRequirement>> _queried = new ArrayList<Set<ValueRequirement>>();
+    
+    @Override
+    public InMemoryLKVMarketDataSnapshot snapshot(MarketDataSpecification marketDataSpec) {
+      final Set<ValueRequirement> queried = Collections.synchronizedSet(new HashSet<ValueRequirement>());
+      synchronized (_queried) {
+        _queried.add(queried);
+      }
+      return new InMemoryLKVMarketDataSnapshot(this) {
+        @Override
+        public Object query(ValueRequirement requirement) {
+          queried.add(requirement);
+          return super.query(requirement);
+        }
+      };
+    }
+    
+    public Set<ValueRequirement> getLastQueried() {
+      synchronized (_queried) {
+        return new HashSet<ValueRequirement>(_queried.get(_queried.size() - 1));
+      }
+    }
+    
+  }
+  
   private static class TestLiveMarketDataProvider implements MarketDataProvider, MarketDataAvailabilityProvider {
 
     private final String _sourceName;
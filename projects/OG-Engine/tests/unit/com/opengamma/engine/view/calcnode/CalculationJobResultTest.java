@@ -8,6 +8,7 @@ package com.opengamma.engine.view.calcnode;
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
 import static org.testng.AssertJUnit.assertTrue;
 
 import java.util.Collections;
@@ -27,6 +28,7 @@ import com.opengamma.engine.ComputationTargetType;
 import com.opengamma.engine.function.EmptyFunctionParameters;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.cache.CacheSelectHint;
 import com.opengamma.engine.view.cache.IdentifierMap;
 import com.opengamma.engine.view.cache.InMemoryIdentifierMap;
 import com.opengamma.id.UniqueId;
@@ -57,6 +59,7 @@ public class CalculationJobResultTest {
         500, 
         Lists.newArrayList(item1, item2),
         "localhost");
+    result.setTrace(new CalculationJobTrace(100L, 200L, new long[] {110L, 120L, 130L, 140L, 150L, 0L, 0L, 0L }));
     result.convertInputs(identifierMap);
     FudgeSerializer serializationContext = new FudgeSerializer(s_fudgeContext);
     MutableFudgeMsg inputMsg = serializationContext.objectToFudgeMsg(result);
@@ -70,6 +73,7 @@ public class CalculationJobResultTest {
     assertEquals(spec, outputJob.getSpecification());
     assertEquals(500, outputJob.getDuration());
     assertEquals("localhost", outputJob.getComputeNodeId());
+    assertEquals(result.getTrace(), outputJob.getTrace());
     assertNotNull(outputJob.getResultItems());
     assertEquals(2, outputJob.getResultItems().size());
     CalculationJobResultItem outputItem1 = outputJob.getResultItems().get(0);
@@ -90,6 +94,39 @@ public class CalculationJobResultTest {
     assertNotNull(outputItem2.getStackTrace());
     assertTrue(outputItem2.getMissingInputs().isEmpty());
   }
-  
+
+  public void fudgeCompact() {
+    IdentifierMap identifierMap = new InMemoryIdentifierMap();
+    CalculationJobSpecification spec = new CalculationJobSpecification(UniqueId.of("Test", "ViewCycle"), "config", Instant.now(), 1L);
+    ComputationTargetSpecification targetSpec = new ComputationTargetSpecification(ComputationTargetType.SECURITY, UniqueId.of("Scheme", "Value"));
+    ValueSpecification inputSpec = new ValueSpecification(new ValueRequirement("Foo", targetSpec), "mockFunctionId");
+    CalculationJobItem item = new CalculationJobItem("1", new EmptyFunctionParameters(), targetSpec, Collections.singleton(inputSpec), Collections.<ValueRequirement>emptySet());
+    CalculationJob job = new CalculationJob(spec, 0L, null, Lists.newArrayList(item, item), CacheSelectHint.allShared());
+    CalculationJobResultItem item1 = new CalculationJobResultItem(item);
+    CalculationJobResultItem item2 = new CalculationJobResultItem(item, new MissingInputException(Collections.singleton(inputSpec), "1"));
+    CalculationJobResult result = new CalculationJobResult(spec, 500, Lists.newArrayList(item1, item2), "localhost");
+    result.convertInputs(identifierMap);
+    result.setCompactEncoding(true);
+    FudgeSerializer serializationContext = new FudgeSerializer(s_fudgeContext);
+    MutableFudgeMsg inputMsg = serializationContext.objectToFudgeMsg(result);
+    FudgeMsg outputMsg = s_fudgeContext.deserialize(s_fudgeContext.toByteArray(inputMsg)).getMessage();
+
+    FudgeDeserializer deserializationContext = new FudgeDeserializer(s_fudgeContext);
+    CalculationJobResult outputJob = deserializationContext.fudgeMsgToObject(CalculationJobResult.class, outputMsg);
+    assertNotNull(outputJob);
+    assertTrue(outputJob.isCompactEncoding());
+    outputJob.resolveItems(job);
+    outputJob.resolveInputs(identifierMap);
+    assertEquals(2, outputJob.getResultItems().size());
+    CalculationJobResultItem outputItem1 = outputJob.getResultItems().get(0);
+    assertEquals(InvocationResult.SUCCESS, outputItem1.getResult());
+    assertSame(item, outputItem1.getItem());
+    assertNull(outputItem1.getExceptionClass());
+    assertTrue(outputItem1.getMissingInputs().isEmpty());
+    CalculationJobResultItem outputItem2 = outputJob.getResultItems().get(1);
+    assertEquals(InvocationResult.MISSING_INPUTS, outputItem2.getResult());
+    assertSame(item, outputItem2.getItem());
+    assertEquals(Collections.singleton(inputSpec), outputItem2.getMissingInputs());
+  }
 
 }
@@ -9,6 +9,7 @@ import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -25,6 +26,7 @@ import com.google.common.collect.Sets;
 import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.ComputationTargetType;
 import com.opengamma.engine.function.EmptyFunctionParameters;
+import com.opengamma.engine.value.ValueProperties;
 import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
 import com.opengamma.engine.view.cache.CacheSelectHint;
@@ -109,4 +111,44 @@ public class CalculationJobTest {
     assertTrue(outputItem.getDesiredValues().contains(desiredValue));
   }
 
+  public void fudgeEncodingCompact() {
+    IdentifierMap identifierMap = new InMemoryIdentifierMap();
+    CalculationJobSpecification spec = new CalculationJobSpecification(UniqueId.of("Test", "ViewCycle"), "config", Instant.now(), 1L);
+    ComputationTargetSpecification targetSpec1 = new ComputationTargetSpecification(ComputationTargetType.SECURITY, UniqueId.of("Scheme", "Value1"));
+    ComputationTargetSpecification targetSpec2 = new ComputationTargetSpecification(ComputationTargetType.SECURITY, UniqueId.of("Scheme", "Value2"));
+    ValueSpecification inputSpec = new ValueSpecification(new ValueRequirement("Foo", ComputationTargetType.PRIMITIVE, UniqueId.of("Scheme", "Value3")), "mockFunctionId");
+    ValueRequirement desiredValue1 = new ValueRequirement("Foo", targetSpec1);
+    ValueRequirement desiredValue2 = new ValueRequirement("Foo", targetSpec2, ValueProperties.with("Bar", "X").get());
+    ValueRequirement desiredValue3 = new ValueRequirement("Foo", ComputationTargetType.PRIMITIVE, UniqueId.of("Scheme", "Value4"));
+    List<CalculationJobItem> items = Arrays.asList(
+        new CalculationJobItem("1", new EmptyFunctionParameters(), targetSpec1, Sets.newHashSet(inputSpec), Sets.newHashSet(desiredValue1)),
+        new CalculationJobItem("1", new EmptyFunctionParameters(), targetSpec2, Sets.newHashSet(inputSpec), Sets.newHashSet(desiredValue2, desiredValue3)));
+
+    CalculationJob inputJob = new CalculationJob(spec, 123L, null, items, CacheSelectHint.allShared());
+    inputJob.convertInputs(identifierMap);
+    inputJob.setCompactEncoding(true);
+
+    FudgeSerializer serializationContext = new FudgeSerializer(s_fudgeContext);
+    MutableFudgeMsg inputMsg = serializationContext.objectToFudgeMsg(inputJob);
+    FudgeMsg outputMsg = s_fudgeContext.deserialize(s_fudgeContext.toByteArray(inputMsg)).getMessage();
+    FudgeDeserializer deserializationContext = new FudgeDeserializer(s_fudgeContext);
+    CalculationJob outputJob = deserializationContext.fudgeMsgToObject(CalculationJob.class, outputMsg);
+
+    assertNotNull(outputJob);
+    assertTrue(outputJob.isCompactEncoding());
+    outputJob.resolveInputs(identifierMap);
+    assertEquals(inputJob.getSpecification(), outputJob.getSpecification());
+    assertEquals(2, outputJob.getJobItems().size());
+    CalculationJobItem outputItem = outputJob.getJobItems().get(0);
+    assertEquals("1", outputItem.getFunctionUniqueIdentifier());
+    assertEquals(targetSpec1, outputItem.getComputationTargetSpecification());
+    assertEquals(Collections.singleton(inputSpec), outputItem.getInputs());
+    assertEquals(Collections.singleton(desiredValue1), outputItem.getDesiredValues());
+    outputItem = outputJob.getJobItems().get(1);
+    assertEquals("1", outputItem.getFunctionUniqueIdentifier());
+    assertEquals(targetSpec2, outputItem.getComputationTargetSpecification());
+    assertEquals(Collections.singleton(inputSpec), outputItem.getInputs());
+    assertEquals(Sets.newHashSet(desiredValue2, desiredValue3), outputItem.getDesiredValues());
+  }
+
 }
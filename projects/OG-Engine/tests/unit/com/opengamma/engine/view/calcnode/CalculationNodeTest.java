@@ -7,22 +7,72 @@ package com.opengamma.engine.view.calcnode;
 
 import static org.testng.AssertJUnit.assertEquals;
 import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.time.Instant;
+
 import org.testng.annotations.Test;
 
+import com.opengamma.OpenGammaRuntimeException;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.function.BatchFunctionInvoker;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.function.FunctionInputs;
 import com.opengamma.engine.test.CalculationNodeUtils;
 import com.opengamma.engine.test.MockFunction;
 import com.opengamma.engine.test.TestCalculationNode;
 import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueRequirement;
 import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.cache.CacheSelectHint;
 import com.opengamma.engine.view.cache.ViewComputationCache;
+import com.opengamma.id.UniqueId;
 
 /**
  * Tests the {@link AbstractCalculationNode} class. Note the name so that Clover doesn't ignore it.
  */
 @Test
 public class CalculationNodeTest {
+
+  private static final class BatchMockFunction extends MockFunction implements BatchFunctionInvoker {
+
+    private int _batches;
+    private ComputationTarget _failingTarget;
+
+    public BatchMockFunction(final ComputationTarget target) {
+      super(target);
+    }
+
+    @Override
+    public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target,
+        final Set<ValueRequirement> desiredValues) {
+      if (target.equals(_failingTarget)) {
+        throw new OpenGammaRuntimeException("Failing target " + target);
+      }
+      return super.execute(executionContext, inputs, target, desiredValues);
+    }
+
+    @Override
+    public List<Set<ComputedValue>> execute(final FunctionExecutionContext executionContext, final List<FunctionInputs> inputs, final List<ComputationTarget> targets,
+        final List<Set<ValueRequirement>> desiredValues) {
+      _batches++;
+      final List<Set<ComputedValue>> results = new ArrayList<Set<ComputedValue>>(targets.size());
+      for (int i = 0; i < targets.size(); i++) {
+        results.add(execute(executionContext, inputs.get(i), targets.get(i), desiredValues.get(i)));
+      }
+      return results;
+    }
+
+  }
   
   public void mockFunctionInvocationOneInputMissing() throws InterruptedException {
     MockFunction mockFunction = CalculationNodeUtils.getMockFunction();
@@ -61,4 +111,78 @@ public class CalculationNodeTest {
     assertEquals("Nothing we care about", cache.getValue(mockFunction.getResultSpec()));
   }
 
+  public void tracedFunctionInvocation() {
+    MockFunction mockFunction = CalculationNodeUtils.getMockFunction();
+    TestCalculationNode calcNode = CalculationNodeUtils.getTestCalcNode(mockFunction);
+    CalculationJob calcJob = CalculationNodeUtils.getCalculationJob(mockFunction);
+    ValueSpecification inputSpec = mockFunction.getRequirements().iterator().next();
+    calcNode.getCache(calcJob.getSpecification()).putSharedValue(new ComputedValue(inputSpec, "Just an input object"));
+    assertNull(calcNode.executeJob(calcJob).getTrace());
+    calcJob.setTraced(true);
+    CalculationJobResult jobResult = calcNode.executeJob(calcJob);
+    CalculationJobTrace trace = jobResult.getTrace();
+    assertNotNull(trace);
+    assertEquals(1, trace.getItemCount());
+    assertTrue(trace.getStarted() <= trace.getItemStarted(0));
+    assertTrue(trace.getItemStarted(0) <= trace.getItemInputsFetched(0));
+    assertTrue(trace.getItemInputsFetched(0) <= trace.getItemInvoked(0));
+    assertTrue(trace.getItemInvoked(0) <= trace.getItemWritten(0));
+    assertTrue(trace.getItemWritten(0) <= trace.getFinished());
+  }
+
+  private static CalculationJobItem createJobItem(final MockFunction function, final ComputationTarget target) {
+    return new CalculationJobItem(function.getUniqueId(), function.getDefaultParameters(), target.toSpecification(), Collections.<ValueSpecification>emptySet(),
+        Collections.singleton(MockFunction.getOutputRequirement(target)));
+  }
+
+  private static CalculationJob createJob(final CalculationJobItem... items) {
+    return new CalculationJob(new CalculationJobSpecification(UniqueId.of("Test", "ViewProcess"), CalculationNodeUtils.CALC_CONF_NAME, Instant.now(), 1L), 0L, null,
+        Arrays.asList(items), CacheSelectHint.allShared());
+  }
+
+  public void batchFunctionInvocation() {
+    final ComputationTarget target1 = new ComputationTarget(ComputationTargetType.PRIMITIVE, "USD");
+    final ComputationTarget target2 = new ComputationTarget(ComputationTargetType.PRIMITIVE, "GBP");
+    final BatchMockFunction mockFunction = new BatchMockFunction(target1);
+    mockFunction.addResult(MockFunction.getOutputRequirement(target1), "USD output");
+    mockFunction.addResult(MockFunction.getOutputRequirement(target2), "GBP output");
+    final TestCalculationNode calcNode = CalculationNodeUtils.getTestCalcNode(mockFunction);
+    final CalculationJobItem item1 = createJobItem(mockFunction, target1);
+    final CalculationJobItem item2 = createJobItem(mockFunction, target2);
+    final CalculationJob calcJob = createJob(item1, item2);
+    final CalculationJobResult jobResult = calcNode.executeJob(calcJob);
+    assertEquals(1, mockFunction._batches);
+    assertEquals(2, jobResult.getResultItems().size());
+    assertEquals(item1, jobResult.getResultItems().get(0).getItem());
+    assertEquals(InvocationResult.SUCCESS, jobResult.getResultItems().get(0).getResult());
+    assertEquals(item2, jobResult.getResultItems().get(1).getItem());
+    assertEquals(InvocationResult.SUCCESS, jobResult.getResultItems().get(1).getResult());
+    final ViewComputationCache cache = calcNode.getCache(calcJob.getSpecification());
+    assertEquals("GBP output", cache.getValue(mockFunction.toValueSpecification(MockFunction.getOutputRequirement(target2))));
+  }
+
+  public void batchFunctionInvocationFailure() {
+    final ComputationTarget target1 = new ComputationTarget(ComputationTargetType.PRIMITIVE, "USD");
+    final ComputationTarget target2 = new ComputationTarget(ComputationTargetType.PRIMITIVE, "GBP");
+    final BatchMockFunction mockFunction = new BatchMockFunction(target1);
+    mockFunction.addResult(MockFunction.getOutputRequirement(target1), "USD output");
+    mockFunction.addResult(MockFunction.getOutputRequirement(target2), "GBP output");
+    // The batch call fails because of the second target; the items are then invoked individually
+    mockFunction._failingTarget = target2;
+    final TestCalculationNode calcNode = CalculationNodeUtils.getTestCalcNode(mockFunction);
+    final CalculationJobItem item1 = createJobItem(mockFunction, target1);
+    final CalculationJobItem item2 = createJobItem(mockFunction, target2);
+    final CalculationJob calcJob = createJob(item1, item2);
+    final CalculationJobResult jobResult = calcNode.executeJob(calcJob);
+    assertEquals(1, mockFunction._batches);
+    assertEquals(2, jobResult.getResultItems().size());
+    assertEquals(item1, jobResult.getResultItems().get(0).getItem());
+    assertEquals(InvocationResult.SUCCESS, jobResult.getResultItems().get(0).getResult());
+    assertEquals(item2, jobResult.getResultItems().get(1).getItem());
+    assertEquals(InvocationResult.FUNCTION_THREW_EXCEPTION, jobResult.getResultItems().get(1).getResult());
+    final ViewComputationCache cache = calcNode.getCache(calcJob.getSpecification());
+    assertEquals("USD output", cache.getValue(mockFunction.toValueSpecification(MockFunction.getOutputRequirement(target1))));
+    assertNull(cache.getValue(mockFunction.toValueSpecification(MockFunction.getOutputRequirement(target2))));
+  }
+
 }
@@ -11,10 +11,13 @@ import static org.testng.AssertJUnit.assertNull;
 import static org.testng.AssertJUnit.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -155,6 +158,97 @@ public class JobDispatcherTest {
     assertNull(node2._callback);
   }
 
+  @Test
+  public void invokeAcrossCapabilityPools() {
+    s_logger.info("invokeAcrossCapabilityPools");
+    final JobDispatcher jobDispatcher = new JobDispatcher();
+    final TestJobInvoker node1 = new TestJobInvoker("1");
+    final TestJobInvoker node2 = new TestJobInvoker("2") {
+      @Override
+      public Collection<Capability> getCapabilities() {
+        return Collections.singleton(Capability.instanceOf("Foo"));
+      }
+    };
+    jobDispatcher.registerJobInvoker(node1);
+    jobDispatcher.registerJobInvoker(node2);
+    assertEquals(2, jobDispatcher.getAllCapabilities().size());
+    assertEquals(Collections.singletonList(Capability.instanceOf("Foo")), jobDispatcher.getAllCapabilities().get("2"));
+    node1._disabled = true;
+    nodeTest("2", jobDispatcher);
+    nodeTest("2", jobDispatcher);
+    assertNotNull(node1._callback);
+    assertEquals(2, jobDispatcher.getDispatchCount());
+    assertTrue(jobDispatcher.getDispatchLatencyNanos() > 0);
+    jobDispatcher.resetDispatchStatistics();
+    assertEquals(0, jobDispatcher.getDispatchCount());
+  }
+
+  @Test
+  public void capabilityOrderIgnored() {
+    s_logger.info("capabilityOrderIgnored");
+    final JobDispatcher jobDispatcher = new JobDispatcher();
+    final TestJobInvoker node1 = new TestJobInvoker("1") {
+      @Override
+      public Collection<Capability> getCapabilities() {
+        return Arrays.asList(Capability.instanceOf("Foo"), Capability.instanceOf("Bar"));
+      }
+    };
+    final TestJobInvoker node2 = new TestJobInvoker("2") {
+      @Override
+      public Collection<Capability> getCapabilities() {
+        return Arrays.asList(Capability.instanceOf("Bar"), Capability.instanceOf("Foo"));
+      }
+    };
+    jobDispatcher.registerJobInvoker(node1);
+    jobDispatcher.registerJobInvoker(node2);
+    assertEquals(jobDispatcher.getAllCapabilities().get("1"), jobDispatcher.getAllCapabilities().get("2"));
+    nodeTest("1", jobDispatcher);
+    nodeTest("2", jobDispatcher);
+  }
+
+  @Test
+  public void registerNewPoolAfterDispatch() {
+    s_logger.info("registerNewPoolAfterDispatch");
+    final JobDispatcher jobDispatcher = new JobDispatcher();
+    final TestJobInvoker node1 = new TestJobInvoker("1");
+    node1._disabled = true;
+    jobDispatcher.registerJobInvoker(node1);
+    // Eligible pools for the requirement are memoised with only the first pool
+    final TestJobResultReceiver result = new TestJobResultReceiver();
+    final CalculationJob job = createTestJob();
+    jobDispatcher.dispatchJob(job, result);
+    assertNull(result.getResult());
+    final TestJobInvoker node2 = new TestJobInvoker("2") {
+      @Override
+      public Collection<Capability> getCapabilities() {
+        return Collections.singleton(Capability.instanceOf("Foo"));
+      }
+    };
+    jobDispatcher.registerJobInvoker(node2);
+    final CalculationJobResult jobResult = result.waitForResult(TIMEOUT);
+    assertNotNull(jobResult);
+    assertEquals("2", jobResult.getComputeNodeId());
+    nodeTest("2", jobDispatcher);
+  }
+
+  @Test
+  public void registerInvokerWithNewPendingQueue() {
+    s_logger.info("registerInvokerWithNewPendingQueue");
+    final JobDispatcher jobDispatcher = new JobDispatcher();
+    final TestJobInvoker node = new TestJobInvoker("1");
+    node._disabled = true;
+    // Serviced queues for the pool are memoised before any queue exists
+    jobDispatcher.registerJobInvoker(node);
+    final TestJobResultReceiver result = new TestJobResultReceiver();
+    jobDispatcher.dispatchJob(createTestJob(), result);
+    assertNull(result.getResult());
+    assertEquals(1, jobDispatcher.getPendingJobCount());
+    node._disabled = false;
+    jobDispatcher.registerJobInvoker(node);
+    assertNotNull(result.waitForResult(TIMEOUT));
+    assertEquals(0, jobDispatcher.getPendingJobCount());
+  }
+
   @Test
   public void saturateInvokers() {
     s_logger.info("saturateInvokers");
@@ -235,6 +329,66 @@ public class JobDispatcherTest {
     s_logger.debug("All jobs completed");
   }
 
+  @Test
+  public void testJobPendingTimeout() {
+    s_logger.info("testJobPendingTimeout");
+    final JobDispatcher jobDispatcher = new JobDispatcher();
+    jobDispatcher.setMaxJobPendingTime(TIMEOUT / 4);
+    final TestJobResultReceiver result = new TestJobResultReceiver();
+    jobDispatcher.dispatchJob(createTestJob(), result);
+    assertEquals(1, jobDispatcher.getPendingJobCount());
+    final CalculationJobResult jobResult = result.waitForResult(TIMEOUT);
+    assertNotNull(jobResult);
+    assertEquals(jobDispatcher.getJobFailureNodeId(), jobResult.getComputeNodeId());
+    assertEquals(0, jobDispatcher.getPendingJobCount());
+  }
+
+  /**
+   * Registers an invoker while the pending jobs are being swept. A job taken from the queue and dispatched by the
+   * registration must not also be aborted by the sweep.
+   */
+  @Test
+  public void testJobPendingTimeoutRace() throws InterruptedException {
+    s_logger.info("testJobPendingTimeoutRace");
+    for (int run = 0; run < 20; run++) {
+      final JobDispatcher jobDispatcher = new JobDispatcher();
+      final CalculationJob[] jobs = new CalculationJob[100];
+      final TestJobResultReceiver[] results = new TestJobResultReceiver[jobs.length];
+      for (int i = 0; i < jobs.length; i++) {
+        jobs[i] = createTestJob();
+        results[i] = new TestJobResultReceiver();
+        jobDispatcher.dispatchJob(jobs[i], results[i]);
+      }
+      final Set<CalculationJobSpecification> invoked = Collections.synchronizedSet(new HashSet<CalculationJobSpecification>());
+      final TestJobInvoker jobInvoker = new TestJobInvoker("Test") {
+        @Override
+        public boolean invoke(final CalculationJob job, final JobInvocationReceiver receiver) {
+          invoked.add(job.getSpecification());
+          return super.invoke(job, receiver);
+        }
+      };
+      final Thread register = new Thread() {
+        @Override
+        public void run() {
+          jobDispatcher.registerJobInvoker(jobInvoker);
+        }
+      };
+      register.start();
+      jobDispatcher.failJobsBefore(System.nanoTime() + TIMEOUT * 1000000L);
+      register.join(TIMEOUT);
+      for (int i = 0; i < jobs.length; i++) {
+        final CalculationJobResult jobResult = results[i].waitForResult(TIMEOUT);
+        assertNotNull(jobResult);
+        if (invoked.contains(jobs[i].getSpecification())) {
+          assertEquals("Test", jobResult.getComputeNodeId());
+        } else {
+          assertEquals(jobDispatcher.getJobFailureNodeId(), jobResult.getComputeNodeId());
+        }
+      }
+      assertEquals(0, jobDispatcher.getPendingJobCount());
+    }
+  }
+
   private class FailingJobInvoker extends AbstractJobInvoker {
 
     private int _failureCount;
@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.calcnode;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.engine.test.TestCalculationNode;
+import com.opengamma.util.test.Timeout;
+
+/**
+ * Tests the {@link WorkStealingNodeJobInvoker} class.
+ */
+@Test
+public class WorkStealingNodeJobInvokerTest {
+
+  private static final long TIMEOUT = Timeout.standardTimeoutMillis();
+
+  public void testInvokeWithNoNodes() {
+    final WorkStealingNodeJobInvoker invoker = new WorkStealingNodeJobInvoker();
+    final TestJobInvocationReceiver receiver = new TestJobInvocationReceiver();
+    assertFalse(invoker.invoke(JobDispatcherTest.createTestJob(), receiver));
+    assertNull(receiver.getCompletionResult());
+  }
+
+  public void testInvokeWithOneNode() {
+    final WorkStealingNodeJobInvoker invoker = new WorkStealingNodeJobInvoker(new TestCalculationNode());
+    final TestJobInvocationReceiver receiver = new TestJobInvocationReceiver();
+    final CalculationJob job = JobDispatcherTest.createTestJob();
+    assertTrue(invoker.invoke(job, receiver));
+    final CalculationJobResult jobResult = receiver.waitForCompletionResult(TIMEOUT);
+    assertNotNull(jobResult);
+    assertEquals(job.getSpecification(), jobResult.getSpecification());
+  }
+
+  public void testInvokeManyJobs() {
+    final WorkStealingNodeJobInvoker invoker = new WorkStealingNodeJobInvoker(Arrays.<AbstractCalculationNode>asList(new TestCalculationNode(), new TestCalculationNode()));
+    invoker.setSlotsPerNode(1000);
+    assertEquals(2, invoker.getWorkerCount());
+    final List<CalculationJob> jobs = new ArrayList<CalculationJob>();
+    final List<TestJobInvocationReceiver> receivers = new ArrayList<TestJobInvocationReceiver>();
+    for (int i = 0; i < 100; i++) {
+      final CalculationJob job = JobDispatcherTest.createTestJob();
+      final TestJobInvocationReceiver receiver = new TestJobInvocationReceiver();
+      assertTrue(invoker.invoke(job, receiver));
+      jobs.add(job);
+      receivers.add(receiver);
+    }
+    for (int i = 0; i < jobs.size(); i++) {
+      final CalculationJobResult jobResult = receivers.get(i).waitForCompletionResult(TIMEOUT);
+      assertNotNull(jobResult);
+      assertEquals(jobs.get(i).getSpecification(), jobResult.getSpecification());
+    }
+  }
+
+}
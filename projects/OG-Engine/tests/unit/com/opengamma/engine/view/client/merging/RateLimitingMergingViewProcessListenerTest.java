@@ -11,7 +11,6 @@ import static org.testng.AssertJUnit.assertTrue;
 
 import java.util.HashSet;
 import java.util.Set;
-import java.util.Timer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,7 +43,7 @@ public class RateLimitingMergingViewProcessListenerTest {
   @Test
   public void testPassThrough() {
     TestViewResultListener testListener = new TestViewResultListener();
-    RateLimitingMergingViewProcessListener mergingListener = new RateLimitingMergingViewProcessListener(testListener, mock(EngineResourceManagerImpl.class), new Timer("Custom timer"));
+    RateLimitingMergingViewProcessListener mergingListener = new RateLimitingMergingViewProcessListener(testListener, mock(EngineResourceManagerImpl.class), new SchedulingWheel("Custom wheel"));
 
     // OK, it doesn't really test the 'synchronous' bit, but it at least checks that no merging has happened.
     addCompile(mergingListener);
@@ -74,7 +73,7 @@ public class RateLimitingMergingViewProcessListenerTest {
   @Test
   public void testMergingWhenRateLimiting() throws InterruptedException {
     TestViewResultListener testListener = new TestViewResultListener();
-    RateLimitingMergingViewProcessListener mergingListener = new RateLimitingMergingViewProcessListener(testListener, mock(EngineResourceManagerImpl.class), new Timer("Custom timer"));
+    RateLimitingMergingViewProcessListener mergingListener = new RateLimitingMergingViewProcessListener(testListener, mock(EngineResourceManagerImpl.class), new SchedulingWheel("Custom wheel"));
     mergingListener.setMinimumUpdatePeriodMillis(500);
 
     addResults(mergingListener, 1000);
@@ -88,7 +87,7 @@ public class RateLimitingMergingViewProcessListenerTest {
   @Test
   public void testModifiableUpdatePeriod() throws InterruptedException {
     TestViewResultListener testListener = new TestViewResultListener();
-    RateLimitingMergingViewProcessListener mergingListener = new RateLimitingMergingViewProcessListener(testListener, mock(EngineResourceManagerImpl.class), new Timer("Custom timer"));
+    RateLimitingMergingViewProcessListener mergingListener = new RateLimitingMergingViewProcessListener(testListener, mock(EngineResourceManagerImpl.class), new SchedulingWheel("Custom wheel"));
 
     assertCorrectUpdateRate(mergingListener, testListener, 100);
     assertCorrectUpdateRate(mergingListener, testListener, 400);
@@ -100,7 +99,7 @@ public class RateLimitingMergingViewProcessListenerTest {
   @Test
   public void testCallOrderingAndCollapsing() throws InterruptedException {
     TestViewResultListener testListener = new TestViewResultListener();
-    RateLimitingMergingViewProcessListener mergingListener = new RateLimitingMergingViewProcessListener(testListener, mock(EngineResourceManagerImpl.class), new Timer("Custom timer"));
+    RateLimitingMergingViewProcessListener mergingListener = new RateLimitingMergingViewProcessListener(testListener, mock(EngineResourceManagerImpl.class), new SchedulingWheel("Custom wheel"));
    
     mergingListener.setPaused(true);
     testListener.assertNoCalls();
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.client.merging;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.opengamma.util.test.Timeout;
+
+/**
+ * Tests the {@link SchedulingWheel} class.
+ */
+@Test
+public class SchedulingWheelTest {
+
+  public void testDelay() throws InterruptedException {
+    final SchedulingWheel wheel = new SchedulingWheel("Test", 10, 8);
+    final CountDownLatch latch = new CountDownLatch(1);
+    final long start = System.currentTimeMillis();
+    // Longer than one turn of the wheel
+    wheel.schedule(new Runnable() {
+      @Override
+      public void run() {
+        latch.countDown();
+      }
+    }, 200);
+    assertTrue(latch.await(Timeout.standardTimeoutMillis(), TimeUnit.MILLISECONDS));
+    assertTrue(System.currentTimeMillis() - start >= 200);
+    assertEquals(0, wheel.getPendingTaskCount());
+  }
+
+  public void testCancel() throws InterruptedException {
+    final SchedulingWheel wheel = new SchedulingWheel("Test");
+    final AtomicInteger count = new AtomicInteger();
+    final Runnable increment = new Runnable() {
+      @Override
+      public void run() {
+        count.incrementAndGet();
+      }
+    };
+    final SchedulingWheel.Task cancelled = wheel.schedule(increment, 50);
+    wheel.schedule(increment, 50);
+    cancelled.cancel();
+    Thread.sleep(200);
+    assertEquals(1, count.get());
+    assertEquals(0, wheel.getPendingTaskCount());
+  }
+
+}
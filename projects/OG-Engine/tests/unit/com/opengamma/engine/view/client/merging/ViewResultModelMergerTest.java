@@ -93,6 +93,17 @@ public class ViewResultModelMergerTest {
     assertNotNull(merger.getLatestResult());
   }
 
+  public void testDeltaMergerRecordsLatestEntry() {
+    ViewDeltaResultModelMerger merger = new ViewDeltaResultModelMerger();
+    for (int i = 0; i < 10; i++) {
+      InMemoryViewDeltaResultModel deltaResult = new InMemoryViewDeltaResultModel();
+      deltaResult.addValue(CONFIG_1, getComputedValue("value1", i));
+      merger.merge(deltaResult);
+    }
+    assertEquals(1, merger.getLatestResult().getAllResults().size());
+    assertEquals(9, merger.getLatestResult().getAllResults().get(0).getComputedValue().getValue());
+  }
+
   //-------------------------------------------------------------------------
   public void testFullMerger() {
     ViewComputationResultModelMerger merger = new ViewComputationResultModelMerger();
@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.compilation;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.Executors;
+
+import javax.time.Instant;
+
+import org.apache.commons.io.FileUtils;
+import org.testng.annotations.Test;
+
+import com.opengamma.core.position.impl.MockPositionSource;
+import com.opengamma.core.position.impl.SimplePortfolio;
+import com.opengamma.core.position.impl.SimplePortfolioNode;
+import com.opengamma.core.position.impl.SimplePosition;
+import com.opengamma.core.security.impl.SimpleSecurity;
+import com.opengamma.engine.DefaultCachingComputationTargetResolver;
+import com.opengamma.engine.DefaultComputationTargetResolver;
+import com.opengamma.engine.function.CachingFunctionRepositoryCompiler;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.function.resolver.DefaultFunctionResolver;
+import com.opengamma.engine.marketdata.InMemoryLKVMarketDataProvider;
+import com.opengamma.engine.marketdata.availability.MarketDataAvailabilityProvider;
+import com.opengamma.engine.marketdata.spec.MarketData;
+import com.opengamma.engine.test.MockSecuritySource;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ehcache.EHCacheUtils;
+
+/**
+ * Tests the {@link CompiledViewDefinitionCache} class.
+ */
+@Test
+public class CompiledViewDefinitionCacheTest {
+
+  private ViewCompilationServices createServices(final MarketDataAvailabilityProvider availabilityProvider) {
+    return createServices(availabilityProvider, 123);
+  }
+
+  private ViewCompilationServices createServices(final MarketDataAvailabilityProvider availabilityProvider, final long functionInitId) {
+    final ExternalId secIdentifier = ExternalId.of("SEC", "1");
+    final SimplePortfolioNode pn = new SimplePortfolioNode("node");
+    pn.addPosition(new SimplePosition(new BigDecimal(1), secIdentifier));
+    final SimplePortfolio p = new SimplePortfolio(UniqueId.of("FOO", "BAR", "1"), "portfolio");
+    p.setRootNode(pn);
+    final MockPositionSource positionSource = new MockPositionSource();
+    positionSource.addPortfolio(p);
+    final SimpleSecurity defSec = new SimpleSecurity("");
+    defSec.addExternalId(secIdentifier);
+    final MockSecuritySource securitySource = new MockSecuritySource();
+    securitySource.addSecurity(defSec);
+    final FunctionCompilationContext functionCompilationContext = new FunctionCompilationContext();
+    final CompiledFunctionService cfs = new CompiledFunctionService(new InMemoryFunctionRepository(), new CachingFunctionRepositoryCompiler(), functionCompilationContext);
+    // A fixed init id so that services created for different calls share the same key
+    cfs.initialize(functionInitId);
+    final DefaultCachingComputationTargetResolver computationTargetResolver = new DefaultCachingComputationTargetResolver(new DefaultComputationTargetResolver(securitySource,
+        positionSource), EHCacheUtils.createCacheManager());
+    return new ViewCompilationServices(availabilityProvider, new DefaultFunctionResolver(cfs), functionCompilationContext, computationTargetResolver,
+        Executors.newSingleThreadExecutor(), securitySource, positionSource);
+  }
+
+  public void testShared() {
+    final CompiledViewDefinitionCache cache = new CompiledViewDefinitionCache();
+    final ViewCompilationServices services = createServices(new InMemoryLKVMarketDataProvider());
+    final ViewDefinition viewDefinition = new ViewDefinition(UniqueId.of("View", "1", "1"), "My View", UniqueId.of("FOO", "BAR"), "kirk");
+    final Instant now = Instant.now();
+    final CompiledViewDefinitionWithGraphsImpl first = cache.compile(viewDefinition, services, MarketData.live(), now, VersionCorrection.LATEST);
+    assertSame(first, cache.compile(viewDefinition, services, MarketData.live(), now, VersionCorrection.LATEST));
+    assertEquals(1, cache.size());
+    cache.remove(first);
+    assertEquals(0, cache.size());
+    assertNotSame(first, cache.compile(viewDefinition, services, MarketData.live(), now, VersionCorrection.LATEST));
+  }
+
+  public void testMarketDataSpecification() {
+    final CompiledViewDefinitionCache cache = new CompiledViewDefinitionCache();
+    final ViewDefinition viewDefinition = new ViewDefinition(UniqueId.of("View", "1", "1"), "My View", UniqueId.of("FOO", "BAR"), "kirk");
+    final Instant now = Instant.now();
+    final CompiledViewDefinitionWithGraphsImpl first = cache.compile(viewDefinition, createServices(new InMemoryLKVMarketDataProvider()), MarketData.live(), now,
+        VersionCorrection.LATEST);
+    // A different availability provider instance for the same market data can share the compilation
+    assertSame(first, cache.compile(viewDefinition, createServices(new InMemoryLKVMarketDataProvider()), MarketData.live(), now, VersionCorrection.LATEST));
+    final CompiledViewDefinitionWithGraphsImpl second = cache.compile(viewDefinition, createServices(new InMemoryLKVMarketDataProvider()),
+        MarketData.user(UniqueId.of("Snapshot", "1")), now, VersionCorrection.LATEST);
+    assertNotSame(first, second);
+    assertEquals(2, cache.size());
+  }
+
+  public void testPersistedAcrossFunctionInitIds() throws IOException {
+    final File directory = new File(System.getProperty("java.io.tmpdir"), "compiledViewDefinitionCacheTest-" + System.currentTimeMillis());
+    try {
+      final ViewDefinition viewDefinition = new ViewDefinition(UniqueId.of("View", "1", "1"), "My View", UniqueId.of("FOO", "BAR"), "kirk");
+      final Instant now = Instant.now();
+      final CompiledViewDefinitionWithGraphsImpl first = new CompiledViewDefinitionCache(CompiledViewDefinitionCache.DEFAULT_MAX_SIZE, directory).compile(viewDefinition,
+          createServices(new InMemoryLKVMarketDataProvider(), 123), MarketData.live(), now, VersionCorrection.LATEST);
+      assertEquals(1, directory.list().length);
+      // A restart initializes the functions with a different id; the same functions should still load the stored compilation
+      final CompiledViewDefinitionWithGraphsImpl second = new CompiledViewDefinitionCache(CompiledViewDefinitionCache.DEFAULT_MAX_SIZE, directory).compile(viewDefinition,
+          createServices(new InMemoryLKVMarketDataProvider(), 456), MarketData.live(), now, VersionCorrection.LATEST);
+      assertNotSame(first, second);
+      assertEquals(1, directory.list().length);
+      assertEquals(123L, first.getFunctionInitId());
+      assertEquals(456L, second.getFunctionInitId());
+    } finally {
+      FileUtils.deleteDirectory(directory);
+    }
+  }
+
+}
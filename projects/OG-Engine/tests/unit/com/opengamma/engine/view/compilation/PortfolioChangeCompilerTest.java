@@ -0,0 +1,304 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.engine.view.compilation;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNotNull;
+import static org.testng.AssertJUnit.assertNotSame;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.time.Instant;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.opengamma.core.position.Position;
+import com.opengamma.core.position.impl.MockPositionSource;
+import com.opengamma.core.position.impl.SimplePortfolio;
+import com.opengamma.core.position.impl.SimplePortfolioNode;
+import com.opengamma.core.position.impl.SimplePosition;
+import com.opengamma.core.security.impl.SimpleSecurity;
+import com.opengamma.core.security.impl.SimpleSecurityLink;
+import com.opengamma.engine.ComputationTarget;
+import com.opengamma.engine.ComputationTargetSpecification;
+import com.opengamma.engine.ComputationTargetType;
+import com.opengamma.engine.DefaultCachingComputationTargetResolver;
+import com.opengamma.engine.DefaultComputationTargetResolver;
+import com.opengamma.engine.depgraph.DependencyGraph;
+import com.opengamma.engine.depgraph.DependencyNode;
+import com.opengamma.engine.function.AbstractFunction;
+import com.opengamma.engine.function.CachingFunctionRepositoryCompiler;
+import com.opengamma.engine.function.CompiledFunctionService;
+import com.opengamma.engine.function.FunctionCompilationContext;
+import com.opengamma.engine.function.FunctionExecutionContext;
+import com.opengamma.engine.function.FunctionInputs;
+import com.opengamma.engine.function.InMemoryFunctionRepository;
+import com.opengamma.engine.function.resolver.DefaultFunctionResolver;
+import com.opengamma.engine.marketdata.InMemoryLKVMarketDataProvider;
+import com.opengamma.engine.test.MockSecuritySource;
+import com.opengamma.engine.value.ComputedValue;
+import com.opengamma.engine.value.ValueRequirement;
+import com.opengamma.engine.value.ValueSpecification;
+import com.opengamma.engine.view.ViewCalculationConfiguration;
+import com.opengamma.engine.view.ViewDefinition;
+import com.opengamma.id.ExternalId;
+import com.opengamma.id.ObjectId;
+import com.opengamma.id.UniqueId;
+import com.opengamma.id.VersionCorrection;
+import com.opengamma.util.ehcache.EHCacheUtils;
+
+/**
+ * Tests the {@link PortfolioChangeCompiler} class.
+ */
+@Test
+public class PortfolioChangeCompilerTest {
+
+  private static final String SECURITY_TYPE = "Test";
+  private static final String VALUE = "Value";
+  private static final String PRICE = "Price";
+
+  /**
+   * Produces a value on a position from the market data price of its security.
+   */
+  private static final class PositionFunction extends AbstractFunction.NonCompiledInvoker {
+
+    @Override
+    public ComputationTargetType getTargetType() {
+      return ComputationTargetType.POSITION;
+    }
+
+    @Override
+    public boolean canApplyTo(final FunctionCompilationContext context, final ComputationTarget target) {
+      return target.getType() == ComputationTargetType.POSITION;
+    }
+
+    @Override
+    public Set<ValueRequirement> getRequirements(final FunctionCompilationContext context, final ComputationTarget target, final ValueRequirement desiredValue) {
+      return Collections.singleton(new ValueRequirement(PRICE, ComputationTargetType.SECURITY, target.getPosition().getSecurity().getUniqueId()));
+    }
+
+    @Override
+    public Set<ValueSpecification> getResults(final FunctionCompilationContext context, final ComputationTarget target) {
+      return Collections.singleton(new ValueSpecification(VALUE, target.toSpecification(), createValueProperties().get()));
+    }
+
+    @Override
+    public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target,
+        final Set<ValueRequirement> desiredValues) {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+  /**
+   * Produces a value on a portfolio node from the values of its positions.
+   */
+  private static final class PortfolioNodeFunction extends AbstractFunction.NonCompiledInvoker {
+
+    @Override
+    public ComputationTargetType getTargetType() {
+      return ComputationTargetType.PORTFOLIO_NODE;
+    }
+
+    @Override
+    public boolean canApplyTo(final FunctionCompilationContext context, final ComputationTarget target) {
+      return target.getType() == ComputationTargetType.PORTFOLIO_NODE;
+    }
+
+    @Override
+    public Set<ValueRequirement> getRequirements(final FunctionCompilationContext context, final ComputationTarget target, final ValueRequirement desiredValue) {
+      final Set<ValueRequirement> requirements = new HashSet<ValueRequirement>();
+      for (Position position : target.getPortfolioNode().getPositions()) {
+        requirements.add(new ValueRequirement(VALUE, ComputationTargetType.POSITION, position.getUniqueId()));
+      }
+      return requirements;
+    }
+
+    @Override
+    public Set<ValueSpecification> getResults(final FunctionCompilationContext context, final ComputationTarget target) {
+      return Collections.singleton(new ValueSpecification(VALUE, target.toSpecification(), createValueProperties().get()));
+    }
+
+    @Override
+    public Set<ComputedValue> execute(final FunctionExecutionContext executionContext, final FunctionInputs inputs, final ComputationTarget target,
+        final Set<ValueRequirement> desiredValues) {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+  private MockPositionSource _positionSource;
+  private MockSecuritySource _securitySource;
+  private InMemoryLKVMarketDataProvider _marketData;
+  private ExecutorService _executorService;
+  private ViewCompilationServices _compilationServices;
+  private ViewDefinition _viewDefinition;
+  private SimplePortfolioNode _root;
+  private SimplePosition _position1;
+  private SimplePosition _position2;
+  private UniqueId _security1;
+  private UniqueId _security2;
+  private UniqueId _security3;
+
+  private UniqueId createSecurity(final String id) {
+    final SimpleSecurity security = new SimpleSecurity(SECURITY_TYPE);
+    security.addExternalId(ExternalId.of("Test", id));
+    _securitySource.addSecurity(security);
+    _marketData.addValue(new ValueRequirement(PRICE, ComputationTargetType.SECURITY, security.getUniqueId()), 1d);
+    return security.getUniqueId();
+  }
+
+  @BeforeMethod
+  public void init() {
+    _securitySource = new MockSecuritySource();
+    _marketData = new InMemoryLKVMarketDataProvider();
+    _security1 = createSecurity("1");
+    _security2 = createSecurity("2");
+    _security3 = createSecurity("3");
+    _position1 = new SimplePosition(BigDecimal.ONE, ExternalId.of("Test", "1"));
+    _position2 = new SimplePosition(BigDecimal.ONE, ExternalId.of("Test", "2"));
+    _root = new SimplePortfolioNode("Root");
+    _root.addPosition(_position1);
+    _root.addPosition(_position2);
+    final SimplePortfolio portfolio = new SimplePortfolio(UniqueId.of("Test", "Portfolio"), "Portfolio");
+    portfolio.setRootNode(_root);
+    _positionSource = new MockPositionSource();
+    _positionSource.addPortfolio(portfolio);
+    final InMemoryFunctionRepository functionRepo = new InMemoryFunctionRepository();
+    functionRepo.addFunction(new PositionFunction());
+    functionRepo.addFunction(new PortfolioNodeFunction());
+    final FunctionCompilationContext functionCompilationContext = new FunctionCompilationContext();
+    functionCompilationContext.setFunctionInitId(123);
+    functionCompilationContext.setSecuritySource(_securitySource);
+    final CompiledFunctionService cfs = new CompiledFunctionService(functionRepo, new CachingFunctionRepositoryCompiler(), functionCompilationContext);
+    cfs.initialize();
+    final DefaultCachingComputationTargetResolver computationTargetResolver = new DefaultCachingComputationTargetResolver(new DefaultComputationTargetResolver(_securitySource,
+        _positionSource), EHCacheUtils.createCacheManager());
+    _executorService = Executors.newSingleThreadExecutor();
+    _compilationServices = new ViewCompilationServices(_marketData, new DefaultFunctionResolver(cfs), functionCompilationContext, computationTargetResolver, _executorService,
+        _securitySource, _positionSource);
+    _viewDefinition = new ViewDefinition("Test", portfolio.getUniqueId(), "Test");
+    final ViewCalculationConfiguration calcConfig = new ViewCalculationConfiguration(_viewDefinition, "Default");
+    calcConfig.addPortfolioRequirementName(SECURITY_TYPE, VALUE);
+    _viewDefinition.addViewCalculationConfiguration(calcConfig);
+  }
+
+  @AfterMethod
+  public void shutdown() {
+    _executorService.shutdown();
+  }
+
+  private CompiledViewDefinitionWithGraphsImpl compile() {
+    return ViewDefinitionCompiler.compile(_viewDefinition, _compilationServices, Instant.now(), VersionCorrection.LATEST);
+  }
+
+  private CompiledViewDefinitionWithGraphsImpl compileChanges(final CompiledViewDefinitionWithGraphsImpl compiled, final ObjectId changed) {
+    return PortfolioChangeCompiler.execute(compiled, Collections.singleton(changed), _compilationServices, Instant.now(), VersionCorrection.LATEST);
+  }
+
+  private static DependencyNode getNode(final DependencyGraph graph, final ComputationTargetType type, final UniqueId uid) {
+    final ComputationTargetSpecification target = new ComputationTargetSpecification(type, uid);
+    for (DependencyNode node : graph.getDependencyNodes()) {
+      if (target.equals(node.getComputationTarget().toSpecification())) {
+        return node;
+      }
+    }
+    return null;
+  }
+
+  private static Set<UniqueId> getMarketDataTargets(final CompiledViewDefinitionWithGraphsImpl compiled) {
+    final Set<UniqueId> targets = new HashSet<UniqueId>();
+    for (ValueRequirement requirement : compiled.getMarketDataRequirements().keySet()) {
+      targets.add(requirement.getTargetSpecification().getUniqueId());
+    }
+    return targets;
+  }
+
+  private static void changePosition(final SimplePosition position) {
+    final UniqueId uid = position.getUniqueId();
+    position.setUniqueId(UniqueId.of(uid.getScheme(), uid.getValue(), "1"));
+  }
+
+  //-------------------------------------------------------------------------
+  public void testUnaffected() {
+    final CompiledViewDefinitionWithGraphsImpl compiled = compile();
+    assertSame(compiled, compileChanges(compiled, ObjectId.of("Test", "Other")));
+  }
+
+  public void testSplice() {
+    final CompiledViewDefinitionWithGraphsImpl compiled = compile();
+    final DependencyGraph graph = compiled.getDependencyGraph("Default");
+    // Market data for the two securities, the two positions and the root node
+    assertEquals(5, graph.getSize());
+    final UniqueId oldPosition = _position1.getUniqueId();
+    final DependencyNode oldPositionNode = getNode(graph, ComputationTargetType.POSITION, oldPosition);
+    assertNotNull(oldPositionNode);
+    final DependencyNode oldRootNode = getNode(graph, ComputationTargetType.PORTFOLIO_NODE, _root.getUniqueId());
+    assertNotNull(oldRootNode);
+    final Set<DependencyNode> oldRootInputs = new HashSet<DependencyNode>(oldRootNode.getInputNodes());
+    changePosition(_position1);
+    final CompiledViewDefinitionWithGraphsImpl updated = compileChanges(compiled, oldPosition.getObjectId());
+    assertNotNull(updated);
+    assertNotSame(compiled, updated);
+    // The original compilation is untouched
+    assertSame(graph, compiled.getDependencyGraph("Default"));
+    assertEquals(5, graph.getSize());
+    assertTrue(graph.containsNode(oldPositionNode));
+    assertTrue(graph.containsNode(oldRootNode));
+    assertEquals(oldRootInputs, oldRootNode.getInputNodes());
+    assertTrue(oldPositionNode.getDependentNodes().contains(oldRootNode));
+    // The updated compilation has the changed position spliced into a copy of the graph
+    final DependencyGraph updatedGraph = updated.getDependencyGraph("Default");
+    assertNotSame(graph, updatedGraph);
+    assertEquals(5, updatedGraph.getSize());
+    assertNull(getNode(updatedGraph, ComputationTargetType.POSITION, oldPosition));
+    final DependencyNode newPositionNode = getNode(updatedGraph, ComputationTargetType.POSITION, _position1.getUniqueId());
+    assertNotNull(newPositionNode);
+    final DependencyNode newRootNode = getNode(updatedGraph, ComputationTargetType.PORTFOLIO_NODE, _root.getUniqueId());
+    assertNotNull(newRootNode);
+    assertTrue(newRootNode.getInputNodes().contains(newPositionNode));
+    for (DependencyNode node : updatedGraph.getDependencyNodes()) {
+      assertFalse(graph.containsNode(node));
+    }
+    assertEquals(5, updated.getComputationTargets().size());
+  }
+
+  public void testStructureChange() {
+    final CompiledViewDefinitionWithGraphsImpl compiled = compile();
+    final DependencyGraph graph = compiled.getDependencyGraph("Default");
+    final SimplePosition position3 = new SimplePosition(BigDecimal.ONE, ExternalId.of("Test", "3"));
+    position3.setUniqueId(UniqueId.of("Test", "Position3"));
+    _root.addPosition(position3);
+    assertNull(compileChanges(compiled, _root.getUniqueId().getObjectId()));
+    assertSame(graph, compiled.getDependencyGraph("Default"));
+    assertEquals(5, graph.getSize());
+  }
+
+  public void testMarketDataDelta() {
+    final CompiledViewDefinitionWithGraphsImpl compiled = compile();
+    assertEquals(new HashSet<UniqueId>(Arrays.asList(_security1, _security2)), getMarketDataTargets(compiled));
+    final UniqueId oldPosition = _position2.getUniqueId();
+    _position2.setSecurityLink(new SimpleSecurityLink(ExternalId.of("Test", "3")));
+    changePosition(_position2);
+    final CompiledViewDefinitionWithGraphsImpl updated = compileChanges(compiled, oldPosition.getObjectId());
+    assertNotNull(updated);
+    assertEquals(new HashSet<UniqueId>(Arrays.asList(_security1, _security3)), getMarketDataTargets(updated));
+    assertEquals(new HashSet<UniqueId>(Arrays.asList(_security1, _security2)), getMarketDataTargets(compiled));
+  }
+
+}
@@ -304,6 +304,43 @@ public class ViewDefinitionCompilerTest {
     assertTargets(compiledViewDefinition);
   }
 
+  public void testParallelCompilation() {
+    ViewDefinition viewDefinition = new ViewDefinition("Test", "jonathan");
+    UniqueId t1 = UniqueId.of("TestScheme", "t1");
+    InMemoryLKVMarketDataProvider snapshotProvider = new InMemoryLKVMarketDataProvider();
+    InMemoryFunctionRepository functionRepo = new InMemoryFunctionRepository();
+    MockFunction f1 = MockFunction.getMockFunction(new ComputationTarget(ComputationTargetType.PRIMITIVE, t1), 42);
+    functionRepo.addFunction(f1);
+    for (int i = 0; i < 4; i++) {
+      ViewCalculationConfiguration calcConfig = new ViewCalculationConfiguration(viewDefinition, "Config" + i);
+      calcConfig.addSpecificRequirement(f1.getResultSpec().toRequirementSpecification());
+      viewDefinition.addViewCalculationConfiguration(calcConfig);
+    }
+
+    FunctionCompilationContext compilationContext = new FunctionCompilationContext();
+    compilationContext.setFunctionInitId(123);
+    final CompiledFunctionService cfs = new CompiledFunctionService(functionRepo, new CachingFunctionRepositoryCompiler(), compilationContext);
+    cfs.initialize();
+    DefaultFunctionResolver functionResolver = new DefaultFunctionResolver(cfs);
+    DefaultCachingComputationTargetResolver computationTargetResolver = new DefaultCachingComputationTargetResolver(new DefaultComputationTargetResolver(), EHCacheUtils.createCacheManager());
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    ViewCompilationServices compilationServices = new ViewCompilationServices(snapshotProvider, functionResolver, compilationContext, computationTargetResolver, executorService);
+    compilationServices.setParallelCompilation(true);
+
+    try {
+      CompiledViewDefinitionWithGraphsImpl compiledViewDefinition = ViewDefinitionCompiler.compile(viewDefinition, compilationServices, Instant.now(), VersionCorrection.LATEST);
+      assertEquals(4, compiledViewDefinition.getAllDependencyGraphs().size());
+      for (int i = 0; i < 4; i++) {
+        DependencyGraph graph = compiledViewDefinition.getDependencyGraph("Config" + i);
+        assertNotNull(graph);
+        assertEquals(1, graph.getDependencyNodes().size());
+      }
+      assertTargets(compiledViewDefinition, t1);
+    } finally {
+      executorService.shutdown();
+    }
+  }
+
   private void assertTargets(CompiledViewDefinitionWithGraphsImpl compiledViewDefinition, UniqueId... targets) {
     Set<UniqueId> expectedTargets = new HashSet<UniqueId>(Arrays.asList(targets));
     Set<ComputationTarget> actualTargets = compiledViewDefinition.getComputationTargets();
@@ -15,6 +15,7 @@ import javax.time.calendar.ZonedDateTime;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 
 import org.fudgemsg.FudgeContext;
 import org.fudgemsg.FudgeMsgEnvelope;
@@ -25,6 +26,7 @@ import com.opengamma.engine.ComputationTargetSpecification;
 import com.opengamma.engine.ComputationTargetType;
 import com.opengamma.engine.depgraph.DependencyGraph;
 import com.opengamma.engine.depgraph.DependencyGraphBuilder;
+import com.opengamma.engine.depgraph.ResolutionFailureAggregator;
 import com.opengamma.engine.depgraph.ResolutionFailureGatherer;
 import com.opengamma.engine.fudgemsg.ResolutionFailureFudgeBuilder;
 import com.opengamma.engine.function.FunctionCompilationContext;
@@ -46,6 +48,9 @@ import com.opengamma.util.rest.AbstractDataResource;
  * <p>
  * For example to find out why a graph building configuration can't satisfy a requirement, a URL such
  * as "/value/Present Value/SECURITY/SecDb~1234" will return the failure trace (or the graph if successful).
+ * <p>
+ * Adding the "aggregateFailures=true" query parameter returns a bounded summary of the failures, grouped by value
+ * name, target type and function with a sample of each, instead of every failure trace.
  */
 public final class DependencyGraphBuilderResource extends AbstractDataResource {
 
@@ -154,7 +159,7 @@ public final class DependencyGraphBuilderResource extends AbstractDataResource {
   }
 
   @GET
-  public FudgeMsgEnvelope build() {
+  public FudgeMsgEnvelope build(@QueryParam("aggregateFailures") final boolean aggregateFailures) {
     final DependencyGraphBuilder builder = getBuilderContext().getDependencyGraphBuilderFactory().newInstance();
     builder.setCalculationConfigurationName(getCalculationConfigurationName());
     final FunctionCompilationContext context = getBuilderContext().getFunctionCompilationContext().clone();
@@ -168,8 +173,15 @@ public final class DependencyGraphBuilderResource extends AbstractDataResource {
     builder.setFunctionResolver(new DefaultCompiledFunctionResolver(context, rules));
     builder.setMarketDataAvailabilityProvider(getBuilderContext().getMarketDataProviderResolver().resolve(getMarketData()).getAvailabilityProvider());
     final FudgeContext fudgeContext = getFudgeContext();
-    final ResolutionFailureGatherer<MutableFudgeMsg> failures = new ResolutionFailureGatherer<MutableFudgeMsg>(new ResolutionFailureFudgeBuilder.Visitor(getFudgeContext()));
-    builder.setResolutionFailureVisitor(failures);
+    ResolutionFailureGatherer<MutableFudgeMsg> failureGatherer = null;
+    ResolutionFailureAggregator failureAggregator = null;
+    if (aggregateFailures) {
+      failureAggregator = new ResolutionFailureAggregator();
+      builder.setResolutionFailureAggregator(failureAggregator);
+    } else {
+      failureGatherer = new ResolutionFailureGatherer<MutableFudgeMsg>(new ResolutionFailureFudgeBuilder.Visitor(fudgeContext));
+      builder.setResolutionFailureVisitor(failureGatherer);
+    }
     builder.setTargetResolver(getBuilderContext().getComputationTargetResolver());
     for (ValueRequirement requirement : getRequirements()) {
       builder.addTarget(requirement);
@@ -188,7 +200,8 @@ public final class DependencyGraphBuilderResource extends AbstractDataResource {
       }
       result.add("exception", submessage);
     }
-    for (MutableFudgeMsg failure : failures.getResults()) {
+    final Collection<MutableFudgeMsg> failures = aggregateFailures ? failureAggregator.accept(new ResolutionFailureFudgeBuilder.Visitor(fudgeContext)) : failureGatherer.getResults();
+    for (MutableFudgeMsg failure : failures) {
       result.add("failure", failure);
     }
     serializer.addToMessage(result, "mapping", null, builder.getValueRequirementMapping());
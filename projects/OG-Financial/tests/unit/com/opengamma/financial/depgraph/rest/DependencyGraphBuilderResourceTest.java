@@ -13,11 +13,13 @@ import static org.testng.Assert.fail;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 import javax.time.Duration;
 import javax.time.Instant;
 
+import org.fudgemsg.FudgeField;
 import org.fudgemsg.FudgeMsg;
 import org.fudgemsg.FudgeMsgEnvelope;
 import org.slf4j.Logger;
@@ -221,7 +223,7 @@ public class DependencyGraphBuilderResourceTest {
   public void testBuild_ok() {
     final DependencyGraphBuilderResource resource = createResource();
     final FudgeMsgEnvelope env = resource.addValueRequirement(MarketDataRequirementNames.MARKET_VALUE, "PRIMITIVE", "Foo~1")
-        .addValueRequirement(MarketDataRequirementNames.MARKET_VALUE, "PRIMITIVE", "Foo~2").build();
+        .addValueRequirement(MarketDataRequirementNames.MARKET_VALUE, "PRIMITIVE", "Foo~2").build(false);
     final FudgeMsg msg = env.getMessage();
     s_logger.debug("testBuild_ok = {}", msg);
     assertTrue(msg.hasField("dependencyGraph"));
@@ -232,7 +234,7 @@ public class DependencyGraphBuilderResourceTest {
   public void testBuild_exceptions() {
     final DependencyGraphBuilderResource resource = createResource();
     final FudgeMsgEnvelope env = resource.addValueRequirement(MarketDataRequirementNames.MARKET_VALUE, "PRIMITIVE", "Foo~1")
-        .addValueRequirement(ValueRequirementNames.FAIR_VALUE, "PRIMITIVE", "Foo~Bar").build();
+        .addValueRequirement(ValueRequirementNames.FAIR_VALUE, "PRIMITIVE", "Foo~Bar").build(false);
     final FudgeMsg msg = env.getMessage();
     s_logger.debug("testBuild_exceptions = {}", msg);
     assertTrue(msg.hasField("dependencyGraph"));
@@ -243,7 +245,7 @@ public class DependencyGraphBuilderResourceTest {
   public void testBuild_failures() {
     final DependencyGraphBuilderResource resource = createResource();
     final FudgeMsgEnvelope env = resource.addValueRequirement(MarketDataRequirementNames.MARKET_VALUE, "PRIMITIVE", "Bar~1")
-        .addValueRequirement(ValueRequirementNames.PRESENT_VALUE, "PRIMITIVE", "Bar~2").build();
+        .addValueRequirement(ValueRequirementNames.PRESENT_VALUE, "PRIMITIVE", "Bar~2").build(false);
     final FudgeMsg msg = env.getMessage();
     s_logger.debug("testBuild_failures = {}", msg);
     assertTrue(msg.hasField("dependencyGraph"));
@@ -251,4 +253,20 @@ public class DependencyGraphBuilderResourceTest {
     assertEquals(msg.getAllByName("failure").size(), 2);
   }
 
+  public void testBuild_aggregatedFailures() {
+    final DependencyGraphBuilderResource resource = createResource();
+    final FudgeMsgEnvelope env = resource.addValueRequirement(MarketDataRequirementNames.MARKET_VALUE, "PRIMITIVE", "Bar~1")
+        .addValueRequirement(ValueRequirementNames.PRESENT_VALUE, "PRIMITIVE", "Bar~2").build(true);
+    final FudgeMsg msg = env.getMessage();
+    s_logger.debug("testBuild_aggregatedFailures = {}", msg);
+    assertTrue(msg.hasField("dependencyGraph"));
+    assertEquals(msg.getAllByName("exception").size(), 2);
+    // One summary for each value name, rather than a failure trace for each requirement
+    final List<FudgeField> failures = msg.getAllByName("failure");
+    assertEquals(failures.size(), 2);
+    for (FudgeField failure : failures) {
+      assertTrue(((FudgeMsg) failure.getValue()).getInt("Count") >= 1);
+    }
+  }
+
 }
@@ -107,6 +107,12 @@ public class FetchTimeSeriesFunctionTest {
       throw new UnsupportedOperationException();
     }
 
+    @Override
+    public Map<ExternalIdBundle, Pair<LocalDate, Double>> getLatestDataPoints(String dataField, Set<ExternalIdBundle> identifierSet, LocalDate identifierValidityDate, String resolutionKey,
+        LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+      throw new UnsupportedOperationException();
+    }
+
     @Override
     public HistoricalTimeSeries getHistoricalTimeSeries(UniqueId uniqueId, LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd, int maxPoints) {
       throw new UnsupportedOperationException();
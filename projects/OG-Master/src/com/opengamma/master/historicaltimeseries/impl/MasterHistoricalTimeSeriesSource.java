@@ -460,6 +460,28 @@ public class MasterHistoricalTimeSeriesSource
     return result;
   }
 
+  @Override
+  public Map<ExternalIdBundle, Pair<LocalDate, Double>> getLatestDataPoints(
+      String dataField, Set<ExternalIdBundle> identifierSet, LocalDate identifierValidityDate, String resolutionKey,
+      LocalDate start, boolean includeStart, LocalDate end, boolean includeEnd) {
+    ArgumentChecker.notNull(identifierSet, "identifierSet");
+    if (start != null && !includeStart) {
+      start = start.plusDays(1);
+    }
+    if (end != null && !includeEnd) {
+      end = end.minusDays(1);
+    }
+    Map<ExternalIdBundle, Pair<LocalDate, Double>> result = Maps.newHashMapWithExpectedSize(identifierSet.size());
+    for (ExternalIdBundle externalIdBundle : identifierSet) {
+      HistoricalTimeSeries hts = doGetHistoricalTimeSeries(dataField, externalIdBundle, identifierValidityDate, resolutionKey, start, end, -1);
+      if (hts != null && !hts.getTimeSeries().isEmpty()) {
+        LocalDateDoubleTimeSeries lddts = hts.getTimeSeries();
+        result.put(externalIdBundle, new ObjectsPair<LocalDate, Double>(lddts.getLatestTime(), lddts.getLatestValue()));
+      }
+    }
+    return result;
+  }
+
   //-------------------------------------------------------------------------
   @Override
   public String toString() {
@@ -0,0 +1,471 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable hash map that is updated by creating a new version. The versions share structure through a hash array
+ * mapped trie, so {@link #with} and {@link #without} copy only the path to the changed entry rather than the whole
+ * map. A version can be held for as long as is needed without being affected by later changes, so a reference to the
+ * current version is a constant-time snapshot of the map.
+ * <p>
+ * Null keys and values are not supported. The mutating methods of {@link Map} throw
+ * {@link UnsupportedOperationException}.
+ *
+ * @param <K>  the type of the keys
+ * @param <V>  the type of the values
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+
+  @SuppressWarnings("rawtypes")
+  private static final PersistentHashMap EMPTY = new PersistentHashMap(null, 0);
+
+  private final Node _root;
+  private final int _size;
+
+  private PersistentHashMap(final Node root, final int size) {
+    _root = root;
+    _size = size;
+  }
+
+  /**
+   * Returns the empty map.
+   *
+   * @param <K>  the type of the keys
+   * @param <V>  the type of the values
+   * @return the empty map, not null
+   */
+  @SuppressWarnings("unchecked")
+  public static <K, V> PersistentHashMap<K, V> of() {
+    return EMPTY;
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * Returns a version of this map with the key associated with the value. This map is unchanged.
+   *
+   * @param key  the key, not null
+   * @param value  the value, not null
+   * @return the new version, this map if the key was already associated with the same value instance
+   */
+  public PersistentHashMap<K, V> with(final K key, final V value) {
+    ArgumentChecker.notNull(key, "key");
+    ArgumentChecker.notNull(value, "value");
+    final Leaf leaf = new Leaf(spread(key.hashCode()), key, value);
+    if (_root == null) {
+      return new PersistentHashMap<K, V>(new BitmapNode().with(leaf, 0), 1);
+    }
+    final Node root = _root.with(leaf, 0);
+    if (root == _root) {
+      return this;
+    }
+    return new PersistentHashMap<K, V>(root, (_root.find(leaf._hash, 0, key) != null) ? _size : _size + 1);
+  }
+
+  /**
+   * Returns a version of this map without the key. This map is unchanged.
+   *
+   * @param key  the key, null returns this map
+   * @return the new version, this map if the key was not present
+   */
+  public PersistentHashMap<K, V> without(final Object key) {
+    if ((key == null) || (_root == null)) {
+      return this;
+    }
+    final Node root = _root.without(spread(key.hashCode()), 0, key);
+    if (root == _root) {
+      return this;
+    }
+    if (root == null) {
+      return of();
+    }
+    return new PersistentHashMap<K, V>(root, _size - 1);
+  }
+
+  //-------------------------------------------------------------------------
+  @SuppressWarnings("unchecked")
+  @Override
+  public V get(final Object key) {
+    final Leaf leaf = find(key);
+    return (leaf != null) ? (V) leaf._value : null;
+  }
+
+  @Override
+  public boolean containsKey(final Object key) {
+    return find(key) != null;
+  }
+
+  @Override
+  public int size() {
+    return _size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return _size == 0;
+  }
+
+  @Override
+  public Set<Map.Entry<K, V>> entrySet() {
+    return new AbstractSet<Map.Entry<K, V>>() {
+
+      @Override
+      public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator<K, V>(_root);
+      }
+
+      @Override
+      public int size() {
+        return _size;
+      }
+
+    };
+  }
+
+  private Leaf find(final Object key) {
+    if ((key == null) || (_root == null)) {
+      return null;
+    }
+    return _root.find(spread(key.hashCode()), 0, key);
+  }
+
+  private static int spread(final int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  //-------------------------------------------------------------------------
+  /**
+   * A key/value pair stored in the trie.
+   */
+  private static final class Leaf extends SimpleImmutableEntry<Object, Object> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int _hash;
+    private final Object _key;
+    private final Object _value;
+
+    private Leaf(final int hash, final Object key, final Object value) {
+      super(key, value);
+      _hash = hash;
+      _key = key;
+      _value = value;
+    }
+
+  }
+
+  /**
+   * A node of the trie. Nodes are never modified once they have been published.
+   */
+  private abstract static class Node {
+
+    abstract Leaf find(int hash, int shift, Object key);
+
+    abstract Node with(Leaf leaf, int shift);
+
+    /**
+     * @return the updated node, this if the key was not present, null if the node is now empty
+     */
+    abstract Node without(int hash, int shift, Object key);
+
+    abstract int slots();
+
+    abstract Object slot(int index);
+
+  }
+
+  /**
+   * Node holding up to 32 leaves or sub-nodes, indexed by five bits of the hash.
+   */
+  private static final class BitmapNode extends Node {
+
+    private final int _bitmap;
+    private final Object[] _slots;
+
+    private BitmapNode() {
+      this(0, new Object[0]);
+    }
+
+    private BitmapNode(final int bitmap, final Object[] slots) {
+      _bitmap = bitmap;
+      _slots = slots;
+    }
+
+    private static Node create(final Leaf a, final Leaf b, final int shift) {
+      if (a._hash == b._hash) {
+        return new CollisionNode(a._hash, new Leaf[] {a, b });
+      }
+      final int bitA = 1 << ((a._hash >>> shift) & MASK);
+      final int bitB = 1 << ((b._hash >>> shift) & MASK);
+      if (bitA == bitB) {
+        return new BitmapNode(bitA, new Object[] {create(a, b, shift + BITS) });
+      }
+      // Slots are ordered by bit position
+      if ((bitA & (bitB - 1)) != 0) {
+        return new BitmapNode(bitA | bitB, new Object[] {a, b });
+      } else {
+        return new BitmapNode(bitA | bitB, new Object[] {b, a });
+      }
+    }
+
+    private int index(final int bit) {
+      return Integer.bitCount(_bitmap & (bit - 1));
+    }
+
+    @Override
+    Leaf find(final int hash, final int shift, final Object key) {
+      final int bit = 1 << ((hash >>> shift) & MASK);
+      if ((_bitmap & bit) == 0) {
+        return null;
+      }
+      final Object slot = _slots[index(bit)];
+      if (slot instanceof Leaf) {
+        final Leaf leaf = (Leaf) slot;
+        return ((leaf._hash == hash) && leaf._key.equals(key)) ? leaf : null;
+      } else {
+        return ((Node) slot).find(hash, shift + BITS, key);
+      }
+    }
+
+    @Override
+    Node with(final Leaf leaf, final int shift) {
+      final int bit = 1 << ((leaf._hash >>> shift) & MASK);
+      final int index = index(bit);
+      if ((_bitmap & bit) == 0) {
+        final Object[] slots = new Object[_slots.length + 1];
+        System.arraycopy(_slots, 0, slots, 0, index);
+        slots[index] = leaf;
+        System.arraycopy(_slots, index, slots, index + 1, _slots.length - index);
+        return new BitmapNode(_bitmap | bit, slots);
+      }
+      final Object slot = _slots[index];
+      final Object replacement;
+      if (slot instanceof Leaf) {
+        final Leaf existing = (Leaf) slot;
+        if ((existing._hash == leaf._hash) && existing._key.equals(leaf._key)) {
+          if (existing._value == leaf._value) {
+            return this;
+          }
+          replacement = leaf;
+        } else {
+          replacement = create(existing, leaf, shift + BITS);
+        }
+      } else {
+        replacement = ((Node) slot).with(leaf, shift + BITS);
+        if (replacement == slot) {
+          return this;
+        }
+      }
+      final Object[] slots = _slots.clone();
+      slots[index] = replacement;
+      return new BitmapNode(_bitmap, slots);
+    }
+
+    @Override
+    Node without(final int hash, final int shift, final Object key) {
+      final int bit = 1 << ((hash >>> shift) & MASK);
+      if ((_bitmap & bit) == 0) {
+        return this;
+      }
+      final int index = index(bit);
+      final Object slot = _slots[index];
+      final Object replacement;
+      if (slot instanceof Leaf) {
+        final Leaf leaf = (Leaf) slot;
+        if ((leaf._hash != hash) || !leaf._key.equals(key)) {
+          return this;
+        }
+        replacement = null;
+      } else {
+        replacement = ((Node) slot).without(hash, shift + BITS, key);
+        if (replacement == slot) {
+          return this;
+        }
+      }
+      if (replacement != null) {
+        final Object[] slots = _slots.clone();
+        slots[index] = replacement;
+        return new BitmapNode(_bitmap, slots);
+      }
+      if (_slots.length == 1) {
+        return null;
+      }
+      final Object[] slots = new Object[_slots.length - 1];
+      System.arraycopy(_slots, 0, slots, 0, index);
+      System.arraycopy(_slots, index + 1, slots, index, slots.length - index);
+      return new BitmapNode(_bitmap & ~bit, slots);
+    }
+
+    @Override
+    int slots() {
+      return _slots.length;
+    }
+
+    @Override
+    Object slot(final int index) {
+      return _slots[index];
+    }
+
+  }
+
+  /**
+   * Node holding leaves whose keys have the same hash.
+   */
+  private static final class CollisionNode extends Node {
+
+    private final int _hash;
+    private final Leaf[] _leaves;
+
+    private CollisionNode(final int hash, final Leaf[] leaves) {
+      _hash = hash;
+      _leaves = leaves;
+    }
+
+    private int indexOf(final Object key) {
+      for (int i = 0; i < _leaves.length; i++) {
+        if (_leaves[i]._key.equals(key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    Leaf find(final int hash, final int shift, final Object key) {
+      if (hash != _hash) {
+        return null;
+      }
+      final int index = indexOf(key);
+      return (index >= 0) ? _leaves[index] : null;
+    }
+
+    @Override
+    Node with(final Leaf leaf, final int shift) {
+      if (leaf._hash != _hash) {
+        // Push this node down a level alongside the new leaf
+        final int bit = 1 << ((_hash >>> shift) & MASK);
+        return new BitmapNode(bit, new Object[] {this }).with(leaf, shift);
+      }
+      final int index = indexOf(leaf._key);
+      final Leaf[] leaves;
+      if (index >= 0) {
+        if (_leaves[index]._value == leaf._value) {
+          return this;
+        }
+        leaves = _leaves.clone();
+        leaves[index] = leaf;
+      } else {
+        leaves = new Leaf[_leaves.length + 1];
+        System.arraycopy(_leaves, 0, leaves, 0, _leaves.length);
+        leaves[_leaves.length] = leaf;
+      }
+      return new CollisionNode(_hash, leaves);
+    }
+
+    @Override
+    Node without(final int hash, final int shift, final Object key) {
+      if (hash != _hash) {
+        return this;
+      }
+      final int index = indexOf(key);
+      if (index < 0) {
+        return this;
+      }
+      if (_leaves.length == 1) {
+        return null;
+      }
+      final Leaf[] leaves = new Leaf[_leaves.length - 1];
+      System.arraycopy(_leaves, 0, leaves, 0, index);
+      System.arraycopy(_leaves, index + 1, leaves, index, leaves.length - index);
+      return new CollisionNode(_hash, leaves);
+    }
+
+    @Override
+    int slots() {
+      return _leaves.length;
+    }
+
+    @Override
+    Object slot(final int index) {
+      return _leaves[index];
+    }
+
+  }
+
+  /**
+   * Depth-first iteration over the leaves of a trie.
+   */
+  private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+
+    private final List<Node> _nodes = new ArrayList<Node>();
+    private final List<Integer> _positions = new ArrayList<Integer>();
+    private Leaf _next;
+
+    private EntryIterator(final Node root) {
+      if (root != null) {
+        _nodes.add(root);
+        _positions.add(0);
+      }
+      advance();
+    }
+
+    private void advance() {
+      _next = null;
+      while (!_nodes.isEmpty()) {
+        final int top = _nodes.size() - 1;
+        final Node node = _nodes.get(top);
+        final int position = _positions.get(top);
+        if (position >= node.slots()) {
+          _nodes.remove(top);
+          _positions.remove(top);
+          continue;
+        }
+        _positions.set(top, position + 1);
+        final Object slot = node.slot(position);
+        if (slot instanceof Leaf) {
+          _next = (Leaf) slot;
+          return;
+        }
+        _nodes.add((Node) slot);
+        _positions.add(0);
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _next != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map.Entry<K, V> next() {
+      if (_next == null) {
+        throw new NoSuchElementException();
+      }
+      final Leaf next = _next;
+      advance();
+      return (Map.Entry<K, V>) (Map.Entry<?, ?>) next;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+  }
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2012 - present by OpenGamma Inc. and the OpenGamma group of companies
+ *
+ * Please see distribution for license.
+ */
+package com.opengamma.util;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests the {@link PersistentHashMap} class.
+ */
+@Test
+public class PersistentHashMapTest {
+
+  /**
+   * Key with a poor hash code, to exercise the collision handling.
+   */
+  private static final class Key {
+
+    private final int _value;
+
+    private Key(final int value) {
+      _value = value;
+    }
+
+    @Override
+    public int hashCode() {
+      return _value % 7;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      return (o instanceof Key) && (((Key) o)._value == _value);
+    }
+
+  }
+
+  public void testEmpty() {
+    final PersistentHashMap<String, String> map = PersistentHashMap.of();
+    assertTrue(map.isEmpty());
+    assertNull(map.get("A"));
+    assertSame(map, map.without("A"));
+    assertFalse(map.entrySet().iterator().hasNext());
+  }
+
+  public void testVersions() {
+    final PersistentHashMap<String, String> v0 = PersistentHashMap.of();
+    final PersistentHashMap<String, String> v1 = v0.with("A", "1");
+    final PersistentHashMap<String, String> v2 = v1.with("B", "2");
+    final PersistentHashMap<String, String> v3 = v2.with("A", "3");
+    final PersistentHashMap<String, String> v4 = v3.without("B");
+    assertEquals(0, v0.size());
+    assertEquals("1", v1.get("A"));
+    assertEquals(1, v1.size());
+    assertEquals(2, v2.size());
+    assertEquals("1", v2.get("A"));
+    assertEquals("3", v3.get("A"));
+    assertEquals(2, v3.size());
+    assertEquals(1, v4.size());
+    assertFalse(v4.containsKey("B"));
+    assertTrue(v3.containsKey("B"));
+    assertSame(v4, v4.without("B"));
+  }
+
+  public void testRandomOperations() {
+    final Random random = new Random(1);
+    final Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+    PersistentHashMap<Integer, Integer> map = PersistentHashMap.of();
+    for (int i = 0; i < 20000; i++) {
+      final Integer key = random.nextInt(2000) - 1000;
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        map = map.without(key);
+      } else {
+        expected.put(key, i);
+        map = map.with(key, i);
+      }
+    }
+    assertEquals(expected.size(), map.size());
+    assertEquals(expected, map);
+    assertEquals(expected, new HashMap<Integer, Integer>(map));
+  }
+
+  public void testCollisions() {
+    PersistentHashMap<Key, Integer> map = PersistentHashMap.of();
+    for (int i = 0; i < 100; i++) {
+      map = map.with(new Key(i), i);
+    }
+    assertEquals(100, map.size());
+    for (int i = 0; i < 100; i += 2) {
+      map = map.without(new Key(i));
+    }
+    assertEquals(50, map.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals((i % 2 == 0) ? null : (Integer) i, map.get(new Key(i)));
+    }
+    int count = 0;
+    for (Map.Entry<Key, Integer> entry : map.entrySet()) {
+      assertEquals(entry.getKey()._value, entry.getValue().intValue());
+      count++;
+    }
+    assertEquals(50, count);
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public void testImmutable() {
+    PersistentHashMap.<String, String>of().with("A", "1").put("B", "2");
+  }
+
+}